@@ -1,15 +1,171 @@
 package ru.practicum.moviehub;
 
+import ru.practicum.moviehub.http.ExecutorMode;
 import ru.practicum.moviehub.http.MoviesServer;
+import ru.practicum.moviehub.http.ServerConfig;
+import ru.practicum.moviehub.http.ServerEngine;
+import ru.practicum.moviehub.replication.Follower;
+import ru.practicum.moviehub.store.ColumnarMoviesStore;
+import ru.practicum.moviehub.store.ConcurrentMoviesStore;
 import ru.practicum.moviehub.store.MoviesStore;
+import ru.practicum.moviehub.store.RestorableMoviesStore;
+import ru.practicum.moviehub.store.persistence.FsyncPolicy;
+import ru.practicum.moviehub.store.persistence.PersistenceConfig;
+import ru.practicum.moviehub.store.persistence.PersistentMoviesStore;
 
 
+import java.io.Closeable;
 import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
 
 public class MovieHubApp {
     public static void main(String[] args) throws IOException {
-        final MoviesServer server = new MoviesServer(new MoviesStore(), 8080);
-        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        // без TCP_NODELAY заголовки и тело ответа JDK-движка на keep-alive соединении ждут delayed ACK (~40 мс);
+        // свойство читается при создании первого HttpServer, поэтому задаётся до него
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        Map<String, String> options = parseArgs(args);
+        final MoviesStore store = createStore(options);
+        ServerConfig config = parseConfig(options);
+        int port = Integer.parseInt(options.getOrDefault("port", "8080"));
+        final Follower follower = createFollower(options, store, config);
+        final MoviesServer server = new MoviesServer(store, port, config);
+        if (follower != null) {
+            server.getMetrics().setReplication(follower::getAppliedSeq, follower::getLagMillis);
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (follower != null) {
+                follower.close();
+            }
+            server.stop();
+            if (store instanceof Closeable closeable) {
+                try {
+                    closeable.close();
+                } catch (IOException e) {
+                    System.err.println("Не удалось закрыть хранилище: " + e.getMessage());
+                }
+            }
+        }));
         server.start();
+        if (follower != null) {
+            follower.start();
+        }
     }
-}
\ No newline at end of file
+
+    // хранилище реплики только в памяти, наполняется снимком и лентой ведущего
+    static Follower createFollower(Map<String, String> options, MoviesStore store, ServerConfig config) {
+        String primary = options.get("follow");
+        if (primary == null) {
+            return null;
+        }
+        if (!(store instanceof RestorableMoviesStore restorable)) {
+            throw new IllegalArgumentException("Реплика работает только с хранилищем в памяти, без --data-dir");
+        }
+        config.setReadOnly(true);
+        System.out.println("Реплика ведущего сервера " + primary);
+        return new Follower(URI.create(primary), restorable);
+    }
+
+    // пример: --executor=virtual --threads=16 --backlog=256 --data-dir=data --fsync=batch
+    // без --data-dir можно выбрать хранилище в памяти: --store=columnar
+    // движок на неблокирующих каналах: --engine=nio --event-loops=2 --keep-alive-ms=30000
+    // допуск: --read-limit=64 --read-queue=128 --write-limit=8 --write-queue=16 --admission-timeout-ms=500
+    // частота по клиенту: --rate-limit=50 --rate-burst=100 --rate-key-header=X-Api-Key
+    // единственный поток записи с групповой фиксацией: --write-pipeline=1024 --write-batch=256
+    // файл выгрузки GET /movies/export: --export-dir=export; с --data-dir по умолчанию в нём же
+    // без индекса поиска по названиям: --search-index=false
+    // реплика: --port=8081 --follow=http://localhost:8080; ведущий включает ленту явно: --change-log=65536 --max-long-polls=4
+    static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+            if (pair.length != 2 || !pair[0].startsWith("--")) {
+                throw new IllegalArgumentException("Неизвестный аргумент: " + arg);
+            }
+            options.put(pair[0].substring(2), pair[1]);
+        }
+        return options;
+    }
+
+    static ServerConfig parseConfig(Map<String, String> options) {
+        ServerConfig config = ServerConfig.defaults();
+        for (Map.Entry<String, String> option : options.entrySet()) {
+            String value = option.getValue();
+            switch (option.getKey()) {
+                case "engine" -> config.setEngine(switch (value) {
+                    case "jdk" -> ServerEngine.JDK;
+                    case "nio" -> ServerEngine.NIO;
+                    default -> throw new IllegalArgumentException("Неизвестный движок: " + value);
+                });
+                case "event-loops" -> config.setEventLoops(Integer.parseInt(value));
+                case "keep-alive-ms" -> config.setKeepAliveMillis(Long.parseLong(value));
+                case "executor" -> config.setExecutorMode(switch (value) {
+                    case "dispatcher" -> ExecutorMode.DISPATCHER;
+                    case "pool" -> ExecutorMode.THREAD_POOL;
+                    case "virtual" -> ExecutorMode.VIRTUAL;
+                    default -> throw new IllegalArgumentException("Неизвестный режим: " + value);
+                });
+                case "threads" -> config.setThreads(Integer.parseInt(value));
+                case "backlog" -> config.setBacklog(Integer.parseInt(value));
+                case "stop-delay" -> config.setStopDelaySeconds(Integer.parseInt(value));
+                case "compression-min-bytes" -> config.setCompressionMinBytes(Integer.parseInt(value));
+                case "read-limit" -> config.setReadMaxInFlight(Integer.parseInt(value));
+                case "read-queue" -> config.setReadMaxQueued(Integer.parseInt(value));
+                case "write-limit" -> config.setWriteMaxInFlight(Integer.parseInt(value));
+                case "write-queue" -> config.setWriteMaxQueued(Integer.parseInt(value));
+                case "admission-timeout-ms" -> config.setAdmissionTimeoutMillis(Long.parseLong(value));
+                case "retry-after" -> config.setRetryAfterSeconds(Integer.parseInt(value));
+                case "rate-limit" -> config.setRateLimitPerSecond(Double.parseDouble(value));
+                case "rate-burst" -> config.setRateLimitBurst(Integer.parseInt(value));
+                case "rate-key-header" -> config.setRateLimitKeyHeader(value);
+                case "rate-idle-ms" -> config.setRateLimitIdleMillis(Long.parseLong(value));
+                case "rate-max-clients" -> config.setRateLimitMaxClients(Integer.parseInt(value));
+                case "change-log" -> config.setChangeLogCapacity(Integer.parseInt(value));
+                case "max-long-polls" -> config.setMaxLongPolls(Integer.parseInt(value));
+                case "write-pipeline" -> config.setWritePipelineCapacity(Integer.parseInt(value));
+                case "write-batch" -> config.setWriteBatchSize(Integer.parseInt(value));
+                case "export-dir" -> config.setExportDir(Path.of(value));
+                case "search-index" -> config.setSearchIndex(switch (value) {
+                    case "true" -> true;
+                    case "false" -> false;
+                    default -> throw new IllegalArgumentException("Ожидается true или false: --search-index=" + value);
+                });
+                case "store", "data-dir", "fsync", "fsync-interval-ms", "compact-threshold-mb", "port", "follow" -> {
+                }
+                default -> throw new IllegalArgumentException("Неизвестный аргумент: --" + option.getKey());
+            }
+        }
+        if (config.getExportDir() == null && options.containsKey("data-dir")) {
+            config.setExportDir(Path.of(options.get("data-dir")));
+        }
+        return config;
+    }
+
+    static MoviesStore createStore(Map<String, String> options) throws IOException {
+        String dataDir = options.get("data-dir");
+        if (dataDir == null) {
+            String store = options.getOrDefault("store", "concurrent");
+            return switch (store) {
+                case "concurrent" -> new ConcurrentMoviesStore();
+                case "columnar" -> new ColumnarMoviesStore();
+                default -> throw new IllegalArgumentException("Неизвестное хранилище: " + store);
+            };
+        }
+        PersistenceConfig config = new PersistenceConfig(Path.of(dataDir));
+        if (options.containsKey("fsync")) {
+            config.setFsyncPolicy(FsyncPolicy.valueOf(options.get("fsync").toUpperCase()));
+        }
+        if (options.containsKey("fsync-interval-ms")) {
+            config.setBatchIntervalMillis(Long.parseLong(options.get("fsync-interval-ms")));
+        }
+        if (options.containsKey("compact-threshold-mb")) {
+            config.setCompactThresholdBytes(Long.parseLong(options.get("compact-threshold-mb")) * 1024 * 1024);
+        }
+        System.out.println("Хранилище с журналом: " + config);
+        return PersistentMoviesStore.open(config);
+    }
+}
@@ -0,0 +1,77 @@
+package ru.practicum.moviehub.api;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class ApiErrors {
+    public static final int TITLE_BLANK = 1;
+    public static final int TITLE_TOO_LONG = 1 << 1;
+    public static final int YEAR_OUT_OF_RANGE = 1 << 2;
+
+    private static final String VALIDATION_ERROR = "Ошибка валидации!";
+    private static final String[] VALIDATION_DETAILS = {
+            "Название не должно быть пустым!",
+            "Длина тела должна быть <= 100",
+            "Год должен быть между 1888 и 2026!"
+    };
+
+    public static final ErrorTemplate MOVIE_NOT_FOUND = simple(404, "Фильм не найден");
+    public static final ErrorTemplate INVALID_ID = simple(400, "Некорректный ID");
+    public static final ErrorTemplate INVALID_YEAR = simple(400, "Некорректный параметр запроса — 'year'");
+    public static final ErrorTemplate INVALID_YEAR_FROM = simple(400, "Некорректный параметр запроса — 'yearFrom'");
+    public static final ErrorTemplate INVALID_YEAR_TO = simple(400, "Некорректный параметр запроса — 'yearTo'");
+    public static final ErrorTemplate INVALID_LIMIT = simple(400, "Некорректный параметр запроса — 'limit'");
+    public static final ErrorTemplate INVALID_CURSOR = simple(400, "Некорректный параметр запроса — 'cursor'");
+    public static final ErrorTemplate INVALID_QUERY = simple(400, "Некорректный параметр запроса — 'q'");
+    public static final ErrorTemplate INVALID_SINCE = simple(400, "Некорректный параметр запроса — 'since'");
+    public static final ErrorTemplate CHANGES_EXPIRED = simple(410, "Изменения уже вытеснены из ленты, нужен снимок");
+    public static final ErrorTemplate SEARCH_DISABLED = simple(404, "Поиск по названиям выключен");
+    public static final ErrorTemplate READ_ONLY = simple(405, "Реплика принимает только GET-запросы");
+    public static final ErrorTemplate INVALID_JSON = simple(400, "Некорректный JSON");
+    public static final ErrorTemplate UNSUPPORTED_BATCH_MEDIA_TYPE =
+            simple(415, "Ожидается Content-Type application/json или application/x-ndjson");
+    public static final ErrorTemplate READ_FAILED = simple(422, "Что-то пошло не так");
+    public static final ErrorTemplate UNSUPPORTED_MEDIA_TYPE = simple(415, "Неправильное значение заголовка Content-Type");
+    public static final ErrorTemplate TOO_MANY_REQUESTS = simple(429, "Слишком много запросов, повторите позже");
+    public static final ErrorTemplate OVERLOADED = simple(503, "Сервер перегружен, повторите запрос позже");
+    public static final ErrorTemplate WRITE_TIMEOUT =
+            simple(503, "Изменение не подтверждено вовремя, его результат неизвестен");
+    public static final ErrorTemplate METHOD_NOT_ALLOWED = simple(405, "Принимаю только Get и POST запросы!");
+
+    // все сочетания ошибок валидации, индекс — битовая маска TITLE_BLANK | TITLE_TOO_LONG | YEAR_OUT_OF_RANGE
+    private static final ErrorTemplate[] VALIDATION = new ErrorTemplate[1 << VALIDATION_DETAILS.length];
+    private static final List<List<String>> VALIDATION_DETAILS_BY_MASK = new ArrayList<>();
+
+    static {
+        VALIDATION_DETAILS_BY_MASK.add(List.of());
+        for (int mask = 1; mask < VALIDATION.length; mask++) {
+            List<String> details = new ArrayList<>();
+            for (int bit = 0; bit < VALIDATION_DETAILS.length; bit++) {
+                if ((mask & (1 << bit)) != 0) {
+                    details.add(VALIDATION_DETAILS[bit]);
+                }
+            }
+            VALIDATION_DETAILS_BY_MASK.add(List.copyOf(details));
+            ErrorResponse response = new ErrorResponse(VALIDATION_ERROR, details);
+            VALIDATION[mask] = new ErrorTemplate(422, MovieCodec.encodeError(response));
+        }
+    }
+
+    private ApiErrors() {
+    }
+
+    public static ErrorTemplate validation(int mask) {
+        if (mask <= 0 || mask >= VALIDATION.length) {
+            throw new IllegalArgumentException("Некорректная маска ошибок валидации: " + mask);
+        }
+        return VALIDATION[mask];
+    }
+
+    public static List<String> validationDetails(int mask) {
+        return VALIDATION_DETAILS_BY_MASK.get(mask);
+    }
+
+    private static ErrorTemplate simple(int status, String detail) {
+        return new ErrorTemplate(status, MovieCodec.encodeError(ErrorResponse.of(detail)));
+    }
+}
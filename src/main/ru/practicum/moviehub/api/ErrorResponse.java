@@ -1,26 +1,23 @@
 package ru.practicum.moviehub.api;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-public class ErrorResponse {
-    private String error;
-    private List<String> details = new ArrayList<>();
-    private Map<String, List<String>> errorMap = new HashMap<>();
+public final class ErrorResponse {
+    private final String error;
+    private final List<String> details;
 
-    public void clearMap() {
-        errorMap.clear();
-        details.clear();
+    public ErrorResponse(String error, List<String> details) {
+        this.error = error;
+        this.details = List.copyOf(details);
     }
 
-    public void setError(String error) {
-        this.error = error;
+    public static ErrorResponse of(String detail) {
+        return new ErrorResponse(null, List.of(detail));
     }
 
-    public void addDetails(String str) {
-        details.add(str);
+    public String getError() {
+        return error;
     }
 
     public List<String> getDetails() {
@@ -28,7 +25,6 @@ public class ErrorResponse {
     }
 
     public Map<String, List<String>> getErrorMap() {
-        errorMap.put(error, details);
-        return errorMap;
+        return Map.of(error, details);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,36 @@
+package ru.practicum.moviehub.api;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Заранее сериализованное тело ошибки вместе с HTTP-статусом.
+ * Экземпляры неизменяемы и разделяются между всеми запросами.
+ */
+public final class ErrorTemplate {
+    private final int status;
+    private final byte[] body;
+
+    public ErrorTemplate(int status, String json) {
+        this(status, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public ErrorTemplate(int status, byte[] body) {
+        this.status = status;
+        this.body = body;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    /**
+     * Возвращает общий массив байт — изменять его нельзя.
+     */
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getJson() {
+        return new String(body, StandardCharsets.UTF_8);
+    }
+}
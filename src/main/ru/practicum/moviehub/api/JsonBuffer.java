@@ -0,0 +1,164 @@
+package ru.practicum.moviehub.api;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Растущий буфер байт UTF-8 для прямой записи JSON без промежуточных String.
+ * Экранирование строк совпадает с Gson по умолчанию (включая HTML-безопасные символы).
+ */
+public final class JsonBuffer {
+    private static final byte[] HEX = "0123456789abcdef".getBytes();
+    private byte[] bytes;
+    private int length;
+
+    public JsonBuffer(int capacity) {
+        this.bytes = new byte[Math.max(capacity, 16)];
+    }
+
+    public byte[] array() {
+        return bytes;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public int capacity() {
+        return bytes.length;
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(bytes, length);
+    }
+
+    public void reset() {
+        length = 0;
+    }
+
+    /**
+     * Дочитывает поток до конца в буфер.
+     */
+    public void readFrom(InputStream in) throws IOException {
+        while (true) {
+            ensure(1);
+            int read = in.read(bytes, length, bytes.length - length);
+            if (read < 0) {
+                return;
+            }
+            length += read;
+        }
+    }
+
+    public JsonBuffer append(char ascii) {
+        ensure(1);
+        bytes[length++] = (byte) ascii;
+        return this;
+    }
+
+    public JsonBuffer appendInt(int value) {
+        if (value == Integer.MIN_VALUE) {
+            return appendAscii("-2147483648");
+        }
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+        int digits = 1;
+        for (int rest = value; rest >= 10; rest /= 10) {
+            digits++;
+        }
+        ensure(digits);
+        for (int i = length + digits - 1; i >= length; i--) {
+            bytes[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        length += digits;
+        return this;
+    }
+
+    public JsonBuffer appendString(String value) {
+        // худший случай — \\uXXXX на каждый символ
+        ensure(value.length() * 6 + 2);
+        byte[] out = bytes;
+        int position = length;
+        out[position++] = '"';
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                switch (c) {
+                    case '"' -> position = escape(out, position, '"');
+                    case '\\' -> position = escape(out, position, '\\');
+                    case '\t' -> position = escape(out, position, 't');
+                    case '\b' -> position = escape(out, position, 'b');
+                    case '\n' -> position = escape(out, position, 'n');
+                    case '\r' -> position = escape(out, position, 'r');
+                    case '\f' -> position = escape(out, position, 'f');
+                    case '<', '>', '&', '=', '\'' -> position = unicodeEscape(out, position, c);
+                    default -> {
+                        if (c < 0x20) {
+                            position = unicodeEscape(out, position, c);
+                        } else {
+                            out[position++] = (byte) c;
+                        }
+                    }
+                }
+            } else if (c < 0x800) {
+                out[position++] = (byte) (0xC0 | (c >> 6));
+                out[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                        && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    out[position++] = (byte) (0xF0 | (codePoint >> 18));
+                    out[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    out[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    out[position++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else {
+                    // как String.getBytes(UTF_8) для одиночного суррогата
+                    out[position++] = '?';
+                }
+            } else if (c == '\u2028' || c == '\u2029') {
+                position = unicodeEscape(out, position, c);
+            } else {
+                out[position++] = (byte) (0xE0 | (c >> 12));
+                out[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                out[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        out[position++] = '"';
+        length = position;
+        return this;
+    }
+
+    private JsonBuffer appendAscii(String value) {
+        ensure(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            bytes[length++] = (byte) value.charAt(i);
+        }
+        return this;
+    }
+
+    private static int escape(byte[] out, int position, char c) {
+        out[position++] = '\\';
+        out[position++] = (byte) c;
+        return position;
+    }
+
+    private static int unicodeEscape(byte[] out, int position, char c) {
+        out[position++] = '\\';
+        out[position++] = 'u';
+        out[position++] = HEX[(c >> 12) & 0xF];
+        out[position++] = HEX[(c >> 8) & 0xF];
+        out[position++] = HEX[(c >> 4) & 0xF];
+        out[position++] = HEX[c & 0xF];
+        return position;
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(length + extra, bytes.length * 2));
+        }
+    }
+}
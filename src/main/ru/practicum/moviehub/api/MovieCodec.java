@@ -0,0 +1,503 @@
+package ru.practicum.moviehub.api;
+
+import com.google.gson.JsonParseException;
+import ru.practicum.moviehub.model.Movie;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Кодек JSON для Movie и ErrorResponse без рефлексии Gson.
+ * Ответы пишутся сразу в байты UTF-8 в буфер потока, тело запроса разбирается прямо из байт.
+ * Формат ответов совпадает с тем, что выдаёт Gson с настройками по умолчанию, а разбор так же
+ * снисходителен, как Gson.fromJson: допускаются имена и строки без кавычек и в одинарных кавычках,
+ * '=' и ';' вместо ':' и ',', комментарии и префикс )]}'.
+ */
+public final class MovieCodec {
+    // больший буфер после редкого большого запроса не удерживаем
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+    private static final int MAX_DEPTH = 64;
+    private static final ThreadLocal<JsonBuffer> OUTPUT = ThreadLocal.withInitial(() -> new JsonBuffer(1024));
+    private static final ThreadLocal<JsonBuffer> INPUT = ThreadLocal.withInitial(() -> new JsonBuffer(1024));
+    private static final byte[] TITLE = "title".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] YEAR = "year".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] NO_NAME = new byte[0];
+    private static final byte[] NON_EXECUTE_PREFIX = ")]}'\n".getBytes(StandardCharsets.US_ASCII);
+
+    private MovieCodec() {
+    }
+
+    /**
+     * Возвращаемый буфер принадлежит потоку и действителен до следующего вызова кодека в нём.
+     */
+    public static JsonBuffer encodeMovie(Movie movie) {
+        JsonBuffer out = output();
+        writeMovie(out, movie);
+        return out;
+    }
+
+    /**
+     * Тело ответа на создание: {"id":{"title":...,"year":...}}.
+     */
+    public static JsonBuffer encodeCreated(int id, Movie movie) {
+        JsonBuffer out = output();
+        out.append('{').append('"').appendInt(id).append('"').append(':');
+        writeMovie(out, movie);
+        out.append('}');
+        return out;
+    }
+
+    public static JsonBuffer encodeMovies(List<Movie> movies) {
+        JsonBuffer out = output();
+        writeMovies(out, movies);
+        return out;
+    }
+
+    public static JsonBuffer encodePage(List<Movie> movies, String next) {
+        JsonBuffer out = output();
+        out.append('{').appendString("movies").append(':');
+        writeMovies(out, movies);
+        if (next != null) {
+            out.append(',').appendString("next").append(':').appendString(next);
+        }
+        out.append('}');
+        return out;
+    }
+
+    public static byte[] encodeError(ErrorResponse error) {
+        JsonBuffer out = new JsonBuffer(128);
+        // ошибка без заголовка сериализуется как массив деталей, с заголовком — как {заголовок: детали}
+        if (error.getError() != null) {
+            out.append('{').appendString(error.getError()).append(':');
+        }
+        out.append('[');
+        List<String> details = error.getDetails();
+        for (int i = 0; i < details.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.appendString(details.get(i));
+        }
+        out.append(']');
+        if (error.getError() != null) {
+            out.append('}');
+        }
+        return out.toByteArray();
+    }
+
+    public static void writeMovies(JsonBuffer out, Iterable<Movie> movies) {
+        out.append('[');
+        boolean first = true;
+        for (Movie movie : movies) {
+            if (!first) {
+                out.append(',');
+            }
+            writeMovie(out, movie);
+            first = false;
+        }
+        out.append(']');
+    }
+
+    public static void writeMovie(JsonBuffer out, Movie movie) {
+        out.append('{');
+        if (movie.getTitle() != null) {
+            out.appendString("title").append(':').appendString(movie.getTitle()).append(',');
+        }
+        out.appendString("year").append(':').appendInt(movie.getYear()).append('}');
+    }
+
+    /**
+     * Читает тело запроса целиком в буфер потока и разбирает объект фильма.
+     * Неизвестные поля пропускаются, пустое тело и null дают null — как у Gson.
+     *
+     * @throws JsonParseException если тело не является корректным JSON-объектом фильма
+     */
+    public static Movie decodeMovie(InputStream body) throws IOException {
+        JsonBuffer in = INPUT.get();
+        in.reset();
+        try {
+            in.readFrom(body);
+            return new Parser(in.array(), in.length()).parseMovie();
+        } finally {
+            // фильм уже скопировал свои строки, так что большой буфер отпускается сразу
+            if (in.capacity() > MAX_RETAINED_BUFFER) {
+                INPUT.set(new JsonBuffer(1024));
+            }
+        }
+    }
+
+    private static JsonBuffer output() {
+        JsonBuffer out = OUTPUT.get();
+        if (out.capacity() > MAX_RETAINED_BUFFER) {
+            out = new JsonBuffer(1024);
+            OUTPUT.set(out);
+        }
+        out.reset();
+        return out;
+    }
+
+    private static final class Parser {
+        private final byte[] bytes;
+        private final int end;
+        private int position;
+
+        private Parser(byte[] bytes, int end) {
+            this.bytes = bytes;
+            this.end = end;
+        }
+
+        Movie parseMovie() {
+            skipWhitespace();
+            skipNonExecutePrefix();
+            if (position == end) {
+                return null;
+            }
+            if (!isQuote(bytes[position]) && bytes[position] != '{') {
+                if (!readLiteral().equalsIgnoreCase("null")) {
+                    throw error("Ожидался объект");
+                }
+                expectEnd();
+                return null;
+            }
+            expect('{');
+            String title = null;
+            int year = 0;
+            skipWhitespace();
+            if (peek() == '}') {
+                position++;
+            } else {
+                while (true) {
+                    byte[] name = readName();
+                    skipWhitespace();
+                    expectNameSeparator();
+                    skipWhitespace();
+                    if (name == TITLE) {
+                        title = readTitle();
+                    } else if (name == YEAR) {
+                        year = readYear(year);
+                    } else {
+                        skipValue(0);
+                    }
+                    skipWhitespace();
+                    byte next = peek();
+                    position++;
+                    if (next == '}') {
+                        break;
+                    }
+                    if (next != ',' && next != ';') {
+                        throw error("Ожидалась ',' или '}'");
+                    }
+                    skipWhitespace();
+                }
+            }
+            expectEnd();
+            return new Movie(title, year);
+        }
+
+        // )]}' и перевод строки перед JSON защищают от выполнения ответа как скрипта; Gson их пропускает
+        private void skipNonExecutePrefix() {
+            if (end - position >= NON_EXECUTE_PREFIX.length
+                    && Arrays.equals(bytes, position, position + NON_EXECUTE_PREFIX.length,
+                    NON_EXECUTE_PREFIX, 0, NON_EXECUTE_PREFIX.length)) {
+                position += NON_EXECUTE_PREFIX.length;
+            }
+        }
+
+        /**
+         * @return TITLE или YEAR для известных полей, иначе пустой массив
+         */
+        private byte[] readName() {
+            int start;
+            int nameEnd;
+            boolean escaped = false;
+            if (isQuote(peek())) {
+                start = position + 1;
+                escaped = skipString();
+                nameEnd = position - 1;
+            } else {
+                start = position;
+                skipLiteral();
+                nameEnd = position;
+                if (start == nameEnd) {
+                    throw error("Ожидалось имя поля");
+                }
+            }
+            for (byte[] name : new byte[][]{TITLE, YEAR}) {
+                boolean matches = escaped
+                        ? decodeString(start, nameEnd).equals(new String(name, StandardCharsets.UTF_8))
+                        : Arrays.equals(bytes, start, nameEnd, name, 0, name.length);
+                if (matches) {
+                    return name;
+                }
+            }
+            return NO_NAME;
+        }
+
+        private void expectNameSeparator() {
+            byte b = peek();
+            if (b == '=') {
+                position++;
+                if (position < end && bytes[position] == '>') {
+                    position++;
+                }
+                return;
+            }
+            expect(':');
+        }
+
+        // как у Gson: в строковое поле попадают и числа, и логические значения
+        private String readTitle() {
+            if (isQuote(peek())) {
+                return readString();
+            }
+            String text = readLiteral();
+            if (text.equalsIgnoreCase("null")) {
+                return null;
+            }
+            if (text.equalsIgnoreCase("true") || text.equalsIgnoreCase("false")) {
+                return text.toLowerCase(Locale.ROOT);
+            }
+            return text;
+        }
+
+        // null для примитивного поля оставляет прежнее значение, строка с числом допускается
+        private int readYear(int current) {
+            String text;
+            if (isQuote(peek())) {
+                text = readString();
+            } else {
+                text = readLiteral();
+                if (text.equalsIgnoreCase("null")) {
+                    return current;
+                }
+            }
+            try {
+                return Integer.parseInt(text);
+            } catch (NumberFormatException e) {
+                try {
+                    double value = Double.parseDouble(text);
+                    int year = (int) value;
+                    if (year == value) {
+                        return year;
+                    }
+                } catch (NumberFormatException ignored) {
+                    // ниже общая ошибка
+                }
+                throw error("Некорректное значение year: " + text);
+            }
+        }
+
+        private void skipValue(int depth) {
+            if (depth > MAX_DEPTH) {
+                throw error("Слишком глубокая вложенность");
+            }
+            byte first = peek();
+            switch (first) {
+                case '"', '\'' -> skipString();
+                case '{' -> skipContainer('}', true, depth);
+                case '[' -> skipContainer(']', false, depth);
+                default -> readLiteral();
+            }
+        }
+
+        private void skipContainer(char close, boolean object, int depth) {
+            position++;
+            skipWhitespace();
+            if (peek() == close) {
+                position++;
+                return;
+            }
+            while (true) {
+                if (object) {
+                    readName();
+                    skipWhitespace();
+                    expectNameSeparator();
+                    skipWhitespace();
+                }
+                byte value = peek();
+                // как у Gson: пропущенный элемент массива, например [1,,2] или [1,], считается null
+                if (object || (value != ',' && value != ';' && value != ']')) {
+                    skipValue(depth + 1);
+                }
+                skipWhitespace();
+                byte next = peek();
+                position++;
+                if (next == close) {
+                    return;
+                }
+                if (next != ',' && next != ';') {
+                    throw error("Ожидалась ',' или '" + close + "'");
+                }
+                skipWhitespace();
+            }
+        }
+
+        private String readString() {
+            int start = position + 1;
+            boolean escaped = skipString();
+            return escaped ? decodeString(start, position - 1)
+                    : new String(bytes, start, position - 1 - start, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Пропускает строку в двойных или одинарных кавычках, начиная с открывающей кавычки.
+         *
+         * @return true, если в строке есть экранированные символы
+         */
+        private boolean skipString() {
+            byte quote = peek();
+            if (!isQuote(quote)) {
+                throw error("Ожидалась строка");
+            }
+            position++;
+            boolean escaped = false;
+            while (position < end) {
+                byte b = bytes[position++];
+                if (b == quote) {
+                    return escaped;
+                }
+                if (b == '\\') {
+                    escaped = true;
+                    position++;
+                }
+            }
+            throw error("Незакрытая строка");
+        }
+
+        private String decodeString(int start, int end) {
+            StringBuilder result = new StringBuilder(end - start);
+            int chunk = start;
+            int i = start;
+            while (i < end) {
+                if (bytes[i] != '\\') {
+                    i++;
+                    continue;
+                }
+                result.append(new String(bytes, chunk, i - chunk, StandardCharsets.UTF_8));
+                if (i + 1 >= end) {
+                    throw error("Некорректная escape-последовательность");
+                }
+                byte kind = bytes[i + 1];
+                i += 2;
+                switch (kind) {
+                    case '"', '\\', '/', '\'', '\n' -> result.append((char) kind);
+                    case 'b' -> result.append('\b');
+                    case 'f' -> result.append('\f');
+                    case 'n' -> result.append('\n');
+                    case 'r' -> result.append('\r');
+                    case 't' -> result.append('\t');
+                    case 'u' -> {
+                        if (i + 4 > end) {
+                            throw error("Некорректная escape-последовательность");
+                        }
+                        // Integer.parseInt принял бы и знак, поэтому цифры проверяются по одной
+                        int code = 0;
+                        for (int j = i; j < i + 4; j++) {
+                            int digit = Character.digit(bytes[j], 16);
+                            if (digit < 0) {
+                                throw error("Некорректная escape-последовательность");
+                            }
+                            code = code << 4 | digit;
+                        }
+                        result.append((char) code);
+                        i += 4;
+                    }
+                    default -> throw error("Некорректная escape-последовательность");
+                }
+                chunk = i;
+            }
+            result.append(new String(bytes, chunk, end - chunk, StandardCharsets.UTF_8));
+            return result.toString();
+        }
+
+        /**
+         * Значение без кавычек: число, true, false, null или, как у Gson, произвольная строка
+         * до первого разделителя.
+         */
+        private String readLiteral() {
+            int start = position;
+            skipLiteral();
+            if (position == start) {
+                throw error("Неожиданный символ");
+            }
+            return new String(bytes, start, position - start, StandardCharsets.UTF_8);
+        }
+
+        private void skipLiteral() {
+            while (position < end && isLiteral(bytes[position])) {
+                position++;
+            }
+        }
+
+        private static boolean isLiteral(byte b) {
+            return switch (b) {
+                case '/', '\\', ';', '#', '=', '{', '}', '[', ']', ':', ',', ' ', '\t', '\f', '\r', '\n' -> false;
+                default -> true;
+            };
+        }
+
+        private static boolean isQuote(byte b) {
+            return b == '"' || b == '\'';
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw error("Ожидался символ '" + c + "'");
+            }
+            position++;
+        }
+
+        private void expectEnd() {
+            skipWhitespace();
+            if (position != end) {
+                throw error("Лишние данные после JSON");
+            }
+        }
+
+        private byte peek() {
+            if (position >= end) {
+                throw error("Неожиданный конец JSON");
+            }
+            return bytes[position];
+        }
+
+        // комментарии #, // и /* */ пропускаются вместе с пробелами
+        private void skipWhitespace() {
+            while (position < end) {
+                byte b = bytes[position];
+                if (b == ' ' || b == '\n' || b == '\r' || b == '\t') {
+                    position++;
+                } else if (b == '#' || (b == '/' && position + 1 < end && bytes[position + 1] == '/')) {
+                    while (position < end && bytes[position] != '\n' && bytes[position] != '\r') {
+                        position++;
+                    }
+                } else if (b == '/' && position + 1 < end && bytes[position + 1] == '*') {
+                    int close = commentEnd(position + 2);
+                    if (close < 0) {
+                        throw error("Незакрытый комментарий");
+                    }
+                    position = close + 2;
+                } else {
+                    return;
+                }
+            }
+        }
+
+        private int commentEnd(int from) {
+            for (int i = from; i + 1 < end; i++) {
+                if (bytes[i] == '*' && bytes[i + 1] == '/') {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private JsonParseException error(String message) {
+            return new JsonParseException(message + " (позиция " + position + ")");
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package ru.practicum.moviehub.api;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.util.List;
+
+public class MoviesPageResponse {
+    private final List<Movie> movies;
+    private final String next;
+
+    public MoviesPageResponse(List<Movie> movies, String next) {
+        this.movies = movies;
+        this.next = next;
+    }
+
+    public List<Movie> getMovies() {
+        return movies;
+    }
+
+    public String getNext() {
+        return next;
+    }
+}
@@ -0,0 +1,49 @@
+package ru.practicum.moviehub.http;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import ru.practicum.moviehub.api.ApiErrors;
+
+import java.io.IOException;
+
+/**
+ * Допускает запросы к /movies в пределах отдельных лимитов на чтение и запись,
+ * остальным сразу отвечает 503 с Retry-After. Лимит null означает отсутствие ограничения.
+ */
+class AdmissionFilter extends Filter {
+    private final AdmissionLimit reads;
+    private final AdmissionLimit writes;
+    private final int retryAfterSeconds;
+
+    AdmissionFilter(AdmissionLimit reads, AdmissionLimit writes, int retryAfterSeconds) {
+        this.reads = reads;
+        this.writes = writes;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    @Override
+    public void doFilter(HttpExchange ex, Chain chain) throws IOException {
+        String method = ex.getRequestMethod();
+        AdmissionLimit limit = method.equals("GET") || method.equals("HEAD") ? reads : writes;
+        if (limit == null) {
+            chain.doFilter(ex);
+            return;
+        }
+        if (!limit.tryAcquire()) {
+            // тело запроса не читаем: соединение закрывается вместе с ответом
+            ex.getResponseHeaders().set("Connection", "close");
+            BaseHttpHandler.sendRetryLater(ex, ApiErrors.OVERLOADED, retryAfterSeconds);
+            return;
+        }
+        try {
+            chain.doFilter(ex);
+        } finally {
+            limit.release();
+        }
+    }
+
+    @Override
+    public String description() {
+        return "admission";
+    }
+}
@@ -0,0 +1,90 @@
+package ru.practicum.moviehub.http;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограничение одновременно обрабатываемых запросов одного класса (чтение или запись).
+ * Сверх лимита запрос ждёт в ограниченной очереди не дольше таймаута; при полной очереди
+ * или по таймауту он отклоняется сразу, и задержка принятых запросов остаётся ограниченной.
+ */
+public class AdmissionLimit {
+    private final String name;
+    private final int maxInFlight;
+    private final int maxQueued;
+    private final long queueTimeoutNanos;
+    private final Semaphore permits;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final LongAdder rejected = new LongAdder();
+
+    public AdmissionLimit(String name, int maxInFlight, int maxQueued, long queueTimeoutMillis) {
+        if (maxInFlight <= 0 || maxQueued < 0 || queueTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Некорректные параметры ограничения " + name);
+        }
+        this.name = name;
+        this.maxInFlight = maxInFlight;
+        this.maxQueued = maxQueued;
+        this.queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(queueTimeoutMillis);
+        this.permits = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * @return true, если запрос допущен — тогда после обработки нужно вызвать {@link #release()}
+     */
+    public boolean tryAcquire() {
+        if (permits.tryAcquire()) {
+            return true;
+        }
+        if (queued.incrementAndGet() > maxQueued) {
+            queued.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        try {
+            if (permits.tryAcquire(queueTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            queued.decrementAndGet();
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public void release() {
+        permits.release();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    public int getMaxQueued() {
+        return maxQueued;
+    }
+
+    public int getInFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    @Override
+    public String toString() {
+        return name + "{maxInFlight=" + maxInFlight + ", maxQueued=" + maxQueued + '}';
+    }
+}
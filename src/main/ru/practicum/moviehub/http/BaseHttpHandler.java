@@ -1,30 +1,205 @@
 package ru.practicum.moviehub.http;
 
+import com.google.gson.stream.JsonWriter;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
+import ru.practicum.moviehub.api.ErrorTemplate;
+import ru.practicum.moviehub.api.JsonBuffer;
+import ru.practicum.moviehub.http.nio.FileTransferStream;
+import ru.practicum.moviehub.model.Movie;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 
 public abstract class BaseHttpHandler implements HttpHandler {
-    private static final String CT_JSON = "application/json; charset=UTF-8";
+    static final String CT_JSON = "application/json; charset=UTF-8";
+    private static final int STREAM_BUFFER_SIZE = 16 * 1024;
+    public static final int DEFAULT_COMPRESSION_MIN_BYTES = 1024;
+    // годы повторяются постоянно, поэтому держим их строковые представления заранее
+    private static final String[] YEAR_STRINGS = new String[4096];
+
+    static {
+        for (int year = 0; year < YEAR_STRINGS.length; year++) {
+            YEAR_STRINGS[year] = Integer.toString(year);
+        }
+    }
+
+    // тела короче порога не сжимаются; отрицательное значение отключает сжатие
+    private final int compressionMinBytes;
+
+    protected BaseHttpHandler() {
+        this(DEFAULT_COMPRESSION_MIN_BYTES);
+    }
+
+    protected BaseHttpHandler(int compressionMinBytes) {
+        this.compressionMinBytes = compressionMinBytes;
+    }
 
     protected void sendJson(HttpExchange ex, int status, String json) throws IOException {
+        sendJson(ex, status, json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    protected void sendJson(HttpExchange ex, int status, byte[] body) throws IOException {
+        sendJson(ex, status, body, body.length);
+    }
+
+    protected void sendJson(HttpExchange ex, int status, JsonBuffer body) throws IOException {
+        sendJson(ex, status, body.array(), body.length());
+    }
+
+    private void sendJson(HttpExchange ex, int status, byte[] body, int length) throws IOException {
         ex.getResponseHeaders().set("Content-Type", CT_JSON);
-        byte[] body = json.getBytes(StandardCharsets.UTF_8);
-        ex.sendResponseHeaders(status, body.length);
+        ContentEncoding encoding = negotiateEncoding(ex, length);
+        if (encoding == ContentEncoding.IDENTITY) {
+            ex.sendResponseHeaders(status, length);
+            try (OutputStream os = ex.getResponseBody()) {
+                os.write(body, 0, length);
+            }
+            return;
+        }
+        ex.getResponseHeaders().set("Content-Encoding", encoding.getToken());
+        ex.sendResponseHeaders(status, 0);
+        try (OutputStream os = encoding.wrap(ex.getResponseBody())) {
+            os.write(body, 0, length);
+        }
+    }
+
+    /**
+     * Отдаёт тело, уже закодированное в encoding (например, из кеша), с известной длиной.
+     */
+    protected void sendEncodedJson(HttpExchange ex, int status, byte[] encodedBody, ContentEncoding encoding)
+            throws IOException {
+        ex.getResponseHeaders().set("Content-Type", CT_JSON);
+        if (encoding != ContentEncoding.IDENTITY) {
+            ex.getResponseHeaders().set("Content-Encoding", encoding.getToken());
+        }
+        ex.sendResponseHeaders(status, encodedBody.length);
         try (OutputStream os = ex.getResponseBody()) {
-            os.write(body);
+            os.write(encodedBody);
+        }
+    }
+
+    /**
+     * Выбирает кодирование ответа длиной length по Accept-Encoding запроса.
+     * Если сжатие включено, ответ помечается Vary, чтобы кеши не перепутали варианты.
+     */
+    protected ContentEncoding negotiateEncoding(HttpExchange ex, long length) {
+        if (compressionMinBytes < 0) {
+            return ContentEncoding.IDENTITY;
+        }
+        ex.getResponseHeaders().set("Vary", "Accept-Encoding");
+        if (length < compressionMinBytes) {
+            return ContentEncoding.IDENTITY;
+        }
+        return ContentEncoding.of(ex.getRequestHeaders());
+    }
+
+    /**
+     * Отдаёт JSON-массив фильмов чанками, сериализуя элементы по одному прямо в тело ответа.
+     * Память на запрос не зависит от количества фильмов.
+     */
+    protected void sendJsonStream(HttpExchange ex, int status, Iterable<Movie> movies) throws IOException {
+        sendJsonStream(ex, status, writer -> {
+            writer.beginArray();
+            for (Movie movie : movies) {
+                writeMovie(writer, movie);
+            }
+            writer.endArray();
+        });
+    }
+
+    protected void sendJsonStream(HttpExchange ex, int status, JsonBody body) throws IOException {
+        OutputStream out = startStream(ex, status, CT_JSON);
+        // BufferedWriter нужен, чтобы OutputStreamWriter не создавал char[] на каждую строку
+        try (JsonWriter writer = new JsonWriter(new BufferedWriter(
+                new OutputStreamWriter(out, StandardCharsets.UTF_8), STREAM_BUFFER_SIZE))) {
+            // как у Gson по умолчанию, чтобы тело совпадало с toJson
+            writer.setHtmlSafe(true);
+            body.write(writer);
+        }
+    }
+
+    /**
+     * Начинает ответ чанками и возвращает поток для тела; закрытие потока завершает ответ.
+     */
+    protected OutputStream startStream(HttpExchange ex, int status, String contentType) throws IOException {
+        ex.getResponseHeaders().set("Content-Type", contentType);
+        // длина заранее неизвестна: решение о сжатии принимает поток, когда тело дорастёт до порога
+        ContentEncoding encoding = negotiateEncoding(ex, Long.MAX_VALUE);
+        if (encoding == ContentEncoding.IDENTITY) {
+            ex.sendResponseHeaders(status, 0);
+            return ex.getResponseBody();
+        }
+        return new CompressingResponseStream(ex, status, encoding, compressionMinBytes);
+    }
+
+    /**
+     * Отдаёт файл целиком с Content-Length и без сжатия. Движок NIO передаёт его в сокет
+     * через transferTo; у com.sun.net.httpserver тело — только поток, поэтому байты копируются через буфер.
+     */
+    protected void sendFile(HttpExchange ex, int status, String contentType, FileChannel file) throws IOException {
+        long size = file.size();
+        ex.getResponseHeaders().set("Content-Type", contentType);
+        if (size == 0) {
+            ex.sendResponseHeaders(status, -1);
+            ex.close();
+            return;
+        }
+        ex.sendResponseHeaders(status, size);
+        try (OutputStream out = ex.getResponseBody()) {
+            FileTransferStream.transfer(file, 0, size, out);
+        }
+    }
+
+    private static void writeMovie(JsonWriter writer, Movie movie) throws IOException {
+        writer.beginObject();
+        if (movie.getTitle() != null) {
+            writer.name("title").value(movie.getTitle());
         }
+        int year = movie.getYear();
+        writer.name("year");
+        if (year >= 0 && year < YEAR_STRINGS.length) {
+            writer.jsonValue(YEAR_STRINGS[year]);
+        } else {
+            writer.value(year);
+        }
+        writer.endObject();
+    }
+
+    @FunctionalInterface
+    protected interface JsonBody {
+        void write(JsonWriter writer) throws IOException;
+    }
+
+    protected void sendError(HttpExchange ex, ErrorTemplate error) throws IOException {
+        sendJson(ex, error.getStatus(), error.getBody());
+    }
+
+    /**
+     * Отказ из фильтра до обработчика: тело ошибки без сжатия и Retry-After в секундах.
+     */
+    static void sendRetryLater(HttpExchange ex, ErrorTemplate error, long retryAfterSeconds) throws IOException {
+        byte[] body = error.getBody();
+        ex.getResponseHeaders().set("Content-Type", CT_JSON);
+        ex.getResponseHeaders().set("Retry-After", Long.toString(retryAfterSeconds));
+        ex.sendResponseHeaders(error.getStatus(), body.length);
+        try (OutputStream out = ex.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    protected void sendNotModified(HttpExchange ex) throws IOException {
+        ex.sendResponseHeaders(304, -1);
+        ex.close();
     }
 
     protected  void sendNoContent(HttpExchange ex) throws IOException {
         ex.getResponseHeaders().set("Content-Type", CT_JSON);
-        byte[] body = "[]".getBytes(StandardCharsets.UTF_8);
         ex.sendResponseHeaders(204, -1);
-        try (OutputStream os = ex.getResponseBody()) {
-            os.write(body);
-        }
+        ex.close();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,176 @@
+package ru.practicum.moviehub.http;
+
+import com.google.gson.JsonParseException;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.MalformedJsonException;
+import ru.practicum.moviehub.api.ApiErrors;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Потоковый импорт фильмов: JSON-массив или NDJSON читается по элементу,
+ * корректные фильмы добавляются в хранилище пачками по {@link #CHUNK_SIZE}.
+ */
+final class BatchImporter {
+    static final int CHUNK_SIZE = 4096;
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    private final MoviesStore store;
+
+    BatchImporter(MoviesStore store) {
+        this.store = store;
+    }
+
+    /**
+     * При ошибке синтаксиса уже добавленные пачки остаются в хранилище. Повторный импорт
+     * того же тела безопасен: дубликаты по названию не создаются, а возвращают прежние id.
+     *
+     * @throws JsonParseException если тело не является массивом или потоком JSON-объектов
+     */
+    Result importFrom(Reader body) throws IOException {
+        Result result = new Result();
+        List<Movie> chunk = new ArrayList<>(CHUNK_SIZE);
+        int[] chunkIndexes = new int[CHUNK_SIZE];
+        int[] chunkIds = new int[CHUNK_SIZE];
+
+        try (JsonReader reader = new JsonReader(body)) {
+            // lenient позволяет читать несколько значений верхнего уровня подряд, то есть NDJSON
+            reader.setLenient(true);
+            boolean array = reader.peek() == JsonToken.BEGIN_ARRAY;
+            if (array) {
+                reader.beginArray();
+            }
+            while (array ? reader.hasNext() : reader.peek() != JsonToken.END_DOCUMENT) {
+                int index = result.received++;
+                Movie movie = readMovie(reader);
+                int errors = movie.getTitle() == null ? ApiErrors.TITLE_BLANK : MovieValidator.validate(movie);
+                if (errors != 0) {
+                    result.reject(index, errors);
+                    continue;
+                }
+                result.addId(-1);
+                chunkIndexes[chunk.size()] = index;
+                chunk.add(movie);
+                if (chunk.size() == CHUNK_SIZE) {
+                    flush(chunk, chunkIndexes, chunkIds, result);
+                }
+            }
+            if (array) {
+                reader.endArray();
+            }
+        } catch (IllegalStateException | NumberFormatException | MalformedJsonException | EOFException e) {
+            throw new JsonParseException(e);
+        }
+        flush(chunk, chunkIndexes, chunkIds, result);
+        return result;
+    }
+
+    private void flush(List<Movie> chunk, int[] chunkIndexes, int[] chunkIds, Result result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        int created = store.addMovies(chunk, chunkIds);
+        result.created += created;
+        result.duplicates += chunk.size() - created;
+        for (int i = 0; i < chunk.size(); i++) {
+            result.ids[chunkIndexes[i]] = chunkIds[i];
+        }
+        chunk.clear();
+    }
+
+    private static Movie readMovie(JsonReader reader) throws IOException {
+        String title = null;
+        int year = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "title" -> {
+                    if (reader.peek() == JsonToken.NULL) {
+                        reader.nextNull();
+                    } else {
+                        title = reader.nextString();
+                    }
+                }
+                case "year" -> year = reader.nextInt();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return new Movie(title, year);
+    }
+
+    static final class Result {
+        private int received;
+        private int created;
+        private int duplicates;
+        private int rejected;
+        // id по порядку элементов тела, -1 для отклонённых
+        private int[] ids = new int[CHUNK_SIZE];
+        private final List<ItemError> errors = new ArrayList<>();
+
+        private void addId(int id) {
+            int position = received - 1;
+            if (position == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            ids[position] = id;
+        }
+
+        private void reject(int index, int errorMask) {
+            addId(-1);
+            rejected++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ItemError(index, ApiErrors.validationDetails(errorMask)));
+            }
+        }
+
+        int getReceived() {
+            return received;
+        }
+
+        int getCreated() {
+            return created;
+        }
+
+        int getDuplicates() {
+            return duplicates;
+        }
+
+        int getRejected() {
+            return rejected;
+        }
+
+        int getId(int index) {
+            return ids[index];
+        }
+
+        List<ItemError> getErrors() {
+            return errors;
+        }
+    }
+
+    static final class ItemError {
+        private final int index;
+        private final List<String> details;
+
+        private ItemError(int index, List<String> details) {
+            this.index = index;
+            this.details = details;
+        }
+
+        int getIndex() {
+            return index;
+        }
+
+        List<String> getDetails() {
+            return details;
+        }
+    }
+}
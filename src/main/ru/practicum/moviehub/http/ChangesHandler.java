@@ -0,0 +1,152 @@
+package ru.practicum.moviehub.http;
+
+import com.google.gson.stream.JsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import ru.practicum.moviehub.api.ApiErrors;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.replication.Change;
+import ru.practicum.moviehub.replication.ChangeLog;
+import ru.practicum.moviehub.store.MoviesSnapshot;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Лента изменений для реплик.
+ * GET /movies/changes?since=N&wait=ms&log=id — события после N, при их отсутствии ждёт до wait мс (long-poll);
+ * 410, если события уже вытеснены или log не совпадает с id ленты (ведущий перезапущен).
+ * GET /movies/changes/snapshot — всё хранилище, номер, с которого продолжать ленту, и id ленты.
+ */
+public class ChangesHandler extends BaseHttpHandler {
+    private static final int DEFAULT_LIMIT = 1000;
+    private static final int MAX_LIMIT = 10_000;
+    private static final long MAX_WAIT_MILLIS = 30_000;
+    private final MoviesStore store;
+    private final ChangeLog changeLog;
+    private final Semaphore longPolls;
+
+    /**
+     * @param maxLongPolls сколько запросов одновременно могут ждать изменений; остальные получают ответ сразу
+     */
+    public ChangesHandler(MoviesStore store, ChangeLog changeLog, int compressionMinBytes, int maxLongPolls) {
+        super(compressionMinBytes);
+        this.store = store;
+        this.changeLog = changeLog;
+        this.longPolls = new Semaphore(maxLongPolls);
+    }
+
+    @Override
+    public void handle(HttpExchange ex) throws IOException {
+        if (!ex.getRequestMethod().equals("GET")) {
+            sendError(ex, ApiErrors.METHOD_NOT_ALLOWED);
+            return;
+        }
+        String path = ex.getRequestURI().getPath();
+        if (path.equals(MoviesServer.CHANGES)) {
+            handleChanges(ex, QueryParams.parse(ex.getRequestURI().getRawQuery()));
+        } else if (path.equals(MoviesServer.CHANGES + "/snapshot")) {
+            handleSnapshot(ex);
+        } else {
+            sendError(ex, ApiErrors.MOVIE_NOT_FOUND);
+        }
+    }
+
+    private void handleChanges(HttpExchange ex, QueryParams query) throws IOException {
+        long since;
+        try {
+            since = Long.parseLong(query.get("since"));
+        } catch (NumberFormatException e) {
+            sendError(ex, ApiErrors.INVALID_SINCE);
+            return;
+        }
+        int limit;
+        long wait;
+        try {
+            limit = query.getInt("limit", DEFAULT_LIMIT);
+            wait = query.getInt("wait", 0);
+        } catch (NumberFormatException e) {
+            sendError(ex, ApiErrors.INVALID_LIMIT);
+            return;
+        }
+        if (since < 0 || limit <= 0 || limit > MAX_LIMIT || wait < 0) {
+            sendError(ex, since < 0 ? ApiErrors.INVALID_SINCE : ApiErrors.INVALID_LIMIT);
+            return;
+        }
+        String log = query.get("log");
+        if (log != null && !log.equals(changeLog.getId())) {
+            // номер since относится к ленте прошлого запуска ведущего
+            sendError(ex, ApiErrors.CHANGES_EXPIRED);
+            return;
+        }
+
+        List<Change> changes;
+        boolean waiting = wait > 0 && longPolls.tryAcquire();
+        try {
+            changes = changeLog.read(since, limit, waiting ? Math.min(wait, MAX_WAIT_MILLIS) : 0);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sendError(ex, ApiErrors.READ_FAILED);
+            return;
+        } finally {
+            if (waiting) {
+                longPolls.release();
+            }
+        }
+        if (changes == null) {
+            sendError(ex, ApiErrors.CHANGES_EXPIRED);
+            return;
+        }
+        long last = changeLog.getLastSeq();
+        sendJsonStream(ex, 200, writer -> {
+            writer.beginObject();
+            writer.name("log").value(changeLog.getId());
+            writer.name("last").value(last);
+            writer.name("changes").beginArray();
+            for (Change change : changes) {
+                writer.beginObject();
+                writer.name("seq").value(change.seq());
+                writer.name("op").value(change.op().getToken());
+                if (change.op() != Change.Op.CLEAR) {
+                    writer.name("id").value(change.id());
+                }
+                if (change.movie() != null) {
+                    writeMovieFields(writer, change.movie());
+                }
+                writer.name("ts").value(change.timestampMillis());
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.endObject();
+        });
+    }
+
+    private void handleSnapshot(HttpExchange ex) throws IOException {
+        // номер берём до обхода: изменения во время обхода реплика повторит из ленты
+        long since = changeLog.snapshotSeq();
+        MoviesSnapshot snapshot = store.snapshot();
+        sendJsonStream(ex, 200, writer -> {
+            writer.beginObject();
+            writer.name("log").value(changeLog.getId());
+            writer.name("since").value(since);
+            writer.name("movies").beginArray();
+            for (Iterator<Map.Entry<Integer, Movie>> entries = snapshot.entryIterator(); entries.hasNext(); ) {
+                Map.Entry<Integer, Movie> entry = entries.next();
+                writer.beginObject();
+                writer.name("id").value(entry.getKey());
+                writeMovieFields(writer, entry.getValue());
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.endObject();
+        });
+    }
+
+    private static void writeMovieFields(JsonWriter writer, Movie movie) throws IOException {
+        writer.name("title").value(movie.getTitle());
+        writer.name("year").value(movie.getYear());
+    }
+}
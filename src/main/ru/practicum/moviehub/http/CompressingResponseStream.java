@@ -0,0 +1,78 @@
+package ru.practicum.moviehub.http;
+
+import com.sun.net.httpserver.HttpExchange;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Откладывает отправку заголовков, пока тело не дорастёт до порога сжатия.
+ * Короткое тело уходит как есть с известной длиной, длинное — чанками через компрессор;
+ * ETag сжатого тела получает суффикс кодирования.
+ */
+class CompressingResponseStream extends OutputStream {
+    private final HttpExchange ex;
+    private final int status;
+    private final ContentEncoding encoding;
+    private final int threshold;
+    private byte[] pending;
+    private int pendingLength;
+    private OutputStream out;
+
+    CompressingResponseStream(HttpExchange ex, int status, ContentEncoding encoding, int threshold) {
+        this.ex = ex;
+        this.status = status;
+        this.encoding = encoding;
+        this.threshold = threshold;
+        this.pending = new byte[Math.min(threshold, 8 * 1024)];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (out != null) {
+            out.write(b, off, len);
+            return;
+        }
+        if (pendingLength + len < threshold) {
+            if (pendingLength + len > pending.length) {
+                pending = Arrays.copyOf(pending, Math.min(threshold, Math.max(pendingLength + len, pending.length * 2)));
+            }
+            System.arraycopy(b, off, pending, pendingLength, len);
+            pendingLength += len;
+            return;
+        }
+        ex.getResponseHeaders().set("Content-Encoding", encoding.getToken());
+        String etag = ex.getResponseHeaders().getFirst("ETag");
+        if (etag != null) {
+            ex.getResponseHeaders().set("ETag", encoding.etag(etag));
+        }
+        ex.sendResponseHeaders(status, 0);
+        out = encoding.wrap(ex.getResponseBody());
+        out.write(pending, 0, pendingLength);
+        out.write(b, off, len);
+        pending = null;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out == null) {
+            ex.sendResponseHeaders(status, pendingLength == 0 ? -1 : pendingLength);
+            out = ex.getResponseBody();
+            out.write(pending, 0, pendingLength);
+        }
+        out.close();
+    }
+}
@@ -0,0 +1,128 @@
+package ru.practicum.moviehub.http;
+
+import com.sun.net.httpserver.Headers;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Кодирование тела ответа, согласованное по заголовку Accept-Encoding.
+ */
+public enum ContentEncoding {
+    IDENTITY(null),
+    GZIP("gzip"),
+    DEFLATE("deflate");
+
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private final String token;
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Выбирает кодирование с наибольшим q; при равенстве gzip предпочтительнее deflate.
+     * Кодирования с q=0 запрещены, "*" разрешает всё, что явно не запрещено.
+     */
+    public static ContentEncoding negotiate(List<String> acceptEncoding) {
+        if (acceptEncoding == null) {
+            return IDENTITY;
+        }
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        for (String header : acceptEncoding) {
+            for (String item : header.split(",")) {
+                String[] parts = item.split(";");
+                String coding = parts[0].trim().toLowerCase();
+                double quality = quality(parts);
+                switch (coding) {
+                    case "gzip", "x-gzip" -> gzip = Math.max(gzip, quality);
+                    case "deflate" -> deflate = Math.max(deflate, quality);
+                    case "*" -> any = Math.max(any, quality);
+                    default -> {
+                    }
+                }
+            }
+        }
+        if (gzip < 0) {
+            gzip = any;
+        }
+        if (deflate < 0) {
+            deflate = any;
+        }
+        if (gzip > 0 && gzip >= deflate) {
+            return GZIP;
+        }
+        return deflate > 0 ? DEFLATE : IDENTITY;
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * Сжатое тело — другое представление, поэтому ему нужен свой сильный ETag: к тегу добавляется кодирование.
+     */
+    public String etag(String identityEtag) {
+        if (this == IDENTITY) {
+            return identityEtag;
+        }
+        return identityEtag.substring(0, identityEtag.length() - 1) + "-" + token + "\"";
+    }
+
+    public static ContentEncoding of(Headers requestHeaders) {
+        return negotiate(requestHeaders.get("Accept-Encoding"));
+    }
+
+    public OutputStream wrap(OutputStream out) throws IOException {
+        return switch (this) {
+            case IDENTITY -> out;
+            case GZIP -> new GZIPOutputStream(out, BUFFER_SIZE);
+            case DEFLATE -> new DeflaterOutputStream(out, new Deflater(Deflater.DEFAULT_COMPRESSION), BUFFER_SIZE, false) {
+                @Override
+                public void close() throws IOException {
+                    // собственный Deflater нужно освободить явно, иначе нативная память держится до финализации
+                    try {
+                        super.close();
+                    } finally {
+                        def.end();
+                    }
+                }
+            };
+        };
+    }
+
+    public byte[] encode(byte[] body) {
+        if (this == IDENTITY) {
+            return body;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, body.length / 4));
+        try (OutputStream compressor = wrap(out)) {
+            compressor.write(body);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,10 @@
+package ru.practicum.moviehub.http;
+
+public enum ExecutorMode {
+    /** Все запросы обрабатываются потоком-диспетчером HttpServer. */
+    DISPATCHER,
+    /** Ограниченный пул платформенных потоков. */
+    THREAD_POOL,
+    /** Отдельный виртуальный поток на каждый запрос. */
+    VIRTUAL
+}
@@ -0,0 +1,99 @@
+package ru.practicum.moviehub.http;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import ru.practicum.moviehub.http.nio.FileTransferStream;
+import ru.practicum.moviehub.metrics.ServerMetrics;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+
+/**
+ * Замеряет время обработки, код ответа и объём тела для каждого запроса к /movies.
+ */
+class MetricsFilter extends Filter {
+    private final ServerMetrics metrics;
+
+    MetricsFilter(ServerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void doFilter(HttpExchange ex, Chain chain) throws IOException {
+        long start = System.nanoTime();
+        CountingOutputStream body = new CountingOutputStream(ex.getResponseBody());
+        ex.setStreams(null, body);
+        try {
+            chain.doFilter(ex);
+        } finally {
+            // если обработчик упал до отправки заголовков, сервер ответит 500
+            int status = ex.getResponseCode() > 0 ? ex.getResponseCode() : 500;
+            metrics.record(method(ex.getRequestMethod()), route(ex.getRequestURI().getPath()), status,
+                    System.nanoTime() - start, body.count);
+        }
+    }
+
+    @Override
+    public String description() {
+        return "metrics";
+    }
+
+    // маршруты ограничены заранее известным набором, чтобы число рядов метрик не росло от запросов
+    static String route(String path) {
+        if (path.equals(MoviesServer.MOVIES) || path.equals(MoviesServer.MOVIES + "/")) {
+            return MoviesServer.MOVIES;
+        }
+        if (path.equals(MoviesServer.MOVIES + "/batch")) {
+            return MoviesServer.MOVIES + "/batch";
+        }
+        if (path.equals(MoviesServer.MOVIES + "/search")) {
+            return MoviesServer.MOVIES + "/search";
+        }
+        if (path.equals(MoviesServer.MOVIES + "/export")) {
+            return MoviesServer.MOVIES + "/export";
+        }
+        if (path.equals(MoviesServer.CHANGES) || path.equals(MoviesServer.CHANGES + "/snapshot")) {
+            return path;
+        }
+        if (path.startsWith(MoviesServer.MOVIES + "/") && path.indexOf('/', MoviesServer.MOVIES.length() + 1) < 0) {
+            return MoviesServer.MOVIES + "/{id}";
+        }
+        return "other";
+    }
+
+    static String method(String method) {
+        return switch (method) {
+            case "GET", "POST", "DELETE", "PUT", "PATCH", "HEAD", "OPTIONS" -> method;
+            default -> "OTHER";
+        };
+    }
+
+    private static class CountingOutputStream extends FilterOutputStream implements FileTransferStream {
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        // счётчик не должен мешать передаче файла без копирования
+        @Override
+        public void transferFrom(FileChannel file, long position, long count) throws IOException {
+            FileTransferStream.transfer(file, position, count, out);
+            this.count += count;
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package ru.practicum.moviehub.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import ru.practicum.moviehub.api.ApiErrors;
+import ru.practicum.moviehub.metrics.ServerMetrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+public class MetricsHandler extends BaseHttpHandler {
+    private static final String CT_PROMETHEUS = "text/plain; version=0.0.4; charset=utf-8";
+    private final ServerMetrics metrics;
+
+    public MetricsHandler(ServerMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void handle(HttpExchange ex) throws IOException {
+        if (!ex.getRequestMethod().equals("GET")) {
+            sendError(ex, ApiErrors.METHOD_NOT_ALLOWED);
+            return;
+        }
+        byte[] body = metrics.toPrometheus().getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", CT_PROMETHEUS);
+        ex.sendResponseHeaders(200, body.length);
+        try (OutputStream os = ex.getResponseBody()) {
+            os.write(body);
+        }
+    }
+}
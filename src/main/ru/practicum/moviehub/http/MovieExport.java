@@ -0,0 +1,134 @@
+package ru.practicum.moviehub.http;
+
+import ru.practicum.moviehub.api.JsonBuffer;
+import ru.practicum.moviehub.api.MovieCodec;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.MoviesSnapshot;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Выгрузка каталога в NDJSON: строка {"title":...,"year":...} на фильм в порядке id, в том же виде,
+ * в каком её принимает POST /movies/batch. Если задан каталог, выгрузка версии каталога сохраняется
+ * в файл, и пока версия не изменилась, запросы получают её из файла без сериализации.
+ * Файл пишется со второго запроса той же версии: при частых изменениях каталога он бы не окупался.
+ */
+final class MovieExport {
+    static final String CONTENT_TYPE = "application/x-ndjson; charset=UTF-8";
+    private static final String FILE_PREFIX = "movies-export-";
+    private static final String FILE_SUFFIX = ".ndjson";
+    private static final int FLUSH_BYTES = 64 * 1024;
+
+    private final Path dir;
+    // под монитором выгрузки
+    private Path file;
+    private long fileVersion = -1;
+    private long requestedVersion = -1;
+    private boolean writing;
+    // только у того, кто пишет файл
+    private boolean staleRemoved;
+
+    /**
+     * @param dir куда сохранять файлы выгрузки; null — выгрузка всегда сериализуется из снимка
+     */
+    MovieExport(Path dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * Открывает файл с выгрузкой снимка. Если файла этой версии нет, а версию уже запрашивали, записывает его;
+     * запись идёт без монитора, и параллельные запросы тем временем выгружаются из снимка.
+     * Канал открывается до удаления прежнего файла, поэтому замена файла не обрывает идущие передачи.
+     *
+     * @return null, если каталог не задан, версия запрошена впервые, файл уже пишется
+     * или уже содержит более новую версию
+     */
+    FileChannel open(MoviesSnapshot snapshot) throws IOException {
+        if (dir == null) {
+            return null;
+        }
+        long version = snapshot.getVersion();
+        synchronized (this) {
+            if (version == fileVersion) {
+                return FileChannel.open(file, StandardOpenOption.READ);
+            }
+            boolean repeated = version == requestedVersion;
+            requestedVersion = Math.max(requestedVersion, version);
+            if (version < fileVersion || !repeated || writing) {
+                return null;
+            }
+            writing = true;
+        }
+        Path next;
+        try {
+            next = writeFile(snapshot);
+        } catch (IOException | RuntimeException e) {
+            synchronized (this) {
+                writing = false;
+            }
+            throw e;
+        }
+        Path previous;
+        FileChannel channel;
+        synchronized (this) {
+            writing = false;
+            // пока шла запись, других писателей не было, поэтому версия всё ещё новее fileVersion
+            previous = file;
+            file = next;
+            fileVersion = version;
+            channel = FileChannel.open(next, StandardOpenOption.READ);
+        }
+        if (previous != null) {
+            deleteQuietly(previous);
+        }
+        return channel;
+    }
+
+    private Path writeFile(MoviesSnapshot snapshot) throws IOException {
+        if (!staleRemoved) {
+            // версии не переживают перезапуск, поэтому файлы прошлых запусков не годятся
+            Files.createDirectories(dir);
+            try (DirectoryStream<Path> stale = Files.newDirectoryStream(dir, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+                for (Path path : stale) {
+                    Files.deleteIfExists(path);
+                }
+            }
+            staleRemoved = true;
+        }
+        Path next = dir.resolve(FILE_PREFIX + snapshot.getVersion() + FILE_SUFFIX);
+        try (OutputStream out = Files.newOutputStream(next)) {
+            write(snapshot, out);
+        } catch (IOException e) {
+            Files.deleteIfExists(next);
+            throw e;
+        }
+        return next;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // файл ещё открыт там, где открытый файл удалить нельзя; его уберёт следующий запуск
+        }
+    }
+
+    static void write(Iterable<Movie> movies, OutputStream out) throws IOException {
+        JsonBuffer buffer = new JsonBuffer(FLUSH_BYTES + 1024);
+        for (Movie movie : movies) {
+            MovieCodec.writeMovie(buffer, movie);
+            buffer.append('\n');
+            if (buffer.length() >= FLUSH_BYTES) {
+                out.write(buffer.array(), 0, buffer.length());
+                buffer.reset();
+            }
+        }
+        out.write(buffer.array(), 0, buffer.length());
+    }
+}
@@ -0,0 +1,122 @@
+package ru.practicum.moviehub.http;
+
+import ru.practicum.moviehub.api.JsonBuffer;
+import ru.practicum.moviehub.api.MovieCodec;
+import ru.practicum.moviehub.store.MoviesSnapshot;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+
+/**
+ * Кеш сериализованного списка фильмов для GET /movies.
+ * Тело пересобирается только когда меняется версия хранилища.
+ * Каталоги больше maxCachedMovies не кешируются — их отдают потоково.
+ */
+public class MovieListCache {
+    public static final int DEFAULT_MAX_CACHED_MOVIES = 10_000;
+    private final MoviesStore store;
+    private final int maxCachedMovies;
+    // отличает ETag разных запусков сервера: версия хранилища после рестарта начинается заново
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private volatile Snapshot current;
+
+    public MovieListCache(MoviesStore store) {
+        this(store, DEFAULT_MAX_CACHED_MOVIES);
+    }
+
+    public MovieListCache(MoviesStore store, int maxCachedMovies) {
+        this.store = store;
+        this.maxCachedMovies = maxCachedMovies;
+    }
+
+    public boolean isCacheable() {
+        return store.size() <= maxCachedMovies;
+    }
+
+    public String etag(long version) {
+        return "\"" + epoch + "-" + version + "\"";
+    }
+
+    public String etag(long version, ContentEncoding encoding) {
+        return encoding.etag(etag(version));
+    }
+
+    public static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            String trimmed = tag.trim();
+            if (trimmed.equals("*") || trimmed.equals(etag) || trimmed.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Snapshot get() {
+        Snapshot snapshot = current;
+        if (snapshot != null && snapshot.version == store.getVersion()) {
+            return snapshot;
+        }
+        // тело собирается из снимка хранилища и получает ровно его версию
+        MoviesSnapshot catalog = store.snapshot();
+        JsonBuffer buffer = new JsonBuffer(catalog.size() * 48 + 2);
+        MovieCodec.writeMovies(buffer, catalog);
+        byte[] body = buffer.toByteArray();
+        snapshot = new Snapshot(catalog.getVersion(), etag(catalog.getVersion()), body);
+        current = snapshot;
+        return snapshot;
+    }
+
+    public static final class Snapshot {
+        private final long version;
+        private final String etag;
+        private final byte[] body;
+        // сжатые варианты тела считаются один раз на снимок, при первом запросе с таким кодированием
+        private final AtomicReferenceArray<byte[]> encodedBodies = new AtomicReferenceArray<>(ContentEncoding.values().length);
+
+        private Snapshot(long version, String etag, byte[] body) {
+            this.version = version;
+            this.etag = etag;
+            this.body = body;
+        }
+
+        public long getVersion() {
+            return version;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getEtag(ContentEncoding encoding) {
+            return encoding.etag(etag);
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+
+        public byte[] getBody(ContentEncoding encoding) {
+            if (encoding == ContentEncoding.IDENTITY) {
+                return body;
+            }
+            byte[] encoded = encodedBodies.get(encoding.ordinal());
+            if (encoded == null) {
+                encoded = encoding.encode(body);
+                encodedBodies.compareAndSet(encoding.ordinal(), null, encoded);
+            }
+            return encoded;
+        }
+
+        public boolean matches(String ifNoneMatch) {
+            return etagMatches(ifNoneMatch, etag);
+        }
+
+        public boolean matches(String ifNoneMatch, ContentEncoding encoding) {
+            return etagMatches(ifNoneMatch, getEtag(encoding));
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package ru.practicum.moviehub.http;
+
+import ru.practicum.moviehub.api.ApiErrors;
+import ru.practicum.moviehub.model.Movie;
+
+import java.time.LocalDate;
+
+public final class MovieValidator {
+    private static final int MIN_YEAR = 1888;
+    private static final int MAX_YEAR = LocalDate.now().getYear() + 1;
+    private static final int MAX_MOVIE_TITLE_LENGTH = 100;
+
+    private MovieValidator() {
+    }
+
+    /**
+     * @return битовая маска ошибок из {@link ApiErrors}, 0 — фильм корректен
+     */
+    public static int validate(Movie movie) {
+        int errors = 0;
+        if (movie.getTitle().isBlank()) {
+            errors |= ApiErrors.TITLE_BLANK;
+        }
+        if (movie.getTitle().length() > MAX_MOVIE_TITLE_LENGTH) {
+            errors |= ApiErrors.TITLE_TOO_LONG;
+        }
+        if (movie.getYear() <= MIN_YEAR || movie.getYear() >= MAX_YEAR) {
+            errors |= ApiErrors.YEAR_OUT_OF_RANGE;
+        }
+        return errors;
+    }
+}
@@ -1,130 +1,349 @@
 package ru.practicum.moviehub.http;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonSyntaxException;
+import com.google.gson.JsonParseException;
 import com.sun.net.httpserver.HttpExchange;
-import ru.practicum.moviehub.api.ErrorResponse;
+import ru.practicum.moviehub.api.ApiErrors;
+import ru.practicum.moviehub.api.MovieCodec;
 import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.MoviesPage;
+import ru.practicum.moviehub.store.MoviesSnapshot;
 import ru.practicum.moviehub.store.MoviesStore;
+import ru.practicum.moviehub.store.TitleSearchIndex;
+import ru.practicum.moviehub.store.WritePipeline;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
-import java.time.LocalDate;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 public class MoviesHandler extends BaseHttpHandler {
 
-    private static final int MIN_YEAR = 1888;
-    private static final int MAX_YEAR = LocalDate.now().getYear() + 1;
-    private static final int MAX_MOVIE_TITLE_LENGTH = 100;
+    private static final int DEFAULT_PAGE_LIMIT = 100;
+    private static final int MAX_PAGE_LIMIT = 1000;
+    private static final int DEFAULT_SEARCH_LIMIT = 10;
+    private static final int MAX_SEARCH_LIMIT = 100;
+    private static final int MAX_QUERY_LENGTH = 100;
+    // очередь записи разбирается за миллисекунды, поэтому повтор почти сразу
+    private static final int WRITE_RETRY_AFTER_SECONDS = 1;
+    private static final long WRITE_TIMEOUT_SECONDS = 10;
     private final MoviesStore moviesStore;
-    private List<Movie> movieList;
-    private final ErrorResponse error = new ErrorResponse();
-    private final Gson gson = new Gson();
+    private final MovieListCache listCache;
+    private final BatchImporter batchImporter;
+    // null — поиск выключен
+    private final TitleSearchIndex searchIndex;
+    private final boolean readOnly;
+    private final WritePipeline writePipeline;
+    private final MovieExport export;
 
     public MoviesHandler(MoviesStore moviesStore) {
+        this(moviesStore, ServerConfig.defaults(), null);
+    }
+
+    /**
+     * Из config берутся порог сжатия, режим только для чтения, индекс поиска и каталог файла выгрузки.
+     *
+     * @param writePipeline через него идут POST и DELETE одного фильма; null — запись прямо в потоке обработчика
+     */
+    public MoviesHandler(MoviesStore moviesStore, ServerConfig config, WritePipeline writePipeline) {
+        super(config.getCompressionMinBytes());
+        this.readOnly = config.isReadOnly();
+        this.writePipeline = writePipeline;
+        this.export = new MovieExport(config.getExportDir());
         this.moviesStore = moviesStore;
+        this.listCache = new MovieListCache(moviesStore);
+        this.batchImporter = new BatchImporter(moviesStore);
+        this.searchIndex = config.isSearchIndex() ? new TitleSearchIndex(moviesStore) : null;
     }
 
     @Override
     public void handle(HttpExchange ex) throws IOException {
-        movieList = new ArrayList<>(moviesStore.getMoviesMap().values());
-        String body = gson.toJson(movieList);
         String method = ex.getRequestMethod();
 
+        if (readOnly && (method.equals("POST") || method.equals("DELETE"))) {
+            sendError(ex, ApiErrors.READ_ONLY);
+            return;
+        }
         switch (method) {
-            case "GET" -> handleGetRequest(ex, body);
+            case "GET" -> handleGetRequest(ex);
             case "POST" -> handlePostRequest(ex);
             case "DELETE" -> handleDeleteRequest(ex);
             default -> handleDefaultRequest(ex);
         }
     }
 
-    public void handleGetRequest(HttpExchange ex, String body) throws IOException {
+    public void handleGetRequest(HttpExchange ex) throws IOException {
         String path = ex.getRequestURI().getPath();
-        String query = ex.getRequestURI().getQuery();
         String[] array = path.split("/");
 
+        if (array.length == 2) {
+            QueryParams query = QueryParams.parse(ex.getRequestURI().getRawQuery());
+            if (query.has("year")) {
+                handleYearRequest(ex, query);
+                return;
+            }
+            if (query.has("yearFrom") || query.has("yearTo")) {
+                handleYearRangeRequest(ex, query);
+                return;
+            }
+            if (query.has("limit") || query.has("cursor")) {
+                handlePageRequest(ex, query);
+                return;
+            }
+            handleListRequest(ex);
+        } else if (array.length == 3 && array[2].equals("search")) {
+            handleSearchRequest(ex, QueryParams.parse(ex.getRequestURI().getRawQuery()));
+        } else if (array.length == 3 && array[2].equals("export")) {
+            handleExportRequest(ex);
+        } else if (array.length == 3) {
+            int id;
+            try {
+                id = Integer.parseInt(array[2]);
+            } catch (NumberFormatException e) {
+                sendError(ex, ApiErrors.INVALID_ID);
+                return;
+            }
+            Movie movie = moviesStore.getMovie(id);
+            if (movie != null) {
+                sendJson(ex, 200, MovieCodec.encodeMovie(movie));
+            } else {
+                sendError(ex, ApiErrors.MOVIE_NOT_FOUND);
+            }
+        } else {
+            sendError(ex, ApiErrors.MOVIE_NOT_FOUND);
+        }
+    }
+
+    // кодирование и Vary выбираются до проверки If-None-Match, чтобы 304 нёс те же заголовки, что и 200
+    private void handleListRequest(HttpExchange ex) throws IOException {
+        String ifNoneMatch = ex.getRequestHeaders().getFirst("If-None-Match");
+        if (listCache.isCacheable()) {
+            MovieListCache.Snapshot snapshot = listCache.get();
+            ContentEncoding encoding = negotiateEncoding(ex, snapshot.getBody().length);
+            ex.getResponseHeaders().set("ETag", snapshot.getEtag(encoding));
+            if (snapshot.matches(ifNoneMatch, encoding)) {
+                sendNotModified(ex);
+                return;
+            }
+            sendEncodedJson(ex, 200, snapshot.getBody(encoding), encoding);
+            return;
+        }
+
+        // ETag и тело берутся из одного снимка, поэтому всегда соответствуют друг другу.
+        // Большой каталог сжимается, если клиент согласен; ETag сжатого варианта ставит сам поток,
+        // а короткое тело уходит как есть с ETag без кодирования
+        MoviesSnapshot snapshot = moviesStore.snapshot();
+        ContentEncoding encoding = negotiateEncoding(ex, Long.MAX_VALUE);
+        String encodedEtag = listCache.etag(snapshot.getVersion(), encoding);
+        if (MovieListCache.etagMatches(ifNoneMatch, encodedEtag)) {
+            ex.getResponseHeaders().set("ETag", encodedEtag);
+            sendNotModified(ex);
+            return;
+        }
+        ex.getResponseHeaders().set("ETag", listCache.etag(snapshot.getVersion()));
+        sendJsonStream(ex, 200, snapshot);
+    }
+
+    private void handleYearRequest(HttpExchange ex, QueryParams query) throws IOException {
+        int year;
         try {
-            if (array.length == 2) {
-                if (query != null && query.contains("year=")) {
-                    String yearStr = query.split("=")[1];
-
-                    int year = Integer.parseInt(yearStr);
-                    List<Movie> filteredMovies = movieList.stream()
-                        .filter(movie -> movie.getYear() == year)
-                        .toList();
-                    String json = gson.toJson(filteredMovies);
-                    sendJson(ex, 200, json);
-                    return;
-                }
-                sendJson(ex, 200, body);
-            } else if (array.length == 3) {
-                int id = Integer.parseInt(array[2]);
-                if (moviesStore.getMoviesMap().size() > id) {
-                    String json = gson.toJson(moviesStore.getMovie(id));
-                    sendJson(ex, 200, json);
-                } else {
-                    error.addDetails("Фильм не найден");
-                    String json = gson.toJson(error.getDetails());
-                    error.clearMap();
-                    sendJson(ex, 404, json);
-                }
+            year = query.getInt("year");
+        } catch (NumberFormatException e) {
+            sendError(ex, ApiErrors.INVALID_YEAR);
+            return;
+        }
+        sendJsonStream(ex, 200, moviesStore.getMoviesByYear(year));
+    }
+
+    private void handleYearRangeRequest(HttpExchange ex, QueryParams query) throws IOException {
+        int yearFrom;
+        int yearTo;
+        try {
+            yearFrom = query.getInt("yearFrom", Integer.MIN_VALUE);
+        } catch (NumberFormatException e) {
+            sendError(ex, ApiErrors.INVALID_YEAR_FROM);
+            return;
+        }
+        try {
+            yearTo = query.getInt("yearTo", Integer.MAX_VALUE);
+        } catch (NumberFormatException e) {
+            sendError(ex, ApiErrors.INVALID_YEAR_TO);
+            return;
+        }
+        sendJsonStream(ex, 200, moviesStore.getMoviesByYearRange(yearFrom, yearTo));
+    }
+
+    private void handlePageRequest(HttpExchange ex, QueryParams query) throws IOException {
+        int limit;
+        try {
+            limit = query.getInt("limit", DEFAULT_PAGE_LIMIT);
+        } catch (NumberFormatException e) {
+            sendError(ex, ApiErrors.INVALID_LIMIT);
+            return;
+        }
+        if (limit <= 0 || limit > MAX_PAGE_LIMIT) {
+            sendError(ex, ApiErrors.INVALID_LIMIT);
+            return;
+        }
+
+        int afterId = -1;
+        if (query.has("cursor")) {
+            try {
+                afterId = PageCursor.decode(query.get("cursor"));
+            } catch (IllegalArgumentException e) {
+                sendError(ex, ApiErrors.INVALID_CURSOR);
+                return;
             }
+        }
+
+        MoviesPage page = moviesStore.getMoviesPage(afterId, limit);
+        String next = page.hasMore() ? PageCursor.encode(page.getLastId()) : null;
+        sendJson(ex, 200, MovieCodec.encodePage(page.getMovies(), next));
+    }
+
+    private void handleSearchRequest(HttpExchange ex, QueryParams query) throws IOException {
+        if (searchIndex == null) {
+            sendError(ex, ApiErrors.SEARCH_DISABLED);
+            return;
+        }
+        String q = query.get("q");
+        if (q == null || q.isBlank() || q.length() > MAX_QUERY_LENGTH) {
+            sendError(ex, ApiErrors.INVALID_QUERY);
+            return;
+        }
+        int limit;
+        try {
+            limit = query.getInt("limit", DEFAULT_SEARCH_LIMIT);
         } catch (NumberFormatException e) {
-            if (query != null && query.contains("year=")) {
-                error.addDetails("Некорректный параметр запроса — 'year'");
-            } else {
-                error.addDetails("Некорректный ID");
+            sendError(ex, ApiErrors.INVALID_LIMIT);
+            return;
+        }
+        if (limit <= 0 || limit > MAX_SEARCH_LIMIT) {
+            sendError(ex, ApiErrors.INVALID_LIMIT);
+            return;
+        }
+        sendJson(ex, 200, MovieCodec.encodeMovies(searchIndex.search(q, limit)));
+    }
+
+    private void handleExportRequest(HttpExchange ex) throws IOException {
+        MoviesSnapshot snapshot = moviesStore.snapshot();
+        FileChannel file = openExportFile(snapshot);
+        if (file != null) {
+            try (file) {
+                sendFile(ex, 200, MovieExport.CONTENT_TYPE, file);
             }
-            String json = gson.toJson(error.getDetails());
-            error.clearMap();
-            sendJson(ex, 400, json);
+            return;
+        }
+        try (OutputStream out = startStream(ex, 200, MovieExport.CONTENT_TYPE)) {
+            MovieExport.write(snapshot, out);
+        }
+    }
+
+    private FileChannel openExportFile(MoviesSnapshot snapshot) {
+        try {
+            return export.open(snapshot);
+        } catch (IOException e) {
+            // без файла выгрузка всё равно возможна, только дороже
+            return null;
         }
     }
 
     public void handlePostRequest(HttpExchange ex) throws IOException {
+        if (ex.getRequestURI().getPath().equals(MoviesServer.MOVIES + "/batch")) {
+            handleBatchRequest(ex);
+            return;
+        }
+
         Movie movie;
-        try (InputStreamReader isr = new InputStreamReader(ex.getRequestBody(), StandardCharsets.UTF_8)) {
-            movie = gson.fromJson(isr, Movie.class);
+        try (InputStream body = ex.getRequestBody()) {
+            movie = MovieCodec.decodeMovie(body);
         } catch (IOException e) {
-            error.addDetails("Что-то пошло не так");
-            String errorMessage = gson.toJson(error.getDetails());
-            sendJson(ex, 422, errorMessage);
+            sendError(ex, ApiErrors.READ_FAILED);
+            return;
+        } catch (JsonParseException e) {
+            sendError(ex, ApiErrors.INVALID_JSON);
             return;
-        } catch (JsonSyntaxException e) {
-            throw new RuntimeException(e);
         }
 
         if (!checkCT(ex)) {
-            error.addDetails("Неправильное значение заголовка Content-Type");
-            String json = gson.toJson(error.getDetails());
-            error.clearMap();
-            sendJson(ex, 415, json);
+            sendError(ex, ApiErrors.UNSUPPORTED_MEDIA_TYPE);
             return;
-       }
+        }
 
-        if (!validateMovie(movie)) {
-            String errorMessage = gson.toJson(error.getErrorMap());
-            error.clearMap();
-            sendJson(ex, 422, errorMessage);
+        if (movie == null || movie.getTitle() == null) {
+            sendError(ex, ApiErrors.INVALID_JSON);
+            return;
+        }
+
+        int errors = validateMovie(movie);
+        if (errors != 0) {
+            sendError(ex, ApiErrors.validation(errors));
+            return;
+        }
+
+        int id;
+        try {
+            id = writePipeline != null ? await(writePipeline.add(movie)) : moviesStore.addMovie(movie);
+        } catch (RejectedExecutionException e) {
+            sendRetryLater(ex, ApiErrors.OVERLOADED, WRITE_RETRY_AFTER_SECONDS);
+            return;
+        } catch (TimeoutException e) {
+            sendError(ex, ApiErrors.WRITE_TIMEOUT);
             return;
         }
+        sendJson(ex, 201, MovieCodec.encodeCreated(id, movie));
+    }
 
-        int id = moviesStore.getMoviesMap().size();
-        if (moviesStore.checkMovie(movie.getTitle())) {
-            id = moviesStore.getMovieId(movie.getTitle());
+    private void handleBatchRequest(HttpExchange ex) throws IOException {
+        String contentType = ex.getRequestHeaders().getFirst("Content-Type");
+        if (contentType == null || !(contentType.equalsIgnoreCase("application/json")
+                || contentType.equalsIgnoreCase("application/x-ndjson"))) {
+            sendError(ex, ApiErrors.UNSUPPORTED_BATCH_MEDIA_TYPE);
+            return;
         }
 
-        HashMap<Integer, Movie> map = new HashMap<>();
-        map.put(id, movie);
+        BatchImporter.Result result;
+        try (InputStreamReader isr = new InputStreamReader(ex.getRequestBody(), StandardCharsets.UTF_8)) {
+            result = batchImporter.importFrom(isr);
+        } catch (JsonParseException e) {
+            sendError(ex, ApiErrors.INVALID_JSON);
+            return;
+        } catch (IOException e) {
+            sendError(ex, ApiErrors.READ_FAILED);
+            return;
+        }
 
-        moviesStore.addMovie(movie);
-        String jsonMovie = gson.toJson(map);
-        sendJson(ex, 201, jsonMovie);
+        sendJsonStream(ex, 200, writer -> {
+            writer.beginObject();
+            writer.name("received").value(result.getReceived());
+            writer.name("created").value(result.getCreated());
+            writer.name("duplicates").value(result.getDuplicates());
+            writer.name("rejected").value(result.getRejected());
+            writer.name("ids").beginArray();
+            for (int i = 0; i < result.getReceived(); i++) {
+                writer.value(result.getId(i));
+            }
+            writer.endArray();
+            writer.name("errors").beginArray();
+            for (BatchImporter.ItemError error : result.getErrors()) {
+                writer.beginObject();
+                writer.name("index").value(error.getIndex());
+                writer.name("details").beginArray();
+                for (String detail : error.getDetails()) {
+                    writer.value(detail);
+                }
+                writer.endArray();
+                writer.endObject();
+            }
+            writer.endArray();
+            writer.endObject();
+        });
     }
 
     public void handleDeleteRequest(HttpExchange ex) throws IOException {
@@ -133,56 +352,62 @@ public class MoviesHandler extends BaseHttpHandler {
 
         try {
             int id = Integer.parseInt(array[2]);
-            if (moviesStore.getMoviesMap().containsKey(id)) {
-                moviesStore.deleteMovie(id);
+            boolean removed;
+            try {
+                removed = writePipeline != null ? await(writePipeline.delete(id)) != 0 : moviesStore.deleteMovie(id);
+            } catch (RejectedExecutionException e) {
+                sendRetryLater(ex, ApiErrors.OVERLOADED, WRITE_RETRY_AFTER_SECONDS);
+                return;
+            } catch (TimeoutException e) {
+                sendError(ex, ApiErrors.WRITE_TIMEOUT);
+                return;
+            }
+            if (removed) {
                 sendNoContent(ex);
             } else {
-                error.addDetails("Фильм не найден");
-                String json = gson.toJson(error.getDetails());
-                error.clearMap();
-                sendJson(ex, 404, json);
+                sendError(ex, ApiErrors.MOVIE_NOT_FOUND);
             }
-        } catch (NumberFormatException e) {
-            error.addDetails("Некорректный ID");
-            String json = gson.toJson(error.getDetails());
-            error.clearMap();
-            sendJson(ex, 400, json);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+            sendError(ex, ApiErrors.INVALID_ID);
         }
     }
 
-    public void handleDefaultRequest(HttpExchange ex) throws IOException {
-        error.addDetails("Принимаю только Get и POST запросы!");
-        String json = gson.toJson(error.getDetails());
-        error.clearMap();
-        sendJson(ex, 405, json);
+    // ошибка хранилища в потоке записи выходит из обработчика так же, как при записи на месте;
+    // изменение, не дождавшееся ответа, ещё может примениться, поэтому его результат неизвестен
+    private static int await(CompletableFuture<Integer> result) throws TimeoutException {
+        try {
+            return result.get(WRITE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TimeoutException("Ожидание записи прервано");
+        }
     }
 
-    public boolean validateMovie(Movie movie) {
-        if (movie.getTitle().isBlank() || movie.getTitle().length() > MAX_MOVIE_TITLE_LENGTH ||
-                movie.getYear() <= MIN_YEAR || movie.getYear() >= MAX_YEAR) {
-            error.setError("Ошибка валидации!");
-
-            if (movie.getTitle().isBlank()) {
-                error.addDetails("Название не должно быть пустым!");
-            }
+    /**
+     * Отписывает индекс поиска от хранилища, которое может пережить сервер.
+     */
+    public void close() {
+        if (searchIndex != null) {
+            searchIndex.close();
+        }
+    }
 
-            if (movie.getTitle().length() > MAX_MOVIE_TITLE_LENGTH) {
-                error.addDetails("Длина тела должна быть <= 100");
-            }
+    public void handleDefaultRequest(HttpExchange ex) throws IOException {
+        sendError(ex, ApiErrors.METHOD_NOT_ALLOWED);
+    }
 
-            if (movie.getYear() <= MIN_YEAR || movie.getYear() >= MAX_YEAR) {
-                error.addDetails("Год должен быть между 1888 и 2026!");
-            }
-            return false;
-        }
-        return true;
+    public int validateMovie(Movie movie) {
+        return MovieValidator.validate(movie);
     }
 
     public boolean checkCT(HttpExchange ex) {
-        return ex.getRequestHeaders().getFirst("Content-Type")
-                .equalsIgnoreCase("application/json");
+        String contentType = ex.getRequestHeaders().getFirst("Content-Type");
+        return contentType != null && contentType.equalsIgnoreCase("application/json");
     }
 
 }
-
-
@@ -1,35 +1,221 @@
 package ru.practicum.moviehub.http;
 
+import com.sun.net.httpserver.HttpContext;
 import com.sun.net.httpserver.HttpServer;
+import ru.practicum.moviehub.http.nio.NioHttpServer;
+import ru.practicum.moviehub.metrics.ServerMetrics;
+import ru.practicum.moviehub.replication.ChangeLog;
 import ru.practicum.moviehub.store.MoviesStore;
+import ru.practicum.moviehub.store.WritePipeline;
 
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MoviesServer {
     protected static final String MOVIES = "/movies";
+    protected static final String METRICS = "/metrics";
+    protected static final String CHANGES = MOVIES + "/changes";
+
     HttpServer server;
     MoviesStore store;
+    private final ServerMetrics metrics;
+    private final ServerConfig config;
+    private final ExecutorService executor;
+    private final AdmissionLimit readLimit;
+    private final AdmissionLimit writeLimit;
+    private final RateLimiter rateLimiter;
+    private final ChangeLog changeLog;
+    private final WritePipeline writePipeline;
+    private final MoviesHandler moviesHandler;
 
     public MoviesServer(MoviesStore moviesStore, int port) throws IOException {
+        this(moviesStore, port, ServerConfig.defaults());
+    }
+
+    public MoviesServer(MoviesStore moviesStore, int port, ServerConfig config) throws IOException {
         store = moviesStore;
+        this.config = config;
+        metrics = new ServerMetrics(moviesStore::size);
+        readLimit = createLimit("read", config.getReadMaxInFlight(), config.getReadMaxQueued(), config);
+        writeLimit = createLimit("write", config.getWriteMaxInFlight(), config.getWriteMaxQueued(), config);
+        rateLimiter = createRateLimiter(config);
+        changeLog = config.getChangeLogCapacity() > 0 ? new ChangeLog(config.getChangeLogCapacity()) : null;
+        writePipeline = createWritePipeline(moviesStore, config);
 
         try {
-            server = HttpServer.create(new InetSocketAddress(port), 0);
-            server.createContext(MOVIES, new MoviesHandler(moviesStore));
+            server = createHttpServer(new InetSocketAddress(port), config);
+            moviesHandler = new MoviesHandler(moviesStore, config, writePipeline);
+            HttpContext movies = server.createContext(MOVIES, moviesHandler);
+            movies.getFilters().add(new MetricsFilter(metrics));
+            // ограничения после метрик, чтобы отказы попадали в счётчики ответов;
+            // частота раньше допуска, чтобы клиент сверх своей частоты не занимал общие места
+            if (rateLimiter != null) {
+                movies.getFilters().add(new RateLimitFilter(rateLimiter, config.getRateLimitKeyHeader()));
+            }
+            if (readLimit != null || writeLimit != null) {
+                movies.getFilters().add(new AdmissionFilter(readLimit, writeLimit, config.getRetryAfterSeconds()));
+            }
+            server.createContext(METRICS, new MetricsHandler(metrics));
+            if (changeLog != null) {
+                // отдельный контекст: реплики не проходят ограничения клиентских запросов
+                moviesStore.addListener(changeLog);
+                metrics.setChangeLog(changeLog::getLastSeq);
+                HttpContext changes = server.createContext(CHANGES,
+                        new ChangesHandler(moviesStore, changeLog, config.getCompressionMinBytes(), longPolls(config)));
+                changes.getFilters().add(new MetricsFilter(metrics));
+            }
         } catch (IOException e) {
             throw new RuntimeException("Не удалось создать Http-сервер");
         }
 
+        executor = createExecutor(config, admissionCapacity() + (changeLog != null ? longPolls(config) : 0));
+        server.setExecutor(executor);
+    }
+
+    // обработчики и фильтры одни и те же, движки различаются только работой с сокетами
+    private static HttpServer createHttpServer(InetSocketAddress address, ServerConfig config) throws IOException {
+        return switch (config.getEngine()) {
+            case JDK -> HttpServer.create(address, config.getBacklog());
+            case NIO -> NioHttpServer.create(address, config.getBacklog(), config.getEventLoops(),
+                    config.getKeepAliveMillis());
+        };
+    }
+
+    private AdmissionLimit createLimit(String name, int maxInFlight, int maxQueued, ServerConfig config) {
+        if (maxInFlight == 0) {
+            return null;
+        }
+        AdmissionLimit limit = new AdmissionLimit(name, maxInFlight, maxQueued, config.getAdmissionTimeoutMillis());
+        metrics.addAdmission(name, limit::getInFlight, limit::getQueued, limit::getRejected);
+        return limit;
+    }
+
+    // в режиме диспетчера ожидание остановило бы весь сервер
+    private static int longPolls(ServerConfig config) {
+        return config.getExecutorMode() == ExecutorMode.DISPATCHER ? 0 : config.getMaxLongPolls();
+    }
+
+    private WritePipeline createWritePipeline(MoviesStore moviesStore, ServerConfig config) {
+        if (config.getWritePipelineCapacity() == 0 || config.isReadOnly()) {
+            return null;
+        }
+        WritePipeline pipeline = new WritePipeline(moviesStore, config.getWritePipelineCapacity(),
+                config.getWriteBatchSize());
+        metrics.setWritePipeline(pipeline::getQueued, pipeline::getBatches, pipeline::getWrites,
+                pipeline::getRejected);
+        return pipeline;
+    }
+
+    private RateLimiter createRateLimiter(ServerConfig config) {
+        if (config.getRateLimitPerSecond() == 0) {
+            return null;
+        }
+        RateLimiter limiter = new RateLimiter(config.getRateLimitPerSecond(), config.getRateLimitBurst(),
+                config.getRateLimitIdleMillis(), config.getRateLimitMaxClients());
+        metrics.setRateLimiter(limiter::getClients, limiter::getLimited);
+        return limiter;
+    }
+
+    // допущенные и ждущие запросы занимают поток пула, поэтому пул расширяется на их число:
+    // очередь пула не растёт, а лишние запросы быстро получают 503
+    private int admissionCapacity() {
+        int capacity = 0;
+        for (AdmissionLimit limit : new AdmissionLimit[]{readLimit, writeLimit}) {
+            if (limit != null) {
+                capacity += limit.getMaxInFlight() + limit.getMaxQueued();
+            }
+        }
+        return capacity;
+    }
+
+    private static ExecutorService createExecutor(ServerConfig config, int admissionCapacity) {
+        return switch (config.getExecutorMode()) {
+            case DISPATCHER -> null;
+            case THREAD_POOL -> Executors.newFixedThreadPool(config.getThreads() + admissionCapacity,
+                    new WorkerThreadFactory());
+            case VIRTUAL -> Executors.newThreadPerTaskExecutor(
+                    Thread.ofVirtual().name("movies-virtual-", 0).factory());
+        };
+    }
+
+    public ServerMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return ограничение чтения или null, если оно не задано
+     */
+    public AdmissionLimit getReadLimit() {
+        return readLimit;
+    }
+
+    public AdmissionLimit getWriteLimit() {
+        return writeLimit;
+    }
+
+    /**
+     * @return лента изменений для реплик или null, если она отключена
+     */
+    public ChangeLog getChangeLog() {
+        return changeLog;
+    }
+
+    /**
+     * @return очередь единственного потока записи или null, если запросы пишут сами
+     */
+    public WritePipeline getWritePipeline() {
+        return writePipeline;
+    }
+
+    /**
+     * @return ограничение частоты по клиентам или null, если оно не задано
+     */
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
     }
 
     public void start() {
         server.start();
-        System.out.println("Сервер запущен!");
+        System.out.println("Сервер запущен! " + config);
     }
 
     public void stop() {
-        server.stop(0);
+        // перестаём принимать соединения и ждём завершения начатых обменов
+        server.stop(config.getStopDelaySeconds());
+        if (changeLog != null) {
+            store.removeListener(changeLog);
+        }
+        moviesHandler.close();
+        if (writePipeline != null) {
+            writePipeline.close();
+        }
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(config.getStopDelaySeconds(), TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
         System.out.println("Сервер остановлен!");
     }
-}
\ No newline at end of file
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "movies-worker-" + counter.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
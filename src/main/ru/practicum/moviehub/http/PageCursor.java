@@ -0,0 +1,30 @@
+package ru.practicum.moviehub.http;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Непрозрачный для клиента курсор страницы: в нём закодирован id последнего отданного фильма.
+ */
+final class PageCursor {
+    private static final String PREFIX = "after:";
+
+    private PageCursor() {
+    }
+
+    static String encode(int lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @throws IllegalArgumentException если курсор повреждён
+     */
+    static int decode(String cursor) {
+        String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        if (!decoded.startsWith(PREFIX)) {
+            throw new IllegalArgumentException("Некорректный курсор: " + cursor);
+        }
+        return Integer.parseInt(decoded.substring(PREFIX.length()));
+    }
+}
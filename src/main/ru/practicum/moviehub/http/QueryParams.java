@@ -0,0 +1,67 @@
+package ru.practicum.moviehub.http;
+
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+public final class QueryParams {
+    private static final QueryParams EMPTY = new QueryParams(Collections.emptyMap());
+    private final Map<String, String> params;
+
+    private QueryParams(Map<String, String> params) {
+        this.params = params;
+    }
+
+    /**
+     * Разбирает сырую (не декодированную) строку запроса. При повторе параметра побеждает первое значение.
+     */
+    public static QueryParams parse(String rawQuery) {
+        if (rawQuery == null || rawQuery.isEmpty()) {
+            return EMPTY;
+        }
+        Map<String, String> params = new HashMap<>();
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) {
+                continue;
+            }
+            int eq = pair.indexOf('=');
+            String name = decode(eq < 0 ? pair : pair.substring(0, eq));
+            String value = eq < 0 ? "" : decode(pair.substring(eq + 1));
+            params.putIfAbsent(name, value);
+        }
+        return new QueryParams(params);
+    }
+
+    public boolean isEmpty() {
+        return params.isEmpty();
+    }
+
+    public boolean has(String name) {
+        return params.containsKey(name);
+    }
+
+    public String get(String name) {
+        return params.get(name);
+    }
+
+    /**
+     * @throws NumberFormatException если значение отсутствует или не является целым числом
+     */
+    public int getInt(String name) {
+        String value = params.get(name);
+        if (value == null) {
+            throw new NumberFormatException("Параметр отсутствует: " + name);
+        }
+        return Integer.parseInt(value.trim());
+    }
+
+    public int getInt(String name, int defaultValue) {
+        return has(name) ? getInt(name) : defaultValue;
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+}
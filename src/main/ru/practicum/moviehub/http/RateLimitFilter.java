@@ -0,0 +1,50 @@
+package ru.practicum.moviehub.http;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpExchange;
+import ru.practicum.moviehub.api.ApiErrors;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Отвечает 429 клиенту, превысившему свою частоту запросов. Клиент определяется по заголовку
+ * с ключом API, если он задан и передан, иначе по адресу.
+ */
+class RateLimitFilter extends Filter {
+    // длинный ключ не должен раздувать карту вёдер
+    private static final int MAX_KEY_LENGTH = 128;
+    private final RateLimiter limiter;
+    private final String keyHeader;
+
+    RateLimitFilter(RateLimiter limiter, String keyHeader) {
+        this.limiter = limiter;
+        this.keyHeader = keyHeader;
+    }
+
+    @Override
+    public void doFilter(HttpExchange ex, Chain chain) throws IOException {
+        long wait = limiter.tryAcquire(client(ex));
+        if (wait == 0) {
+            chain.doFilter(ex);
+            return;
+        }
+        long retryAfter = Math.max(1, (wait + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        BaseHttpHandler.sendRetryLater(ex, ApiErrors.TOO_MANY_REQUESTS, retryAfter);
+    }
+
+    @Override
+    public String description() {
+        return "rate-limit";
+    }
+
+    private String client(HttpExchange ex) {
+        if (keyHeader != null) {
+            String key = ex.getRequestHeaders().getFirst(keyHeader);
+            if (key != null && !key.isEmpty() && key.length() <= MAX_KEY_LENGTH) {
+                return "key:" + key;
+            }
+        }
+        return "addr:" + ex.getRemoteAddress().getAddress().getHostAddress();
+    }
+}
@@ -0,0 +1,117 @@
+package ru.practicum.moviehub.http;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограничение частоты запросов по клиенту: у каждого клиента своё ведро на burst токенов,
+ * пополняемое со скоростью permitsPerSecond.
+ * Состояние ведра — одно число, момент, когда ведро снова станет полным (GCRA), поэтому
+ * списание и пополнение — один CAS без блокировок. Простаивающие вёдра полны и удаляются
+ * периодическим обходом; число вёдер ограничено, сверх лимита новые клиенты делят общее ведро.
+ */
+public class RateLimiter {
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final long idleNanos;
+    private final int maxClients;
+    private final Map<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final Bucket overflow;
+    private final AtomicLong nextSweepNanos;
+    private final LongAdder limited = new LongAdder();
+
+    public RateLimiter(double permitsPerSecond, int burst, long idleMillis, int maxClients) {
+        if (permitsPerSecond <= 0 || burst <= 0 || idleMillis <= 0 || maxClients <= 0) {
+            throw new IllegalArgumentException("Некорректные параметры ограничения частоты");
+        }
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.burstNanos = intervalNanos * burst;
+        this.idleNanos = TimeUnit.MILLISECONDS.toNanos(idleMillis);
+        this.maxClients = maxClients;
+        long now = System.nanoTime();
+        this.overflow = new Bucket(now);
+        this.nextSweepNanos = new AtomicLong(now + sweepIntervalNanos());
+    }
+
+    /**
+     * @return 0, если запрос разрешён, иначе сколько наносекунд клиенту ждать следующего токена
+     */
+    public long tryAcquire(String client) {
+        return tryAcquire(client, System.nanoTime());
+    }
+
+    long tryAcquire(String client, long now) {
+        sweepIfDue(now);
+        long wait = bucket(client, now).tryAcquire(now);
+        if (wait > 0) {
+            limited.increment();
+        }
+        return wait;
+    }
+
+    public int getClients() {
+        return buckets.size();
+    }
+
+    public long getLimited() {
+        return limited.sum();
+    }
+
+    private Bucket bucket(String client, long now) {
+        Bucket bucket = buckets.get(client);
+        if (bucket != null) {
+            return bucket;
+        }
+        // новые вёдра появятся после очередного обхода; до этого новые клиенты делят общее
+        if (buckets.size() >= maxClients) {
+            return overflow;
+        }
+        return buckets.computeIfAbsent(client, key -> new Bucket(now));
+    }
+
+    private void sweepIfDue(long now) {
+        long next = nextSweepNanos.get();
+        if (now - next >= 0 && nextSweepNanos.compareAndSet(next, now + sweepIntervalNanos())) {
+            sweep(now);
+        }
+    }
+
+    // ведро, простоявшее полным idle, ничем не отличается от нового: удаление не даёт клиенту лишних токенов
+    private void sweep(long now) {
+        buckets.values().removeIf(bucket -> now - bucket.fullAt() > idleNanos);
+    }
+
+    private long sweepIntervalNanos() {
+        return Math.max(idleNanos / 4, TimeUnit.MILLISECONDS.toNanos(10));
+    }
+
+    private final class Bucket {
+        // момент, к которому ведро снова наполнится
+        private final AtomicLong fullAt;
+
+        private Bucket(long now) {
+            this.fullAt = new AtomicLong(now);
+        }
+
+        long fullAt() {
+            return fullAt.get();
+        }
+
+        long tryAcquire(long now) {
+            while (true) {
+                long full = fullAt.get();
+                long next = Math.max(full, now) + intervalNanos;
+                long excess = next - now - burstNanos;
+                if (excess > 0) {
+                    return excess;
+                }
+                if (fullAt.compareAndSet(full, next)) {
+                    return 0;
+                }
+            }
+        }
+    }
+}
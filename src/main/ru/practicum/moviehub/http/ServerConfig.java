@@ -0,0 +1,390 @@
+package ru.practicum.moviehub.http;
+
+import ru.practicum.moviehub.store.WritePipeline;
+
+import java.nio.file.Path;
+
+public class ServerConfig {
+    private ServerEngine engine = ServerEngine.JDK;
+    private int eventLoops = Runtime.getRuntime().availableProcessors();
+    private long keepAliveMillis = 30_000;
+    private ExecutorMode executorMode = ExecutorMode.THREAD_POOL;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int backlog = 128;
+    private int stopDelaySeconds = 2;
+    private int compressionMinBytes = BaseHttpHandler.DEFAULT_COMPRESSION_MIN_BYTES;
+    // 0 — без ограничения
+    private int readMaxInFlight;
+    private int readMaxQueued;
+    private int writeMaxInFlight;
+    private int writeMaxQueued;
+    private long admissionTimeoutMillis = 1000;
+    private int retryAfterSeconds = 1;
+    // 0 — без ограничения частоты
+    private double rateLimitPerSecond;
+    private int rateLimitBurst;
+    private String rateLimitKeyHeader;
+    private long rateLimitIdleMillis = 60_000;
+    private int rateLimitMaxClients = 100_000;
+    // 0 — лента изменений для реплик выключена
+    private int changeLogCapacity;
+    private int maxLongPolls = 4;
+    private boolean readOnly;
+    private boolean searchIndex = true;
+    // 0 — запись в потоке обработчика
+    private int writePipelineCapacity;
+    private int writeBatchSize = WritePipeline.DEFAULT_MAX_BATCH;
+    // null — выгрузка без файла
+    private Path exportDir;
+
+    public static ServerConfig defaults() {
+        return new ServerConfig();
+    }
+
+    public ServerEngine getEngine() {
+        return engine;
+    }
+
+    public ServerConfig setEngine(ServerEngine engine) {
+        this.engine = engine;
+        return this;
+    }
+
+    public int getEventLoops() {
+        return eventLoops;
+    }
+
+    /**
+     * Сколько потоков с селекторами обслуживают соединения движка NIO.
+     */
+    public ServerConfig setEventLoops(int eventLoops) {
+        if (eventLoops <= 0) {
+            throw new IllegalArgumentException("Количество циклов событий должно быть больше 0");
+        }
+        this.eventLoops = eventLoops;
+        return this;
+    }
+
+    public long getKeepAliveMillis() {
+        return keepAliveMillis;
+    }
+
+    /**
+     * Через сколько движок NIO закрывает keep-alive соединение без запросов.
+     */
+    public ServerConfig setKeepAliveMillis(long keepAliveMillis) {
+        if (keepAliveMillis <= 0) {
+            throw new IllegalArgumentException("Время простоя должно быть больше 0");
+        }
+        this.keepAliveMillis = keepAliveMillis;
+        return this;
+    }
+
+    public ExecutorMode getExecutorMode() {
+        return executorMode;
+    }
+
+    public ServerConfig setExecutorMode(ExecutorMode executorMode) {
+        this.executorMode = executorMode;
+        return this;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public ServerConfig setThreads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Количество потоков должно быть больше 0");
+        }
+        this.threads = threads;
+        return this;
+    }
+
+    public int getBacklog() {
+        return backlog;
+    }
+
+    public ServerConfig setBacklog(int backlog) {
+        this.backlog = requireNonNegative(backlog);
+        return this;
+    }
+
+    public int getStopDelaySeconds() {
+        return stopDelaySeconds;
+    }
+
+    public ServerConfig setStopDelaySeconds(int stopDelaySeconds) {
+        this.stopDelaySeconds = requireNonNegative(stopDelaySeconds);
+        return this;
+    }
+
+    public int getCompressionMinBytes() {
+        return compressionMinBytes;
+    }
+
+    /**
+     * Минимальный размер тела ответа для сжатия; отрицательное значение отключает сжатие.
+     */
+    public ServerConfig setCompressionMinBytes(int compressionMinBytes) {
+        this.compressionMinBytes = compressionMinBytes;
+        return this;
+    }
+
+    public int getReadMaxInFlight() {
+        return readMaxInFlight;
+    }
+
+    /**
+     * Сколько GET-запросов обрабатывается одновременно; 0 отключает ограничение чтения.
+     */
+    public ServerConfig setReadMaxInFlight(int readMaxInFlight) {
+        this.readMaxInFlight = requireNonNegative(readMaxInFlight);
+        return this;
+    }
+
+    public int getReadMaxQueued() {
+        return readMaxQueued;
+    }
+
+    public ServerConfig setReadMaxQueued(int readMaxQueued) {
+        this.readMaxQueued = requireNonNegative(readMaxQueued);
+        return this;
+    }
+
+    public int getWriteMaxInFlight() {
+        return writeMaxInFlight;
+    }
+
+    /**
+     * Сколько изменяющих запросов обрабатывается одновременно; 0 отключает ограничение записи.
+     */
+    public ServerConfig setWriteMaxInFlight(int writeMaxInFlight) {
+        this.writeMaxInFlight = requireNonNegative(writeMaxInFlight);
+        return this;
+    }
+
+    public int getWriteMaxQueued() {
+        return writeMaxQueued;
+    }
+
+    public ServerConfig setWriteMaxQueued(int writeMaxQueued) {
+        this.writeMaxQueued = requireNonNegative(writeMaxQueued);
+        return this;
+    }
+
+    public long getAdmissionTimeoutMillis() {
+        return admissionTimeoutMillis;
+    }
+
+    /**
+     * Сколько запрос может ждать в очереди допуска, прежде чем получит 503.
+     */
+    public ServerConfig setAdmissionTimeoutMillis(long admissionTimeoutMillis) {
+        if (admissionTimeoutMillis < 0) {
+            throw new IllegalArgumentException("Таймаут очереди не может быть отрицательным");
+        }
+        this.admissionTimeoutMillis = admissionTimeoutMillis;
+        return this;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public ServerConfig setRetryAfterSeconds(int retryAfterSeconds) {
+        this.retryAfterSeconds = requireNonNegative(retryAfterSeconds);
+        return this;
+    }
+
+    public double getRateLimitPerSecond() {
+        return rateLimitPerSecond;
+    }
+
+    /**
+     * Сколько запросов в секунду разрешено одному клиенту; 0 отключает ограничение частоты.
+     */
+    public ServerConfig setRateLimitPerSecond(double rateLimitPerSecond) {
+        if (rateLimitPerSecond < 0) {
+            throw new IllegalArgumentException("Частота не может быть отрицательной");
+        }
+        this.rateLimitPerSecond = rateLimitPerSecond;
+        return this;
+    }
+
+    /**
+     * @return сколько запросов клиент может сделать подряд; по умолчанию — частота за секунду
+     */
+    public int getRateLimitBurst() {
+        return rateLimitBurst > 0 ? rateLimitBurst : (int) Math.max(1, Math.ceil(rateLimitPerSecond));
+    }
+
+    public ServerConfig setRateLimitBurst(int rateLimitBurst) {
+        this.rateLimitBurst = requireNonNegative(rateLimitBurst);
+        return this;
+    }
+
+    public String getRateLimitKeyHeader() {
+        return rateLimitKeyHeader;
+    }
+
+    /**
+     * Заголовок с ключом API, по которому различаются клиенты; null — только по адресу.
+     */
+    public ServerConfig setRateLimitKeyHeader(String rateLimitKeyHeader) {
+        this.rateLimitKeyHeader = rateLimitKeyHeader;
+        return this;
+    }
+
+    public long getRateLimitIdleMillis() {
+        return rateLimitIdleMillis;
+    }
+
+    public ServerConfig setRateLimitIdleMillis(long rateLimitIdleMillis) {
+        if (rateLimitIdleMillis <= 0) {
+            throw new IllegalArgumentException("Время простоя должно быть больше 0");
+        }
+        this.rateLimitIdleMillis = rateLimitIdleMillis;
+        return this;
+    }
+
+    public int getRateLimitMaxClients() {
+        return rateLimitMaxClients;
+    }
+
+    public ServerConfig setRateLimitMaxClients(int rateLimitMaxClients) {
+        if (rateLimitMaxClients <= 0) {
+            throw new IllegalArgumentException("Количество клиентов должно быть больше 0");
+        }
+        this.rateLimitMaxClients = rateLimitMaxClients;
+        return this;
+    }
+
+    public int getChangeLogCapacity() {
+        return changeLogCapacity;
+    }
+
+    /**
+     * Сколько последних изменений хранится для реплик; 0 (по умолчанию) отключает /movies/changes.
+     * Лента отдаёт весь каталог без ограничения частоты и допуска, поэтому включается только на ведущем.
+     */
+    public ServerConfig setChangeLogCapacity(int changeLogCapacity) {
+        this.changeLogCapacity = requireNonNegative(changeLogCapacity);
+        return this;
+    }
+
+    public int getMaxLongPolls() {
+        return maxLongPolls;
+    }
+
+    /**
+     * Сколько реплик одновременно ждут изменений long-poll-запросом; каждая занимает поток обработки.
+     */
+    public ServerConfig setMaxLongPolls(int maxLongPolls) {
+        this.maxLongPolls = requireNonNegative(maxLongPolls);
+        return this;
+    }
+
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    /**
+     * Реплика: изменяющие запросы к /movies отклоняются, данные приходят от ведущего сервера.
+     */
+    public ServerConfig setReadOnly(boolean readOnly) {
+        this.readOnly = readOnly;
+        return this;
+    }
+
+    public boolean isSearchIndex() {
+        return searchIndex;
+    }
+
+    /**
+     * Триграммный индекс для GET /movies/search; без него поиск отвечает 404, а память под индекс не тратится.
+     */
+    public ServerConfig setSearchIndex(boolean searchIndex) {
+        this.searchIndex = searchIndex;
+        return this;
+    }
+
+    public int getWritePipelineCapacity() {
+        return writePipelineCapacity;
+    }
+
+    /**
+     * Сколько POST и DELETE может ждать единственного потока записи; 0 — каждый запрос пишет сам.
+     * Окупается с журналом и fsync=always: пачка фиксируется одним fsync. В памяти передача
+     * изменения потоку записи дороже самой записи.
+     */
+    public ServerConfig setWritePipelineCapacity(int writePipelineCapacity) {
+        this.writePipelineCapacity = requireNonNegative(writePipelineCapacity);
+        return this;
+    }
+
+    public int getWriteBatchSize() {
+        return writeBatchSize;
+    }
+
+    /**
+     * Сколько изменений поток записи применяет одной пачкой с общим fsync.
+     */
+    public ServerConfig setWriteBatchSize(int writeBatchSize) {
+        if (writeBatchSize <= 0) {
+            throw new IllegalArgumentException("Размер пачки должен быть больше 0");
+        }
+        this.writeBatchSize = writeBatchSize;
+        return this;
+    }
+
+    public Path getExportDir() {
+        return exportDir;
+    }
+
+    /**
+     * Каталог для файла выгрузки GET /movies/export: выгрузка версии каталога пишется туда один раз
+     * и, пока каталог не меняется, отдаётся из файла через transferTo.
+     */
+    public ServerConfig setExportDir(Path exportDir) {
+        this.exportDir = exportDir;
+        return this;
+    }
+
+    private static int requireNonNegative(int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("Значение не может быть отрицательным: " + value);
+        }
+        return value;
+    }
+
+    @Override
+    public String toString() {
+        return "ServerConfig{" +
+                "engine=" + engine +
+                ", eventLoops=" + eventLoops +
+                ", keepAliveMillis=" + keepAliveMillis +
+                ", executorMode=" + executorMode +
+                ", threads=" + threads +
+                ", backlog=" + backlog +
+                ", stopDelaySeconds=" + stopDelaySeconds +
+                ", compressionMinBytes=" + compressionMinBytes +
+                ", readMaxInFlight=" + readMaxInFlight +
+                ", readMaxQueued=" + readMaxQueued +
+                ", writeMaxInFlight=" + writeMaxInFlight +
+                ", writeMaxQueued=" + writeMaxQueued +
+                ", admissionTimeoutMillis=" + admissionTimeoutMillis +
+                ", retryAfterSeconds=" + retryAfterSeconds +
+                ", rateLimitPerSecond=" + rateLimitPerSecond +
+                ", rateLimitBurst=" + getRateLimitBurst() +
+                ", rateLimitKeyHeader=" + rateLimitKeyHeader +
+                ", changeLogCapacity=" + changeLogCapacity +
+                ", maxLongPolls=" + maxLongPolls +
+                ", readOnly=" + readOnly +
+                ", searchIndex=" + searchIndex +
+                ", writePipelineCapacity=" + writePipelineCapacity +
+                ", writeBatchSize=" + writeBatchSize +
+                ", exportDir=" + exportDir +
+                '}';
+    }
+}
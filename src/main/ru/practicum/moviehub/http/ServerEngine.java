@@ -0,0 +1,8 @@
+package ru.practicum.moviehub.http;
+
+public enum ServerEngine {
+    /** com.sun.net.httpserver из JDK. */
+    JDK,
+    /** Собственный сервер на неблокирующих каналах с циклами событий. */
+    NIO
+}
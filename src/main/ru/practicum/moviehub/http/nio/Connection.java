@@ -0,0 +1,423 @@
+package ru.practicum.moviehub.http.nio;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+
+/**
+ * Keep-alive соединение. Запросы обрабатываются строго по очереди: пока идёт обмен,
+ * чтение из сокета приостановлено, а уже пришедшие следующие запросы (pipelining) ждут в буфере.
+ * Ответ пишется в сокет прямо из потока обработчика; что не влезло, дописывает цикл событий.
+ */
+final class Connection {
+    private static final int INITIAL_INBOX = 4 * 1024;
+    private static final int OUTPUT_BUFFER_SIZE = 16 * 1024;
+    // столько неотправленных байт ответа поток обработчика держит, прежде чем ждать медленного клиента
+    private static final int HIGH_WATER_BYTES = 256 * 1024;
+    private static final byte[] CONTINUE = "HTTP/1.1 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+
+    private final EventLoop loop;
+    private final NioHttpServer server;
+    private final SocketChannel channel;
+    private final InetSocketAddress remoteAddress;
+    private final InetSocketAddress localAddress;
+    private SelectionKey key;
+
+    // только поток цикла событий
+    private byte[] inbox = new byte[INITIAL_INBOX];
+    private int inboxStart;
+    private int inboxEnd;
+    private boolean inputClosed;
+    private boolean continueSent;
+    private boolean processing;
+    private NioExchange exchange;
+    private volatile long lastActive = System.currentTimeMillis();
+
+    // буфер ответа переходит от обмена к обмену, одновременно им пользуется только текущий
+    private ByteBuffer outputBuffer;
+
+    // под монитором соединения
+    private final ArrayDeque<ByteBuffer> outbound = new ArrayDeque<>();
+    private long pendingBytes;
+    private boolean responseFinished;
+    private boolean closeAfterResponse;
+    // поток обработчика ждёт, пока сокет снова примет байты файла
+    private boolean awaitingWritable;
+    private volatile boolean closed;
+
+    Connection(EventLoop loop, SocketChannel channel) throws IOException {
+        this.loop = loop;
+        this.server = loop.getServer();
+        this.channel = channel;
+        this.remoteAddress = (InetSocketAddress) channel.getRemoteAddress();
+        this.localAddress = (InetSocketAddress) channel.getLocalAddress();
+    }
+
+    void setKey(SelectionKey key) {
+        this.key = key;
+    }
+
+    NioHttpServer getServer() {
+        return server;
+    }
+
+    InetSocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    InetSocketAddress getLocalAddress() {
+        return localAddress;
+    }
+
+    ByteBuffer getOutputBuffer() {
+        if (outputBuffer == null) {
+            outputBuffer = ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE);
+        }
+        return outputBuffer;
+    }
+
+    boolean isIdleSince(long millis) {
+        return exchange == null && lastActive < millis;
+    }
+
+    void onReadable() {
+        ByteBuffer buffer = loop.getReadBuffer();
+        try {
+            while (true) {
+                buffer.clear();
+                int n = channel.read(buffer);
+                if (n < 0) {
+                    inputClosed = true;
+                    break;
+                }
+                if (n == 0) {
+                    break;
+                }
+                buffer.flip();
+                ensureInboxSpace(n);
+                buffer.get(inbox, inboxEnd, n);
+                inboxEnd += n;
+                if (n < buffer.capacity()) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            close();
+            return;
+        }
+        lastActive = System.currentTimeMillis();
+        processInbox();
+        if (inputClosed && exchange == null) {
+            close();
+        }
+    }
+
+    void onWritable() {
+        boolean finished;
+        synchronized (this) {
+            try {
+                while (!outbound.isEmpty()) {
+                    ByteBuffer head = outbound.peek();
+                    pendingBytes -= channel.write(head);
+                    if (head.hasRemaining()) {
+                        break;
+                    }
+                    outbound.poll();
+                }
+            } catch (IOException e) {
+                close();
+                return;
+            }
+            awaitingWritable = false;
+            notifyAll();
+            finished = responseFinished && outbound.isEmpty();
+            if (finished) {
+                responseFinished = false;
+            }
+        }
+        updateInterest();
+        if (finished) {
+            afterResponse();
+        }
+    }
+
+    /**
+     * Отправляет байты из src; вызывается потоком обработчика или циклом событий.
+     * Не ушедший в сокет остаток копируется, так что src можно сразу переиспользовать.
+     */
+    void send(ByteBuffer src) throws IOException {
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("Соединение закрыто");
+            }
+            if (outbound.isEmpty()) {
+                try {
+                    while (src.hasRemaining() && channel.write(src) > 0) {
+                        // пишем, пока сокет принимает
+                    }
+                } catch (IOException e) {
+                    close();
+                    throw e;
+                }
+            }
+            if (!src.hasRemaining()) {
+                return;
+            }
+            ByteBuffer rest = ByteBuffer.allocate(src.remaining());
+            rest.put(src).flip();
+            outbound.add(rest);
+            pendingBytes += rest.remaining();
+            if (outbound.size() == 1) {
+                loop.execute(this::updateInterest);
+            }
+            // цикл событий ждать не может: он сам дописывает ответ
+            if (loop.inLoop()) {
+                return;
+            }
+            try {
+                while (pendingBytes > HIGH_WATER_BYTES && !closed) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Прервано ожидание отправки ответа");
+            }
+            if (closed) {
+                throw new IOException("Соединение закрыто");
+            }
+        }
+    }
+
+    /**
+     * Отправляет участок файла через transferTo: байты идут из page cache в сокет, минуя кучу.
+     * Вызывается потоком обработчика после того, как всё предыдущее передано в send.
+     */
+    void sendFile(FileChannel file, long position, long count) throws IOException {
+        long end = position + count;
+        if (end > file.size()) {
+            throw new EOFException("Файл короче запрошенного участка");
+        }
+        synchronized (this) {
+            while (position < end) {
+                if (closed) {
+                    throw new IOException("Соединение закрыто");
+                }
+                if (loop.inLoop()) {
+                    // цикл событий ждать не может: остаток уходит через обычную очередь
+                    sendCopy(file, position, end);
+                    return;
+                }
+                long n = 0;
+                if (outbound.isEmpty()) {
+                    try {
+                        n = file.transferTo(position, end - position, channel);
+                    } catch (IOException e) {
+                        close();
+                        throw e;
+                    }
+                }
+                if (n > 0) {
+                    position += n;
+                    continue;
+                }
+                awaitingWritable = true;
+                loop.execute(this::updateInterest);
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Прервано ожидание отправки ответа");
+                }
+            }
+        }
+    }
+
+    private void sendCopy(FileChannel file, long position, long end) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate((int) Math.min(end - position, OUTPUT_BUFFER_SIZE));
+        while (position < end) {
+            chunk.clear().limit((int) Math.min(chunk.capacity(), end - position));
+            int n = file.read(chunk, position);
+            if (n < 0) {
+                throw new EOFException("Файл короче запрошенного участка");
+            }
+            position += n;
+            chunk.flip();
+            send(chunk);
+        }
+    }
+
+    /**
+     * Ответ полностью передан в send; следующий запрос читается, когда он уйдёт в сокет.
+     */
+    void finishResponse(boolean close) {
+        boolean drained;
+        synchronized (this) {
+            closeAfterResponse |= close;
+            drained = outbound.isEmpty();
+            responseFinished = !drained;
+        }
+        if (drained) {
+            loop.execute(this::afterResponse);
+        }
+    }
+
+    void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            outbound.clear();
+            pendingBytes = 0;
+            notifyAll();
+        }
+        if (key != null) {
+            key.cancel();
+        }
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // соединение уже разорвано
+        }
+        loop.unregister(this);
+    }
+
+    private void afterResponse() {
+        exchange = null;
+        lastActive = System.currentTimeMillis();
+        if (closeAfterResponse || inputClosed || server.isStopping()) {
+            close();
+            return;
+        }
+        processInbox();
+    }
+
+    private void processInbox() {
+        // ответ, законченный прямо в цикле событий, вернётся сюда же: следующий запрос разберёт внешний вызов
+        if (processing || closed) {
+            return;
+        }
+        processing = true;
+        try {
+            while (exchange == null && !closed && inboxStart < inboxEnd) {
+                RequestParser.ParsedRequest request;
+                try {
+                    request = RequestParser.parse(inbox, inboxStart, inboxEnd, server.getMaxBodyBytes());
+                } catch (RequestParser.BadRequestException e) {
+                    reject(e.getStatus(), null);
+                    return;
+                }
+                if (request == null) {
+                    break;
+                }
+                if (request.body() == null) {
+                    if (request.expectsContinue() && !continueSent) {
+                        continueSent = true;
+                        sendRaw(CONTINUE);
+                    }
+                    break;
+                }
+                consume(request.consumed());
+                continueSent = false;
+                if (server.isStopping()) {
+                    close();
+                    return;
+                }
+                URI uri;
+                try {
+                    uri = new URI(request.target());
+                } catch (URISyntaxException e) {
+                    reject(400, "Bad request line");
+                    return;
+                }
+                NioContext context = server.findContext(uri.getPath());
+                if (context == null) {
+                    reject(404, "No context found for request");
+                    return;
+                }
+                exchange = new NioExchange(this, context, request, uri);
+                server.dispatch(exchange);
+            }
+        } finally {
+            processing = false;
+            updateInterest();
+        }
+    }
+
+    private void updateInterest() {
+        if (key == null || !key.isValid()) {
+            return;
+        }
+        int ops = exchange == null && !inputClosed ? SelectionKey.OP_READ : 0;
+        synchronized (this) {
+            if (!outbound.isEmpty() || awaitingWritable) {
+                ops |= SelectionKey.OP_WRITE;
+            }
+        }
+        key.interestOps(ops);
+    }
+
+    // ответ без обработчика, как у com.sun.net.httpserver; соединение после него закрывается
+    private void reject(int status, String message) {
+        String statusLine = new String(NioExchange.statusLine(status), StandardCharsets.ISO_8859_1);
+        // "HTTP/1.1 404 Not Found\r\n" -> "<h1>404 Not Found</h1>"
+        String text = message == null ? "" : "<h1>" + statusLine.substring(9).strip() + "</h1>" + message;
+        StringBuilder response = new StringBuilder(statusLine);
+        if (text.isEmpty()) {
+            response.append("Content-Length: 0\r\n");
+        } else {
+            response.append("Content-Length: ").append(text.length()).append("\r\n")
+                    .append("Content-Type: text/html\r\n");
+        }
+        response.append("Connection: close\r\n\r\n").append(text);
+        inboxStart = inboxEnd;
+        inputClosed = true;
+        sendRaw(response.toString().getBytes(StandardCharsets.ISO_8859_1));
+        finishResponse(true);
+    }
+
+    private void sendRaw(byte[] bytes) {
+        try {
+            send(ByteBuffer.wrap(bytes));
+        } catch (IOException e) {
+            close();
+        }
+    }
+
+    private void consume(int count) {
+        inboxStart += count;
+        if (inboxStart == inboxEnd) {
+            inboxStart = 0;
+            inboxEnd = 0;
+            if (inbox.length > RequestParser.MAX_HEAD_BYTES) {
+                // после большого тела не держим его буфер на всё время жизни соединения
+                inbox = new byte[INITIAL_INBOX];
+            }
+        }
+    }
+
+    private void ensureInboxSpace(int n) {
+        if (inboxEnd + n <= inbox.length) {
+            return;
+        }
+        int used = inboxEnd - inboxStart;
+        if (used + n <= inbox.length) {
+            System.arraycopy(inbox, inboxStart, inbox, 0, used);
+        } else {
+            byte[] grown = new byte[Math.max(inbox.length * 2, used + n)];
+            System.arraycopy(inbox, inboxStart, grown, 0, used);
+            inbox = grown;
+        }
+        inboxStart = 0;
+        inboxEnd = used;
+    }
+}
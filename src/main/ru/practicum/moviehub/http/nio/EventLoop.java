@@ -0,0 +1,177 @@
+package ru.practicum.moviehub.http.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Поток с селектором: читает запросы и дописывает ответы, которые не ушли в сокет сразу.
+ * Остальные потоки работают с его соединениями только через {@link #execute}.
+ */
+final class EventLoop implements Runnable {
+    private static final int READ_BUFFER_SIZE = 64 * 1024;
+    private static final long TICK_MILLIS = 1000;
+    private static final long ACCEPT_BACKOFF_MILLIS = 100;
+
+    private final NioHttpServer server;
+    private final Selector selector;
+    private final Thread thread;
+    private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+    private final Set<Connection> connections = new HashSet<>();
+    // один буфер на поток: читает только сам цикл
+    private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+    private volatile boolean running = true;
+    // сокет сервера, приём на котором приостановлен после ошибки accept, и когда его возобновить
+    private SelectionKey pausedAccept;
+    private long acceptResumeAt;
+
+    EventLoop(NioHttpServer server, int index) throws IOException {
+        this.server = server;
+        this.selector = Selector.open();
+        this.thread = new Thread(this, "movies-nio-" + index);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    boolean inLoop() {
+        return Thread.currentThread() == thread;
+    }
+
+    ByteBuffer getReadBuffer() {
+        return readBuffer;
+    }
+
+    NioHttpServer getServer() {
+        return server;
+    }
+
+    void execute(Runnable task) {
+        if (inLoop()) {
+            task.run();
+            return;
+        }
+        tasks.add(task);
+        selector.wakeup();
+    }
+
+    void listen(ServerSocketChannel channel) {
+        execute(() -> {
+            try {
+                channel.register(selector, SelectionKey.OP_ACCEPT, channel);
+            } catch (IOException e) {
+                throw new IllegalStateException("Не удалось зарегистрировать сокет сервера", e);
+            }
+        });
+    }
+
+    void register(SocketChannel channel) {
+        execute(() -> {
+            try {
+                Connection connection = new Connection(this, channel);
+                connection.setKey(channel.register(selector, SelectionKey.OP_READ, connection));
+                connections.add(connection);
+            } catch (IOException e) {
+                closeQuietly(channel);
+            }
+        });
+    }
+
+    void unregister(Connection connection) {
+        execute(() -> connections.remove(connection));
+    }
+
+    /**
+     * Закрывает соединения и останавливает поток; незавершённые ответы обрываются.
+     */
+    void shutdown() {
+        execute(() -> {
+            running = false;
+            for (Connection connection : new ArrayList<>(connections)) {
+                connection.close();
+            }
+        });
+        try {
+            thread.join(TICK_MILLIS * 2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void run() {
+        long nextTick = System.currentTimeMillis() + TICK_MILLIS;
+        try {
+            while (running) {
+                selector.select(this::process, pausedAccept != null ? ACCEPT_BACKOFF_MILLIS : TICK_MILLIS);
+                Runnable task;
+                while ((task = tasks.poll()) != null) {
+                    task.run();
+                }
+                long now = System.currentTimeMillis();
+                if (pausedAccept != null && now >= acceptResumeAt) {
+                    if (pausedAccept.isValid()) {
+                        pausedAccept.interestOps(SelectionKey.OP_ACCEPT);
+                    }
+                    pausedAccept = null;
+                }
+                if (now >= nextTick) {
+                    closeIdle(now);
+                    nextTick = now + TICK_MILLIS;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Цикл событий остановлен: " + e.getMessage());
+        } finally {
+            for (Connection connection : new ArrayList<>(connections)) {
+                connection.close();
+            }
+            closeQuietly(selector);
+        }
+    }
+
+    private void process(SelectionKey key) {
+        if (!key.isValid()) {
+            return;
+        }
+        if (key.attachment() instanceof Connection connection) {
+            if (key.isWritable()) {
+                connection.onWritable();
+            }
+            if (key.isValid() && key.isReadable()) {
+                connection.onReadable();
+            }
+        } else if (key.isAcceptable() && !server.accept((ServerSocketChannel) key.attachment())) {
+            // ожидающее соединение остаётся в очереди, и без паузы селектор крутился бы вхолостую
+            key.interestOps(0);
+            pausedAccept = key;
+            acceptResumeAt = System.currentTimeMillis() + ACCEPT_BACKOFF_MILLIS;
+        }
+    }
+
+    private void closeIdle(long now) {
+        long idleMillis = server.getIdleTimeoutMillis();
+        for (Connection connection : new ArrayList<>(connections)) {
+            if (connection.isIdleSince(now - idleMillis)) {
+                connection.close();
+            }
+        }
+    }
+
+    private static void closeQuietly(AutoCloseable closeable) {
+        try {
+            closeable.close();
+        } catch (Exception ignored) {
+            // закрываем при ошибке или остановке, сообщать некому
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package ru.practicum.moviehub.http.nio;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Поток ответа, который умеет отдать участок файла прямо в сокет через {@link FileChannel#transferTo},
+ * не копируя байты в кучу. Обёртки потока ответа передают вызов дальше, если могут.
+ */
+public interface FileTransferStream {
+
+    void transferFrom(FileChannel file, long position, long count) throws IOException;
+
+    /**
+     * Пишет участок файла в out: напрямую, если out это умеет, иначе через канал поверх потока.
+     */
+    static void transfer(FileChannel file, long position, long count, OutputStream out) throws IOException {
+        if (out instanceof FileTransferStream direct) {
+            direct.transferFrom(file, position, count);
+        } else {
+            copy(file, position, count, out);
+        }
+    }
+
+    /**
+     * Пишет участок файла в out через канал поверх потока: байты проходят через промежуточный буфер.
+     */
+    static void copy(FileChannel file, long position, long count, OutputStream out) throws IOException {
+        WritableByteChannel target = Channels.newChannel(out);
+        long end = position + count;
+        while (position < end) {
+            long n = file.transferTo(position, end - position, target);
+            if (n <= 0) {
+                throw new IOException("Файл короче запрошенного участка");
+            }
+            position += n;
+        }
+    }
+}
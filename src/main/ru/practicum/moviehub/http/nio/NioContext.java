@@ -0,0 +1,72 @@
+package ru.practicum.moviehub.http.nio;
+
+import com.sun.net.httpserver.Authenticator;
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+final class NioContext extends HttpContext {
+    private final NioHttpServer server;
+    private final String path;
+    private final List<Filter> filters = new CopyOnWriteArrayList<>();
+    private final Map<String, Object> attributes = new HashMap<>();
+    private volatile HttpHandler handler;
+
+    NioContext(NioHttpServer server, String path, HttpHandler handler) {
+        this.server = server;
+        this.path = path;
+        this.handler = handler;
+    }
+
+    @Override
+    public HttpHandler getHandler() {
+        return handler;
+    }
+
+    @Override
+    public void setHandler(HttpHandler handler) {
+        if (handler == null) {
+            throw new NullPointerException("handler");
+        }
+        if (this.handler != null) {
+            throw new IllegalArgumentException("Обработчик контекста уже задан");
+        }
+        this.handler = handler;
+    }
+
+    @Override
+    public String getPath() {
+        return path;
+    }
+
+    @Override
+    public HttpServer getServer() {
+        return server;
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public List<Filter> getFilters() {
+        return filters;
+    }
+
+    @Override
+    public Authenticator setAuthenticator(Authenticator authenticator) {
+        throw new UnsupportedOperationException("Аутентификация не поддерживается");
+    }
+
+    @Override
+    public Authenticator getAuthenticator() {
+        return null;
+    }
+}
@@ -0,0 +1,481 @@
+package ru.practicum.moviehub.http.nio;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Обмен поверх NIO-соединения с той же семантикой, что у com.sun.net.httpserver:
+ * длина 0 — чанки, -1 — без тела, закрытие потока ответа завершает обмен.
+ * Заголовки и тело копятся в direct-буфере соединения и уходят в сокет целиком, когда он заполнен
+ * или ответ закончен, поэтому короткий ответ — это одна запись в сокет.
+ */
+final class NioExchange extends HttpExchange {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter
+            .ofPattern("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US)
+            .withZone(ZoneId.of("GMT"));
+    private static final byte[][] STATUS_LINES = new byte[600][];
+    private static final byte[] CRLF = {'\r', '\n'};
+    private static final byte[] COLON = {':', ' '};
+    private static final byte[] LAST_CHUNK = "0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+    // размер чанка пишется шестью hex-цифрами с ведущими нулями: место под него резервируется заранее
+    private static final int CHUNK_HEADER = 8;
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.ISO_8859_1);
+    private static volatile DateHeader dateHeader = new DateHeader(0, "");
+
+    static {
+        for (int code = 100; code < STATUS_LINES.length; code++) {
+            STATUS_LINES[code] = ("HTTP/1.1 " + code + reason(code) + "\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        }
+    }
+
+    private enum Framing { NONE, FIXED, CHUNKED, UNTIL_CLOSE }
+
+    private final Connection connection;
+    private final NioContext context;
+    private final String method;
+    private final URI uri;
+    private final String protocol;
+    private final Headers requestHeaders;
+    private final Headers responseHeaders = new Headers();
+    private final ResponseStream responseStream = new ResponseStream();
+    private InputStream requestBody;
+    private OutputStream responseBody = responseStream;
+    private Map<String, Object> attributes;
+    private int responseCode = -1;
+    private boolean closeConnection;
+
+    NioExchange(Connection connection, NioContext context, RequestParser.ParsedRequest request, URI uri) {
+        this.connection = connection;
+        this.context = context;
+        this.method = request.method();
+        this.uri = uri;
+        this.protocol = request.protocol();
+        this.requestHeaders = request.headers();
+        this.requestBody = new ByteArrayInputStream(request.body());
+        String connectionHeader = requestHeaders.getFirst("Connection");
+        if (protocol.equals("HTTP/1.0")) {
+            closeConnection = !"keep-alive".equalsIgnoreCase(connectionHeader);
+        } else {
+            closeConnection = "close".equalsIgnoreCase(connectionHeader);
+        }
+        closeConnection |= request.ambiguousLength();
+    }
+
+    NioContext getContext() {
+        return context;
+    }
+
+    /**
+     * Обрывает соединение: недописанный ответ не должен выглядеть для клиента законченным.
+     */
+    void abort() {
+        connection.close();
+    }
+
+    /**
+     * Завершает обмен, если обработчик не закрыл поток ответа сам.
+     */
+    void finish() throws IOException {
+        if (responseCode < 0) {
+            // как и com.sun.net.httpserver: без ответа соединение просто закрывается
+            connection.close();
+            return;
+        }
+        responseStream.close();
+    }
+
+    @Override
+    public Headers getRequestHeaders() {
+        return requestHeaders;
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return uri;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return method;
+    }
+
+    @Override
+    public HttpContext getHttpContext() {
+        return context;
+    }
+
+    @Override
+    public void close() {
+        try {
+            requestBody.close();
+            if (responseCode < 0) {
+                connection.close();
+            } else {
+                responseStream.close();
+            }
+        } catch (IOException e) {
+            connection.close();
+        }
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return requestBody;
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        return responseBody;
+    }
+
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
+        if (responseCode > 0) {
+            throw new IOException("Заголовки ответа уже отправлены");
+        }
+        if (rCode < 100 || rCode >= STATUS_LINES.length) {
+            throw new IllegalArgumentException("Некорректный код ответа: " + rCode);
+        }
+        responseCode = rCode;
+        boolean noBodyAllowed = rCode < 200 || rCode == 204 || rCode == 304;
+        Framing framing;
+        long length = 0;
+        if (method.equals("HEAD") || noBodyAllowed) {
+            framing = Framing.NONE;
+        } else if (responseLength == 0) {
+            if (protocol.equals("HTTP/1.0")) {
+                framing = Framing.UNTIL_CLOSE;
+                closeConnection = true;
+            } else {
+                framing = Framing.CHUNKED;
+                responseHeaders.set("Transfer-Encoding", "chunked");
+            }
+        } else {
+            framing = responseLength < 0 ? Framing.NONE : Framing.FIXED;
+            length = Math.max(0, responseLength);
+            responseHeaders.set("Content-Length", Long.toString(length));
+        }
+        List<String> connectionHeader = responseHeaders.get("Connection");
+        if (connectionHeader != null && connectionHeader.stream().anyMatch("close"::equalsIgnoreCase)) {
+            closeConnection = true;
+        } else if (closeConnection || connection.getServer().isStopping()) {
+            closeConnection = true;
+            responseHeaders.set("Connection", "close");
+        }
+        responseHeaders.set("Date", currentDate());
+        responseStream.begin(STATUS_LINES[rCode], framing, length);
+        if (framing == Framing.NONE) {
+            responseStream.close();
+        }
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return connection.getRemoteAddress();
+    }
+
+    @Override
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return connection.getLocalAddress();
+    }
+
+    @Override
+    public String getProtocol() {
+        return protocol;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return attributes == null ? null : attributes.get(name);
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+        if (attributes == null) {
+            attributes = new HashMap<>();
+        }
+        attributes.put(name, value);
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+        if (i != null) {
+            requestBody = i;
+        }
+        if (o != null) {
+            responseBody = o;
+        }
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return null;
+    }
+
+    private static String currentDate() {
+        long second = System.currentTimeMillis() / 1000;
+        DateHeader cached = dateHeader;
+        if (cached.second != second) {
+            cached = new DateHeader(second, DATE_FORMAT.format(Instant.ofEpochSecond(second)));
+            dateHeader = cached;
+        }
+        return cached.value;
+    }
+
+    private record DateHeader(long second, String value) {
+    }
+
+    private static String reason(int code) {
+        return switch (code) {
+            case 100 -> " Continue";
+            case 200 -> " OK";
+            case 201 -> " Created";
+            case 202 -> " Accepted";
+            case 204 -> " No Content";
+            case 206 -> " Partial Content";
+            case 301 -> " Moved Permanently";
+            case 302 -> " Found";
+            case 304 -> " Not Modified";
+            case 400 -> " Bad Request";
+            case 401 -> " Unauthorized";
+            case 403 -> " Forbidden";
+            case 404 -> " Not Found";
+            case 405 -> " Method Not Allowed";
+            case 406 -> " Not Acceptable";
+            case 409 -> " Conflict";
+            case 410 -> " Gone";
+            case 411 -> " Length Required";
+            case 412 -> " Precondition Failed";
+            case 413 -> " Request Entity Too Large";
+            case 415 -> " Unsupported Media Type";
+            case 422 -> " Unprocessable Entity";
+            case 429 -> " Too Many Requests";
+            case 431 -> " Request Header Fields Too Large";
+            case 500 -> " Internal Server Error";
+            case 501 -> " Not Implemented";
+            case 503 -> " Service Unavailable";
+            case 505 -> " HTTP Version Not Supported";
+            default -> " ";
+        };
+    }
+
+    static byte[] statusLine(int code) {
+        return STATUS_LINES[code];
+    }
+
+    /**
+     * Исходный поток ответа. Фильтры могут обернуть его через setStreams, но закрытие
+     * любой обёртки доходит сюда и завершает обмен.
+     */
+    private final class ResponseStream extends OutputStream implements FileTransferStream {
+        private ByteBuffer buffer;
+        private Framing framing;
+        private long remaining;
+        private int chunkStart;
+        private boolean closed;
+
+        void begin(byte[] statusLine, Framing framing, long length) throws IOException {
+            this.buffer = connection.getOutputBuffer();
+            this.framing = framing;
+            this.remaining = length;
+            buffer.clear();
+            putRaw(statusLine, 0, statusLine.length);
+            for (Map.Entry<String, List<String>> header : responseHeaders.entrySet()) {
+                for (String value : header.getValue()) {
+                    putAscii(header.getKey());
+                    putRaw(COLON, 0, 2);
+                    putAscii(value);
+                    putRaw(CRLF, 0, 2);
+                }
+            }
+            putRaw(CRLF, 0, 2);
+            if (framing == Framing.CHUNKED) {
+                reserveChunkHeader();
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            checkOpen();
+            switch (framing) {
+                case NONE -> {
+                    // тело HEAD-ответа и ответов без тела отбрасывается
+                }
+                case FIXED -> {
+                    if (len > remaining) {
+                        throw new IOException("Тело длиннее объявленного Content-Length");
+                    }
+                    remaining -= len;
+                    putRaw(b, off, len);
+                }
+                case UNTIL_CLOSE -> putRaw(b, off, len);
+                case CHUNKED -> {
+                    while (len > 0) {
+                        // два байта в конце буфера оставлены под CRLF после чанка
+                        int room = buffer.remaining() - 2;
+                        if (room <= 0) {
+                            flushChunk();
+                            continue;
+                        }
+                        int n = Math.min(room, len);
+                        buffer.put(b, off, n);
+                        off += n;
+                        len -= n;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Тело с Content-Length уходит из файла в сокет без копирования; чанки и тело до закрытия
+         * соединения требуют своей разметки, поэтому для них файл читается обычным образом.
+         */
+        @Override
+        public void transferFrom(FileChannel file, long position, long count) throws IOException {
+            checkOpen();
+            if (framing == Framing.NONE) {
+                return;
+            }
+            if (framing != Framing.FIXED) {
+                FileTransferStream.copy(file, position, count, this);
+                return;
+            }
+            if (count > remaining) {
+                throw new IOException("Тело длиннее объявленного Content-Length");
+            }
+            // заголовки и уже записанная часть тела должны уйти раньше файла
+            flushRaw();
+            connection.sendFile(file, position, count);
+            remaining -= count;
+        }
+
+        private void checkOpen() throws IOException {
+            if (closed) {
+                throw new IOException("Поток ответа закрыт");
+            }
+            if (framing == null) {
+                throw new IOException("Заголовки ответа ещё не отправлены");
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            if (closed || framing == null) {
+                return;
+            }
+            if (framing == Framing.CHUNKED) {
+                flushChunk();
+            } else {
+                flushRaw();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed || framing == null) {
+                return;
+            }
+            closed = true;
+            if (framing == Framing.FIXED && remaining > 0) {
+                connection.close();
+                throw new IOException("Тело короче объявленного Content-Length");
+            }
+            if (framing == Framing.CHUNKED) {
+                flushChunk();
+                // резерв под заголовок следующего чанка не нужен
+                buffer.position(buffer.position() - CHUNK_HEADER);
+                putRaw(LAST_CHUNK, 0, LAST_CHUNK.length);
+            }
+            flushRaw();
+            connection.finishResponse(closeConnection);
+        }
+
+        private void reserveChunkHeader() throws IOException {
+            if (buffer.remaining() < CHUNK_HEADER + 3) {
+                flushRaw();
+            }
+            buffer.position(buffer.position() + CHUNK_HEADER);
+            chunkStart = buffer.position();
+        }
+
+        private void flushChunk() throws IOException {
+            int size = buffer.position() - chunkStart;
+            if (size == 0) {
+                return;
+            }
+            int header = chunkStart - CHUNK_HEADER;
+            for (int i = 0; i < 6; i++) {
+                buffer.put(header + i, HEX[(size >>> (20 - 4 * i)) & 0xF]);
+            }
+            buffer.put(header + 6, (byte) '\r');
+            buffer.put(header + 7, (byte) '\n');
+            buffer.put(CRLF);
+            flushRaw();
+            reserveChunkHeader();
+        }
+
+        private void putAscii(String s) throws IOException {
+            for (int i = 0; i < s.length(); i++) {
+                if (!buffer.hasRemaining()) {
+                    flushRaw();
+                }
+                char c = s.charAt(i);
+                buffer.put((byte) (c < 0x100 ? c : '?'));
+            }
+        }
+
+        private void putRaw(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (!buffer.hasRemaining()) {
+                    flushRaw();
+                }
+                int n = Math.min(buffer.remaining(), len);
+                buffer.put(b, off, n);
+                off += n;
+                len -= n;
+            }
+        }
+
+        private void flushRaw() throws IOException {
+            buffer.flip();
+            if (buffer.hasRemaining()) {
+                connection.send(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,284 @@
+package ru.practicum.moviehub.http.nio;
+
+import com.sun.net.httpserver.Filter;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HttpServer на неблокирующих каналах: несколько циклов событий с селекторами, keep-alive с таймаутом простоя
+ * и конвейерные запросы. Контексты, фильтры и обработчики те же, что у com.sun.net.httpserver, поэтому
+ * MoviesServer выбирает движок, не меняя обработку запросов.
+ * Без исполнителя обработчики выполняются прямо в цикле событий, как в режиме диспетчера у HttpServer.
+ * Тело запроса читается целиком до вызова обработчика и ограничено {@link #DEFAULT_MAX_BODY_BYTES}.
+ */
+public final class NioHttpServer extends HttpServer {
+    public static final int DEFAULT_MAX_BODY_BYTES = 64 * 1024 * 1024;
+
+    private final List<NioContext> contexts = new CopyOnWriteArrayList<>();
+    private final EventLoop[] loops;
+    private final long idleTimeoutMillis;
+    private final int maxBodyBytes;
+    private final AtomicInteger activeExchanges = new AtomicInteger();
+    private final Object exchangesDone = new Object();
+    private ServerSocketChannel channel;
+    private Executor executor;
+    private boolean started;
+    private volatile boolean stopping;
+    // меняет только цикл, принимающий соединения
+    private int nextLoop;
+
+    private NioHttpServer(int eventLoops, long idleTimeoutMillis, int maxBodyBytes) throws IOException {
+        if (eventLoops <= 0) {
+            throw new IllegalArgumentException("Количество циклов событий должно быть больше 0");
+        }
+        this.loops = new EventLoop[eventLoops];
+        for (int i = 0; i < eventLoops; i++) {
+            loops[i] = new EventLoop(this, i);
+        }
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.maxBodyBytes = maxBodyBytes;
+    }
+
+    /**
+     * @param idleTimeoutMillis через сколько закрывать keep-alive соединение без запросов
+     */
+    public static NioHttpServer create(InetSocketAddress address, int backlog, int eventLoops,
+                                       long idleTimeoutMillis) throws IOException {
+        NioHttpServer server = new NioHttpServer(eventLoops, idleTimeoutMillis, DEFAULT_MAX_BODY_BYTES);
+        if (address != null) {
+            server.bind(address, backlog);
+        }
+        return server;
+    }
+
+    @Override
+    public synchronized void bind(InetSocketAddress address, int backlog) throws IOException {
+        if (channel != null) {
+            throw new BindException("Сервер уже привязан к адресу");
+        }
+        ServerSocketChannel opened = ServerSocketChannel.open();
+        try {
+            opened.bind(address, backlog);
+            opened.configureBlocking(false);
+        } catch (IOException e) {
+            opened.close();
+            throw e;
+        }
+        channel = opened;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (channel == null || started) {
+            throw new IllegalStateException("Сервер не привязан к адресу или уже запущен");
+        }
+        started = true;
+        for (EventLoop loop : loops) {
+            loop.start();
+        }
+        loops[0].listen(channel);
+    }
+
+    @Override
+    public synchronized void setExecutor(Executor executor) {
+        if (started) {
+            throw new IllegalStateException("Исполнитель задаётся до запуска сервера");
+        }
+        this.executor = executor;
+    }
+
+    @Override
+    public synchronized Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Перестаёт принимать соединения, ждёт до delay секунд завершения начатых обработчиков
+     * и закрывает все соединения.
+     */
+    @Override
+    public void stop(int delay) {
+        if (delay < 0) {
+            throw new IllegalArgumentException("Задержка не может быть отрицательной");
+        }
+        stopping = true;
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // сокет уже закрыт
+        }
+        long deadline = System.currentTimeMillis() + delay * 1000L;
+        synchronized (exchangesDone) {
+            long remaining;
+            while (activeExchanges.get() > 0 && (remaining = deadline - System.currentTimeMillis()) > 0) {
+                try {
+                    exchangesDone.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+        for (EventLoop loop : loops) {
+            loop.shutdown();
+        }
+    }
+
+    @Override
+    public HttpContext createContext(String path, HttpHandler handler) {
+        if (path == null || !path.startsWith("/")) {
+            throw new IllegalArgumentException("Путь контекста должен начинаться с /: " + path);
+        }
+        NioContext context = new NioContext(this, path, handler);
+        synchronized (contexts) {
+            for (NioContext existing : contexts) {
+                if (existing.getPath().equals(path)) {
+                    throw new IllegalArgumentException("Контекст уже существует: " + path);
+                }
+            }
+            contexts.add(context);
+        }
+        return context;
+    }
+
+    @Override
+    public HttpContext createContext(String path) {
+        return createContext(path, null);
+    }
+
+    @Override
+    public void removeContext(String path) {
+        synchronized (contexts) {
+            if (!contexts.removeIf(context -> context.getPath().equals(path))) {
+                throw new IllegalArgumentException("Контекст не найден: " + path);
+            }
+        }
+    }
+
+    @Override
+    public void removeContext(HttpContext context) {
+        synchronized (contexts) {
+            if (!contexts.remove(context)) {
+                throw new IllegalArgumentException("Контекст не найден: " + context.getPath());
+            }
+        }
+    }
+
+    @Override
+    public InetSocketAddress getAddress() {
+        try {
+            return (InetSocketAddress) channel.getLocalAddress();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    boolean isStopping() {
+        return stopping;
+    }
+
+    long getIdleTimeoutMillis() {
+        return idleTimeoutMillis;
+    }
+
+    int getMaxBodyBytes() {
+        return maxBodyBytes;
+    }
+
+    // как у HttpServer: побеждает самый длинный путь контекста, который является префиксом пути запроса
+    NioContext findContext(String path) {
+        NioContext found = null;
+        for (NioContext context : contexts) {
+            String prefix = context.getPath();
+            if (path != null && path.startsWith(prefix) && context.getHandler() != null
+                    && (found == null || prefix.length() > found.getPath().length())) {
+                found = context;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return false, если приём не удался (например, кончились дескрипторы) и его нужно ненадолго приостановить
+     */
+    boolean accept(ServerSocketChannel server) {
+        while (true) {
+            SocketChannel accepted;
+            try {
+                accepted = server.accept();
+            } catch (IOException e) {
+                System.err.println("Не удалось принять соединение: " + e.getMessage());
+                return false;
+            }
+            if (accepted == null) {
+                return true;
+            }
+            try {
+                accepted.configureBlocking(false);
+                accepted.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException e) {
+                try {
+                    accepted.close();
+                } catch (IOException ignored) {
+                    // клиент уже отключился
+                }
+                continue;
+            }
+            loops[nextLoop].register(accepted);
+            nextLoop = (nextLoop + 1) % loops.length;
+        }
+    }
+
+    void dispatch(NioExchange exchange) {
+        activeExchanges.incrementAndGet();
+        Executor current = executor;
+        if (current == null) {
+            handle(exchange);
+            return;
+        }
+        try {
+            current.execute(() -> handle(exchange));
+        } catch (RejectedExecutionException e) {
+            exchange.abort();
+            exchangeDone();
+        }
+    }
+
+    private void handle(NioExchange exchange) {
+        try {
+            NioContext context = exchange.getContext();
+            new Filter.Chain(context.getFilters(), context.getHandler()).doFilter(exchange);
+            exchange.finish();
+        } catch (IOException e) {
+            // клиент отключился или обработчик не смог дописать ответ
+            exchange.abort();
+        } catch (RuntimeException e) {
+            System.err.println("Ошибка обработки " + exchange.getRequestMethod() + " " + exchange.getRequestURI()
+                    + ": " + e);
+            exchange.abort();
+        } finally {
+            exchangeDone();
+        }
+    }
+
+    private void exchangeDone() {
+        if (activeExchanges.decrementAndGet() == 0 && stopping) {
+            synchronized (exchangesDone) {
+                exchangesDone.notifyAll();
+            }
+        }
+    }
+}
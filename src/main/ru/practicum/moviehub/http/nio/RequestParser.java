@@ -0,0 +1,267 @@
+package ru.practicum.moviehub.http.nio;
+
+import com.sun.net.httpserver.Headers;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.StringJoiner;
+
+/**
+ * Разбор запроса HTTP/1.x из накопленных байтов соединения. Тело читается целиком:
+ * обработчик получает его уже в памяти, а цикл событий не ждёт медленного клиента.
+ */
+final class RequestParser {
+    static final int MAX_HEAD_BYTES = 64 * 1024;
+    private static final int MAX_CHUNK_LINE = 1024;
+    private static final byte[] EMPTY = new byte[0];
+
+    private RequestParser() {
+    }
+
+    /**
+     * @param body     тело запроса или null, если заголовки прочитаны, а тело ещё нет
+     * @param consumed сколько байт занимает запрос вместе с телом (только для полного запроса)
+     */
+    record ParsedRequest(String method, String target, String protocol, Headers headers, byte[] body,
+                         int consumed) {
+
+        boolean expectsContinue() {
+            return "100-continue".equalsIgnoreCase(headers.getFirst("Expect"));
+        }
+
+        /**
+         * Transfer-Encoding вместе с Content-Length: тело читается чанками, но прокси перед сервером
+         * мог разделить запросы по Content-Length, поэтому соединение после ответа закрывается (RFC 9112, 6.1).
+         */
+        boolean ambiguousLength() {
+            return headers.containsKey("Transfer-Encoding") && headers.containsKey("Content-Length");
+        }
+    }
+
+    static final class BadRequestException extends Exception {
+        private static final long serialVersionUID = 1L;
+        private final int status;
+
+        BadRequestException(int status, String message) {
+            super(message, null, false, false);
+            this.status = status;
+        }
+
+        int getStatus() {
+            return status;
+        }
+    }
+
+    /**
+     * @return разобранный запрос или null, если не пришли даже заголовки
+     * @throws BadRequestException если запрос некорректен или слишком велик; соединение нужно закрыть
+     */
+    static ParsedRequest parse(byte[] buf, int start, int end, int maxBodyBytes) throws BadRequestException {
+        int pos = start;
+        // пустые строки перед запросом допускаются (RFC 9112, 2.2)
+        while (pos < end && (buf[pos] == '\r' || buf[pos] == '\n')) {
+            pos++;
+        }
+        int headEnd = findHeadEnd(buf, pos, Math.min(end, pos + MAX_HEAD_BYTES));
+        if (headEnd < 0) {
+            if (end - pos >= MAX_HEAD_BYTES) {
+                throw new BadRequestException(431, "Слишком длинные заголовки");
+            }
+            return null;
+        }
+
+        int lineEnd = indexOf(buf, (byte) '\n', pos, headEnd);
+        String requestLine = ascii(buf, pos, trimCr(buf, pos, lineEnd));
+        int sp1 = requestLine.indexOf(' ');
+        int sp2 = requestLine.lastIndexOf(' ');
+        if (sp1 <= 0 || sp2 <= sp1 + 1) {
+            throw new BadRequestException(400, "Некорректная строка запроса");
+        }
+        String protocol = requestLine.substring(sp2 + 1);
+        if (!protocol.equals("HTTP/1.1") && !protocol.equals("HTTP/1.0")) {
+            throw new BadRequestException(505, "Неподдерживаемая версия: " + protocol);
+        }
+
+        Headers headers = new Headers();
+        int p = lineEnd + 1;
+        while (true) {
+            int le = indexOf(buf, (byte) '\n', p, headEnd);
+            int contentEnd = trimCr(buf, p, le);
+            if (contentEnd == p) {
+                break;
+            }
+            int colon = indexOf(buf, (byte) ':', p, contentEnd);
+            if (colon <= p || buf[colon - 1] == ' ' || buf[colon - 1] == '\t') {
+                throw new BadRequestException(400, "Некорректный заголовок");
+            }
+            headers.add(ascii(buf, p, colon), ascii(buf, colon + 1, contentEnd).strip());
+            p = le + 1;
+        }
+        String method = requestLine.substring(0, sp1);
+        String target = requestLine.substring(sp1 + 1, sp2);
+
+        // все заголовки и элементы списков, а не только первый: иначе прокси и сервер могут прочитать разные тела
+        String transferEncoding = joined(headers, "Transfer-Encoding");
+        if (transferEncoding != null) {
+            if (!transferEncoding.equalsIgnoreCase("chunked")) {
+                throw new BadRequestException(501, "Неподдерживаемая кодировка тела: " + transferEncoding);
+            }
+            // первый проход только проверяет, что тело пришло целиком, второй — копирует его
+            long length = decodeChunked(buf, headEnd, end, maxBodyBytes, null);
+            if (length < 0) {
+                return new ParsedRequest(method, target, protocol, headers, null, 0);
+            }
+            byte[] body = new byte[(int) length];
+            int bodyEnd = (int) decodeChunked(buf, headEnd, end, maxBodyBytes, body);
+            return new ParsedRequest(method, target, protocol, headers, body, bodyEnd - start);
+        }
+
+        long length = contentLength(headers);
+        if (length > maxBodyBytes) {
+            throw new BadRequestException(413, "Слишком большое тело запроса");
+        }
+        if (end - headEnd < length) {
+            return new ParsedRequest(method, target, protocol, headers, null, 0);
+        }
+        byte[] body = length == 0 ? EMPTY : Arrays.copyOfRange(buf, headEnd, headEnd + (int) length);
+        return new ParsedRequest(method, target, protocol, headers, body, headEnd + (int) length - start);
+    }
+
+    // элементы всех одноимённых заголовков через запятую без пробелов или null, если заголовка нет
+    private static String joined(Headers headers, String name) {
+        List<String> values = headers.get(name);
+        if (values == null) {
+            return null;
+        }
+        StringJoiner joiner = new StringJoiner(",");
+        for (String value : values) {
+            for (String item : value.split(",", -1)) {
+                joiner.add(item.strip());
+            }
+        }
+        return joiner.toString();
+    }
+
+    // повторы Content-Length допустимы, только если все значения одинаковы (RFC 9110, 8.6)
+    private static long contentLength(Headers headers) throws BadRequestException {
+        String values = joined(headers, "Content-Length");
+        if (values == null) {
+            return 0;
+        }
+        long length = -1;
+        for (String value : values.split(",", -1)) {
+            long parsed;
+            try {
+                parsed = Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                parsed = -1;
+            }
+            if (parsed < 0 || (length >= 0 && parsed != length)) {
+                throw new BadRequestException(400, "Некорректный Content-Length");
+            }
+            length = parsed;
+        }
+        return length;
+    }
+
+    /**
+     * Без out возвращает длину тела, с out — копирует тело и возвращает позицию после него.
+     *
+     * @return -1, если тело пришло не целиком
+     */
+    private static long decodeChunked(byte[] buf, int pos, int end, int maxBodyBytes, byte[] out)
+            throws BadRequestException {
+        long total = 0;
+        while (true) {
+            int le = indexOf(buf, (byte) '\n', pos, Math.min(end, pos + MAX_CHUNK_LINE));
+            if (le < 0) {
+                if (end - pos >= MAX_CHUNK_LINE) {
+                    throw new BadRequestException(400, "Слишком длинная строка чанка");
+                }
+                return -1;
+            }
+            int sizeEnd = trimCr(buf, pos, le);
+            int extension = indexOf(buf, (byte) ';', pos, sizeEnd);
+            String hex = ascii(buf, pos, extension < 0 ? sizeEnd : extension).strip();
+            long size;
+            try {
+                size = Long.parseLong(hex, 16);
+            } catch (NumberFormatException e) {
+                size = -1;
+            }
+            if (size < 0) {
+                throw new BadRequestException(400, "Некорректный размер чанка");
+            }
+            pos = le + 1;
+            if (size == 0) {
+                // завершающие заголовки не поддерживаются, но пропускаются
+                while (true) {
+                    le = indexOf(buf, (byte) '\n', pos, end);
+                    if (le < 0) {
+                        return -1;
+                    }
+                    boolean blank = trimCr(buf, pos, le) == pos;
+                    pos = le + 1;
+                    if (blank) {
+                        return out == null ? total : pos;
+                    }
+                }
+            }
+            if (total + size > maxBodyBytes) {
+                throw new BadRequestException(413, "Слишком большое тело запроса");
+            }
+            if (end - pos < size + 1) {
+                return -1;
+            }
+            if (out != null) {
+                System.arraycopy(buf, pos, out, (int) total, (int) size);
+            }
+            total += size;
+            pos += (int) size;
+            if (buf[pos] == '\r') {
+                if (pos + 1 >= end) {
+                    return -1;
+                }
+                pos++;
+            }
+            if (buf[pos] != '\n') {
+                throw new BadRequestException(400, "Нет перевода строки после чанка");
+            }
+            pos++;
+        }
+    }
+
+    // позиция сразу после пустой строки, завершающей заголовки, или -1
+    private static int findHeadEnd(byte[] buf, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buf[i] != '\n') {
+                continue;
+            }
+            if (i + 1 < to && buf[i + 1] == '\n') {
+                return i + 2;
+            }
+            if (i + 2 < to && buf[i + 1] == '\r' && buf[i + 2] == '\n') {
+                return i + 3;
+            }
+        }
+        return -1;
+    }
+
+    private static int indexOf(byte[] buf, byte b, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buf[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int trimCr(byte[] buf, int lineStart, int lineEnd) {
+        return lineEnd > lineStart && buf[lineEnd - 1] == '\r' ? lineEnd - 1 : lineEnd;
+    }
+
+    private static String ascii(byte[] buf, int from, int to) {
+        return new String(buf, from, to - from, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,89 @@
+package ru.practicum.moviehub.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Гистограмма задержек в стиле HDR: логарифмические корзины по степеням двойки,
+ * каждая поделена на 16 линейных частей, поэтому относительная ошибка квантиля не больше 1/16.
+ * Запись — один LongAdder.increment на корзину, без блокировок.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // больше ~19 часов в микросекундах не различаем
+    private static final long MAX_VALUE = (1L << 36) - 1;
+    private static final int MAX_SHIFT = 36 - 1 - SUB_BUCKET_BITS;
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_SHIFT + 1) * SUB_BUCKETS;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKETS];
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumMicros = new LongAdder();
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    public void recordNanos(long nanos) {
+        long micros = Math.min(Math.max(nanos / 1000, 0), MAX_VALUE);
+        buckets[index(micros)].increment();
+        count.increment();
+        sumMicros.add(micros);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSumMicros() {
+        return sumMicros.sum();
+    }
+
+    /**
+     * Значения квантилей в микросекундах по одному снимку корзин.
+     * Запись во время чтения допустима: квантили считаются по тому, что успели увидеть.
+     */
+    public long[] quantilesMicros(double... quantiles) {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        long[] result = new long[quantiles.length];
+        if (total == 0) {
+            return result;
+        }
+        for (int q = 0; q < quantiles.length; q++) {
+            long rank = Math.max(1, (long) Math.ceil(quantiles[q] * total));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    result[q] = upperBound(i);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int sub = (int) (value >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + sub;
+    }
+
+    static long upperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKETS) / SUB_BUCKETS;
+        int sub = SUB_BUCKETS + (index - SUB_BUCKETS) % SUB_BUCKETS;
+        return ((long) (sub + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,211 @@
+package ru.practicum.moviehub.metrics;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Метрики сервера: запросы и задержки по методу и маршруту, ответы по кодам статуса,
+ * объём записанного JSON и размер хранилища. Отдаются в текстовом формате Prometheus.
+ */
+public class ServerMetrics {
+    private static final double[] QUANTILES = {0.5, 0.99, 0.999};
+    private static final String[] QUANTILE_LABELS = {"0.5", "0.99", "0.999"};
+
+    private final Map<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+    private final LongAdder[] statuses = new LongAdder[600];
+    private final LongAdder jsonBytes = new LongAdder();
+    private final IntSupplier storeSize;
+    private final List<Admission> admissions = new CopyOnWriteArrayList<>();
+    private volatile IntSupplier rateLimitClients;
+    private volatile LongSupplier rateLimited;
+    private volatile LongSupplier changesLast;
+    private volatile LongSupplier replicationApplied;
+    private volatile LongSupplier replicationLagMillis;
+    private volatile IntSupplier writeQueued;
+    private volatile LongSupplier writeBatches;
+    private volatile LongSupplier writesApplied;
+    private volatile LongSupplier writesRejected;
+    private long lastScrapeNanos = System.nanoTime();
+    private long lastScrapeBytes;
+
+    public ServerMetrics(IntSupplier storeSize) {
+        this.storeSize = storeSize;
+        for (int status = 100; status < statuses.length; status++) {
+            statuses[status] = new LongAdder();
+        }
+    }
+
+    public void record(String method, String route, int status, long nanos, long bodyBytes) {
+        String key = method + ' ' + route;
+        RouteMetrics metrics = routes.get(key);
+        if (metrics == null) {
+            metrics = routes.computeIfAbsent(key, k -> new RouteMetrics(method, route));
+        }
+        metrics.latency.recordNanos(nanos);
+        if (status >= 100 && status < statuses.length) {
+            statuses[status].increment();
+        }
+        jsonBytes.add(bodyBytes);
+    }
+
+    /**
+     * Добавляет в выдачу счётчики допуска для класса запросов (read, write).
+     */
+    public void addAdmission(String kind, IntSupplier inFlight, IntSupplier queued, LongSupplier rejected) {
+        admissions.add(new Admission("class=\"" + kind + "\"", inFlight, queued, rejected));
+    }
+
+    public void setRateLimiter(IntSupplier clients, LongSupplier limited) {
+        this.rateLimitClients = clients;
+        this.rateLimited = limited;
+    }
+
+    public void setChangeLog(LongSupplier lastSeq) {
+        this.changesLast = lastSeq;
+    }
+
+    public void setReplication(LongSupplier appliedSeq, LongSupplier lagMillis) {
+        this.replicationApplied = appliedSeq;
+        this.replicationLagMillis = lagMillis;
+    }
+
+    public void setWritePipeline(IntSupplier queued, LongSupplier batches, LongSupplier applied,
+                                 LongSupplier rejected) {
+        this.writeQueued = queued;
+        this.writeBatches = batches;
+        this.writesApplied = applied;
+        this.writesRejected = rejected;
+    }
+
+    public long getJsonBytes() {
+        return jsonBytes.sum();
+    }
+
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder(4096);
+        Map<String, RouteMetrics> sorted = new TreeMap<>(routes);
+
+        header(out, "moviehub_http_requests_total", "counter", "Количество запросов по методу и маршруту");
+        for (RouteMetrics route : sorted.values()) {
+            out.append("moviehub_http_requests_total{").append(route.labels).append("} ")
+                    .append(route.latency.getCount()).append('\n');
+        }
+
+        header(out, "moviehub_http_responses_total", "counter", "Количество ответов по коду статуса");
+        for (int status = 100; status < statuses.length; status++) {
+            long count = statuses[status].sum();
+            if (count != 0) {
+                out.append("moviehub_http_responses_total{code=\"").append(status).append("\"} ")
+                        .append(count).append('\n');
+            }
+        }
+
+        header(out, "moviehub_http_request_duration_seconds", "summary", "Время обработки запроса");
+        for (RouteMetrics route : sorted.values()) {
+            long[] values = route.latency.quantilesMicros(QUANTILES);
+            for (int i = 0; i < values.length; i++) {
+                out.append("moviehub_http_request_duration_seconds{").append(route.labels)
+                        .append(",quantile=\"").append(QUANTILE_LABELS[i]).append("\"} ")
+                        .append(seconds(values[i])).append('\n');
+            }
+            out.append("moviehub_http_request_duration_seconds_sum{").append(route.labels).append("} ")
+                    .append(seconds(route.latency.getSumMicros())).append('\n');
+            out.append("moviehub_http_request_duration_seconds_count{").append(route.labels).append("} ")
+                    .append(route.latency.getCount()).append('\n');
+        }
+
+        long bytes = jsonBytes.sum();
+        header(out, "moviehub_json_bytes_written_total", "counter", "Байт JSON, записанных в тела ответов");
+        out.append("moviehub_json_bytes_written_total ").append(bytes).append('\n');
+        header(out, "moviehub_json_bytes_per_second", "gauge", "Скорость записи JSON с предыдущего опроса");
+        out.append("moviehub_json_bytes_per_second ").append(bytesPerSecond(bytes)).append('\n');
+
+        header(out, "moviehub_store_movies", "gauge", "Количество фильмов в хранилище");
+        out.append("moviehub_store_movies ").append(storeSize.getAsInt()).append('\n');
+
+        if (changesLast != null) {
+            header(out, "moviehub_changes_last_seq", "gauge", "Номер последнего события в ленте изменений");
+            out.append("moviehub_changes_last_seq ").append(changesLast.getAsLong()).append('\n');
+        }
+        if (replicationApplied != null) {
+            header(out, "moviehub_replication_applied_seq", "gauge", "Номер последнего применённого события ведущего");
+            out.append("moviehub_replication_applied_seq ").append(replicationApplied.getAsLong()).append('\n');
+            header(out, "moviehub_replication_lag_seconds", "gauge", "Отставание реплики от ведущего");
+            out.append("moviehub_replication_lag_seconds ")
+                    .append(seconds(replicationLagMillis.getAsLong() * 1000)).append('\n');
+        }
+
+        if (writeBatches != null) {
+            header(out, "moviehub_write_queue", "gauge", "Изменений в очереди потока записи");
+            out.append("moviehub_write_queue ").append(writeQueued.getAsInt()).append('\n');
+            header(out, "moviehub_write_batches_total", "counter", "Пачек, применённых потоком записи");
+            out.append("moviehub_write_batches_total ").append(writeBatches.getAsLong()).append('\n');
+            header(out, "moviehub_writes_total", "counter", "Изменений, применённых потоком записи");
+            out.append("moviehub_writes_total ").append(writesApplied.getAsLong()).append('\n');
+            header(out, "moviehub_writes_rejected_total", "counter", "Изменений, отклонённых из-за полной очереди");
+            out.append("moviehub_writes_rejected_total ").append(writesRejected.getAsLong()).append('\n');
+        }
+
+        if (rateLimited != null) {
+            header(out, "moviehub_rate_limit_clients", "gauge", "Клиентов с активным ограничением частоты");
+            out.append("moviehub_rate_limit_clients ").append(rateLimitClients.getAsInt()).append('\n');
+            header(out, "moviehub_rate_limited_total", "counter", "Запросов, отклонённых с 429");
+            out.append("moviehub_rate_limited_total ").append(rateLimited.getAsLong()).append('\n');
+        }
+
+        if (!admissions.isEmpty()) {
+            header(out, "moviehub_admission_in_flight", "gauge", "Запросов в обработке");
+            for (Admission admission : admissions) {
+                out.append("moviehub_admission_in_flight{").append(admission.labels()).append("} ")
+                        .append(admission.inFlight().getAsInt()).append('\n');
+            }
+            header(out, "moviehub_admission_queued", "gauge", "Запросов в очереди допуска");
+            for (Admission admission : admissions) {
+                out.append("moviehub_admission_queued{").append(admission.labels()).append("} ")
+                        .append(admission.queued().getAsInt()).append('\n');
+            }
+            header(out, "moviehub_admission_rejected_total", "counter", "Запросов, отклонённых с 503");
+            for (Admission admission : admissions) {
+                out.append("moviehub_admission_rejected_total{").append(admission.labels()).append("} ")
+                        .append(admission.rejected().getAsLong()).append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    private synchronized double bytesPerSecond(long bytes) {
+        long now = System.nanoTime();
+        double elapsed = (now - lastScrapeNanos) / 1e9;
+        double rate = elapsed > 0 ? (bytes - lastScrapeBytes) / elapsed : 0;
+        lastScrapeNanos = now;
+        lastScrapeBytes = bytes;
+        return rate;
+    }
+
+    private static void header(StringBuilder out, String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    private static String seconds(long micros) {
+        return Double.toString(micros / 1e6);
+    }
+
+    private record Admission(String labels, IntSupplier inFlight, IntSupplier queued, LongSupplier rejected) {
+    }
+
+    private static class RouteMetrics {
+        private final String labels;
+        private final LatencyHistogram latency = new LatencyHistogram();
+
+        private RouteMetrics(String method, String route) {
+            this.labels = "method=\"" + method + "\",route=\"" + route + "\"";
+        }
+    }
+}
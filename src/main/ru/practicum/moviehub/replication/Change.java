@@ -0,0 +1,35 @@
+package ru.practicum.moviehub.replication;
+
+import ru.practicum.moviehub.model.Movie;
+
+/**
+ * Одно изменение хранилища в ленте. Для удаления и очистки movie равен null,
+ * для очистки id не используется.
+ */
+public record Change(long seq, Op op, int id, Movie movie, long timestampMillis) {
+
+    public enum Op {
+        ADD("add"),
+        DELETE("delete"),
+        CLEAR("clear");
+
+        private final String token;
+
+        Op(String token) {
+            this.token = token;
+        }
+
+        public String getToken() {
+            return token;
+        }
+
+        public static Op of(String token) {
+            for (Op op : values()) {
+                if (op.token.equals(token)) {
+                    return op;
+                }
+            }
+            throw new IllegalArgumentException("Неизвестная операция: " + token);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package ru.practicum.moviehub.replication;
+
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.MoviesStoreListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Упорядоченная лента изменений хранилища для реплик: последние capacity событий в кольцевом буфере.
+ * Номера событий начинаются с 1; реплика запрашивает всё, что после последнего применённого номера.
+ * Если нужные события уже вытеснены, реплика догоняет по снимку.
+ * Номера начинаются заново при каждом запуске ведущего, поэтому у ленты есть случайный id:
+ * реплика, пришедшая с id другой ленты, догоняет по снимку, а не применяет чужой хвост.
+ */
+public class ChangeLog implements MoviesStoreListener {
+    /**
+     * Насколько раньше начала обхода хранилища реплика повторяет ленту после снимка.
+     * Слушатель вызывается до применения изменения, поэтому обход может не увидеть изменение
+     * с уже выданным номером; повтор хвоста идемпотентен, а перекрытие покрывает такие изменения,
+     * пока одновременных записей меньше перекрытия.
+     */
+    static final int SNAPSHOT_OVERLAP = 1024;
+
+    private final String id = UUID.randomUUID().toString();
+    private final Change[] ring;
+    private long last;
+
+    public ChangeLog(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Ёмкость ленты должна быть больше 0");
+        }
+        this.ring = new Change[capacity];
+    }
+
+    @Override
+    public void onAdd(int id, Movie movie) {
+        append(Change.Op.ADD, id, movie);
+    }
+
+    @Override
+    public void onDelete(int id, Movie movie) {
+        append(Change.Op.DELETE, id, null);
+    }
+
+    @Override
+    public void onClear() {
+        append(Change.Op.CLEAR, 0, null);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public synchronized long getLastSeq() {
+        return last;
+    }
+
+    public int getCapacity() {
+        return ring.length;
+    }
+
+    /**
+     * @return номер, с которого реплика продолжает ленту после снимка, снятого сразу после вызова
+     */
+    public synchronized long snapshotSeq() {
+        // не больше четверти ленты, чтобы после снимка оставался запас на новые записи
+        return Math.max(0, last - Math.min(SNAPSHOT_OVERLAP, ring.length / 4));
+    }
+
+    /**
+     * Возвращает не больше max событий с номерами больше since, ожидая первое из них до waitMillis.
+     *
+     * @return события по возрастанию номера (возможно, пустой список), либо null, если события после since
+     * уже вытеснены или since опережает ленту — тогда реплике нужен снимок
+     */
+    public synchronized List<Change> read(long since, int max, long waitMillis) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + waitMillis;
+        while (since == last) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return List.of();
+            }
+            wait(remaining);
+        }
+        if (since > last || since < last - ring.length) {
+            return null;
+        }
+        int count = (int) Math.min(max, last - since);
+        List<Change> result = new ArrayList<>(count);
+        for (long seq = since + 1; seq <= since + count; seq++) {
+            result.add(ring[index(seq)]);
+        }
+        return result;
+    }
+
+    private synchronized void append(Change.Op op, int id, Movie movie) {
+        last++;
+        ring[index(last)] = new Change(last, op, id, movie, System.currentTimeMillis());
+        notifyAll();
+    }
+
+    private int index(long seq) {
+        return (int) (seq % ring.length);
+    }
+}
@@ -0,0 +1,275 @@
+package ru.practicum.moviehub.replication;
+
+import com.google.gson.stream.JsonReader;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.RestorableMoviesStore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Реплика: читает ленту изменений ведущего сервера long-poll-запросами и применяет её к локальному
+ * хранилищу. При старте и когда нужные события вытеснены из ленты, догоняет по снимку.
+ * Применение идемпотентно: фильм кладётся по id ведущего, удаление отсутствующего ничего не меняет.
+ * Номера событий имеют смысл только вместе с id ленты: после перезапуска ведущего лента другая,
+ * и реплика снова начинает со снимка.
+ */
+public class Follower implements Closeable {
+    private static final long POLL_WAIT_MILLIS = 1000;
+    private static final long MAX_BACKOFF_MILLIS = 2000;
+    // пауза, если ведущий ответил сразу и пусто: все места long-poll у него заняты
+    private static final long EMPTY_POLL_PAUSE_MILLIS = 100;
+
+    private final URI changes;
+    private final URI snapshot;
+    private final RestorableMoviesStore store;
+    private final HttpClient client;
+    private final Thread thread;
+    private volatile boolean running = true;
+    private volatile long appliedSeq;
+    // id ленты, к которой относится appliedSeq
+    private volatile String logId;
+    private volatile long lagMillis;
+    private volatile long snapshots;
+
+    /**
+     * Начинает со снимка ведущего сервера.
+     */
+    public Follower(URI primary, RestorableMoviesStore store) {
+        this(primary, store, -1, null);
+    }
+
+    /**
+     * @param appliedSeq номер последнего уже применённого к store события, -1 — начать со снимка
+     * @param logId id ленты, к которой относится appliedSeq; null — начать со снимка
+     */
+    public Follower(URI primary, RestorableMoviesStore store, long appliedSeq, String logId) {
+        this.changes = primary.resolve("/movies/changes");
+        this.snapshot = primary.resolve("/movies/changes/snapshot");
+        this.store = store;
+        this.appliedSeq = logId != null ? appliedSeq : -1;
+        this.logId = logId;
+        this.client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(2))
+                .build();
+        this.thread = new Thread(this::run, "movies-follower");
+        thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(POLL_WAIT_MILLIS * 2);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getAppliedSeq() {
+        return appliedSeq;
+    }
+
+    public String getLogId() {
+        return logId;
+    }
+
+    /**
+     * @return сколько миллисекунд прошло от записи на ведущем до применения последнего события;
+     * 0, если реплика догнала ленту. Часы ведущего и реплики считаются синхронными.
+     */
+    public long getLagMillis() {
+        return lagMillis;
+    }
+
+    public long getSnapshots() {
+        return snapshots;
+    }
+
+    private void run() {
+        long backoff = 50;
+        while (running) {
+            try {
+                if (appliedSeq < 0) {
+                    loadSnapshot();
+                }
+                poll();
+                backoff = 50;
+            } catch (IOException e) {
+                // ведущий недоступен: повторяем с нарастающей паузой
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    private void poll() throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        // id ленты — UUID, его не нужно кодировать
+        URI uri = URI.create(changes + "?since=" + appliedSeq + "&wait=" + POLL_WAIT_MILLIS + "&log=" + logId);
+        HttpResponse<InputStream> response = client.send(HttpRequest.newBuilder(uri).GET().build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        try (JsonReader reader = reader(response)) {
+            if (response.statusCode() == 410) {
+                appliedSeq = -1;
+                return;
+            }
+            if (response.statusCode() != 200) {
+                throw new IOException("Лента изменений вернула " + response.statusCode());
+            }
+            long last = 0;
+            int applied = 0;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "last" -> last = reader.nextLong();
+                    case "changes" -> applied = readChanges(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (appliedSeq >= last) {
+                lagMillis = 0;
+            }
+            if (applied == 0 && System.nanoTime() - start < POLL_WAIT_MILLIS * 500_000) {
+                Thread.sleep(EMPTY_POLL_PAUSE_MILLIS);
+            }
+        }
+    }
+
+    private int readChanges(JsonReader reader) throws IOException {
+        int applied = 0;
+        reader.beginArray();
+        while (reader.hasNext()) {
+            long seq = 0;
+            Change.Op op = null;
+            int id = 0;
+            String title = null;
+            int year = 0;
+            long timestamp = 0;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "seq" -> seq = reader.nextLong();
+                    case "op" -> op = Change.Op.of(reader.nextString());
+                    case "id" -> id = reader.nextInt();
+                    case "title" -> title = reader.nextString();
+                    case "year" -> year = reader.nextInt();
+                    case "ts" -> timestamp = reader.nextLong();
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (op == null) {
+                throw new IOException("В событии ленты нет операции");
+            }
+            switch (op) {
+                case ADD -> store.putMovie(id, new Movie(title, year));
+                case DELETE -> store.deleteMovie(id);
+                case CLEAR -> store.clear();
+            }
+            appliedSeq = seq;
+            lagMillis = Math.max(0, System.currentTimeMillis() - timestamp);
+            applied++;
+        }
+        reader.endArray();
+        return applied;
+    }
+
+    private void loadSnapshot() throws IOException, InterruptedException {
+        HttpResponse<InputStream> response = client.send(HttpRequest.newBuilder(snapshot).GET().build(),
+                HttpResponse.BodyHandlers.ofInputStream());
+        try (JsonReader reader = reader(response)) {
+            if (response.statusCode() != 200) {
+                throw new IOException("Снимок вернул " + response.statusCode());
+            }
+            long since = -1;
+            String log = null;
+            Map<Integer, Movie> movies = new HashMap<>();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "log" -> log = reader.nextString();
+                    case "since" -> since = reader.nextLong();
+                    case "movies" -> readMovies(reader, movies);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (log == null) {
+                throw new IOException("В снимке нет id ленты");
+            }
+            // хранилище не очищаем, чтобы реплика не отдавала пустой список во время загрузки.
+            // Сначала уходят лишние id и id с другим названием (после CLEAR ведущий переиспользует id):
+            // иначе название, удалённое и добавленное заново под новым id, осталось бы и под старым
+            List<Integer> stale = new ArrayList<>();
+            for (Map.Entry<Integer, Movie> entry : store.getMoviesMap().entrySet()) {
+                Movie movie = movies.get(entry.getKey());
+                if (movie == null || !movie.getTitle().equals(entry.getValue().getTitle())) {
+                    stale.add(entry.getKey());
+                }
+            }
+            for (int id : stale) {
+                store.deleteMovie(id);
+            }
+            for (Map.Entry<Integer, Movie> entry : movies.entrySet()) {
+                Movie existing = store.getMovie(entry.getKey());
+                if (existing == null || existing.getYear() != entry.getValue().getYear()) {
+                    store.putMovie(entry.getKey(), entry.getValue());
+                }
+            }
+            logId = log;
+            appliedSeq = since;
+            snapshots++;
+        }
+    }
+
+    private void readMovies(JsonReader reader, Map<Integer, Movie> movies) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            int id = 0;
+            String title = null;
+            int year = 0;
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "id" -> id = reader.nextInt();
+                    case "title" -> title = reader.nextString();
+                    case "year" -> year = reader.nextInt();
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+            movies.put(id, new Movie(title, year));
+        }
+        reader.endArray();
+    }
+
+    private static JsonReader reader(HttpResponse<InputStream> response) {
+        return new JsonReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,206 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Снимок каталога на неизменяемых деревьях: фильмы по id и отдельное дерево на каждый год.
+ * Изменение возвращает новый снимок, который разделяет с прежним всё, кроме скопированных путей.
+ */
+final class CatalogSnapshot implements MoviesSnapshot {
+    static final CatalogSnapshot EMPTY = new CatalogSnapshot(PersistentIntMap.empty(), new int[0],
+            newYearArray(0), 0);
+
+    private final PersistentIntMap<Movie> movies;
+    // годы по возрастанию и фильмы каждого года по id; пустые годы не хранятся
+    private final int[] years;
+    private final PersistentIntMap<Movie>[] byYear;
+    private final long version;
+
+    private CatalogSnapshot(PersistentIntMap<Movie> movies, int[] years, PersistentIntMap<Movie>[] byYear,
+                            long version) {
+        this.movies = movies;
+        this.years = years;
+        this.byYear = byYear;
+        this.version = version;
+    }
+
+    /**
+     * Собирает снимок из фильмов, уже упорядоченных по id; для хранилищ без собственных снимков.
+     */
+    static CatalogSnapshot copyOf(long version, Iterator<Map.Entry<Integer, Movie>> entries) {
+        PersistentIntMap.Builder<Movie> all = new PersistentIntMap.Builder<>();
+        Map<Integer, PersistentIntMap.Builder<Movie>> yearBuilders = new TreeMap<>();
+        while (entries.hasNext()) {
+            Map.Entry<Integer, Movie> entry = entries.next();
+            all.put(entry.getKey(), entry.getValue());
+            yearBuilders.computeIfAbsent(entry.getValue().getYear(), year -> new PersistentIntMap.Builder<>())
+                    .put(entry.getKey(), entry.getValue());
+        }
+        int[] years = new int[yearBuilders.size()];
+        PersistentIntMap<Movie>[] byYear = newYearArray(years.length);
+        int i = 0;
+        for (Map.Entry<Integer, PersistentIntMap.Builder<Movie>> entry : yearBuilders.entrySet()) {
+            years[i] = entry.getKey();
+            byYear[i++] = entry.getValue().build();
+        }
+        return new CatalogSnapshot(all.build(), years, byYear, version);
+    }
+
+    /**
+     * Кладёт фильм под id; прежний фильм с этим id уходит и из своего года.
+     */
+    CatalogSnapshot withMovie(int id, Movie movie) {
+        Movie previous = movies.get(id);
+        CatalogSnapshot base = previous == null ? this : withoutYearEntry(id, previous.getYear());
+        return base.withYearEntry(id, movie, movies.put(id, movie));
+    }
+
+    CatalogSnapshot withoutMovie(int id) {
+        Movie previous = movies.get(id);
+        if (previous == null) {
+            return this;
+        }
+        CatalogSnapshot base = withoutYearEntry(id, previous.getYear());
+        return new CatalogSnapshot(movies.remove(id), base.years, base.byYear, version + 1);
+    }
+
+    CatalogSnapshot cleared() {
+        return new CatalogSnapshot(PersistentIntMap.empty(), EMPTY.years, EMPTY.byYear, version + 1);
+    }
+
+    private CatalogSnapshot withYearEntry(int id, Movie movie, PersistentIntMap<Movie> newMovies) {
+        int position = Arrays.binarySearch(years, movie.getYear());
+        if (position >= 0) {
+            PersistentIntMap<Movie>[] newByYear = byYear.clone();
+            newByYear[position] = byYear[position].put(id, movie);
+            return new CatalogSnapshot(newMovies, years, newByYear, version + 1);
+        }
+        int insertAt = -position - 1;
+        int[] newYears = new int[years.length + 1];
+        PersistentIntMap<Movie>[] newByYear = newYearArray(years.length + 1);
+        System.arraycopy(years, 0, newYears, 0, insertAt);
+        System.arraycopy(byYear, 0, newByYear, 0, insertAt);
+        newYears[insertAt] = movie.getYear();
+        newByYear[insertAt] = PersistentIntMap.<Movie>empty().put(id, movie);
+        System.arraycopy(years, insertAt, newYears, insertAt + 1, years.length - insertAt);
+        System.arraycopy(byYear, insertAt, newByYear, insertAt + 1, years.length - insertAt);
+        return new CatalogSnapshot(newMovies, newYears, newByYear, version + 1);
+    }
+
+    // версия не меняется: вызывающий сам выпускает следующую
+    private CatalogSnapshot withoutYearEntry(int id, int year) {
+        int position = Arrays.binarySearch(years, year);
+        PersistentIntMap<Movie> remaining = byYear[position].remove(id);
+        if (!remaining.isEmpty()) {
+            PersistentIntMap<Movie>[] newByYear = byYear.clone();
+            newByYear[position] = remaining;
+            return new CatalogSnapshot(movies, years, newByYear, version);
+        }
+        int[] newYears = new int[years.length - 1];
+        PersistentIntMap<Movie>[] newByYear = newYearArray(years.length - 1);
+        System.arraycopy(years, 0, newYears, 0, position);
+        System.arraycopy(byYear, 0, newByYear, 0, position);
+        System.arraycopy(years, position + 1, newYears, position, years.length - position - 1);
+        System.arraycopy(byYear, position + 1, newByYear, position, years.length - position - 1);
+        return new CatalogSnapshot(movies, newYears, newByYear, version);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static PersistentIntMap<Movie>[] newYearArray(int length) {
+        return (PersistentIntMap<Movie>[]) new PersistentIntMap<?>[length];
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public int size() {
+        return movies.size();
+    }
+
+    @Override
+    public Movie getMovie(int id) {
+        return movies.get(id);
+    }
+
+    @Override
+    public boolean containsMovie(int id) {
+        return movies.containsKey(id);
+    }
+
+    @Override
+    public MoviesPage getMoviesPage(int afterId, int limit) {
+        List<Movie> page = new ArrayList<>(Math.min(limit, 1024));
+        int lastId = afterId;
+        if (afterId == Integer.MAX_VALUE) {
+            return new MoviesPage(page, lastId, false);
+        }
+        Iterator<Map.Entry<Integer, Movie>> entries = movies.entriesFrom(afterId + 1);
+        while (entries.hasNext()) {
+            if (page.size() == limit) {
+                return new MoviesPage(page, lastId, true);
+            }
+            Map.Entry<Integer, Movie> entry = entries.next();
+            page.add(entry.getValue());
+            lastId = entry.getKey();
+        }
+        return new MoviesPage(page, lastId, false);
+    }
+
+    @Override
+    public List<Movie> getMoviesByYear(int year) {
+        return getMoviesByYearRange(year, year);
+    }
+
+    @Override
+    public List<Movie> getMoviesByYearRange(int yearFrom, int yearTo) {
+        List<Movie> result = new ArrayList<>();
+        if (yearFrom > yearTo) {
+            return result;
+        }
+        int position = Arrays.binarySearch(years, yearFrom);
+        for (int i = position >= 0 ? position : -position - 1; i < years.length && years[i] <= yearTo; i++) {
+            Iterator<Movie> ofYear = byYear[i].valuesFrom(0);
+            while (ofYear.hasNext()) {
+                result.add(ofYear.next());
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Iterator<Map.Entry<Integer, Movie>> entryIterator() {
+        return movies.entriesFrom(0);
+    }
+
+    @Override
+    public Iterator<Movie> iterator() {
+        return movies.valuesFrom(0);
+    }
+
+    boolean containsYear(int year) {
+        return Arrays.binarySearch(years, year) >= 0;
+    }
+
+    boolean yearContains(int year, int id) {
+        int position = Arrays.binarySearch(years, year);
+        return position >= 0 && byYear[position].containsKey(id);
+    }
+
+    int yearIndexSize() {
+        int total = 0;
+        for (PersistentIntMap<Movie> ofYear : byYear) {
+            total += ofYear.size();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,662 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Хранилище на примитивных колонках: id, годы и смещения названий лежат в int[],
+ * названия — одним массивом байт UTF-8. Объекты Movie создаются только при чтении.
+ * Слоты идут в порядке возрастания id, удалённые помечаются и вычищаются уплотнением.
+ */
+public class ColumnarMoviesStore implements RestorableMoviesStore {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int INITIAL_HEAP_BYTES = 16 * 1024;
+    // уплотняем, когда удалённых слотов больше, чем живых
+    private static final int MIN_DELETED_TO_COMPACT = 1024;
+    private static final int DELETED = -1;
+    private static final int ITERATOR_BATCH = 256;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<MoviesStoreListener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<Integer, Movie> moviesView = new MoviesView();
+
+    private int[] ids;
+    private int[] years;
+    private int[] titleOffsets;
+    // DELETED для удалённого слота
+    private int[] titleLengths;
+    private int[] titleHashes;
+    private byte[] titleHeap;
+    private int heapSize;
+    private int slots;
+    private int live;
+
+    // открытая адресация, в ячейке хранится slot + 1, 0 — пустая ячейка
+    private int[] idTable;
+    private int[] titleTable;
+    private int titleEntries;
+
+    private int nextId;
+    private volatile long version;
+
+    public ColumnarMoviesStore() {
+        reset();
+    }
+
+    private void reset() {
+        ids = new int[INITIAL_CAPACITY];
+        years = new int[INITIAL_CAPACITY];
+        titleOffsets = new int[INITIAL_CAPACITY];
+        titleLengths = new int[INITIAL_CAPACITY];
+        titleHashes = new int[INITIAL_CAPACITY];
+        titleHeap = new byte[INITIAL_HEAP_BYTES];
+        heapSize = 0;
+        slots = 0;
+        live = 0;
+        rebuildTables();
+    }
+
+    @Override
+    public void addListener(MoviesStoreListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(MoviesStoreListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public int addMovie(Movie movie) {
+        byte[] title = movie.getTitle().getBytes(StandardCharsets.UTF_8);
+        lock.writeLock().lock();
+        try {
+            int[] created = new int[1];
+            int id = insert(movie, title, created);
+            if (created[0] != 0) {
+                version++;
+            }
+            return id;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int addMovies(List<Movie> movies, int[] ids) {
+        // кодируем названия до захвата блокировки, чтобы не держать её дольше нужного
+        byte[][] titles = new byte[movies.size()][];
+        for (int i = 0; i < titles.length; i++) {
+            titles[i] = movies.get(i).getTitle().getBytes(StandardCharsets.UTF_8);
+        }
+        int[] created = new int[1];
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < titles.length; i++) {
+                ids[i] = insert(movies.get(i), titles[i], created);
+            }
+            return created[0];
+        } finally {
+            // если слушатель отменил фильм посреди списка, уже добавленные всё равно должны сменить версию
+            if (created[0] != 0) {
+                version++;
+            }
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int insert(Movie movie, byte[] title, int[] created) {
+        int hash = movie.getTitle().hashCode();
+        int existing = findTitle(title, hash);
+        if (existing >= 0) {
+            return ids[existing];
+        }
+        int id = nextId;
+        for (MoviesStoreListener listener : listeners) {
+            listener.onAdd(id, movie);
+        }
+        nextId++;
+        append(id, movie.getYear(), title, hash);
+        created[0]++;
+        return id;
+    }
+
+    @Override
+    public void putMovie(int id, Movie movie) {
+        byte[] title = movie.getTitle().getBytes(StandardCharsets.UTF_8);
+        int hash = movie.getTitle().hashCode();
+        lock.writeLock().lock();
+        try {
+            for (MoviesStoreListener listener : listeners) {
+                listener.onAdd(id, movie);
+            }
+            int slot = findSlot(id);
+            if (slot >= 0) {
+                if (titleLengths[slot] == DELETED) {
+                    live++;
+                }
+                writeTitle(slot, title, hash);
+                years[slot] = movie.getYear();
+                indexTitle(slot);
+            } else if (slots == 0 || id > ids[slots - 1]) {
+                append(id, movie.getYear(), title, hash);
+            } else {
+                // при восстановлении из журнала id может прийти не по порядку
+                insertAt(upperBound(id), id, movie.getYear(), title, hash);
+            }
+            nextId = Math.max(nextId, id + 1);
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int getNextId() {
+        lock.readLock().lock();
+        try {
+            return nextId;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void advanceNextId(int minNextId) {
+        lock.writeLock().lock();
+        try {
+            nextId = Math.max(nextId, minNextId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Movie getMovie(int id) {
+        lock.readLock().lock();
+        try {
+            int slot = findLiveSlot(id);
+            return slot < 0 ? null : movieAt(slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int getMovieId(String title) {
+        byte[] bytes = title.getBytes(StandardCharsets.UTF_8);
+        lock.readLock().lock();
+        try {
+            int slot = findTitle(bytes, title.hashCode());
+            return slot < 0 ? -1 : ids[slot];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean checkMovie(String title) {
+        return getMovieId(title) >= 0;
+    }
+
+    @Override
+    public boolean containsMovie(int id) {
+        lock.readLock().lock();
+        try {
+            return findLiveSlot(id) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public boolean deleteMovie(int id) {
+        lock.writeLock().lock();
+        try {
+            int slot = findLiveSlot(id);
+            if (slot < 0) {
+                return false;
+            }
+            Movie movie = movieAt(slot);
+            for (MoviesStoreListener listener : listeners) {
+                listener.onDelete(id, movie);
+            }
+            titleLengths[slot] = DELETED;
+            live--;
+            version++;
+            int deleted = slots - live;
+            if (deleted >= MIN_DELETED_TO_COMPACT && deleted > live) {
+                compact();
+            }
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public MoviesPage getMoviesPage(int afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Movie> movies = new ArrayList<>(Math.min(limit, 1024));
+            int lastId = afterId;
+            for (int slot = upperBound(afterId); slot < slots; slot++) {
+                if (titleLengths[slot] == DELETED) {
+                    continue;
+                }
+                if (movies.size() == limit) {
+                    return new MoviesPage(movies, lastId, true);
+                }
+                movies.add(movieAt(slot));
+                lastId = ids[slot];
+            }
+            return new MoviesPage(movies, lastId, false);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Movie> getMoviesByYear(int year) {
+        lock.readLock().lock();
+        try {
+            List<Movie> result = new ArrayList<>();
+            for (int slot = 0; slot < slots; slot++) {
+                if (years[slot] == year && titleLengths[slot] != DELETED) {
+                    result.add(movieAt(slot));
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Movie> getMoviesByYearRange(int yearFrom, int yearTo) {
+        if (yearFrom > yearTo) {
+            return new ArrayList<>();
+        }
+        lock.readLock().lock();
+        try {
+            // ключ (год, слот) упорядочивает по году, а внутри года — по id
+            long[] keys = new long[64];
+            int count = 0;
+            for (int slot = 0; slot < slots; slot++) {
+                int year = years[slot];
+                if (year >= yearFrom && year <= yearTo && titleLengths[slot] != DELETED) {
+                    if (count == keys.length) {
+                        keys = Arrays.copyOf(keys, count * 2);
+                    }
+                    keys[count++] = ((long) year << 32) | slot;
+                }
+            }
+            Arrays.sort(keys, 0, count);
+            List<Movie> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(movieAt((int) keys[i]));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return live;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Колонки изменяются на месте, поэтому снимок — копия каталога под блокировкой чтения, O(n).
+     */
+    @Override
+    public MoviesSnapshot snapshot() {
+        lock.readLock().lock();
+        try {
+            List<Map.Entry<Integer, Movie>> entries = new ArrayList<>(live);
+            for (int slot = 0; slot < slots; slot++) {
+                if (titleLengths[slot] != DELETED) {
+                    entries.add(Map.entry(ids[slot], movieAt(slot)));
+                }
+            }
+            return CatalogSnapshot.copyOf(version, entries.iterator());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Представление обходится пачками по id и не блокирует хранилище между пачками.
+     */
+    @Override
+    public Map<Integer, Movie> getMoviesMap() {
+        return moviesView;
+    }
+
+    @Override
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            for (MoviesStoreListener listener : listeners) {
+                listener.onClear();
+            }
+            reset();
+            nextId = 0;
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Заполняет буферы следующей пачкой живых фильмов с id больше afterId.
+     *
+     * @return количество прочитанных фильмов
+     */
+    private int readBatch(int afterId, int[] batchIds, Movie[] batchMovies) {
+        lock.readLock().lock();
+        try {
+            int count = 0;
+            for (int slot = upperBound(afterId); slot < slots && count < batchIds.length; slot++) {
+                if (titleLengths[slot] != DELETED) {
+                    batchIds[count] = ids[slot];
+                    batchMovies[count] = movieAt(slot);
+                    count++;
+                }
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Movie movieAt(int slot) {
+        String title = new String(titleHeap, titleOffsets[slot], titleLengths[slot], StandardCharsets.UTF_8);
+        return new Movie(title, years[slot]);
+    }
+
+    private int findSlot(int id) {
+        int mask = idTable.length - 1;
+        for (int i = mix(id) & mask; ; i = (i + 1) & mask) {
+            int entry = idTable[i];
+            if (entry == 0) {
+                return -1;
+            }
+            if (ids[entry - 1] == id) {
+                return entry - 1;
+            }
+        }
+    }
+
+    private int findLiveSlot(int id) {
+        int slot = findSlot(id);
+        return slot >= 0 && titleLengths[slot] != DELETED ? slot : -1;
+    }
+
+    private int findTitle(byte[] title, int hash) {
+        int mask = titleTable.length - 1;
+        for (int i = mix(hash) & mask; ; i = (i + 1) & mask) {
+            int entry = titleTable[i];
+            if (entry == 0) {
+                return -1;
+            }
+            int slot = entry - 1;
+            // удалённые и перезаписанные слоты остаются в таблице до уплотнения и здесь не совпадут
+            if (titleHashes[slot] == hash && titleLengths[slot] == title.length
+                    && Arrays.equals(titleHeap, titleOffsets[slot], titleOffsets[slot] + title.length,
+                    title, 0, title.length)) {
+                return slot;
+            }
+        }
+    }
+
+    // первый слот с id больше указанного; слоты упорядочены по id
+    private int upperBound(int id) {
+        int low = 0;
+        int high = slots;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (ids[middle] <= id) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void append(int id, int year, byte[] title, int hash) {
+        ensureCapacity(slots + 1);
+        int slot = slots++;
+        ids[slot] = id;
+        years[slot] = year;
+        writeTitle(slot, title, hash);
+        live++;
+        indexId(slot);
+        indexTitle(slot);
+    }
+
+    private void insertAt(int position, int id, int year, byte[] title, int hash) {
+        ensureCapacity(slots + 1);
+        int tail = slots - position;
+        System.arraycopy(ids, position, ids, position + 1, tail);
+        System.arraycopy(years, position, years, position + 1, tail);
+        System.arraycopy(titleOffsets, position, titleOffsets, position + 1, tail);
+        System.arraycopy(titleLengths, position, titleLengths, position + 1, tail);
+        System.arraycopy(titleHashes, position, titleHashes, position + 1, tail);
+        slots++;
+        ids[position] = id;
+        years[position] = year;
+        writeTitle(position, title, hash);
+        live++;
+        // слоты сдвинулись, поэтому обе таблицы строятся заново
+        rebuildTables();
+    }
+
+    private void writeTitle(int slot, byte[] title, int hash) {
+        ensureHeap(heapSize + (long) title.length);
+        System.arraycopy(title, 0, titleHeap, heapSize, title.length);
+        titleOffsets[slot] = heapSize;
+        titleLengths[slot] = title.length;
+        titleHashes[slot] = hash;
+        heapSize += title.length;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, newCapacity);
+        years = Arrays.copyOf(years, newCapacity);
+        titleOffsets = Arrays.copyOf(titleOffsets, newCapacity);
+        titleLengths = Arrays.copyOf(titleLengths, newCapacity);
+        titleHashes = Arrays.copyOf(titleHashes, newCapacity);
+        rebuildTables();
+    }
+
+    private void ensureHeap(long size) {
+        if (size <= titleHeap.length) {
+            return;
+        }
+        if (size > Integer.MAX_VALUE - 8) {
+            throw new IllegalStateException("Названия фильмов не помещаются в одну колонку: " + size + " байт");
+        }
+        titleHeap = Arrays.copyOf(titleHeap, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(size, 2L * titleHeap.length)));
+    }
+
+    private void compact() {
+        int liveBytes = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            if (titleLengths[slot] != DELETED) {
+                liveBytes += titleLengths[slot];
+            }
+        }
+        byte[] heap = new byte[Math.max(INITIAL_HEAP_BYTES, liveBytes)];
+        int target = 0;
+        int offset = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            int length = titleLengths[slot];
+            if (length == DELETED) {
+                continue;
+            }
+            System.arraycopy(titleHeap, titleOffsets[slot], heap, offset, length);
+            ids[target] = ids[slot];
+            years[target] = years[slot];
+            titleOffsets[target] = offset;
+            titleLengths[target] = length;
+            titleHashes[target] = titleHashes[slot];
+            offset += length;
+            target++;
+        }
+        titleHeap = heap;
+        heapSize = offset;
+        slots = target;
+        rebuildTables();
+    }
+
+    private void rebuildTables() {
+        // заполненность таблиц не выше половины при любом числе слотов до ёмкости колонок
+        int tableSize = Integer.highestOneBit(Math.max(ids.length, 1) * 2 - 1) << 1;
+        idTable = new int[tableSize];
+        titleTable = new int[tableSize];
+        titleEntries = 0;
+        for (int slot = 0; slot < slots; slot++) {
+            indexId(slot);
+            if (titleLengths[slot] != DELETED) {
+                indexTitle(slot);
+            }
+        }
+    }
+
+    private void indexId(int slot) {
+        int mask = idTable.length - 1;
+        int i = mix(ids[slot]) & mask;
+        while (idTable[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        idTable[i] = slot + 1;
+    }
+
+    private void indexTitle(int slot) {
+        if ((titleEntries + 1) * 2 > titleTable.length) {
+            rebuildTables();
+            return;
+        }
+        int mask = titleTable.length - 1;
+        int i = mix(titleHashes[slot]) & mask;
+        while (titleTable[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        titleTable[i] = slot + 1;
+        titleEntries++;
+    }
+
+    private static int mix(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public String toString() {
+        lock.readLock().lock();
+        try {
+            return "ColumnarMoviesStore{" +
+                    "size=" + live +
+                    ", slots=" + slots +
+                    ", titleBytes=" + heapSize +
+                    '}';
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private class MoviesView extends AbstractMap<Integer, Movie> {
+
+        @Override
+        public Movie get(Object key) {
+            return key instanceof Integer id ? getMovie(id) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Integer id && containsMovie(id);
+        }
+
+        @Override
+        public int size() {
+            return ColumnarMoviesStore.this.size();
+        }
+
+        @Override
+        public Set<Entry<Integer, Movie>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<Integer, Movie>> iterator() {
+                    return new BatchIterator();
+                }
+
+                @Override
+                public int size() {
+                    return ColumnarMoviesStore.this.size();
+                }
+            };
+        }
+    }
+
+    private class BatchIterator implements Iterator<Map.Entry<Integer, Movie>> {
+        private final int[] batchIds = new int[ITERATOR_BATCH];
+        private final Movie[] batchMovies = new Movie[ITERATOR_BATCH];
+        private int count;
+        private int position;
+        private int lastId = -1;
+        private boolean exhausted;
+
+        @Override
+        public boolean hasNext() {
+            if (position < count) {
+                return true;
+            }
+            if (exhausted) {
+                return false;
+            }
+            count = readBatch(lastId, batchIds, batchMovies);
+            position = 0;
+            exhausted = count < ITERATOR_BATCH;
+            return count > 0;
+        }
+
+        @Override
+        public Map.Entry<Integer, Movie> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            lastId = batchIds[position];
+            return Map.entry(lastId, batchMovies[position++]);
+        }
+    }
+}
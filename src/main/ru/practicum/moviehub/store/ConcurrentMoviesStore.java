@@ -0,0 +1,240 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.util.AbstractMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Каталог публикуется неизменяемыми снимками через одну ссылку: читатель берёт текущий снимок
+ * без блокировок и копирования, писатель строит следующий копированием пути и подменяет ссылку.
+ * Индекс названий остаётся изменяемым: его ячейка — блокировка записи для своего названия.
+ * Очистка меняет индекс и снимок вместе, поэтому исключает писателей целиком.
+ */
+public class ConcurrentMoviesStore implements RestorableMoviesStore {
+    final ConcurrentHashMap<String, Integer> titleIndex = new ConcurrentHashMap<>();
+    final AtomicReference<CatalogSnapshot> current = new AtomicReference<>(CatalogSnapshot.EMPTY);
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final List<MoviesStoreListener> listeners = new CopyOnWriteArrayList<>();
+    private final Map<Integer, Movie> moviesView = new MoviesView();
+    // писатели берут разделяемую блокировку, clear — исключительную; читатели её не трогают
+    private final ReadWriteLock clearLock = new ReentrantReadWriteLock();
+
+    /**
+     * Слушатели вызываются под блокировкой названия до применения изменения,
+     * поэтому для одного названия они видят события в том же порядке, что и хранилище.
+     * Исключение из слушателя отменяет изменение.
+     */
+    @Override
+    public void addListener(MoviesStoreListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(MoviesStoreListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public int addMovie(Movie movie) {
+        return insert(movie, new int[1]);
+    }
+
+    @Override
+    public int addMovies(List<Movie> movies, int[] ids) {
+        int[] created = new int[1];
+        for (int i = 0; i < movies.size(); i++) {
+            ids[i] = insert(movies.get(i), created);
+        }
+        return created[0];
+    }
+
+    private int insert(Movie movie, int[] created) {
+        clearLock.readLock().lock();
+        try {
+            // снимок подменяется под блокировкой ячейки индекса, поэтому индекс и снимок
+            // не расходятся при гонке одинаковых названий
+            return titleIndex.computeIfAbsent(movie.getTitle(), title -> {
+                int id = nextId.getAndIncrement();
+                for (MoviesStoreListener listener : listeners) {
+                    listener.onAdd(id, movie);
+                }
+                current.updateAndGet(snapshot -> snapshot.withMovie(id, movie));
+                created[0]++;
+                return id;
+            });
+        } finally {
+            clearLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void putMovie(int id, Movie movie) {
+        clearLock.readLock().lock();
+        try {
+            titleIndex.compute(movie.getTitle(), (title, existing) -> {
+                for (MoviesStoreListener listener : listeners) {
+                    listener.onAdd(id, movie);
+                }
+                current.updateAndGet(snapshot -> snapshot.withMovie(id, movie));
+                return id;
+            });
+            advanceNextId(id + 1);
+        } finally {
+            clearLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int getNextId() {
+        return nextId.get();
+    }
+
+    @Override
+    public void advanceNextId(int minNextId) {
+        nextId.accumulateAndGet(minNextId, Math::max);
+    }
+
+    /**
+     * Снимок ничего не стоит: это текущая опубликованная версия каталога.
+     */
+    @Override
+    public MoviesSnapshot snapshot() {
+        return current.get();
+    }
+
+    @Override
+    public Movie getMovie(int id) {
+        return current.get().getMovie(id);
+    }
+
+    @Override
+    public int getMovieId(String title) {
+        Integer id = titleIndex.get(title);
+        return id == null ? -1 : id;
+    }
+
+    @Override
+    public boolean checkMovie(String title) {
+        return titleIndex.containsKey(title);
+    }
+
+    @Override
+    public boolean containsMovie(int id) {
+        return current.get().containsMovie(id);
+    }
+
+    @Override
+    public boolean deleteMovie(int id) {
+        Movie movie = current.get().getMovie(id);
+        if (movie == null) {
+            return false;
+        }
+        boolean[] removed = new boolean[1];
+        clearLock.readLock().lock();
+        try {
+            titleIndex.computeIfPresent(movie.getTitle(), (title, indexedId) -> {
+                // удалить фильм с этим названием можно только здесь, под этой же блокировкой
+                if (indexedId == id && current.get().getMovie(id) == movie) {
+                    for (MoviesStoreListener listener : listeners) {
+                        listener.onDelete(id, movie);
+                    }
+                    current.updateAndGet(snapshot -> snapshot.withoutMovie(id));
+                    removed[0] = true;
+                    return null;
+                }
+                return indexedId;
+            });
+        } finally {
+            clearLock.readLock().unlock();
+        }
+        return removed[0];
+    }
+
+    @Override
+    public MoviesPage getMoviesPage(int afterId, int limit) {
+        return current.get().getMoviesPage(afterId, limit);
+    }
+
+    @Override
+    public List<Movie> getMoviesByYear(int year) {
+        return current.get().getMoviesByYear(year);
+    }
+
+    @Override
+    public List<Movie> getMoviesByYearRange(int yearFrom, int yearTo) {
+        return current.get().getMoviesByYearRange(yearFrom, yearTo);
+    }
+
+    @Override
+    public int size() {
+        return current.get().size();
+    }
+
+    @Override
+    public long getVersion() {
+        return current.get().getVersion();
+    }
+
+    /**
+     * Каждый вызов читает текущий снимок; обход целиком идёт по снимку на момент его начала.
+     */
+    @Override
+    public Map<Integer, Movie> getMoviesMap() {
+        return moviesView;
+    }
+
+    @Override
+    public void clear() {
+        // без писателей событие очистки встаёт в поток изменений ровно там, где индекс и снимок пустеют
+        clearLock.writeLock().lock();
+        try {
+            for (MoviesStoreListener listener : listeners) {
+                listener.onClear();
+            }
+            titleIndex.clear();
+            current.updateAndGet(CatalogSnapshot::cleared);
+            nextId.set(0);
+        } finally {
+            clearLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrentMoviesStore{" +
+                "movieMap=" + moviesView +
+                '}';
+    }
+
+    private class MoviesView extends AbstractMap<Integer, Movie> {
+
+        @Override
+        public Movie get(Object key) {
+            return key instanceof Integer id ? getMovie(id) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Integer id && containsMovie(id);
+        }
+
+        @Override
+        public int size() {
+            return ConcurrentMoviesStore.this.size();
+        }
+
+        @Override
+        public Set<Entry<Integer, Movie>> entrySet() {
+            return current.get().asMap().entrySet();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.util.List;
+
+public final class MoviesPage {
+    private final List<Movie> movies;
+    private final int lastId;
+    private final boolean hasMore;
+
+    public MoviesPage(List<Movie> movies, int lastId, boolean hasMore) {
+        this.movies = movies;
+        this.lastId = lastId;
+        this.hasMore = hasMore;
+    }
+
+    public List<Movie> getMovies() {
+        return movies;
+    }
+
+    /**
+     * @return id последнего фильма на странице; имеет смысл только если {@link #hasMore()}
+     */
+    public int getLastId() {
+        return lastId;
+    }
+
+    public boolean hasMore() {
+        return hasMore;
+    }
+}
@@ -0,0 +1,59 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Неизменяемое состояние каталога на один момент: сколько его ни читай, записи после
+ * {@link MoviesStore#snapshot()} в нём не видны. Обход идёт по возрастанию id.
+ */
+public interface MoviesSnapshot extends Iterable<Movie> {
+
+    /**
+     * @return версия хранилища, которой соответствует снимок
+     */
+    long getVersion();
+
+    int size();
+
+    Movie getMovie(int id);
+
+    boolean containsMovie(int id);
+
+    /**
+     * Как {@link MoviesStore#getMoviesPage}, но все страницы одного снимка согласованы между собой.
+     */
+    MoviesPage getMoviesPage(int afterId, int limit);
+
+    List<Movie> getMoviesByYear(int year);
+
+    List<Movie> getMoviesByYearRange(int yearFrom, int yearTo);
+
+    Iterator<Map.Entry<Integer, Movie>> entryIterator();
+
+    @Override
+    default Iterator<Movie> iterator() {
+        Iterator<Map.Entry<Integer, Movie>> entries = entryIterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public Movie next() {
+                return entries.next().getValue();
+            }
+        };
+    }
+
+    /**
+     * @return неизменяемое представление снимка в виде мапы id -> фильм
+     */
+    default Map<Integer, Movie> asMap() {
+        return new SnapshotMap(this);
+    }
+}
@@ -2,62 +2,92 @@ package ru.practicum.moviehub.store;
 
 import ru.practicum.moviehub.model.Movie;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Objects;
-
-public class MoviesStore {
-    Map<Integer, Movie> movieMap = new HashMap<>();
-
-    public void addMovie(Movie movie) {
-        for (Movie mov : movieMap.values()) {
-            if (Objects.equals(mov.getTitle(), movie.getTitle())) {
-                return;
-            }
-        }
-        movieMap.put(movieMap.size(), movie);
-    }
 
-    public Movie getMovie(int id) {
-        return movieMap.get(id);
-    }
+public interface MoviesStore {
 
-    public int getMovieId(String movie) {
-        int movieId = 0;
-        for (int id : movieMap.keySet()) { //на выходе нужно получить id, если буду бегать по value я его не получу
-            if (Objects.equals(movieMap.get(id).getTitle(), movie)) {
-                movieId = id;
-            }
-        }
-        return movieId;
-    }
+    /**
+     * Добавляет фильм, если фильма с таким названием ещё нет.
+     *
+     * @return id добавленного фильма, либо id уже существующего фильма с тем же названием
+     */
+    int addMovie(Movie movie);
 
-    public Map<Integer, Movie> getMoviesMap() {
-        return movieMap;
-    }
+    /**
+     * Добавляет пачку фильмов одной операцией.
+     *
+     * @param ids массив не короче movies, в который записываются id в том же порядке, что и у {@link #addMovie}
+     * @return количество действительно добавленных фильмов (без дубликатов)
+     */
+    int addMovies(List<Movie> movies, int[] ids);
 
-    public void deleteMovie(int id) {
-        movieMap.remove(id);
-    }
+    Movie getMovie(int id);
 
-    public boolean checkMovie(String title) {
-        for (Movie movie : movieMap.values()) {
-            if (Objects.equals(movie.getTitle(), title)) {
-                return true;
-            }
-        }
-        return false;
-    }
+    /**
+     * @return id фильма с указанным названием, либо -1, если такого фильма нет
+     */
+    int getMovieId(String title);
 
+    boolean checkMovie(String title);
 
-    public void clear() {
-        movieMap.clear();
-    }
+    boolean containsMovie(int id);
+
+    /**
+     * @return true, если фильм был удалён
+     */
+    boolean deleteMovie(int id);
+
+    /**
+     * Возвращает не больше limit фильмов с id больше afterId в порядке возрастания id.
+     */
+    MoviesPage getMoviesPage(int afterId, int limit);
 
-    @Override
-    public String toString() {
-        return "MoviesStore{" +
-                "movieMap=" + movieMap +
-                '}';
+    /**
+     * @return фильмы указанного года в порядке возрастания id
+     */
+    List<Movie> getMoviesByYear(int year);
+
+    /**
+     * @return фильмы с годом в диапазоне [yearFrom, yearTo], упорядоченные по году и id
+     */
+    List<Movie> getMoviesByYearRange(int yearFrom, int yearTo);
+
+    int size();
+
+    /**
+     * Версия содержимого хранилища. Монотонно растёт после каждого успешного изменения,
+     * поэтому по ней можно проверять актуальность закешированных представлений.
+     */
+    long getVersion();
+
+    /**
+     * @return неизменяемое представление хранилища, отражающее текущее состояние
+     */
+    Map<Integer, Movie> getMoviesMap();
+
+    void clear();
+
+    /**
+     * @return неизменяемый снимок каталога: его можно обходить, листать и фильтровать по годам,
+     * не опасаясь параллельных записей
+     */
+    MoviesSnapshot snapshot();
+
+    /**
+     * Выполняет несколько изменений подряд как одну запись. Хранилище с журналом фиксирует их
+     * одним fsync после writes, поэтому к возврату из метода все они сохранены. Читатели видят
+     * изменения пачки до этого fsync; если он не удался, метод бросает исключение, а изменения
+     * остаются в памяти с неизвестной сохранностью.
+     */
+    default void writeBatch(Runnable writes) {
+        writes.run();
     }
-}
\ No newline at end of file
+
+    /**
+     * Слушатели вызываются до применения изменения; исключение из слушателя отменяет изменение.
+     */
+    void addListener(MoviesStoreListener listener);
+
+    void removeListener(MoviesStoreListener listener);
+}
@@ -0,0 +1,15 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+/**
+ * Получает изменения хранилища: журнал, вторичные индексы, лента изменений.
+ */
+public interface MoviesStoreListener {
+
+    void onAdd(int id, Movie movie);
+
+    void onDelete(int id, Movie movie);
+
+    void onClear();
+}
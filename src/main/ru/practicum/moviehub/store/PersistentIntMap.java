@@ -0,0 +1,305 @@
+package ru.practicum.moviehub.store;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Неизменяемая мапа неотрицательных int-ключей: 32-ричное префиксное дерево по пять бит ключа на уровень.
+ * Изменение копирует только узлы на пути от корня к листу (не больше семи массивов по 32 ссылки),
+ * остальное дерево остаётся общим с прежней версией. Поэтому прежние версии не меняются
+ * и читаются без блокировок. Обход идёт по возрастанию ключа.
+ */
+public final class PersistentIntMap<V> {
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    private static final PersistentIntMap<?> EMPTY = new PersistentIntMap<>(null, 0, 0);
+
+    private final Object[] root;
+    // сдвиг ключа для индекса в корне; листья — уровень со сдвигом 0
+    private final int shift;
+    private final int size;
+
+    private PersistentIntMap(Object[] root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <V> PersistentIntMap<V> empty() {
+        return (PersistentIntMap<V>) EMPTY;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        if (key < 0 || root == null || (key >>> shift) > MASK) {
+            return null;
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(key >>> level) & MASK];
+            if (node == null) {
+                return null;
+            }
+        }
+        return (V) node[key & MASK];
+    }
+
+    public boolean containsKey(int key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @return новая версия мапы; эта остаётся прежней
+     */
+    public PersistentIntMap<V> put(int key, V value) {
+        if (key < 0 || value == null) {
+            throw new IllegalArgumentException("Ключ должен быть неотрицательным, значение — не null");
+        }
+        Object[] newRoot = root;
+        int newShift = root == null ? 0 : shift;
+        while ((key >>> newShift) > MASK) {
+            if (newRoot != null) {
+                Object[] grown = new Object[WIDTH];
+                grown[0] = newRoot;
+                newRoot = grown;
+            }
+            newShift += BITS;
+        }
+        boolean[] added = new boolean[1];
+        newRoot = put(newRoot, newShift, key, value, added);
+        return new PersistentIntMap<>(newRoot, newShift, added[0] ? size + 1 : size);
+    }
+
+    private static Object[] put(Object[] node, int level, int key, Object value, boolean[] added) {
+        Object[] copy = node == null ? new Object[WIDTH] : node.clone();
+        int index = (key >>> level) & MASK;
+        if (level == 0) {
+            added[0] = copy[index] == null;
+            copy[index] = value;
+        } else {
+            copy[index] = put((Object[]) copy[index], level - BITS, key, value, added);
+        }
+        return copy;
+    }
+
+    /**
+     * @return новая версия мапы без ключа или эта же, если ключа нет
+     */
+    public PersistentIntMap<V> remove(int key) {
+        if (get(key) == null) {
+            return this;
+        }
+        if (size == 1) {
+            return empty();
+        }
+        Object[] newRoot = remove(root, shift, key);
+        int newShift = shift;
+        // корень с единственным первым потомком не нужен: ключи снова помещаются уровнем ниже
+        while (newShift > 0 && onlyFirst(newRoot)) {
+            newRoot = (Object[]) newRoot[0];
+            newShift -= BITS;
+        }
+        return new PersistentIntMap<>(newRoot, newShift, size - 1);
+    }
+
+    private static Object[] remove(Object[] node, int level, int key) {
+        int index = (key >>> level) & MASK;
+        Object child = level == 0 ? null : remove((Object[]) node[index], level - BITS, key);
+        if (child == null && countOthers(node, index) == 0) {
+            return null;
+        }
+        Object[] copy = node.clone();
+        copy[index] = child;
+        return copy;
+    }
+
+    private static int countOthers(Object[] node, int except) {
+        int count = 0;
+        for (int i = 0; i < WIDTH; i++) {
+            if (i != except && node[i] != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static boolean onlyFirst(Object[] node) {
+        return node[0] != null && countOthers(node, 0) == 0;
+    }
+
+    /**
+     * Значения с ключами не меньше from по возрастанию ключа.
+     */
+    public Iterator<V> valuesFrom(int from) {
+        Walker<V> walker = new Walker<>(root, shift, from);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return walker.hasNext();
+            }
+
+            @Override
+            public V next() {
+                walker.next();
+                return walker.value;
+            }
+        };
+    }
+
+    public Iterator<Map.Entry<Integer, V>> entriesFrom(int from) {
+        Walker<V> walker = new Walker<>(root, shift, from);
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return walker.hasNext();
+            }
+
+            @Override
+            public Map.Entry<Integer, V> next() {
+                walker.next();
+                return Map.entry(walker.key, walker.value);
+            }
+        };
+    }
+
+    /**
+     * Собирает мапу без копирования путей: узлы принадлежат строителю, пока не вызван build.
+     */
+    public static final class Builder<V> {
+        private Object[] root;
+        private int shift;
+        private int size;
+
+        public Builder<V> put(int key, V value) {
+            if (key < 0 || value == null) {
+                throw new IllegalArgumentException("Ключ должен быть неотрицательным, значение — не null");
+            }
+            if (root == null) {
+                root = new Object[WIDTH];
+                shift = 0;
+            }
+            while ((key >>> shift) > MASK) {
+                Object[] grown = new Object[WIDTH];
+                grown[0] = root;
+                root = grown;
+                shift += BITS;
+            }
+            Object[] node = root;
+            for (int level = shift; level > 0; level -= BITS) {
+                int index = (key >>> level) & MASK;
+                if (node[index] == null) {
+                    node[index] = new Object[WIDTH];
+                }
+                node = (Object[]) node[index];
+            }
+            if (node[key & MASK] == null) {
+                size++;
+            }
+            node[key & MASK] = value;
+            return this;
+        }
+
+        /**
+         * Отдаёт собранную мапу и начинает новую: прежние узлы строитель больше не меняет.
+         */
+        public PersistentIntMap<V> build() {
+            PersistentIntMap<V> map = size == 0 ? empty() : new PersistentIntMap<>(root, shift, size);
+            root = null;
+            shift = 0;
+            size = 0;
+            return map;
+        }
+    }
+
+    // обход в глубину со стеком узлов; первый спуск идёт по цифрам from
+    private static final class Walker<V> {
+        private final Object[][] nodes;
+        private final int[] indices;
+        private final int leafDepth;
+        private final int from;
+        private int depth;
+        // глубина, до которой текущий путь совпадает с цифрами from; -1 — уже правее from
+        private int exactDepth;
+        private boolean ready;
+        private int key;
+        private V value;
+
+        private Walker(Object[] root, int shift, int from) {
+            this.leafDepth = shift / BITS;
+            this.nodes = new Object[leafDepth + 1][];
+            this.indices = new int[leafDepth + 1];
+            this.from = Math.max(from, 0);
+            if (root == null || (this.from >>> shift) > MASK) {
+                depth = -1;
+                return;
+            }
+            nodes[0] = root;
+            indices[0] = digit(0);
+            exactDepth = 0;
+        }
+
+        private int digit(int level) {
+            return (from >>> ((leafDepth - level) * BITS)) & MASK;
+        }
+
+        boolean hasNext() {
+            if (!ready) {
+                ready = advance();
+            }
+            return ready;
+        }
+
+        void next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ready = false;
+        }
+
+        @SuppressWarnings("unchecked")
+        private boolean advance() {
+            while (depth >= 0) {
+                int index = indices[depth];
+                if (index > MASK) {
+                    depth--;
+                    if (depth >= 0) {
+                        indices[depth]++;
+                    }
+                    continue;
+                }
+                Object child = nodes[depth][index];
+                if (child == null) {
+                    indices[depth]++;
+                    continue;
+                }
+                if (depth == leafDepth) {
+                    int k = 0;
+                    for (int level = 0; level <= leafDepth; level++) {
+                        k = (k << BITS) | indices[level];
+                    }
+                    key = k;
+                    value = (V) child;
+                    indices[depth]++;
+                    return true;
+                }
+                boolean exact = exactDepth == depth && index == digit(depth);
+                depth++;
+                nodes[depth] = (Object[]) child;
+                indices[depth] = exact ? digit(depth) : 0;
+                exactDepth = exact ? depth : -1;
+            }
+            return false;
+        }
+    }
+}
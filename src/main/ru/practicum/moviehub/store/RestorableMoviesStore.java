@@ -0,0 +1,19 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+/**
+ * Хранилище, которое можно восстановить из журнала или снимка ведущего сервера.
+ */
+public interface RestorableMoviesStore extends MoviesStore {
+
+    /**
+     * Кладёт фильм с заранее известным id. Слушатели вызываются как при добавлении,
+     * поэтому вторичные индексы видят и восстановленные, и реплицированные фильмы.
+     */
+    void putMovie(int id, Movie movie);
+
+    int getNextId();
+
+    void advanceNextId(int minNextId);
+}
@@ -0,0 +1,49 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Set;
+
+/**
+ * Мапа поверх снимка: изменять нечего, поиск по id идёт в самом снимке.
+ */
+final class SnapshotMap extends AbstractMap<Integer, Movie> {
+    private final MoviesSnapshot snapshot;
+
+    SnapshotMap(MoviesSnapshot snapshot) {
+        this.snapshot = snapshot;
+    }
+
+    @Override
+    public Movie get(Object key) {
+        return key instanceof Integer id ? snapshot.getMovie(id) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Integer id && snapshot.containsMovie(id);
+    }
+
+    @Override
+    public int size() {
+        return snapshot.size();
+    }
+
+    @Override
+    public Set<Entry<Integer, Movie>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Integer, Movie>> iterator() {
+                return snapshot.entryIterator();
+            }
+
+            @Override
+            public int size() {
+                return snapshot.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,370 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Поиск по названиям для подсказок при вводе: триграммный инвертированный индекс по словам названия.
+ * Слова короче трёх символов в запросе ищутся по префиксу слова, длиннее — как подстрока слова.
+ * Названия приводятся к NFKC и нижнему регистру, «ё» считается «е», знаки препинания разделяют слова.
+ * Индекс подписывается на хранилище и обновляется при каждом добавлении и удалении.
+ * Найденные по индексу id перепроверяются по хранилищу, поэтому удаление из индекса может быть отложенным.
+ */
+public final class TitleSearchIndex implements MoviesStoreListener {
+    private static final Comparator<Match> RELEVANCE = Comparator.comparingInt(Match::rank)
+            .thenComparingInt(Match::length)
+            .thenComparingInt(Match::id);
+    // удалённые id вычищаются из списка пачкой, чтобы не копировать большой список на каждое удаление
+    private static final int MIN_PURGE = 64;
+    // маркер префиксной граммы: в нормализованном слове только буквы и цифры, так что с триграммой не совпадёт
+    private static final long PREFIX = 1L << 48;
+    private static final int[] EMPTY = new int[0];
+
+    private final MoviesStore store;
+    private final Map<Long, Postings> grams = new ConcurrentHashMap<>();
+
+    /**
+     * Подписывается на хранилище и индексирует уже загруженные фильмы.
+     */
+    public TitleSearchIndex(MoviesStore store) {
+        this.store = store;
+        // сначала подписка, потом обход: фильм, добавленный во время обхода, проиндексируется повторно без вреда
+        store.addListener(this);
+        for (Map.Entry<Integer, Movie> entry : store.getMoviesMap().entrySet()) {
+            index(entry.getKey(), entry.getValue().getTitle());
+        }
+    }
+
+    public void close() {
+        store.removeListener(this);
+    }
+
+    /**
+     * @return не больше limit фильмов, в названии которых есть все слова запроса: сначала точное совпадение
+     * названия, затем названия, начинающиеся с запроса, затем с первым словом запроса в начале слова;
+     * внутри группы — более короткие названия, затем меньший id
+     */
+    public List<Movie> search(String query, int limit) {
+        String normalizedQuery = normalize(query);
+        String[] terms = words(normalizedQuery);
+        if (terms.length == 0 || limit <= 0) {
+            return List.of();
+        }
+        List<Postings.View> lists = new ArrayList<>();
+        for (String term : terms) {
+            for (long gram : queryGrams(term)) {
+                Postings postings = grams.get(gram);
+                if (postings == null) {
+                    return List.of();
+                }
+                lists.add(postings.view());
+            }
+        }
+        lists.sort(Comparator.comparingInt(Postings.View::size));
+
+        // ранжируются все кандидаты, в куче остаются limit лучших; в её вершине худший из них
+        PriorityQueue<Match> best = new PriorityQueue<>(Math.min(limit, 1024) + 1, RELEVANCE.reversed());
+        Postings.View smallest = lists.get(0);
+        int[] positions = new int[lists.size()];
+        for (int i = 0; i < smallest.size(); i++) {
+            int id = smallest.ids()[i];
+            if (!containsAll(lists, positions, id)) {
+                continue;
+            }
+            // индекс может опережать хранилище или отставать от него, поэтому название перепроверяется
+            Movie movie = store.getMovie(id);
+            if (movie == null || movie.getTitle() == null) {
+                continue;
+            }
+            String title = normalize(movie.getTitle());
+            if (!matchesAll(title, terms)) {
+                continue;
+            }
+            Match match = new Match(id, movie, rank(title, normalizedQuery, terms[0]), title.length());
+            if (best.size() < limit) {
+                best.add(match);
+            } else if (RELEVANCE.compare(match, best.peek()) < 0) {
+                best.poll();
+                best.add(match);
+            }
+        }
+        Match[] matches = best.toArray(new Match[0]);
+        Arrays.sort(matches, RELEVANCE);
+        List<Movie> result = new ArrayList<>(matches.length);
+        for (Match match : matches) {
+            result.add(match.movie());
+        }
+        return result;
+    }
+
+    @Override
+    public void onAdd(int id, Movie movie) {
+        index(id, movie.getTitle());
+    }
+
+    @Override
+    public void onDelete(int id, Movie movie) {
+        if (movie.getTitle() == null) {
+            return;
+        }
+        for (long gram : titleGrams(movie.getTitle())) {
+            Postings postings = grams.get(gram);
+            if (postings != null) {
+                postings.remove(id);
+            }
+        }
+    }
+
+    @Override
+    public void onClear() {
+        grams.clear();
+    }
+
+    /**
+     * @return слова текста в нижнем регистре, разделённые одним пробелом
+     */
+    static String normalize(String text) {
+        String composed = needsComposition(text) ? Normalizer.normalize(text, Normalizer.Form.NFKC) : text;
+        StringBuilder result = new StringBuilder(composed.length());
+        boolean separator = false;
+        for (int i = 0; i < composed.length(); i++) {
+            char c = Character.toLowerCase(composed.charAt(i));
+            if (!Character.isLetterOrDigit(c)) {
+                separator = true;
+                continue;
+            }
+            if (separator && !result.isEmpty()) {
+                result.append(' ');
+            }
+            separator = false;
+            result.append(c == 'ё' ? 'е' : c);
+        }
+        return result.toString();
+    }
+
+    // ASCII и основная кириллица под NFKC не меняются, а это почти все названия
+    private static boolean needsComposition(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0xA0 && (c < 0x400 || c >= 0x500)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] words(String normalized) {
+        return normalized.isEmpty() ? new String[0] : normalized.split(" ");
+    }
+
+    private void index(int id, String title) {
+        if (title == null) {
+            return;
+        }
+        for (long gram : titleGrams(title)) {
+            grams.computeIfAbsent(gram, key -> new Postings()).add(id);
+        }
+    }
+
+    private static long[] titleGrams(String title) {
+        String normalized = normalize(title);
+        long[] result = new long[normalized.length() * 3];
+        int count = 0;
+        for (String word : words(normalized)) {
+            count = addDistinct(result, count, prefixGram(word, 1));
+            if (word.length() >= 2) {
+                count = addDistinct(result, count, prefixGram(word, 2));
+            }
+            for (int i = 0; i + 3 <= word.length(); i++) {
+                count = addDistinct(result, count, trigram(word, i));
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    // грамм в названии немного, линейная проверка дешевле множества
+    private static int addDistinct(long[] grams, int count, long gram) {
+        for (int i = 0; i < count; i++) {
+            if (grams[i] == gram) {
+                return count;
+            }
+        }
+        grams[count] = gram;
+        return count + 1;
+    }
+
+    private static long[] queryGrams(String term) {
+        if (term.length() < 3) {
+            return new long[]{prefixGram(term, term.length())};
+        }
+        long[] result = new long[term.length() - 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = trigram(term, i);
+        }
+        return Arrays.stream(result).distinct().toArray();
+    }
+
+    private static long trigram(String word, int from) {
+        return ((long) word.charAt(from) << 32) | ((long) word.charAt(from + 1) << 16) | word.charAt(from + 2);
+    }
+
+    private static long prefixGram(String word, int length) {
+        long gram = PREFIX | ((long) word.charAt(0) << 16);
+        return length == 2 ? gram | word.charAt(1) : gram;
+    }
+
+    // списки отсортированы по id, поэтому позиции в остальных списках только растут
+    private static boolean containsAll(List<Postings.View> lists, int[] positions, int id) {
+        for (int i = 1; i < lists.size(); i++) {
+            Postings.View list = lists.get(i);
+            int position = gallop(list.ids(), positions[i], list.size(), id);
+            positions[i] = position;
+            if (position == list.size() || list.ids()[position] != id) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // первая позиция не меньше from со значением >= id
+    private static int gallop(int[] ids, int from, int size, int id) {
+        int step = 1;
+        int low = from;
+        int high = from;
+        while (high < size && ids[high] < id) {
+            low = high + 1;
+            high += step;
+            step <<= 1;
+        }
+        int index = Arrays.binarySearch(ids, low, Math.min(high, size), id);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    // в слове запроса нет пробелов, поэтому вхождение в нормализованное название всегда внутри одного слова
+    private static boolean matchesAll(String title, String[] terms) {
+        for (String term : terms) {
+            if (term.length() < 3 ? !hasWordStartingWith(title, term) : !title.contains(term)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasWordStartingWith(String title, String prefix) {
+        for (int i = 0; i + prefix.length() <= title.length(); i++) {
+            if ((i == 0 || title.charAt(i - 1) == ' ') && title.startsWith(prefix, i)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int rank(String title, String query, String firstTerm) {
+        if (title.equals(query)) {
+            return 0;
+        }
+        if (title.startsWith(query)) {
+            return 1;
+        }
+        if (hasWordStartingWith(title, firstTerm)) {
+            return 2;
+        }
+        return 3;
+    }
+
+    private record Match(int id, Movie movie, int rank, int length) {
+    }
+
+    /**
+     * Отсортированный список id. Добавление в конец меняет массив только за пределами
+     * уже выданных размеров, остальные изменения создают новый массив, так что читатели обходят
+     * свой снимок без блокировки. Удалённые id копятся и вычищаются, когда их набирается четверть списка;
+     * повторное добавление id отменяет его отложенное удаление.
+     */
+    private static final class Postings {
+        private int[] ids = EMPTY;
+        private int size;
+        private int[] removed = EMPTY;
+        private int removedCount;
+
+        synchronized void add(int id) {
+            if (size > 0 && ids[size - 1] >= id) {
+                int index = Arrays.binarySearch(ids, 0, size, id);
+                if (index >= 0) {
+                    // id удалили и вернули до очистки: отложенное удаление больше не действует
+                    cancelRemoval(id);
+                    return;
+                }
+                int insert = -index - 1;
+                int[] copy = new int[Math.max(size + 1, ids.length)];
+                System.arraycopy(ids, 0, copy, 0, insert);
+                copy[insert] = id;
+                System.arraycopy(ids, insert, copy, insert + 1, size - insert);
+                ids = copy;
+                size++;
+                return;
+            }
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, Math.max(4, size + (size >> 1)));
+            }
+            ids[size++] = id;
+        }
+
+        synchronized void remove(int id) {
+            if (removedCount == removed.length) {
+                removed = Arrays.copyOf(removed, Math.max(MIN_PURGE, removedCount * 2));
+            }
+            removed[removedCount++] = id;
+            if (removedCount >= Math.max(MIN_PURGE, size >> 2)) {
+                purge();
+            }
+        }
+
+        private void cancelRemoval(int id) {
+            int kept = 0;
+            for (int i = 0; i < removedCount; i++) {
+                if (removed[i] != id) {
+                    removed[kept++] = removed[i];
+                }
+            }
+            removedCount = kept;
+        }
+
+        private void purge() {
+            Arrays.sort(removed, 0, removedCount);
+            int[] copy = new int[ids.length];
+            int kept = 0;
+            int r = 0;
+            for (int i = 0; i < size; i++) {
+                int id = ids[i];
+                while (r < removedCount && removed[r] < id) {
+                    r++;
+                }
+                if (r == removedCount || removed[r] != id) {
+                    copy[kept++] = id;
+                }
+            }
+            ids = copy;
+            size = kept;
+            removedCount = 0;
+            if (removed.length > MIN_PURGE * 16) {
+                removed = EMPTY;
+            }
+        }
+
+        synchronized View view() {
+            return new View(ids, size);
+        }
+
+        record View(int[] ids, int size) {
+        }
+    }
+}
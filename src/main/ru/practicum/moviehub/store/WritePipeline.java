@@ -0,0 +1,183 @@
+package ru.practicum.moviehub.store;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Очередь изменений с одним потоком записи: потоки обработчиков только ставят добавления и удаления
+ * в ограниченную очередь, а писатель забирает всё накопившееся и применяет пачкой через
+ * {@link MoviesStore#writeBatch}. Изменения применяются в порядке постановки, результат операции
+ * становится известен после применения всей пачки, а у хранилища с журналом — после её общего fsync.
+ * Если этот fsync не удался, все изменения пачки завершаются ошибкой, хотя уже применены:
+ * их сохранность неизвестна, а хранилище с журналом после такого сбоя отклоняет новые изменения.
+ */
+public class WritePipeline implements Closeable {
+    public static final int DEFAULT_MAX_BATCH = 256;
+    private static final long POLL_MILLIS = 100;
+
+    private final MoviesStore store;
+    private final BlockingQueue<Write> queue;
+    private final int maxBatch;
+    private final Thread writer;
+    private final LongAdder rejected = new LongAdder();
+    // пишет только поток записи
+    private volatile long batches;
+    private volatile long writes;
+    private volatile boolean running = true;
+
+    public WritePipeline(MoviesStore store, int capacity) {
+        this(store, capacity, DEFAULT_MAX_BATCH);
+    }
+
+    /**
+     * @param capacity сколько изменений может ждать в очереди; сверх этого постановка отклоняется
+     * @param maxBatch сколько изменений применяется одной пачкой
+     */
+    public WritePipeline(MoviesStore store, int capacity, int maxBatch) {
+        if (capacity <= 0 || maxBatch <= 0) {
+            throw new IllegalArgumentException("Размер очереди и пачки должен быть больше 0");
+        }
+        this.store = store;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.maxBatch = maxBatch;
+        this.writer = new Thread(this::run, "movies-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * @return id фильма, как у {@link MoviesStore#addMovie}
+     * @throws RejectedExecutionException если очередь заполнена или конвейер остановлен
+     */
+    public CompletableFuture<Integer> add(Movie movie) {
+        return submit(new Write(movie, -1));
+    }
+
+    /**
+     * @return 1, если фильм был удалён, иначе 0
+     * @throws RejectedExecutionException если очередь заполнена или конвейер остановлен
+     */
+    public CompletableFuture<Integer> delete(int id) {
+        return submit(new Write(null, id));
+    }
+
+    private CompletableFuture<Integer> submit(Write write) {
+        if (!running || !queue.offer(write)) {
+            rejected.increment();
+            throw new RejectedExecutionException("Очередь записи заполнена");
+        }
+        // писатель мог завершиться между проверкой и постановкой; тогда изменение никто не применит
+        if (!running && queue.remove(write)) {
+            rejected.increment();
+            throw new RejectedExecutionException("Конвейер записи остановлен");
+        }
+        return write.result;
+    }
+
+    public int getQueued() {
+        return queue.size();
+    }
+
+    public long getBatches() {
+        return batches;
+    }
+
+    public long getWrites() {
+        return writes;
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Применяет уже поставленные изменения и останавливает поток записи.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Write write;
+        while ((write = queue.poll()) != null) {
+            write.result.completeExceptionally(new RejectedExecutionException("Конвейер записи остановлен"));
+        }
+    }
+
+    private void run() {
+        List<Write> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            Write first;
+            try {
+                first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (first == null) {
+                continue;
+            }
+            batch.add(first);
+            queue.drainTo(batch, maxBatch - 1);
+            apply(batch);
+            batch.clear();
+        }
+    }
+
+    private void apply(List<Write> batch) {
+        try {
+            store.writeBatch(() -> {
+                for (Write write : batch) {
+                    // исключение слушателя отменяет только своё изменение, остальные в пачке применяются
+                    try {
+                        write.value = write.movie != null
+                                ? store.addMovie(write.movie)
+                                : store.deleteMovie(write.id) ? 1 : 0;
+                    } catch (RuntimeException e) {
+                        write.error = e;
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            // пачка не зафиксирована: ни одному изменению нельзя ответить успехом, даже уже видимому
+            for (Write write : batch) {
+                write.result.completeExceptionally(e);
+            }
+            return;
+        }
+        batches++;
+        writes += batch.size();
+        for (Write write : batch) {
+            if (write.error != null) {
+                write.result.completeExceptionally(write.error);
+            } else {
+                write.result.complete(write.value);
+            }
+        }
+    }
+
+    private static final class Write {
+        final Movie movie;
+        final int id;
+        final CompletableFuture<Integer> result = new CompletableFuture<>();
+        // заполняются потоком записи до завершения result
+        int value;
+        RuntimeException error;
+
+        Write(Movie movie, int id) {
+            this.movie = movie;
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package ru.practicum.moviehub.store.persistence;
+
+public enum FsyncPolicy {
+    /** Ответ на запись возвращается только после fsync; параллельные записи разделяют один fsync. */
+    ALWAYS,
+    /** fsync выполняется фоновым потоком раз в интервал; при сбое теряется не больше одного интервала. */
+    BATCH,
+    /** fsync только при закрытии и компактизации, остальное на усмотрение ОС. */
+    NONE
+}
@@ -0,0 +1,487 @@
+package ru.practicum.moviehub.store.persistence;
+
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.ConcurrentMoviesStore;
+import ru.practicum.moviehub.store.MoviesPage;
+import ru.practicum.moviehub.store.MoviesSnapshot;
+import ru.practicum.moviehub.store.MoviesStoreListener;
+import ru.practicum.moviehub.store.PersistentIntMap;
+import ru.practicum.moviehub.store.RestorableMoviesStore;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Хранилище поверх отображённого в память снимка: фильмы снимка читаются из файла по запросу,
+ * новые записи копятся в куче (overlay), удаления фильмов снимка — в отдельном множестве.
+ * id в overlay всегда больше id снимка, поэтому общий порядок по id — сначала снимок, затем overlay.
+ * Множество удалений и каталог overlay неизменяемы и подменяются целиком, так что их пара вместе
+ * с файлом снимка образует согласованный {@link MoviesSnapshot}.
+ * Писатели работают с одним State под разделяемой блокировкой, а clear и replaceBase подменяют
+ * State под исключительной, так что изменение не уходит в уже отброшенный overlay.
+ */
+public class MappedMoviesStore implements RestorableMoviesStore {
+    private final List<MoviesStoreListener> listeners = new CopyOnWriteArrayList<>();
+    private final MoviesStoreListener overlayForwarder = new OverlayForwarder();
+    private final Map<Integer, Movie> moviesView = new MoviesView();
+    private volatile State state;
+    private final ReadWriteLock stateLock = new ReentrantReadWriteLock();
+
+    public MappedMoviesStore(MappedSnapshot base) {
+        this.state = newState(base, 0);
+    }
+
+    /**
+     * Подменяет снимок на новый, в который уже вошли все изменения overlay.
+     */
+    void replaceBase(MappedSnapshot base) {
+        stateLock.writeLock().lock();
+        try {
+            state = newState(base, state.version() + 1);
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    private State newState(MappedSnapshot base, long versionOffset) {
+        ConcurrentMoviesStore overlay = new ConcurrentMoviesStore();
+        overlay.advanceNextId(base.getNextId());
+        overlay.addListener(overlayForwarder);
+        return new State(base, overlay, versionOffset);
+    }
+
+    @Override
+    public int addMovie(Movie movie) {
+        stateLock.readLock().lock();
+        try {
+            // удаления из снимка в пределах State не отменяются, поэтому проверка снимка остаётся верной
+            State s = state;
+            int baseId = s.baseId(movie.getTitle());
+            return baseId >= 0 ? baseId : s.overlay.addMovie(movie);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int addMovies(List<Movie> movies, int[] ids) {
+        stateLock.readLock().lock();
+        try {
+            return addMovies(state, movies, ids);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    private static int addMovies(State s, List<Movie> movies, int[] ids) {
+        List<Movie> toOverlay = new ArrayList<>(movies.size());
+        int[] positions = new int[movies.size()];
+        for (int i = 0; i < movies.size(); i++) {
+            int baseId = s.baseId(movies.get(i).getTitle());
+            if (baseId >= 0) {
+                ids[i] = baseId;
+            } else {
+                positions[toOverlay.size()] = i;
+                toOverlay.add(movies.get(i));
+            }
+        }
+        int[] overlayIds = new int[toOverlay.size()];
+        int created = s.overlay.addMovies(toOverlay, overlayIds);
+        for (int i = 0; i < overlayIds.length; i++) {
+            ids[positions[i]] = overlayIds[i];
+        }
+        return created;
+    }
+
+    @Override
+    public Movie getMovie(int id) {
+        State s = state;
+        Movie movie = s.overlay.getMovie(id);
+        if (movie != null) {
+            return movie;
+        }
+        int row = s.baseRow(id);
+        return row < 0 ? null : s.base.movie(row);
+    }
+
+    @Override
+    public int getMovieId(String title) {
+        State s = state;
+        int id = s.overlay.getMovieId(title);
+        return id >= 0 ? id : s.baseId(title);
+    }
+
+    @Override
+    public boolean checkMovie(String title) {
+        return getMovieId(title) >= 0;
+    }
+
+    @Override
+    public boolean containsMovie(int id) {
+        State s = state;
+        return s.overlay.containsMovie(id) || s.baseRow(id) >= 0;
+    }
+
+    @Override
+    public boolean deleteMovie(int id) {
+        stateLock.readLock().lock();
+        try {
+            return deleteMovie(state, id);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    private boolean deleteMovie(State s, int id) {
+        if (s.overlay.deleteMovie(id)) {
+            return true;
+        }
+        int row = s.baseRow(id);
+        if (row < 0) {
+            return false;
+        }
+        // удаления из снимка редки, поэтому они просто идут по одному
+        synchronized (s) {
+            if (s.deletedBase.containsKey(id)) {
+                return false;
+            }
+            // слушатели вызываются до того, как удаление станет видно читателям
+            Movie movie = s.base.movie(row);
+            for (MoviesStoreListener listener : listeners) {
+                listener.onDelete(id, movie);
+            }
+            s.deletedBase = s.deletedBase.put(id, Boolean.TRUE);
+        }
+        return true;
+    }
+
+    @Override
+    public MoviesSnapshot snapshot() {
+        return state.snapshot();
+    }
+
+    @Override
+    public MoviesPage getMoviesPage(int afterId, int limit) {
+        return state.snapshot().getMoviesPage(afterId, limit);
+    }
+
+    @Override
+    public List<Movie> getMoviesByYear(int year) {
+        return getMoviesByYearRange(year, year);
+    }
+
+    @Override
+    public List<Movie> getMoviesByYearRange(int yearFrom, int yearTo) {
+        return state.snapshot().getMoviesByYearRange(yearFrom, yearTo);
+    }
+
+    @Override
+    public int size() {
+        State s = state;
+        return s.base.size() - s.deletedBase.size() + s.overlay.size();
+    }
+
+    @Override
+    public long getVersion() {
+        return state.version();
+    }
+
+    /**
+     * Представление объединяет снимок и overlay и обходится по возрастанию id;
+     * каждый обход идёт по согласованному снимку на момент своего начала.
+     */
+    @Override
+    public Map<Integer, Movie> getMoviesMap() {
+        return moviesView;
+    }
+
+    @Override
+    public void clear() {
+        stateLock.writeLock().lock();
+        try {
+            for (MoviesStoreListener listener : listeners) {
+                listener.onClear();
+            }
+            state = newState(MappedSnapshot.EMPTY, state.version() + 1);
+        } finally {
+            stateLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void putMovie(int id, Movie movie) {
+        stateLock.readLock().lock();
+        try {
+            state.overlay.putMovie(id, movie);
+        } finally {
+            stateLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int getNextId() {
+        return state.overlay.getNextId();
+    }
+
+    @Override
+    public void advanceNextId(int minNextId) {
+        state.overlay.advanceNextId(minNextId);
+    }
+
+    @Override
+    public void addListener(MoviesStoreListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(MoviesStoreListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public String toString() {
+        State s = state;
+        return "MappedMoviesStore{" +
+                "base=" + s.base.size() +
+                ", deletedFromBase=" + s.deletedBase.size() +
+                ", overlay=" + s.overlay.size() +
+                '}';
+    }
+
+    private static final class State {
+        private final MappedSnapshot base;
+        private final ConcurrentMoviesStore overlay;
+        // удалённые id снимка; меняется только под монитором State
+        private volatile PersistentIntMap<Boolean> deletedBase = PersistentIntMap.empty();
+        private final long versionOffset;
+
+        private State(MappedSnapshot base, ConcurrentMoviesStore overlay, long versionOffset) {
+            this.base = base;
+            this.overlay = overlay;
+            this.versionOffset = versionOffset;
+        }
+
+        // удаления из снимка не отменяются, поэтому их число тоже монотонно растёт
+        private long version() {
+            return versionOffset + deletedBase.size() + overlay.getVersion();
+        }
+
+        private View snapshot() {
+            while (true) {
+                PersistentIntMap<Boolean> deleted = deletedBase;
+                MoviesSnapshot overlaySnapshot = overlay.snapshot();
+                // удалений между двумя чтениями не было: пара совпадает с состоянием на момент снимка overlay
+                if (deletedBase == deleted) {
+                    return new View(base, deleted, overlaySnapshot, versionOffset);
+                }
+            }
+        }
+
+        private int baseRow(int id) {
+            int row = base.findRow(id);
+            return row >= 0 && !deletedBase.containsKey(id) ? row : -1;
+        }
+
+        private int baseId(String title) {
+            int row = base.findRowByTitle(title);
+            if (row < 0) {
+                return -1;
+            }
+            int id = base.id(row);
+            return deletedBase.containsKey(id) ? -1 : id;
+        }
+    }
+
+    private static final class View implements MoviesSnapshot {
+        private final MappedSnapshot base;
+        private final PersistentIntMap<Boolean> deletedBase;
+        private final MoviesSnapshot overlay;
+        private final long version;
+
+        private View(MappedSnapshot base, PersistentIntMap<Boolean> deletedBase, MoviesSnapshot overlay,
+                     long versionOffset) {
+            this.base = base;
+            this.deletedBase = deletedBase;
+            this.overlay = overlay;
+            this.version = versionOffset + deletedBase.size() + overlay.getVersion();
+        }
+
+        @Override
+        public long getVersion() {
+            return version;
+        }
+
+        @Override
+        public int size() {
+            return base.size() - deletedBase.size() + overlay.size();
+        }
+
+        @Override
+        public Movie getMovie(int id) {
+            Movie movie = overlay.getMovie(id);
+            if (movie != null) {
+                return movie;
+            }
+            int row = baseRow(id);
+            return row < 0 ? null : base.movie(row);
+        }
+
+        @Override
+        public boolean containsMovie(int id) {
+            return overlay.containsMovie(id) || baseRow(id) >= 0;
+        }
+
+        private int baseRow(int id) {
+            int row = base.findRow(id);
+            return row >= 0 && !deletedBase.containsKey(id) ? row : -1;
+        }
+
+        @Override
+        public MoviesPage getMoviesPage(int afterId, int limit) {
+            List<Movie> movies = new ArrayList<>(Math.min(limit, 1024));
+            int lastId = afterId;
+            for (int row = base.rowAfter(afterId); row < base.size(); row++) {
+                int id = base.id(row);
+                if (deletedBase.containsKey(id)) {
+                    continue;
+                }
+                if (movies.size() == limit) {
+                    return new MoviesPage(movies, lastId, true);
+                }
+                movies.add(base.movie(row));
+                lastId = id;
+            }
+            MoviesPage tail = overlay.getMoviesPage(lastId, limit - movies.size());
+            movies.addAll(tail.getMovies());
+            return new MoviesPage(movies, tail.getLastId(), tail.hasMore());
+        }
+
+        @Override
+        public List<Movie> getMoviesByYear(int year) {
+            return getMoviesByYearRange(year, year);
+        }
+
+        @Override
+        public List<Movie> getMoviesByYearRange(int yearFrom, int yearTo) {
+            List<Movie> result = new ArrayList<>();
+            if (yearFrom > yearTo) {
+                return result;
+            }
+            List<Movie> overlayMovies = overlay.getMoviesByYearRange(yearFrom, yearTo);
+            int overlayPosition = 0;
+            for (int position = base.yearLowerBound(yearFrom); position < base.size(); position++) {
+                int row = base.rowByYear(position);
+                int year = base.year(row);
+                if (year > yearTo) {
+                    break;
+                }
+                // в пределах года фильмы снимка идут раньше: их id меньше
+                while (overlayPosition < overlayMovies.size() && overlayMovies.get(overlayPosition).getYear() < year) {
+                    result.add(overlayMovies.get(overlayPosition++));
+                }
+                if (!deletedBase.containsKey(base.id(row))) {
+                    result.add(base.movie(row));
+                }
+            }
+            result.addAll(overlayMovies.subList(overlayPosition, overlayMovies.size()));
+            return result;
+        }
+
+        @Override
+        public Iterator<Map.Entry<Integer, Movie>> entryIterator() {
+            return new MergedIterator(this);
+        }
+    }
+
+    private class OverlayForwarder implements MoviesStoreListener {
+
+        @Override
+        public void onAdd(int id, Movie movie) {
+            for (MoviesStoreListener listener : listeners) {
+                listener.onAdd(id, movie);
+            }
+        }
+
+        @Override
+        public void onDelete(int id, Movie movie) {
+            for (MoviesStoreListener listener : listeners) {
+                listener.onDelete(id, movie);
+            }
+        }
+
+        @Override
+        public void onClear() {
+            for (MoviesStoreListener listener : listeners) {
+                listener.onClear();
+            }
+        }
+    }
+
+    private class MoviesView extends AbstractMap<Integer, Movie> {
+
+        @Override
+        public Movie get(Object key) {
+            return key instanceof Integer id ? getMovie(id) : null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof Integer id && containsMovie(id);
+        }
+
+        @Override
+        public int size() {
+            return MappedMoviesStore.this.size();
+        }
+
+        @Override
+        public Set<Entry<Integer, Movie>> entrySet() {
+            return state.snapshot().asMap().entrySet();
+        }
+    }
+
+    private static class MergedIterator implements Iterator<Map.Entry<Integer, Movie>> {
+        private final View view;
+        private final Iterator<Map.Entry<Integer, Movie>> overlay;
+        private int row;
+
+        private MergedIterator(View view) {
+            this.view = view;
+            this.overlay = view.overlay.entryIterator();
+            skipDeleted();
+        }
+
+        private void skipDeleted() {
+            while (row < view.base.size() && view.deletedBase.containsKey(view.base.id(row))) {
+                row++;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return row < view.base.size() || overlay.hasNext();
+        }
+
+        @Override
+        public Map.Entry<Integer, Movie> next() {
+            if (row < view.base.size()) {
+                Map.Entry<Integer, Movie> entry = Map.entry(view.base.id(row), view.base.movie(row));
+                row++;
+                skipDeleted();
+                return entry;
+            }
+            if (!overlay.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return overlay.next();
+        }
+    }
+}
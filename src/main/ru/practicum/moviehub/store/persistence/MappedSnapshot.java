@@ -0,0 +1,360 @@
+package ru.practicum.moviehub.store.persistence;
+
+import ru.practicum.moviehub.model.Movie;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Снимок каталога в колоночном формате, который читается через MappedByteBuffer без разбора при старте.
+ * <pre>
+ * заголовок (64 байта): MAGIC, версия формата, поколение журнала, nextId, количество строк,
+ *                       размер хеш-таблицы и смещения секций
+ * ids[n]         — id по возрастанию (по ним бинарный поиск)
+ * years[n]       — год строки
+ * yearOrder[n]   — номера строк, упорядоченные по (год, id)
+ * hash[slots]    — открытая адресация по title.hashCode(): номер строки + 1, 0 — пусто
+ * heap           — названия в UTF-8 подряд
+ * offsets[n + 1] — начало названия строки в heap
+ * </pre>
+ * Все числа little-endian. Файл целиком отображается одним буфером, поэтому ограничен 2 ГБ.
+ */
+public final class MappedSnapshot {
+    static final MappedSnapshot EMPTY = new MappedSnapshot(null, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+
+    private static final int MAGIC = 0x314D484D; // "MHM1"
+    private static final int FORMAT_VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int WRITE_BUFFER_SIZE = 1 << 20;
+
+    private final ByteBuffer buffer;
+    private final long generation;
+    private final int nextId;
+    private final int count;
+    private final int hashSlots;
+    private final int idsPos;
+    private final int yearsPos;
+    private final int yearOrderPos;
+    private final int hashPos;
+    private final int heapPos;
+    private final int offsetsPos;
+
+    private MappedSnapshot(ByteBuffer buffer, long generation, int nextId, int count, int hashSlots,
+                           int idsPos, int yearsPos, int yearOrderPos, int hashPos, int heapPos, int offsetsPos) {
+        this.buffer = buffer;
+        this.generation = generation;
+        this.nextId = nextId;
+        this.count = count;
+        this.hashSlots = hashSlots;
+        this.idsPos = idsPos;
+        this.yearsPos = yearsPos;
+        this.yearOrderPos = yearOrderPos;
+        this.hashPos = hashPos;
+        this.heapPos = heapPos;
+        this.offsetsPos = offsetsPos;
+    }
+
+    /**
+     * Отображает снимок в память. Читается только заголовок, поэтому время не зависит от размера каталога.
+     *
+     * @return {@link #EMPTY}, если файла нет
+     */
+    public static MappedSnapshot open(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return EMPTY;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Некорректный размер снимка каталога: " + file);
+            }
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            ByteBuffer buffer = mapped.order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+                throw new IOException("Файл не является снимком каталога: " + file);
+            }
+            MappedSnapshot snapshot = new MappedSnapshot(buffer, buffer.getLong(8), buffer.getInt(16),
+                    buffer.getInt(20), buffer.getInt(24), buffer.getInt(28), buffer.getInt(32),
+                    buffer.getInt(36), buffer.getInt(40), buffer.getInt(44), buffer.getInt(48));
+            if ((long) snapshot.offsetsPos + 4L * (snapshot.count + 1) != size) {
+                throw new IOException("Снимок каталога повреждён: " + file);
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * Пишет снимок во временный файл и атомарно подменяет им старый.
+     * movies должна обходиться по возрастанию id и не меняться во время записи: она читается дважды.
+     */
+    public static void write(Path file, long generation, int nextId, Map<Integer, Movie> movies) throws IOException {
+        int count = movies.size();
+        int[] ids = new int[count];
+        int[] years = new int[count];
+        int hashSlots = Integer.highestOneBit(Math.max(count, 1) * 2 - 1) << 1;
+        int[] hash = new int[hashSlots];
+        long[] yearKeys = new long[count];
+
+        int row = 0;
+        for (Map.Entry<Integer, Movie> entry : movies.entrySet()) {
+            Movie movie = entry.getValue();
+            ids[row] = entry.getKey();
+            years[row] = movie.getYear();
+            yearKeys[row] = ((long) movie.getYear() << 32) | row;
+            int slot = mix(movie.getTitle().hashCode()) & (hashSlots - 1);
+            while (hash[slot] != 0) {
+                slot = (slot + 1) & (hashSlots - 1);
+            }
+            hash[slot] = row + 1;
+            row++;
+        }
+        if (row != count) {
+            throw new IllegalStateException("Каталог изменился во время записи снимка");
+        }
+        // строки уже идут по возрастанию id, поэтому сортировка по (год, строка) даёт порядок (год, id)
+        Arrays.sort(yearKeys);
+
+        int idsPos = HEADER_SIZE;
+        int yearsPos = idsPos + 4 * count;
+        int yearOrderPos = yearsPos + 4 * count;
+        int hashPos = yearOrderPos + 4 * count;
+        int heapPos = hashPos + 4 * hashSlots;
+
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            SectionWriter out = new SectionWriter(channel, HEADER_SIZE);
+            for (int id : ids) {
+                out.putInt(id);
+            }
+            for (int year : years) {
+                out.putInt(year);
+            }
+            for (long key : yearKeys) {
+                out.putInt((int) key);
+            }
+            for (int slot : hash) {
+                out.putInt(slot);
+            }
+
+            int[] offsets = new int[count + 1];
+            long heapSize = 0;
+            row = 0;
+            for (Movie movie : movies.values()) {
+                offsets[row++] = (int) heapSize;
+                byte[] title = movie.getTitle().getBytes(StandardCharsets.UTF_8);
+                heapSize += title.length;
+                if (heapPos + heapSize + 4L * (count + 1) > Integer.MAX_VALUE) {
+                    throw new IOException("Снимок каталога не помещается в 2 ГБ");
+                }
+                out.putBytes(title);
+            }
+            offsets[count] = (int) heapSize;
+            int offsetsPos = (int) (heapPos + heapSize);
+            for (int offset : offsets) {
+                out.putInt(offset);
+            }
+            out.flush();
+
+            // заголовок пишется последним: до этого момента файл не проходит проверку в open()
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(generation).putInt(nextId).putInt(count)
+                    .putInt(hashSlots).putInt(idsPos).putInt(yearsPos).putInt(yearOrderPos).putInt(hashPos)
+                    .putInt(heapPos).putInt(offsetsPos);
+            header.clear();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        // без fsync каталога переименование может не пережить сбой, а журнал после этого уже очищается
+        syncDirectory(file.toAbsolutePath().getParent());
+    }
+
+    static void syncDirectory(Path dir) throws IOException {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        }
+    }
+
+    private static int mix(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public int getNextId() {
+        return nextId;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int id(int row) {
+        return buffer.getInt(idsPos + 4 * row);
+    }
+
+    public int year(int row) {
+        return buffer.getInt(yearsPos + 4 * row);
+    }
+
+    public String title(int row) {
+        int start = buffer.getInt(offsetsPos + 4 * row);
+        int end = buffer.getInt(offsetsPos + 4 * row + 4);
+        byte[] bytes = new byte[end - start];
+        buffer.get(heapPos + start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public Movie movie(int row) {
+        return new Movie(title(row), year(row));
+    }
+
+    /**
+     * @return номер строки с указанным id или -1
+     */
+    public int findRow(int id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = id(mid);
+            if (midId < id) {
+                low = mid + 1;
+            } else if (midId > id) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return номер первой строки с id больше afterId (может быть равен size())
+     */
+    public int rowAfter(int afterId) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (id(mid) <= afterId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return номер строки с таким названием или -1
+     */
+    public int findRowByTitle(String title) {
+        if (count == 0) {
+            return -1;
+        }
+        byte[] expected = null;
+        int slot = mix(title.hashCode()) & (hashSlots - 1);
+        while (true) {
+            int row = buffer.getInt(hashPos + 4 * slot) - 1;
+            if (row < 0) {
+                return -1;
+            }
+            if (expected == null) {
+                expected = title.getBytes(StandardCharsets.UTF_8);
+            }
+            if (titleEquals(row, expected)) {
+                return row;
+            }
+            slot = (slot + 1) & (hashSlots - 1);
+        }
+    }
+
+    private boolean titleEquals(int row, byte[] expected) {
+        int start = buffer.getInt(offsetsPos + 4 * row);
+        int end = buffer.getInt(offsetsPos + 4 * row + 4);
+        if (end - start != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (buffer.get(heapPos + start + i) != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return позиция в порядке (год, id) первой строки с годом не меньше year
+     */
+    public int yearLowerBound(int year) {
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (year(rowByYear(mid)) < year) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    public int rowByYear(int position) {
+        return buffer.getInt(yearOrderPos + 4 * position);
+    }
+
+    private static final class SectionWriter {
+        private final FileChannel channel;
+        private final ByteBuffer out = ByteBuffer.allocateDirect(WRITE_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private long position;
+
+        private SectionWriter(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        private void putInt(int value) throws IOException {
+            if (out.remaining() < 4) {
+                flush();
+            }
+            out.putInt(value);
+        }
+
+        private void putBytes(byte[] bytes) throws IOException {
+            int written = 0;
+            while (written < bytes.length) {
+                if (!out.hasRemaining()) {
+                    flush();
+                }
+                int chunk = Math.min(out.remaining(), bytes.length - written);
+                out.put(bytes, written, chunk);
+                written += chunk;
+            }
+        }
+
+        private void flush() throws IOException {
+            out.flip();
+            while (out.hasRemaining()) {
+                position += channel.write(out, position);
+            }
+            out.clear();
+        }
+    }
+}
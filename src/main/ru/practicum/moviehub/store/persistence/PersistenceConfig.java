@@ -0,0 +1,58 @@
+package ru.practicum.moviehub.store.persistence;
+
+import java.nio.file.Path;
+
+public class PersistenceConfig {
+    private final Path dataDir;
+    private FsyncPolicy fsyncPolicy = FsyncPolicy.BATCH;
+    private long batchIntervalMillis = 10;
+    private long compactThresholdBytes = 64L * 1024 * 1024;
+
+    public PersistenceConfig(Path dataDir) {
+        this.dataDir = dataDir;
+    }
+
+    public Path getDataDir() {
+        return dataDir;
+    }
+
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    public PersistenceConfig setFsyncPolicy(FsyncPolicy fsyncPolicy) {
+        this.fsyncPolicy = fsyncPolicy;
+        return this;
+    }
+
+    public long getBatchIntervalMillis() {
+        return batchIntervalMillis;
+    }
+
+    public PersistenceConfig setBatchIntervalMillis(long batchIntervalMillis) {
+        this.batchIntervalMillis = batchIntervalMillis;
+        return this;
+    }
+
+    public long getCompactThresholdBytes() {
+        return compactThresholdBytes;
+    }
+
+    /**
+     * Размер журнала, после которого он сворачивается в снимок. 0 или меньше — только вручную.
+     */
+    public PersistenceConfig setCompactThresholdBytes(long compactThresholdBytes) {
+        this.compactThresholdBytes = compactThresholdBytes;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return "PersistenceConfig{" +
+                "dataDir=" + dataDir +
+                ", fsyncPolicy=" + fsyncPolicy +
+                ", batchIntervalMillis=" + batchIntervalMillis +
+                ", compactThresholdBytes=" + compactThresholdBytes +
+                '}';
+    }
+}
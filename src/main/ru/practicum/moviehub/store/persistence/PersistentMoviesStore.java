@@ -0,0 +1,363 @@
+package ru.practicum.moviehub.store.persistence;
+
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.MoviesPage;
+import ru.practicum.moviehub.store.MoviesSnapshot;
+import ru.practicum.moviehub.store.MoviesStore;
+import ru.practicum.moviehub.store.MoviesStoreListener;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Хранилище с журналом: каждое изменение сначала пишется в журнал, затем применяется в памяти.
+ * С {@link FsyncPolicy#ALWAYS} запись возвращается только после fsync, но ждёт его уже после
+ * применения: слушатели вызываются под блокировкой корзины ConcurrentHashMap, и fsync под ней
+ * держал бы всех писателей той же корзины, а при росте таблицы — всех. Поэтому изменение видно
+ * читателям и слушателям чуть раньше, чем сохранено, как и пачка ({@link #writeBatch},
+ * {@link #addMovies}), которая фиксируется одним fsync в конце. После сбоя fsync неизвестно, что из
+ * незафиксированного попало на диск, и хранилище перестаёт принимать изменения до перезапуска.
+ * Журнал периодически сворачивается в снимок; при старте снимок отображается в память
+ * и применяется хвост журнала.
+ */
+public class PersistentMoviesStore implements MoviesStore, Closeable {
+    static final String SNAPSHOT_FILE = "movies.snapshot";
+    static final String WAL_FILE = "movies.wal";
+
+    private final MappedMoviesStore delegate;
+    private final PersistenceConfig config;
+    final WriteAheadLog wal;
+    private final Path snapshotFile;
+    // изменения берут read-lock, компактизация — write-lock, чтобы снимок совпал с концом журнала
+    private final ReadWriteLock compactionLock = new ReentrantReadWriteLock();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final ScheduledExecutorService background;
+    // поток внутри writeBatch откладывает fsync до конца пачки
+    private final ThreadLocal<Boolean> inBatch = ThreadLocal.withInitial(() -> false);
+    // конец последней записи журнала этого потока, которую под ALWAYS ещё нужно дождаться на диске
+    private final ThreadLocal<long[]> pendingSync = ThreadLocal.withInitial(() -> new long[1]);
+    // первый сбой fsync; после него изменения отклоняются
+    private volatile IOException syncFailure;
+
+    private PersistentMoviesStore(MappedMoviesStore delegate, PersistenceConfig config, WriteAheadLog wal) {
+        this.delegate = delegate;
+        this.config = config;
+        this.wal = wal;
+        this.snapshotFile = config.getDataDir().resolve(SNAPSHOT_FILE);
+        this.background = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "movies-persistence");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (config.getFsyncPolicy() == FsyncPolicy.BATCH) {
+            background.scheduleWithFixedDelay(this::syncQuietly, config.getBatchIntervalMillis(),
+                    config.getBatchIntervalMillis(), TimeUnit.MILLISECONDS);
+        }
+        delegate.addListener(new WalListener());
+    }
+
+    public static PersistentMoviesStore open(PersistenceConfig config) throws IOException {
+        Files.createDirectories(config.getDataDir());
+        // снимок только отображается в память, поэтому старт не зависит от размера каталога
+        MappedSnapshot snapshot = MappedSnapshot.open(config.getDataDir().resolve(SNAPSHOT_FILE));
+        MappedMoviesStore delegate = new MappedMoviesStore(snapshot);
+        WriteAheadLog wal = WriteAheadLog.openAndReplay(config.getDataDir().resolve(WAL_FILE),
+                snapshot.getGeneration(), delegate);
+        return new PersistentMoviesStore(delegate, config, wal);
+    }
+
+    @Override
+    public int addMovie(Movie movie) {
+        int id;
+        compactionLock.readLock().lock();
+        try {
+            id = delegate.addMovie(movie);
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+        afterWrite();
+        return id;
+    }
+
+    @Override
+    public int addMovies(List<Movie> movies, int[] ids) {
+        int[] created = new int[1];
+        // список фиксируется одним fsync, как пачка
+        writeBatch(() -> {
+            compactionLock.readLock().lock();
+            try {
+                created[0] = delegate.addMovies(movies, ids);
+            } finally {
+                compactionLock.readLock().unlock();
+            }
+        });
+        return created[0];
+    }
+
+    @Override
+    public boolean deleteMovie(int id) {
+        boolean removed;
+        compactionLock.readLock().lock();
+        try {
+            removed = delegate.deleteMovie(id);
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+        if (removed) {
+            afterWrite();
+        }
+        return removed;
+    }
+
+    @Override
+    public void clear() {
+        compactionLock.readLock().lock();
+        try {
+            delegate.clear();
+        } finally {
+            compactionLock.readLock().unlock();
+        }
+        afterWrite();
+    }
+
+    @Override
+    public void writeBatch(Runnable writes) {
+        if (inBatch.get()) {
+            writes.run();
+            return;
+        }
+        inBatch.set(true);
+        try {
+            writes.run();
+        } finally {
+            inBatch.set(false);
+        }
+        afterWrite();
+    }
+
+    // вызывается вне блокировок хранилища, поэтому fsync не держит других писателей
+    private void awaitDurable() {
+        long[] pending = pendingSync.get();
+        long position = pending[0];
+        if (position == 0) {
+            return;
+        }
+        pending[0] = 0;
+        if (config.getFsyncPolicy() == FsyncPolicy.ALWAYS) {
+            syncLog(position);
+        }
+    }
+
+    private void afterWrite() {
+        if (inBatch.get()) {
+            return;
+        }
+        awaitDurable();
+        long threshold = config.getCompactThresholdBytes();
+        if (threshold > 0 && wal.size() > threshold && compacting.compareAndSet(false, true)) {
+            background.execute(() -> {
+                try {
+                    compact();
+                } catch (IOException e) {
+                    System.err.println("Не удалось свернуть журнал: " + e.getMessage());
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Сворачивает журнал в снимок. Записи на время компактизации приостанавливаются.
+     */
+    public void compact() throws IOException {
+        compactionLock.writeLock().lock();
+        try {
+            long nextGeneration = wal.getGeneration() + 1;
+            MappedSnapshot.write(snapshotFile, nextGeneration, delegate.getNextId(), delegate.getMoviesMap());
+            wal.reset(nextGeneration);
+            // новый снимок уже содержит всё из overlay, поэтому куча освобождается
+            delegate.replaceBase(MappedSnapshot.open(snapshotFile));
+        } finally {
+            compactionLock.writeLock().unlock();
+        }
+    }
+
+    public void sync() throws IOException {
+        wal.sync();
+    }
+
+    private void syncQuietly() {
+        try {
+            syncLog();
+        } catch (UncheckedIOException e) {
+            System.err.println(e.getMessage() + ": " + e.getCause().getMessage());
+        }
+    }
+
+    private void syncLog() {
+        syncLog(wal.size());
+    }
+
+    private void syncLog(long position) {
+        try {
+            wal.syncTo(position);
+        } catch (IOException e) {
+            syncFailure = e;
+            throw new UncheckedIOException("Не удалось зафиксировать журнал", e);
+        }
+    }
+
+    public long getLogSize() {
+        return wal.size();
+    }
+
+    public PersistenceConfig getConfig() {
+        return config;
+    }
+
+    @Override
+    public void close() throws IOException {
+        background.shutdown();
+        try {
+            background.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        compactionLock.writeLock().lock();
+        try {
+            wal.close();
+        } finally {
+            compactionLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Movie getMovie(int id) {
+        return delegate.getMovie(id);
+    }
+
+    @Override
+    public int getMovieId(String title) {
+        return delegate.getMovieId(title);
+    }
+
+    @Override
+    public boolean checkMovie(String title) {
+        return delegate.checkMovie(title);
+    }
+
+    @Override
+    public boolean containsMovie(int id) {
+        return delegate.containsMovie(id);
+    }
+
+    @Override
+    public MoviesPage getMoviesPage(int afterId, int limit) {
+        return delegate.getMoviesPage(afterId, limit);
+    }
+
+    @Override
+    public List<Movie> getMoviesByYear(int year) {
+        return delegate.getMoviesByYear(year);
+    }
+
+    @Override
+    public List<Movie> getMoviesByYearRange(int yearFrom, int yearTo) {
+        return delegate.getMoviesByYearRange(yearFrom, yearTo);
+    }
+
+    @Override
+    public int size() {
+        return delegate.size();
+    }
+
+    @Override
+    public long getVersion() {
+        return delegate.getVersion();
+    }
+
+    @Override
+    public MoviesSnapshot snapshot() {
+        return delegate.snapshot();
+    }
+
+    @Override
+    public Map<Integer, Movie> getMoviesMap() {
+        return delegate.getMoviesMap();
+    }
+
+    @Override
+    public void addListener(MoviesStoreListener listener) {
+        delegate.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(MoviesStoreListener listener) {
+        delegate.removeListener(listener);
+    }
+
+    @Override
+    public String toString() {
+        return "PersistentMoviesStore{" +
+                "config=" + config +
+                ", delegate=" + delegate +
+                '}';
+    }
+
+    /**
+     * Идёт первым среди слушателей, поэтому изменение попадает в журнал раньше, чем его увидят
+     * читатели и остальные слушатели; исключение отменяет изменение. fsync здесь не делается:
+     * его дожидается сам писатель после выхода из хранилища.
+     */
+    private class WalListener implements MoviesStoreListener {
+
+        @Override
+        public void onAdd(int id, Movie movie) {
+            checkWritable();
+            try {
+                pendingSync.get()[0] = wal.appendAdd(id, movie);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось записать журнал", e);
+            }
+        }
+
+        @Override
+        public void onDelete(int id, Movie movie) {
+            checkWritable();
+            try {
+                pendingSync.get()[0] = wal.appendDelete(id);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось записать журнал", e);
+            }
+        }
+
+        @Override
+        public void onClear() {
+            checkWritable();
+            try {
+                pendingSync.get()[0] = wal.appendClear();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Не удалось записать журнал", e);
+            }
+        }
+
+        private void checkWritable() {
+            IOException failure = syncFailure;
+            if (failure != null) {
+                throw new UncheckedIOException("Журнал недоступен после сбоя fsync", failure);
+            }
+        }
+    }
+}
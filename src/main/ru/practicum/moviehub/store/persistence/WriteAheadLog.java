@@ -0,0 +1,241 @@
+package ru.practicum.moviehub.store.persistence;
+
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.RestorableMoviesStore;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * Журнал изменений хранилища. Файл начинается с long поколения, затем идут записи:
+ * <pre>[int длина тела][тело: byte тип, данные][int CRC32C тела]</pre>
+ * ADD: int id, int год, int длина названия, UTF-8 название; DELETE: int id; CLEAR: без данных.
+ * Поколение растёт при каждой компактизации, так что журнал, уже вошедший в снимок, не применяется повторно.
+ */
+public class WriteAheadLog implements Closeable {
+    static final byte ADD = 1;
+    static final byte DELETE = 2;
+    static final byte CLEAR = 3;
+    static final int HEADER_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 1 << 20;
+
+    final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_RECORD_SIZE + 8);
+    private final CRC32C crc = new CRC32C();
+    private final Object syncLock = new Object();
+    private long generation;
+    // пишется под this, читается без блокировки в sync()
+    private volatile long writtenPosition;
+    private volatile long durablePosition;
+
+    private WriteAheadLog(FileChannel channel, long generation, long position) {
+        this.channel = channel;
+        this.generation = generation;
+        this.writtenPosition = position;
+        this.durablePosition = position;
+    }
+
+    /**
+     * Открывает журнал на запись, предварительно применив его содержимое к store.
+     * Журнал поколения старше snapshotGeneration уже учтён в снимке и отбрасывается.
+     * Журнал поколения новее снимка означает, что снимок, на котором он начат, потерян:
+     * применять его к старому снимку нельзя, поэтому открытие завершается ошибкой.
+     * Оборванная или повреждённая последняя запись отбрасывается.
+     */
+    public static WriteAheadLog openAndReplay(Path file, long snapshotGeneration, RestorableMoviesStore store)
+            throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            long generation = readGeneration(channel);
+            if (generation < snapshotGeneration) {
+                writeHeader(channel, snapshotGeneration);
+                return new WriteAheadLog(channel, snapshotGeneration, HEADER_SIZE);
+            }
+            if (generation > snapshotGeneration) {
+                throw new IOException("Журнал поколения " + generation + " новее снимка поколения "
+                        + snapshotGeneration + ": снимок потерян, журнал к нему не применим");
+            }
+            long validLength = replay(channel, store);
+            if (validLength < channel.size()) {
+                channel.truncate(validLength);
+                channel.force(true);
+            }
+            channel.position(validLength);
+            return new WriteAheadLog(channel, generation, validLength);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static long readGeneration(FileChannel channel) throws IOException {
+        if (channel.size() < HEADER_SIZE) {
+            return -1;
+        }
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining()) {
+            channel.read(header, header.position());
+        }
+        return header.flip().getLong();
+    }
+
+    private static void writeHeader(FileChannel channel, long generation) throws IOException {
+        channel.truncate(0);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putLong(generation).flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.position(HEADER_SIZE);
+        channel.force(true);
+    }
+
+    private static long replay(FileChannel channel, RestorableMoviesStore store) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4);
+        CRC32C crc = new CRC32C();
+        long position = HEADER_SIZE;
+        long size = channel.size();
+        while (position + 4 <= size) {
+            header.clear();
+            channel.read(header, position);
+            int length = header.flip().getInt();
+            if (length <= 0 || length > MAX_RECORD_SIZE || position + 8 + length > size) {
+                break;
+            }
+            ByteBuffer record = ByteBuffer.allocate(length + 4);
+            while (record.hasRemaining()) {
+                if (channel.read(record, position + 4 + record.position()) < 0) {
+                    break;
+                }
+            }
+            record.flip();
+            crc.reset();
+            crc.update(record.array(), 0, length);
+            if ((int) crc.getValue() != record.getInt(length)) {
+                break;
+            }
+            apply(record, store);
+            position += 8 + length;
+        }
+        return position;
+    }
+
+    private static void apply(ByteBuffer record, RestorableMoviesStore store) {
+        switch (record.get()) {
+            case ADD -> {
+                int id = record.getInt();
+                int year = record.getInt();
+                byte[] title = new byte[record.getInt()];
+                record.get(title);
+                store.putMovie(id, new Movie(new String(title, StandardCharsets.UTF_8), year));
+            }
+            case DELETE -> store.deleteMovie(record.getInt());
+            case CLEAR -> store.clear();
+            default -> throw new IllegalStateException("Неизвестный тип записи журнала");
+        }
+    }
+
+    public synchronized long appendAdd(int id, Movie movie) throws IOException {
+        byte[] title = movie.getTitle().getBytes(StandardCharsets.UTF_8);
+        if (title.length > MAX_RECORD_SIZE - 13) {
+            throw new IOException("Слишком длинное название для журнала");
+        }
+        begin(ADD).putInt(id).putInt(movie.getYear()).putInt(title.length).put(title);
+        return finish();
+    }
+
+    public synchronized long appendDelete(int id) throws IOException {
+        begin(DELETE).putInt(id);
+        return finish();
+    }
+
+    public synchronized long appendClear() throws IOException {
+        begin(CLEAR);
+        return finish();
+    }
+
+    private ByteBuffer begin(byte type) {
+        buffer.clear();
+        buffer.position(4);
+        return buffer.put(type);
+    }
+
+    // возвращает позицию конца записи, до которой её дожидается syncTo
+    private long finish() throws IOException {
+        int length = buffer.position() - 4;
+        buffer.putInt(0, length);
+        crc.reset();
+        crc.update(buffer.slice(4, length));
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        writtenPosition += length + 8;
+        return writtenPosition;
+    }
+
+    /**
+     * Групповая фиксация: первый пришедший поток делает fsync за всех, кто успел записаться до него,
+     * остальные находят свою запись уже сохранённой и выходят без собственного fsync.
+     */
+    public void sync() throws IOException {
+        syncTo(writtenPosition);
+    }
+
+    /**
+     * Дожидается, пока журнал будет сохранён на диск хотя бы до position.
+     */
+    public void syncTo(long target) throws IOException {
+        if (durablePosition >= target) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (durablePosition >= target) {
+                return;
+            }
+            long covered = writtenPosition;
+            channel.force(false);
+            durablePosition = covered;
+        }
+    }
+
+    public long size() {
+        return writtenPosition;
+    }
+
+    long durableSize() {
+        return durablePosition;
+    }
+
+    public synchronized long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Начинает новое поколение журнала после того, как содержимое текущего попало в снимок.
+     */
+    public synchronized void reset(long newGeneration) throws IOException {
+        synchronized (syncLock) {
+            writeHeader(channel, newGeneration);
+            generation = newGeneration;
+            writtenPosition = HEADER_SIZE;
+            durablePosition = HEADER_SIZE;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package ru.practicum.moviehub.api;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.model.Movie;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MovieCodecTest {
+    private final Gson gson = new Gson();
+
+    @Test
+    @DisplayName("Кодек пишет те же байты, что и Gson, включая экранирование")
+    void encode_matchesGson() {
+        List<Movie> movies = List.of(
+                new Movie("Волколак", 1994),
+                new Movie("<Кин-дза-дза!> & \"друзья\" = 'ку'", -5),
+                new Movie("Tab\tи\nперевод\u0001 \u2028 😀 \\", Integer.MIN_VALUE),
+                new Movie(null, 2000));
+
+        for (Movie movie : movies) {
+            assertEquals(gson.toJson(movie), string(MovieCodec.encodeMovie(movie)));
+        }
+        assertEquals(gson.toJson(Map.of(7, movies.get(1))), string(MovieCodec.encodeCreated(7, movies.get(1))));
+
+        JsonBuffer list = new JsonBuffer(16);
+        MovieCodec.writeMovies(list, movies);
+        assertEquals(gson.toJson(movies), string(list));
+        assertEquals(gson.toJson(new MoviesPageResponse(movies, "abc")), string(MovieCodec.encodePage(movies, "abc")));
+        assertEquals(gson.toJson(new MoviesPageResponse(List.of(), null)), string(MovieCodec.encodePage(List.of(), null)));
+
+        ErrorResponse error = new ErrorResponse("Ошибка валидации!", List.of("Раз", "Два"));
+        assertEquals(gson.toJson(error.getErrorMap()), new String(MovieCodec.encodeError(error), StandardCharsets.UTF_8));
+        assertEquals(gson.toJson(List.of("Фильм не найден")),
+                new String(MovieCodec.encodeError(ErrorResponse.of("Фильм не найден")), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Разбор тела запроса: экранирование, лишние поля, null и ошибки")
+    void decode_movie() throws IOException {
+        Movie movie = decode("{\"extra\":{\"a\":[1,2,{\"b\":null}]},\"title\":\"Брат \\\"2\\\" \\u0416\",\"year\":2000.0}");
+        assertEquals("Брат \"2\" Ж", movie.getTitle());
+        assertEquals(2000, movie.getYear());
+
+        Movie withoutYear = decode(" { \"title\" : \"Брат\" } ");
+        assertEquals(0, withoutYear.getYear());
+        assertEquals("1997", decode("{\"title\":1997,\"year\":\"1997\"}").getTitle());
+        assertNull(decode(""));
+        assertNull(decode("null"));
+        assertNull(decode("{}").getTitle());
+
+        for (String invalid : List.of("{", "[]", "{\"title\":\"Брат\"} x", "{\"title\" \"Брат\"}",
+                "{\"title\":\"Брат\",\"year\":1997.5}", "{\"title\":\"Брат", "{\"year\":99999999999}")) {
+            assertThrows(JsonParseException.class, () -> decode(invalid), invalid);
+        }
+    }
+
+    @Test
+    @DisplayName("Разбор так же снисходителен, как Gson.fromJson, и отвергает то же, что и он")
+    void decode_lenientLikeGson() throws IOException {
+        List<String> inputs = List.of(
+                "{title:'Брат',year:1997}",
+                "{'title':\"Брат\";'year'=>'1997'}",
+                "{title=Брат 2,year=2000}",
+                "{title:Брат,year:NULL}",
+                "{title:TRUE,year:1e3}",
+                "{title:1997abc}",
+                ")]}'\n{\"title\":\"Брат\"}",
+                "# комментарий\n{/* тоже */\"title\": \"Брат\" // и так\n}",
+                "{\"extra\":[1,,2,],\"title\":'Брат \\' \\\n'}",
+                "{\"title\":\"\\u+041\"}",
+                "{\"title\":\"\\u-041\"}",
+                "{\"title\":\"\\u0Ж16\"}",
+                "{title:/Брат}",
+                "{,title:Брат}",
+                "{title:Брат,}",
+                "{title:Брат} x",
+                "{year:NaN}",
+                "{\"title\":\"Брат\" /* без конца");
+        for (String json : inputs) {
+            Movie expected;
+            try {
+                expected = gson.fromJson(new StringReader(json), Movie.class);
+            } catch (JsonParseException | NumberFormatException e) {
+                // плохую escape-последовательность Gson отвергает через NumberFormatException, кодек — как JSON-ошибку
+                assertThrows(JsonParseException.class, () -> decode(json), json);
+                continue;
+            }
+            Movie actual = decode(json);
+            assertEquals(expected.getTitle(), actual.getTitle(), json);
+            assertEquals(expected.getYear(), actual.getYear(), json);
+        }
+        assertEquals("Брат", decode("{title:'Брат',year:1997}").getTitle());
+    }
+
+    private static Movie decode(String json) throws IOException {
+        return MovieCodec.decodeMovie(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String string(JsonBuffer buffer) {
+        return new String(buffer.array(), 0, buffer.length(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,45 @@
+package ru.practicum.moviehub.bench;
+
+import ru.practicum.moviehub.http.MoviesHandler;
+import ru.practicum.moviehub.http.StubHttpExchange;
+import ru.practicum.moviehub.store.ConcurrentMoviesStore;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.io.IOException;
+
+/**
+ * Скорость загрузки каталога через POST /movies/batch (NDJSON) в сравнении с поштучными POST /movies.
+ */
+public class BatchImportBenchmark {
+    private static final int MOVIES = 1_000_000;
+
+    public static void main(String[] args) throws IOException {
+        StringBuilder ndjson = new StringBuilder(MOVIES * 40);
+        for (int i = 0; i < MOVIES; i++) {
+            ndjson.append("{\"title\":\"Фильм ").append(i).append("\",\"year\":").append(1900 + i % 120).append("}\n");
+        }
+        String body = ndjson.toString();
+
+        for (int run = 0; run < 3; run++) {
+            MoviesStore store = new ConcurrentMoviesStore();
+            MoviesHandler handler = new MoviesHandler(store);
+            StubHttpExchange ex = new StubHttpExchange().discardResponseBody();
+            ex.reset("POST", "/movies/batch", body);
+            long start = System.nanoTime();
+            handler.handle(ex);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            Bench.report("POST /movies/batch", "movies=" + MOVIES + " run=" + run, seconds * 1e9 / MOVIES);
+            System.out.printf("  %d фильмов за %.2f с (%.0f фильмов/с), статус %d%n",
+                    store.size(), seconds, MOVIES / seconds, ex.getResponseCode());
+        }
+
+        MoviesStore store = new ConcurrentMoviesStore();
+        MoviesHandler handler = new MoviesHandler(store);
+        StubHttpExchange ex = new StubHttpExchange().discardResponseBody();
+        int single = 100_000;
+        Bench.report("POST /movies (one by one)", "movies=" + single, Bench.nsPerOp(0, single, i -> {
+            ex.reset("POST", "/movies", "{\"title\":\"Фильм " + i + "\",\"year\":1990}");
+            HandlerBenchmark.call(handler, ex);
+        }));
+    }
+}
@@ -0,0 +1,108 @@
+package ru.practicum.moviehub.bench;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+
+/**
+ * Простейший харнесс для микробенчмарков: прогрев, замер, вывод строки результата.
+ */
+public final class Bench {
+    private static final long TIMEOUT_MINUTES = 10;
+    private static volatile Object sink;
+
+    private Bench() {
+    }
+
+    public static double nsPerOp(int warmup, int iterations, IntConsumer operation) {
+        for (int i = 0; i < warmup; i++) {
+            operation.accept(i);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            operation.accept(i);
+        }
+        return (double) (System.nanoTime() - start) / iterations;
+    }
+
+    /**
+     * Запускает операцию в threads потоках одновременно; каждый поток получает свой диапазон номеров.
+     * Ошибка любого потока пробрасывается из замера, а зависший поток не держит JVM.
+     *
+     * @return среднее время операции с точки зрения пропускной способности (стена / число операций)
+     */
+    public static double nsPerOp(int threads, int warmup, int iterations, IntConsumer operation) {
+        if (threads == 1) {
+            return nsPerOp(warmup, iterations, operation);
+        }
+        // потоки отмечаются в ready и после ошибки прогрева, чтобы замер не ждал их до таймаута
+        CountDownLatch ready = new CountDownLatch(threads);
+        CountDownLatch go = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        for (int t = 0; t < threads; t++) {
+            int base = t * (warmup + iterations);
+            Thread worker = new Thread(() -> {
+                boolean warmedUp = false;
+                try {
+                    for (int i = 0; i < warmup; i++) {
+                        operation.accept(base + i);
+                    }
+                    warmedUp = true;
+                    ready.countDown();
+                    go.await();
+                    for (int i = warmup; i < warmup + iterations; i++) {
+                        operation.accept(base + i);
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                } finally {
+                    if (!warmedUp) {
+                        ready.countDown();
+                    }
+                    done.countDown();
+                }
+            });
+            worker.setDaemon(true);
+            worker.start();
+        }
+        await(ready, failure, threads);
+        long start = System.nanoTime();
+        go.countDown();
+        await(done, failure, threads);
+        return (double) (System.nanoTime() - start) / ((long) threads * iterations);
+    }
+
+    private static void await(CountDownLatch latch, AtomicReference<Throwable> failure, int threads) {
+        try {
+            if (!latch.await(TIMEOUT_MINUTES, TimeUnit.MINUTES)) {
+                throw new IllegalStateException("Замер в " + threads + " потоках не уложился в " + TIMEOUT_MINUTES
+                        + " мин");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        if (failure.get() != null) {
+            throw new IllegalStateException("Замер в " + threads + " потоках завершился ошибкой", failure.get());
+        }
+    }
+
+    /**
+     * Включает TCP_NODELAY для JDK-движка, как это делает MovieHubApp; вызывается до запуска первого сервера.
+     */
+    public static void enableNoDelay() {
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    public static void consume(Object value) {
+        sink = value;
+    }
+
+    public static void report(String benchmark, String params, double nsPerOp) {
+        System.out.printf("%-40s %-30s %12.1f ns/op%n", benchmark, params, nsPerOp);
+    }
+}
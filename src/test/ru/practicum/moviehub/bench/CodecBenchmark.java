@@ -0,0 +1,73 @@
+package ru.practicum.moviehub.bench;
+
+import com.google.gson.Gson;
+import ru.practicum.moviehub.api.JsonBuffer;
+import ru.practicum.moviehub.api.MovieCodec;
+import ru.practicum.moviehub.api.MoviesPageResponse;
+import ru.practicum.moviehub.model.Movie;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Время и объём выделенной памяти на запрос: рефлексивный Gson (как было) против MovieCodec.
+ * Для каждого пути моделируется то, что делает обработчик: разбор тела и/или байты ответа.
+ */
+public class CodecBenchmark {
+    private static final int WARMUP = 200_000;
+    private static final int ITERATIONS = 200_000;
+
+    public static void main(String[] args) {
+        Gson gson = new Gson();
+        Movie movie = new Movie("Кин-дза-дза!", 1986);
+        byte[] postBody = "{\"title\":\"Кин-дза-дза!\",\"year\":1986}".getBytes(StandardCharsets.UTF_8);
+        List<Movie> page = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            page.add(new Movie("Фильм " + i, 1900 + i));
+        }
+
+        measure("GET /movies/{id}, Gson", i -> Bench.consume(gson.toJson(movie).getBytes(StandardCharsets.UTF_8)));
+        measure("GET /movies/{id}, codec", i -> consume(MovieCodec.encodeMovie(movie)));
+
+        measure("POST /movies, Gson", i -> {
+            Movie parsed = gson.fromJson(new InputStreamReader(new ByteArrayInputStream(postBody),
+                    StandardCharsets.UTF_8), Movie.class);
+            Bench.consume(gson.toJson(Map.of(i, parsed)).getBytes(StandardCharsets.UTF_8));
+        });
+        measure("POST /movies, codec", i -> {
+            try {
+                Movie parsed = MovieCodec.decodeMovie(new ByteArrayInputStream(postBody));
+                consume(MovieCodec.encodeCreated(i, parsed));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+
+        measure("GET /movies?limit=100, Gson", i -> Bench.consume(
+                gson.toJson(new MoviesPageResponse(page, "YWZ0ZXI6OTk")).getBytes(StandardCharsets.UTF_8)));
+        measure("GET /movies?limit=100, codec", i -> consume(MovieCodec.encodePage(page, "YWZ0ZXI6OTk")));
+    }
+
+    private static void consume(JsonBuffer buffer) {
+        Bench.consume(buffer.length());
+    }
+
+    private static void measure(String name, IntConsumer operation) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        double nsPerOp = Bench.nsPerOp(WARMUP, ITERATIONS, operation);
+        long before = threads.getCurrentThreadAllocatedBytes();
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.accept(i);
+        }
+        double bytesPerOp = (double) (threads.getCurrentThreadAllocatedBytes() - before) / ITERATIONS;
+        Bench.report(name, String.format("%.0f B/op", bytesPerOp), nsPerOp);
+    }
+}
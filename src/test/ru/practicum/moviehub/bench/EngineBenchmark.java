@@ -0,0 +1,180 @@
+package ru.practicum.moviehub.bench;
+
+import ru.practicum.moviehub.http.ExecutorMode;
+import ru.practicum.moviehub.http.MoviesServer;
+import ru.practicum.moviehub.http.ServerConfig;
+import ru.practicum.moviehub.http.ServerEngine;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.ConcurrentMoviesStore;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузочное сравнение движков сервера на коротких ответах GET /movies/{id}.
+ * Клиенты держат keep-alive соединения на сырых сокетах, чтобы стоимость клиента не заслоняла сервер;
+ * depth > 1 — конвейер из depth запросов подряд в одном соединении.
+ * Запуск: java -cp ... ru.practicum.moviehub.bench.EngineBenchmark [порт] [секунд на замер]
+ */
+public class EngineBenchmark {
+    private static final int CATALOG_SIZE = 10_000;
+    private static final int[] CONNECTIONS = {1, 16, 64};
+    private static final int[] DEPTHS = {1, 16};
+
+    public static void main(String[] args) throws Exception {
+        Bench.enableNoDelay();
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8081;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        MoviesStore store = new ConcurrentMoviesStore();
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            store.addMovie(new Movie("Фильм " + i, 1900 + i % 120));
+        }
+        System.out.printf("%-6s %-12s %6s %6s %12s %10s %10s%n", "engine", "executor", "conns", "depth",
+                "req/s", "p50 мкс", "p99 мкс");
+        for (ServerEngine engine : ServerEngine.values()) {
+            for (ExecutorMode mode : new ExecutorMode[]{ExecutorMode.THREAD_POOL, ExecutorMode.DISPATCHER}) {
+                MoviesServer server = new MoviesServer(store, port, ServerConfig.defaults()
+                        .setEngine(engine)
+                        .setExecutorMode(mode)
+                        .setStopDelaySeconds(0));
+                server.start();
+                try {
+                    for (int connections : CONNECTIONS) {
+                        for (int depth : DEPTHS) {
+                            // прогрев на том же сочетании, затем замер
+                            run(port, connections, depth, 1);
+                            Result result = run(port, connections, depth, seconds);
+                            System.out.printf("%-6s %-12s %6d %6d %12.0f %10d %10d%n", engine, mode, connections,
+                                    depth, result.throughput(), result.percentileMicros(0.50),
+                                    result.percentileMicros(0.99));
+                        }
+                    }
+                } finally {
+                    server.stop();
+                }
+            }
+        }
+    }
+
+    private static Result run(int port, int connections, int depth, int seconds) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            clients.add(new Client(port, depth, deadline, i));
+        }
+        long start = System.nanoTime();
+        for (Client client : clients) {
+            client.start();
+        }
+        long requests = 0;
+        long[] latencies = new long[0];
+        for (Client client : clients) {
+            client.join();
+            if (client.error != null) {
+                throw client.error;
+            }
+            requests += client.completed;
+            int offset = latencies.length;
+            latencies = Arrays.copyOf(latencies, offset + client.latencyCount);
+            System.arraycopy(client.latencies, 0, latencies, offset, client.latencyCount);
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        Arrays.sort(latencies);
+        return new Result(requests / elapsed, latencies);
+    }
+
+    private record Result(double throughput, long[] latencies) {
+        long percentileMicros(double p) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            return latencies[(int) Math.min(latencies.length - 1, p * latencies.length)] / 1000;
+        }
+    }
+
+    private static class Client extends Thread {
+        private final int port;
+        private final int depth;
+        private final long deadline;
+        private final int seed;
+        private long completed;
+        // задержка пачки из depth запросов: от отправки до последнего ответа
+        private long[] latencies = new long[1 << 16];
+        private int latencyCount;
+        private Exception error;
+
+        Client(int port, int depth, long deadline, int seed) {
+            this.port = port;
+            this.depth = depth;
+            this.deadline = deadline;
+            this.seed = seed;
+        }
+
+        @Override
+        public void run() {
+            try (Socket socket = new Socket("localhost", port)) {
+                socket.setTcpNoDelay(true);
+                OutputStream out = socket.getOutputStream();
+                InputStream in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+                int id = seed * 7919;
+                while (System.nanoTime() < deadline) {
+                    StringBuilder batch = new StringBuilder();
+                    for (int i = 0; i < depth; i++) {
+                        batch.append("GET /movies/").append(id++ % CATALOG_SIZE)
+                                .append(" HTTP/1.1\r\nHost: localhost\r\n\r\n");
+                    }
+                    long sent = System.nanoTime();
+                    out.write(batch.toString().getBytes(StandardCharsets.US_ASCII));
+                    for (int i = 0; i < depth; i++) {
+                        readResponse(in);
+                    }
+                    if (latencyCount == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, latencies.length * 2);
+                    }
+                    latencies[latencyCount++] = System.nanoTime() - sent;
+                    completed += depth;
+                }
+            } catch (Exception e) {
+                error = e;
+            }
+        }
+
+        // ответы на GET /movies/{id} короткие и всегда с Content-Length
+        private static void readResponse(InputStream in) throws IOException {
+            int contentLength = -1;
+            StringBuilder line = new StringBuilder();
+            while (true) {
+                int b = in.read();
+                if (b < 0) {
+                    throw new IOException("Сервер закрыл соединение");
+                }
+                if (b != '\n') {
+                    if (b != '\r') {
+                        line.append((char) b);
+                    }
+                    continue;
+                }
+                if (line.isEmpty()) {
+                    break;
+                }
+                if (line.length() > 15 && line.substring(0, 15).equalsIgnoreCase("content-length:")) {
+                    contentLength = Integer.parseInt(line.substring(15).trim());
+                }
+                line.setLength(0);
+            }
+            if (contentLength < 0) {
+                throw new IOException("Ответ без Content-Length");
+            }
+            in.skipNBytes(contentLength);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package ru.practicum.moviehub.bench;
+
+import ru.practicum.moviehub.http.MoviesServer;
+import ru.practicum.moviehub.http.ServerConfig;
+import ru.practicum.moviehub.http.ServerEngine;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.ConcurrentMoviesStore;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность GET /movies/export в МБ/с: сериализация снимка против отдачи готового
+ * файла через transferTo на обоих движках. Клиенты на сырых сокетах только считают байты,
+ * чтобы разбор ответа не заслонял сервер; каталог между выгрузками не меняется.
+ * Запуск: java -cp ... ru.practicum.moviehub.bench.ExportBenchmark [порт] [секунд на замер] [каталог для файла]
+ */
+public class ExportBenchmark {
+    private static final int CATALOG_SIZE = 1_000_000;
+    private static final int[] CLIENTS = {1, 8};
+    private static final byte[] REQUEST = ("GET /movies/export HTTP/1.1\r\nHost: localhost\r\nConnection: close\r\n\r\n")
+            .getBytes(StandardCharsets.US_ASCII);
+
+    public static void main(String[] args) throws Exception {
+        Bench.enableNoDelay();
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8081;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        Path exportDir = args.length > 2 ? Path.of(args[2]) : Files.createTempDirectory("movies-export-bench");
+        MoviesStore store = new ConcurrentMoviesStore();
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            store.addMovie(new Movie("Фильм " + i, 1900 + i % 120));
+        }
+        System.out.printf("%-6s %-6s %8s %12s %10s %10s%n", "engine", "source", "clients", "МБ/с", "выгрузок/с",
+                "МБ тело");
+        for (ServerEngine engine : ServerEngine.values()) {
+            for (Path dir : new Path[]{null, exportDir}) {
+                MoviesServer server = new MoviesServer(store, port, ServerConfig.defaults()
+                        .setEngine(engine)
+                        .setExportDir(dir)
+                        .setStopDelaySeconds(0));
+                server.start();
+                try {
+                    for (int clients : CLIENTS) {
+                        // прогрев: JIT и, для файла, первая запись выгрузки
+                        run(port, clients, 1);
+                        Result result = run(port, clients, seconds);
+                        System.out.printf("%-6s %-6s %8d %12.1f %10.1f %10.1f%n", engine, dir == null ? "stream" : "file",
+                                clients, result.megabytesPerSecond(), result.exportsPerSecond(),
+                                result.bodyBytes() / 1e6);
+                    }
+                } finally {
+                    server.stop();
+                }
+            }
+        }
+    }
+
+    private static Result run(int port, int clients, int seconds) throws Exception {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        List<Client> threads = new ArrayList<>();
+        for (int i = 0; i < clients; i++) {
+            threads.add(new Client(port, deadline));
+        }
+        long start = System.nanoTime();
+        for (Client client : threads) {
+            client.start();
+        }
+        long bytes = 0;
+        long exports = 0;
+        long bodyBytes = 0;
+        for (Client client : threads) {
+            client.join();
+            if (client.error != null) {
+                throw client.error;
+            }
+            bytes += client.bytes;
+            exports += client.exports;
+            bodyBytes = Math.max(bodyBytes, client.lastResponseBytes);
+        }
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        return new Result(bytes / elapsed / 1e6, exports / elapsed, bodyBytes);
+    }
+
+    private record Result(double megabytesPerSecond, double exportsPerSecond, long bodyBytes) {
+    }
+
+    private static class Client extends Thread {
+        private final int port;
+        private final long deadline;
+        private final byte[] buffer = new byte[256 * 1024];
+        private long bytes;
+        private long exports;
+        private long lastResponseBytes;
+        private Exception error;
+
+        Client(int port, long deadline) {
+            this.port = port;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public void run() {
+            try {
+                do {
+                    lastResponseBytes = export();
+                    bytes += lastResponseBytes;
+                    exports++;
+                } while (System.nanoTime() < deadline);
+            } catch (Exception e) {
+                error = e;
+            }
+        }
+
+        // с Connection: close ответ заканчивается закрытием сокета, заголовки считаются вместе с телом
+        private long export() throws IOException {
+            try (Socket socket = new Socket("localhost", port)) {
+                socket.getOutputStream().write(REQUEST);
+                InputStream in = socket.getInputStream();
+                long total = 0;
+                int n;
+                while ((n = in.read(buffer)) >= 0) {
+                    total += n;
+                }
+                if (total < CATALOG_SIZE) {
+                    throw new IOException("Выгрузка оборвалась после " + total + " байт");
+                }
+                return total;
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package ru.practicum.moviehub.bench;
+
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.ColumnarMoviesStore;
+import ru.practicum.moviehub.store.ConcurrentMoviesStore;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Длительная смешанная нагрузка (80% чтений, 10% добавлений, 10% удалений) поверх заполненного
+ * каталога: пропускная способность, число и суммарное время сборок мусора.
+ * Аргументы: размер каталога и длительность замера в секундах.
+ */
+public class GcPressureBenchmark {
+    private static final int THREADS = 8;
+
+    public static void main(String[] args) throws InterruptedException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        run("ConcurrentMoviesStore", new ConcurrentMoviesStore(), size, seconds);
+        run("ColumnarMoviesStore", new ColumnarMoviesStore(), size, seconds);
+    }
+
+    private static void run(String name, MoviesStore store, int size, int seconds) throws InterruptedException {
+        for (int i = 0; i < size; i++) {
+            store.addMovie(HeapFootprintBenchmark.movie(i));
+        }
+        System.gc();
+        long gcCountBefore = gcCount();
+        long gcTimeBefore = gcTimeMillis();
+        LongAdder operations = new LongAdder();
+        CountDownLatch done = new CountDownLatch(THREADS);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        for (int t = 0; t < THREADS; t++) {
+            new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                while (System.nanoTime() < deadline) {
+                    for (int i = 0; i < 1000; i++) {
+                        int roll = random.nextInt(10);
+                        int id = random.nextInt(size + size / 10);
+                        if (roll == 0) {
+                            store.addMovie(new Movie("Новый фильм " + random.nextInt(), 1900 + random.nextInt(120)));
+                        } else if (roll == 1) {
+                            store.deleteMovie(id);
+                        } else {
+                            Bench.consume(store.getMovie(id));
+                        }
+                    }
+                    operations.add(1000);
+                }
+                done.countDown();
+            }).start();
+        }
+        done.await();
+        System.out.printf("%-40s movies=%-10d %10.0f оп/с  gc=%d  gcTime=%d мс%n", name, size,
+                operations.sum() / (double) seconds, gcCount() - gcCountBefore, gcTimeMillis() - gcTimeBefore);
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount).sum();
+    }
+
+    private static long gcTimeMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionTime).sum();
+    }
+}
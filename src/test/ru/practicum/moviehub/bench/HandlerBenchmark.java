@@ -0,0 +1,48 @@
+package ru.practicum.moviehub.bench;
+
+import ru.practicum.moviehub.http.MoviesHandler;
+import ru.practicum.moviehub.http.StubHttpExchange;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.ConcurrentMoviesStore;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Стоимость одного запроса к единичному фильму в зависимости от размера каталога.
+ * Запуск: java -cp ... ru.practicum.moviehub.bench.HandlerBenchmark
+ */
+public class HandlerBenchmark {
+    private static final int[] CATALOG_SIZES = {1_000, 10_000, 100_000, 1_000_000};
+
+    public static void main(String[] args) {
+        for (int size : CATALOG_SIZES) {
+            MoviesStore store = new ConcurrentMoviesStore();
+            for (int i = 0; i < size; i++) {
+                store.addMovie(new Movie("Фильм " + i, 1900 + i % 120));
+            }
+            MoviesHandler handler = new MoviesHandler(store);
+            StubHttpExchange ex = new StubHttpExchange();
+            int iterations = 20_000;
+            String params = "catalog=" + size;
+
+            Bench.report("GET /movies/{id}", params, Bench.nsPerOp(iterations, iterations,
+                    i -> call(handler, ex.reset("GET", "/movies/" + i % size, null))));
+            Bench.report("DELETE /movies/{id} (404)", params, Bench.nsPerOp(iterations, iterations,
+                    i -> call(handler, ex.reset("DELETE", "/movies/" + (size + i), null))));
+            Bench.report("POST /movies (duplicate)", params, Bench.nsPerOp(iterations, iterations,
+                    i -> call(handler, ex.reset("POST", "/movies",
+                            "{\"title\":\"Фильм " + i % size + "\",\"year\":1990}"))));
+        }
+    }
+
+    static void call(MoviesHandler handler, StubHttpExchange ex) {
+        try {
+            handler.handle(ex);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Bench.consume(ex.getResponseBodySize());
+    }
+}
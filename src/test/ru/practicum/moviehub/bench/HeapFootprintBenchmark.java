@@ -0,0 +1,58 @@
+package ru.practicum.moviehub.bench;
+
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.ColumnarMoviesStore;
+import ru.practicum.moviehub.store.ConcurrentMoviesStore;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+/**
+ * Занятая куча после заполнения хранилищ одинаковым каталогом (по умолчанию 1M фильмов).
+ * JOL в зависимостях нет, поэтому меряем разницу used heap после полной сборки мусора.
+ */
+public class HeapFootprintBenchmark {
+
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        measure("HashMap<Integer, Movie>", size, n -> {
+            Map<Integer, Movie> map = new HashMap<>();
+            for (int i = 0; i < n; i++) {
+                map.put(i, movie(i));
+            }
+            return map;
+        });
+        measure("ConcurrentMoviesStore", size, n -> fill(new ConcurrentMoviesStore(), n));
+        measure("ColumnarMoviesStore", size, n -> fill(new ColumnarMoviesStore(), n));
+    }
+
+    private static MoviesStore fill(MoviesStore store, int size) {
+        for (int i = 0; i < size; i++) {
+            store.addMovie(movie(i));
+        }
+        return store;
+    }
+
+    static Movie movie(int i) {
+        return new Movie("Фильм номер " + i, 1900 + i % 120);
+    }
+
+    private static void measure(String name, int size, IntFunction<Object> factory) {
+        long before = usedHeap();
+        Object store = factory.apply(size);
+        long after = usedHeap();
+        Bench.consume(store);
+        System.out.printf("%-40s movies=%-12d %8.1f МБ %8.1f байт/фильм%n",
+                name, size, (after - before) / 1024.0 / 1024.0, (double) (after - before) / size);
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
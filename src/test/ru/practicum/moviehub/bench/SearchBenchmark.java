@@ -0,0 +1,69 @@
+package ru.practicum.moviehub.bench;
+
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.ConcurrentMoviesStore;
+import ru.practicum.moviehub.store.MoviesStore;
+import ru.practicum.moviehub.store.TitleSearchIndex;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Поиск по названиям на каталоге в 1M фильмов: полный проход по значениям против триграммного индекса.
+ * Запросы имитируют ввод по буквам — от одной буквы до нескольких слов. Проход ранжирует
+ * все совпадения по длине названия, индекс — тоже все, оставляя лучшие в ограниченной куче.
+ */
+public class SearchBenchmark {
+    private static final int CATALOG_SIZE = 1_000_000;
+    private static final String[] WORDS = {
+            "волколак", "брат", "сестра", "ночь", "день", "город", "море", "ёлки", "война", "мир",
+            "последний", "первый", "тайна", "остров", "дорога", "домой", "зима", "лето", "небо", "звезда",
+            "matrix", "star", "wars", "night", "city", "love", "story", "king", "lost", "world"
+    };
+    private static final String[] QUERIES = {"в", "во", "вол", "волк", "волколак", "ЁЛКИ", "брат сес", "lost wor"};
+
+    public static void main(String[] args) {
+        MoviesStore store = new ConcurrentMoviesStore();
+        Random random = new Random(42);
+        for (int i = 0; i < CATALOG_SIZE; i++) {
+            String title = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                    + " " + Integer.toString(i, 36);
+            store.addMovie(new Movie(title, 1900 + i % 120));
+        }
+
+        System.gc();
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        TitleSearchIndex index = new TitleSearchIndex(store);
+        long buildMillis = (System.nanoTime() - start) / 1_000_000;
+        System.gc();
+        System.out.printf("index build: %d ms, heap: %d MB%n", buildMillis, (usedHeap() - heapBefore) >> 20);
+
+        String params = "catalog=" + CATALOG_SIZE;
+        for (String query : QUERIES) {
+            String normalized = query.toLowerCase().replace('ё', 'е');
+            Bench.report("q=" + query + ", full scan", params, Bench.nsPerOp(3, 10, i -> {
+                List<Movie> movies = store.getMoviesMap().values().stream()
+                        .filter(movie -> movie.getTitle().toLowerCase().replace('ё', 'е').contains(normalized))
+                        .sorted(Comparator.comparingInt(movie -> movie.getTitle().length()))
+                        .limit(10)
+                        .toList();
+                Bench.consume(movies);
+            }));
+            Bench.report("q=" + query + ", index", params,
+                    Bench.nsPerOp(200, 1000, i -> Bench.consume(index.search(query, 10))));
+        }
+
+        // удаление и добавление проходят через индекс под блокировкой хранилища
+        Bench.report("addMovie + deleteMovie with index", params, Bench.nsPerOp(1000, 10_000, i -> {
+            int id = store.addMovie(new Movie("новый волколак " + i, 2000));
+            store.deleteMovie(id);
+        }));
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
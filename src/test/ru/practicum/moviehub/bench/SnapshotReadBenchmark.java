@@ -0,0 +1,81 @@
+package ru.practicum.moviehub.bench;
+
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.ColumnarMoviesStore;
+import ru.practicum.moviehub.store.ConcurrentMoviesStore;
+import ru.practicum.moviehub.store.MoviesSnapshot;
+import ru.practicum.moviehub.store.MoviesStore;
+
+/**
+ * Масштабирование чтения при непрерывной записи: читатели листают страницы и выбирают год,
+ * один писатель всё время добавляет и удаляет фильмы.
+ * ConcurrentMoviesStore читает неизменяемый снимок, ColumnarMoviesStore — под блокировкой чтения.
+ */
+public class SnapshotReadBenchmark {
+    private static final int CATALOG_SIZE = 100_000;
+    private static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64};
+    private static final int OPERATIONS = 4_000;
+
+    public static void main(String[] args) throws InterruptedException {
+        for (String kind : new String[]{"concurrent", "columnar"}) {
+            MoviesStore store = kind.equals("concurrent") ? new ConcurrentMoviesStore() : new ColumnarMoviesStore();
+            for (int i = 0; i < CATALOG_SIZE; i++) {
+                store.addMovie(new Movie("Фильм " + i, 1900 + i % 120));
+            }
+            for (int threads : THREADS) {
+                Writer writer = new Writer(store);
+                writer.start();
+                int iterations = Math.max(50, OPERATIONS / threads);
+                double ns = Bench.nsPerOp(threads, iterations / 5, iterations, i -> {
+                    // страница и год из одного снимка согласованы между собой
+                    MoviesSnapshot snapshot = kind.equals("concurrent") ? store.snapshot() : null;
+                    int cursor = (int) ((i * 7919L) % CATALOG_SIZE);
+                    int year = 1900 + i % 120;
+                    if (snapshot != null) {
+                        Bench.consume(snapshot.getMoviesPage(cursor, 100));
+                        Bench.consume(snapshot.getMoviesByYear(year));
+                    } else {
+                        Bench.consume(store.getMoviesPage(cursor, 100));
+                        Bench.consume(store.getMoviesByYear(year));
+                    }
+                });
+                writer.halt();
+                Bench.report("page+year reads during writes, " + kind, "threads=" + threads, ns);
+                System.out.printf("  %.0f чтений/с, %.0f записей/с%n", 1e9 / ns, writer.rate());
+            }
+        }
+    }
+
+    private static final class Writer extends Thread {
+        private final MoviesStore store;
+        private volatile boolean running = true;
+        private long writes;
+        private long elapsedNanos;
+
+        Writer(MoviesStore store) {
+            this.store = store;
+            setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            int n = 0;
+            while (running) {
+                int id = store.addMovie(new Movie("Новый " + n++, 1900 + n % 120));
+                store.deleteMovie(id);
+                writes += 2;
+            }
+            elapsedNanos = System.nanoTime() - start;
+        }
+
+        void halt() throws InterruptedException {
+            running = false;
+            join();
+        }
+
+        double rate() {
+            return writes * 1e9 / Math.max(1, elapsedNanos);
+        }
+    }
+}
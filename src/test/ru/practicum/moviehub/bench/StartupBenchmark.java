@@ -0,0 +1,116 @@
+package ru.practicum.moviehub.bench;
+
+import ru.practicum.moviehub.http.MoviesHandler;
+import ru.practicum.moviehub.http.StubHttpExchange;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.ConcurrentMoviesStore;
+import ru.practicum.moviehub.store.persistence.MappedSnapshot;
+import ru.practicum.moviehub.store.persistence.PersistenceConfig;
+import ru.practicum.moviehub.store.persistence.PersistentMoviesStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Время от старта до первого ответа GET /movies/{id} при отображаемом в память снимке.
+ * Размеры каталога передаются аргументами (по умолчанию 1M и 10M); для первого размера
+ * дополнительно замеряется полная загрузка того же снимка в кучу.
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = args.length > 0
+                ? Arrays.stream(args).mapToInt(Integer::parseInt).toArray()
+                : new int[]{1_000_000, 10_000_000};
+        for (int i = 0; i < sizes.length; i++) {
+            int size = sizes[i];
+            Path dataDir = Files.createTempDirectory("movies-startup-bench");
+            Path snapshotFile = dataDir.resolve("movies.snapshot");
+            long begin = System.nanoTime();
+            MappedSnapshot.write(snapshotFile, 1, size, new SyntheticCatalog(size));
+            System.out.printf("снимок %d фильмов: %d МБ, запись %d мс%n",
+                    size, Files.size(snapshotFile) >> 20, (System.nanoTime() - begin) / 1_000_000);
+
+            begin = System.nanoTime();
+            try (PersistentMoviesStore store = PersistentMoviesStore.open(new PersistenceConfig(dataDir))) {
+                StubHttpExchange ex = new StubHttpExchange();
+                HandlerBenchmark.call(new MoviesHandler(store), ex.reset("GET", "/movies/" + size / 2, null));
+                Bench.report("startup mapped", "movies=" + size, System.nanoTime() - begin);
+            }
+
+            if (i == 0) {
+                begin = System.nanoTime();
+                ConcurrentMoviesStore heap = new ConcurrentMoviesStore();
+                MappedSnapshot snapshot = MappedSnapshot.open(snapshotFile);
+                for (int row = 0; row < snapshot.size(); row++) {
+                    heap.putMovie(snapshot.id(row), snapshot.movie(row));
+                }
+                StubHttpExchange ex = new StubHttpExchange();
+                HandlerBenchmark.call(new MoviesHandler(heap), ex.reset("GET", "/movies/" + size / 2, null));
+                Bench.report("startup heap", "movies=" + size, System.nanoTime() - begin);
+            }
+            delete(dataDir);
+        }
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    /**
+     * Каталог, который генерирует фильмы при обходе и не держит их в памяти.
+     */
+    private static class SyntheticCatalog extends AbstractMap<Integer, Movie> {
+        private final int size;
+
+        private SyntheticCatalog(int size) {
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Set<Entry<Integer, Movie>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<Integer, Movie>> iterator() {
+                    return new Iterator<>() {
+                        private int next;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < size;
+                        }
+
+                        @Override
+                        public Entry<Integer, Movie> next() {
+                            int id = next++;
+                            return Map.entry(id, new Movie("Фильм " + id, 1900 + id % 120));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package ru.practicum.moviehub.bench;
+
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.persistence.FsyncPolicy;
+import ru.practicum.moviehub.store.persistence.PersistenceConfig;
+import ru.practicum.moviehub.store.persistence.PersistentMoviesStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+/**
+ * Пропускная способность записи в хранилище с журналом при разных политиках fsync.
+ * Каталог для файлов можно передать первым аргументом, иначе используется временный.
+ */
+public class WalBenchmark {
+    private static final int[] THREADS = {1, 8};
+    private static final int WRITES_PER_THREAD = 2_000;
+
+    public static void main(String[] args) throws Exception {
+        Path root = args.length > 0 ? Path.of(args[0]) : Files.createTempDirectory("movies-wal-bench");
+        for (FsyncPolicy policy : FsyncPolicy.values()) {
+            for (int threads : THREADS) {
+                Path dataDir = Files.createTempDirectory(root, policy.name());
+                try (PersistentMoviesStore store = PersistentMoviesStore.open(
+                        new PersistenceConfig(dataDir).setFsyncPolicy(policy))) {
+                    double nsPerWrite = run(store, threads);
+                    Bench.report("WAL addMovie fsync=" + policy, "threads=" + threads, nsPerWrite);
+                    System.out.printf("  %.0f записей/с%n", 1e9 / nsPerWrite);
+                }
+                delete(dataDir);
+            }
+        }
+    }
+
+    private static double run(PersistentMoviesStore store, int threads) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < WRITES_PER_THREAD; i++) {
+                        store.addMovie(new Movie("Фильм " + thread + "-" + i, 1900 + i % 120));
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        return (double) (System.nanoTime() - begin) / ((long) threads * WRITES_PER_THREAD);
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package ru.practicum.moviehub.bench;
+
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.ConcurrentMoviesStore;
+import ru.practicum.moviehub.store.MoviesStore;
+import ru.practicum.moviehub.store.WritePipeline;
+import ru.practicum.moviehub.store.persistence.FsyncPolicy;
+import ru.practicum.moviehub.store.persistence.PersistenceConfig;
+import ru.practicum.moviehub.store.persistence.PersistentMoviesStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
+
+/**
+ * Запись на месте против единственного потока записи: пропускная способность и задержка одной записи
+ * с точки зрения обработчика. Каждый поток чередует добавление и удаление, как поток POST и DELETE.
+ * Для хранилища с журналом fsync=always запись на месте фиксирует каждое изменение отдельно
+ * (параллельные записи лишь иногда делят fsync), а поток записи — целую пачку одним fsync.
+ * Каталог для файлов можно передать первым аргументом, иначе используется временный.
+ */
+public class WritePipelineBenchmark {
+    private static final int[] THREADS = {1, 8, 64};
+    private static final int WRITES_PER_THREAD = 2_000;
+    private static final int QUEUE_CAPACITY = 4096;
+
+    public static void main(String[] args) throws Exception {
+        Path root = args.length > 0 ? Path.of(args[0]) : Files.createTempDirectory("movies-pipeline-bench");
+        System.out.printf("%-16s %-9s %7s %12s %10s %10s %10s%n", "store", "path", "threads", "записей/с",
+                "p50 мкс", "p99 мкс", "max мкс");
+        for (String kind : new String[]{"memory", "fsync=always", "fsync=batch"}) {
+            for (int threads : THREADS) {
+                for (boolean pipelined : new boolean[]{false, true}) {
+                    Path dataDir = Files.createTempDirectory(root, "data");
+                    MoviesStore store = open(kind, dataDir);
+                    WritePipeline pipeline = pipelined ? new WritePipeline(store, QUEUE_CAPACITY) : null;
+                    try {
+                        Result result = run(store, pipeline, threads);
+                        System.out.printf("%-16s %-9s %7d %12.0f %10d %10d %10d%n", kind,
+                                pipelined ? "pipeline" : "inline", threads, result.throughput(),
+                                result.percentileMicros(0.50), result.percentileMicros(0.99),
+                                result.percentileMicros(1.0));
+                    } finally {
+                        if (pipeline != null) {
+                            pipeline.close();
+                        }
+                        if (store instanceof PersistentMoviesStore persistent) {
+                            persistent.close();
+                        }
+                        delete(dataDir);
+                    }
+                }
+            }
+        }
+    }
+
+    private static MoviesStore open(String kind, Path dataDir) throws IOException {
+        return switch (kind) {
+            case "fsync=always" -> PersistentMoviesStore.open(
+                    new PersistenceConfig(dataDir).setFsyncPolicy(FsyncPolicy.ALWAYS));
+            case "fsync=batch" -> PersistentMoviesStore.open(
+                    new PersistenceConfig(dataDir).setFsyncPolicy(FsyncPolicy.BATCH));
+            default -> new ConcurrentMoviesStore();
+        };
+    }
+
+    private static Result run(MoviesStore store, WritePipeline pipeline, int threads) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long[][] latencies = new long[threads][WRITES_PER_THREAD];
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            new Thread(() -> {
+                try {
+                    start.await();
+                    int lastId = -1;
+                    for (int i = 0; i < WRITES_PER_THREAD; i++) {
+                        long begin = System.nanoTime();
+                        if (i % 2 == 0) {
+                            Movie movie = new Movie("Фильм " + thread + "-" + i, 1900 + i % 120);
+                            lastId = pipeline != null ? pipeline.add(movie).join() : store.addMovie(movie);
+                        } else if (pipeline != null) {
+                            pipeline.delete(lastId).join();
+                        } else {
+                            store.deleteMovie(lastId);
+                        }
+                        latencies[thread][i] = System.nanoTime() - begin;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        done.await();
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+        long[] all = new long[threads * WRITES_PER_THREAD];
+        for (int t = 0; t < threads; t++) {
+            System.arraycopy(latencies[t], 0, all, t * WRITES_PER_THREAD, WRITES_PER_THREAD);
+        }
+        Arrays.sort(all);
+        return new Result(all.length / elapsed, all);
+    }
+
+    private record Result(double throughput, long[] latencies) {
+        long percentileMicros(double p) {
+            return latencies[(int) Math.min(latencies.length - 1, p * latencies.length)] / 1000;
+        }
+    }
+
+    private static void delete(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
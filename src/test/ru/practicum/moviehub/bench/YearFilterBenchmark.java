@@ -0,0 +1,46 @@
+package ru.practicum.moviehub.bench;
+
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.ConcurrentMoviesStore;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.util.List;
+
+/**
+ * Фильтр по году: полный проход по значениям (как было раньше) против индекса годов.
+ */
+public class YearFilterBenchmark {
+    private static final int[] CATALOG_SIZES = {100_000, 1_000_000};
+
+    public static void main(String[] args) {
+        for (int size : CATALOG_SIZES) {
+            MoviesStore store = new ConcurrentMoviesStore();
+            for (int i = 0; i < size; i++) {
+                store.addMovie(new Movie("Фильм " + i, 1900 + i % 120));
+            }
+            String params = "catalog=" + size;
+            int iterations = 200;
+
+            Bench.report("year=, full scan", params, Bench.nsPerOp(iterations, iterations, i -> {
+                int year = 1900 + i % 120;
+                List<Movie> movies = store.getMoviesMap().values().stream()
+                        .filter(movie -> movie.getYear() == year)
+                        .toList();
+                Bench.consume(movies);
+            }));
+            Bench.report("year=, index", params, Bench.nsPerOp(iterations, iterations,
+                    i -> Bench.consume(store.getMoviesByYear(1900 + i % 120))));
+            Bench.report("yearFrom=&yearTo= (10 years), full scan", params, Bench.nsPerOp(iterations, iterations, i -> {
+                int from = 1900 + i % 110;
+                List<Movie> movies = store.getMoviesMap().values().stream()
+                        .filter(movie -> movie.getYear() >= from && movie.getYear() <= from + 9)
+                        .toList();
+                Bench.consume(movies);
+            }));
+            Bench.report("yearFrom=&yearTo= (10 years), index", params, Bench.nsPerOp(iterations, iterations, i -> {
+                int from = 1900 + i % 110;
+                Bench.consume(store.getMoviesByYearRange(from, from + 9));
+            }));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package ru.practicum.moviehub.bench.suite;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Сравнивает два файла результатов {@link BenchmarkSuite}: старый и новый.
+ * Третий аргумент — допустимое замедление в процентах (по умолчанию 10).
+ * Код выхода 1, если хотя бы один бенчмарк замедлился сильнее порога.
+ */
+public class BenchmarkDiff {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Использование: BenchmarkDiff <old.json> <new.json> [порог, %]");
+            System.exit(2);
+        }
+        Map<String, BenchmarkResult> before = read(Path.of(args[0]));
+        Map<String, BenchmarkResult> after = read(Path.of(args[1]));
+        double threshold = args.length > 2 ? Double.parseDouble(args[2]) : 10;
+
+        int regressions = 0;
+        for (Map.Entry<String, BenchmarkResult> entry : after.entrySet()) {
+            BenchmarkResult old = before.get(entry.getKey());
+            if (old == null) {
+                System.out.printf("%-70s %12s %12.1f ns/op  (новый)%n", entry.getKey(), "-", entry.getValue().getNsPerOp());
+                continue;
+            }
+            double change = (entry.getValue().getNsPerOp() / old.getNsPerOp() - 1) * 100;
+            boolean regression = change > threshold;
+            if (regression) {
+                regressions++;
+            }
+            System.out.printf("%-70s %12.1f %12.1f ns/op  %+7.1f%%%s%n", entry.getKey(), old.getNsPerOp(),
+                    entry.getValue().getNsPerOp(), change, regression ? "  РЕГРЕССИЯ" : "");
+        }
+        System.out.println("Регрессий: " + regressions);
+        if (regressions > 0) {
+            System.exit(1);
+        }
+    }
+
+    private static Map<String, BenchmarkResult> read(Path file) throws IOException {
+        Type listType = new TypeToken<List<BenchmarkResult>>() {
+        }.getType();
+        List<BenchmarkResult> results = new Gson().fromJson(Files.readString(file, StandardCharsets.UTF_8), listType);
+        Map<String, BenchmarkResult> byKey = new LinkedHashMap<>();
+        for (BenchmarkResult result : results) {
+            byKey.put(result.key(), result);
+        }
+        return byKey;
+    }
+}
@@ -0,0 +1,57 @@
+package ru.practicum.moviehub.bench.suite;
+
+/**
+ * Одна строка результата: сериализуется в JSON и сравнивается между версиями по {@link #key()}.
+ */
+public class BenchmarkResult {
+    private final String benchmark;
+    private final String store;
+    private final int catalogSize;
+    private final int threads;
+    private final int iterations;
+    private final double nsPerOp;
+    private final double opsPerSecond;
+
+    public BenchmarkResult(String benchmark, String store, int catalogSize, int threads, int iterations,
+                           double nsPerOp) {
+        this.benchmark = benchmark;
+        this.store = store;
+        this.catalogSize = catalogSize;
+        this.threads = threads;
+        this.iterations = iterations;
+        this.nsPerOp = nsPerOp;
+        this.opsPerSecond = 1e9 / nsPerOp;
+    }
+
+    public String key() {
+        return benchmark + " store=" + store + " catalog=" + catalogSize + " threads=" + threads;
+    }
+
+    public String getBenchmark() {
+        return benchmark;
+    }
+
+    public String getStore() {
+        return store;
+    }
+
+    public int getCatalogSize() {
+        return catalogSize;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public double getNsPerOp() {
+        return nsPerOp;
+    }
+
+    public double getOpsPerSecond() {
+        return opsPerSecond;
+    }
+}
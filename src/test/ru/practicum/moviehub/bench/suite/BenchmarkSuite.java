@@ -0,0 +1,208 @@
+package ru.practicum.moviehub.bench.suite;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import ru.practicum.moviehub.bench.Bench;
+import ru.practicum.moviehub.http.MoviesServer;
+import ru.practicum.moviehub.http.ServerConfig;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.ColumnarMoviesStore;
+import ru.practicum.moviehub.store.ConcurrentMoviesStore;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Набор бенчмарков горячих путей: операции хранилищ, JSON-кодирование списков фильмов
+ * и полный круг запроса через MoviesServer в этом же процессе.
+ * JMH в проекте не подключён, поэтому параметры задаются аргументами, а результаты пишутся
+ * в JSON, который сравнивает {@link BenchmarkDiff}.
+ * <p>
+ * Пример: --sizes=1000,100000 --threads=1,4 --filter=store. --out=build/bench.json --port=8081
+ */
+public class BenchmarkSuite {
+    private static final int STORE_ITERATIONS = 200_000;
+    private static final int YEAR_ITERATIONS = 200;
+    private static final int JSON_ITERATIONS = 5_000;
+    private static final int HTTP_ITERATIONS = 2_000;
+    private static final int JSON_LIST_SIZE = 100;
+
+    private final Map<String, Supplier<MoviesStore>> stores = new LinkedHashMap<>();
+    private final List<BenchmarkResult> results = new ArrayList<>();
+    private final String filter;
+    private final int port;
+
+    private BenchmarkSuite(String filter, int port) {
+        this.filter = filter;
+        this.port = port;
+        stores.put("concurrent", ConcurrentMoviesStore::new);
+        stores.put("columnar", ColumnarMoviesStore::new);
+    }
+
+    public static void main(String[] args) throws IOException {
+        Bench.enableNoDelay();
+        Map<String, String> options = parseArgs(args);
+        int[] sizes = parseInts(options.getOrDefault("sizes", "1000,100000"));
+        int[] threads = parseInts(options.getOrDefault("threads", "1,4"));
+        BenchmarkSuite suite = new BenchmarkSuite(options.getOrDefault("filter", ""),
+                Integer.parseInt(options.getOrDefault("port", "8081")));
+
+        for (int threadCount : threads) {
+            // размер каталога на кодирование не влияет
+            suite.runJsonBenchmarks(threadCount);
+        }
+        for (int size : sizes) {
+            for (int threadCount : threads) {
+                suite.runStoreBenchmarks(size, threadCount);
+                suite.runHttpBenchmarks(size, threadCount);
+            }
+        }
+
+        Gson gson = new GsonBuilder().setPrettyPrinting().create();
+        String json = gson.toJson(suite.results);
+        if (options.containsKey("out")) {
+            Path out = Path.of(options.get("out"));
+            if (out.getParent() != null) {
+                Files.createDirectories(out.getParent());
+            }
+            Files.writeString(out, json, StandardCharsets.UTF_8);
+            System.out.println("Результаты записаны в " + out.toAbsolutePath());
+        } else {
+            System.out.println(json);
+        }
+    }
+
+    private void runStoreBenchmarks(int size, int threads) {
+        for (Map.Entry<String, Supplier<MoviesStore>> entry : stores.entrySet()) {
+            String storeName = entry.getKey();
+            MoviesStore store = filled(entry.getValue(), size);
+            run("store.checkMovie", storeName, size, threads, STORE_ITERATIONS,
+                    i -> Bench.consume(store.checkMovie(title(i % size))));
+            run("store.getMovieId", storeName, size, threads, STORE_ITERATIONS,
+                    i -> Bench.consume(store.getMovieId(title(i % size))));
+            run("store.getMovie", storeName, size, threads, STORE_ITERATIONS,
+                    i -> Bench.consume(store.getMovie(i % size)));
+            run("store.getMoviesByYear", storeName, size, threads, YEAR_ITERATIONS,
+                    i -> Bench.consume(store.getMoviesByYear(1900 + i % 120)));
+            run("store.getMoviesByYearRange", storeName, size, threads, YEAR_ITERATIONS,
+                    i -> Bench.consume(store.getMoviesByYearRange(1900 + i % 110, 1909 + i % 110)));
+            // добавление растит каталог, поэтому идёт последним
+            run("store.addMovie", storeName, size, threads, STORE_ITERATIONS,
+                    i -> Bench.consume(store.addMovie(new Movie("Новый фильм " + i, 1900 + i % 120))));
+        }
+    }
+
+    private void runJsonBenchmarks(int threads) {
+        Gson gson = new Gson();
+        List<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < JSON_LIST_SIZE; i++) {
+            movies.add(movie(i));
+        }
+        String json = gson.toJson(movies);
+        Type listType = new TypeToken<List<Movie>>() {
+        }.getType();
+        run("json.encodeList" + JSON_LIST_SIZE, null, 0, threads, JSON_ITERATIONS,
+                i -> Bench.consume(gson.toJson(movies)));
+        run("json.decodeList" + JSON_LIST_SIZE, null, 0, threads, JSON_ITERATIONS,
+                i -> Bench.consume(gson.fromJson(json, listType)));
+    }
+
+    private void runHttpBenchmarks(int size, int threads) throws IOException {
+        if (!selected("http.")) {
+            return;
+        }
+        MoviesStore store = filled(ConcurrentMoviesStore::new, size);
+        MoviesServer server = new MoviesServer(store, port, ServerConfig.defaults().setStopDelaySeconds(0));
+        server.start();
+        HttpClient client = HttpClient.newHttpClient();
+        String base = "http://localhost:" + port + "/movies";
+        try {
+            run("http.getMovie", "concurrent", size, threads, HTTP_ITERATIONS,
+                    i -> send(client, HttpRequest.newBuilder(URI.create(base + "/" + i % size)).GET().build()));
+            run("http.postMovie", "concurrent", size, threads, HTTP_ITERATIONS,
+                    i -> send(client, HttpRequest.newBuilder(URI.create(base))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(
+                                    "{\"title\":\"Новый фильм " + i + "\",\"year\":2000}"))
+                            .build()));
+        } finally {
+            server.stop();
+        }
+    }
+
+    private void run(String benchmark, String store, int size, int threads, int iterations, IntConsumer operation) {
+        if (!selected(benchmark)) {
+            return;
+        }
+        double nsPerOp = Bench.nsPerOp(threads, iterations / 2, iterations, operation);
+        BenchmarkResult result = new BenchmarkResult(benchmark, store, size, threads, iterations, nsPerOp);
+        results.add(result);
+        Bench.report(benchmark, "store=" + store + " catalog=" + size + " threads=" + threads, nsPerOp);
+    }
+
+    // фильтр — префикс имени; префикс группы ("http.") выбирает и её отдельные бенчмарки
+    private boolean selected(String benchmark) {
+        return benchmark.startsWith(filter) || filter.startsWith(benchmark);
+    }
+
+    private static void send(HttpClient client, HttpRequest request) {
+        try {
+            Bench.consume(client.send(request, HttpResponse.BodyHandlers.ofByteArray()).statusCode());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static MoviesStore filled(Supplier<MoviesStore> factory, int size) {
+        MoviesStore store = factory.get();
+        for (int i = 0; i < size; i++) {
+            store.addMovie(movie(i));
+        }
+        return store;
+    }
+
+    private static Movie movie(int i) {
+        return new Movie(title(i), 1900 + i % 120);
+    }
+
+    private static String title(int i) {
+        return "Фильм " + i;
+    }
+
+    static Map<String, String> parseArgs(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+            if (pair.length != 2 || !pair[0].startsWith("--")) {
+                throw new IllegalArgumentException("Неизвестный аргумент: " + arg);
+            }
+            options.put(pair[0].substring(2), pair[1]);
+        }
+        return options;
+    }
+
+    private static int[] parseInts(String value) {
+        return Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+    }
+}
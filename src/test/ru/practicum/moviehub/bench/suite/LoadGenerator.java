@@ -0,0 +1,470 @@
+package ru.practicum.moviehub.bench.suite;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.reflect.TypeToken;
+import ru.practicum.moviehub.bench.Bench;
+import ru.practicum.moviehub.http.MoviesServer;
+import ru.practicum.moviehub.http.ServerConfig;
+import ru.practicum.moviehub.http.ServerEngine;
+import ru.practicum.moviehub.metrics.LatencyHistogram;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.ConcurrentMoviesStore;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Генератор нагрузки с открытой моделью: запросы назначаются на моменты start + i / rate
+ * независимо от того, ответил ли сервер на прежние, а задержка отсчитывается от назначенного момента,
+ * а не от фактической отправки. Поэтому медленный ответ не прячет очередь за собой
+ * (coordinated omission): ожидание свободного соединения входит в задержку ждавших запросов.
+ * <p>
+ * Сервер поднимается в этом же процессе на каждую частоту заново. Задержки копятся в HDR-гистограммах
+ * по операциям, результаты пишутся в JSON. С --baseline прогон сравнивается с файлом прошлого прогона:
+ * код выхода 1, если p99 какой-либо операции вырос сильнее допуска или были ошибки (5xx, обрыв соединения).
+ * <p>
+ * Пример: --rates=500,2000 --seconds=20 --warmup=5 --mix=list:5,id:60,year:15,post:10,delete:10
+ * --catalog=1000 --connections=64 --engine=nio --out=build/load.json --baseline=build/load-base.json
+ * --tolerance=25 --slack-us=200
+ */
+public class LoadGenerator {
+    private static final double[] QUANTILES = {0.50, 0.90, 0.99, 0.999, 1.0};
+    private static final int SOCKET_TIMEOUT_MILLIS = 30_000;
+    // ближе к назначенному моменту поток не спит, а уступает процессор: parkNanos просыпается с опозданием
+    private static final long SPIN_NANOS = 100_000;
+
+    private final int port;
+    private final ServerEngine engine;
+    private final LoadMix mix;
+    private final int catalogSize;
+    private final int connections;
+    private final int warmupSeconds;
+    private final int seconds;
+
+    public LoadGenerator(int port, ServerEngine engine, LoadMix mix, int catalogSize, int connections,
+                         int warmupSeconds, int seconds) {
+        this.port = port;
+        this.engine = engine;
+        this.mix = mix;
+        this.catalogSize = catalogSize;
+        this.connections = connections;
+        this.warmupSeconds = warmupSeconds;
+        this.seconds = seconds;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Bench.enableNoDelay();
+        Map<String, String> options = BenchmarkSuite.parseArgs(args);
+        int[] rates = Arrays.stream(options.getOrDefault("rates", "1000").split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        LoadGenerator generator = new LoadGenerator(
+                Integer.parseInt(options.getOrDefault("port", "8081")),
+                ServerEngine.valueOf(options.getOrDefault("engine", "jdk").toUpperCase()),
+                LoadMix.parse(options.getOrDefault("mix", LoadMix.DEFAULT)),
+                Integer.parseInt(options.getOrDefault("catalog", "1000")),
+                Integer.parseInt(options.getOrDefault("connections", "64")),
+                Integer.parseInt(options.getOrDefault("warmup", "5")),
+                Integer.parseInt(options.getOrDefault("seconds", "20")));
+
+        List<LoadResult> results = new ArrayList<>();
+        System.out.printf("%-7s %7s %9s %7s %9s %9s %9s %9s %9s %9s%n", "op", "rate", "requests", "errors",
+                "rps", "p50 мкс", "p90 мкс", "p99 мкс", "p99.9 мкс", "max мкс");
+        for (int rate : rates) {
+            for (LoadResult result : generator.run(rate)) {
+                results.add(result);
+                System.out.printf("%-7s %7d %9d %7d %9.0f %9d %9d %9d %9d %9d%n", result.getOperation(),
+                        result.getRate(), result.getRequests(), result.getErrors(), result.getAchievedRate(),
+                        result.getP50Micros(), result.getP90Micros(), result.getP99Micros(),
+                        result.getP999Micros(), result.getMaxMicros());
+            }
+        }
+
+        if (options.containsKey("out")) {
+            Path out = Path.of(options.get("out"));
+            if (out.getParent() != null) {
+                Files.createDirectories(out.getParent());
+            }
+            Files.writeString(out, new GsonBuilder().setPrettyPrinting().create().toJson(results),
+                    StandardCharsets.UTF_8);
+            System.out.println("Результаты записаны в " + out.toAbsolutePath());
+        }
+        if (options.containsKey("baseline")) {
+            Type listType = new TypeToken<List<LoadResult>>() {
+            }.getType();
+            List<LoadResult> baseline = new Gson().fromJson(
+                    Files.readString(Path.of(options.get("baseline")), StandardCharsets.UTF_8), listType);
+            int violations = checkBaseline(baseline, results,
+                    Double.parseDouble(options.getOrDefault("tolerance", "25")),
+                    Long.parseLong(options.getOrDefault("slack-us", "200")));
+            if (violations > 0) {
+                System.exit(1);
+            }
+        }
+    }
+
+    /**
+     * Сравнивает p99 с базой: допустимо base * (1 + tolerance%) + slack. Абсолютный запас нужен,
+     * потому что у p99 в сотни микросекунд и шум, и погрешность гистограммы сопоставимы с процентами.
+     *
+     * @return число нарушений: рост p99 сверх допуска и прогоны с ошибками
+     */
+    static int checkBaseline(List<LoadResult> baseline, List<LoadResult> current, double tolerancePercent,
+                             long slackMicros) {
+        Map<String, LoadResult> byKey = new LinkedHashMap<>();
+        for (LoadResult result : baseline) {
+            byKey.put(result.key(), result);
+        }
+        int violations = 0;
+        for (LoadResult result : current) {
+            LoadResult base = byKey.get(result.key());
+            String verdict = "";
+            if (result.getErrors() > 0) {
+                verdict = "  ОШИБКИ: " + result.getErrors();
+                violations++;
+            } else if (base != null
+                    && result.getP99Micros() > base.getP99Micros() * (1 + tolerancePercent / 100) + slackMicros) {
+                verdict = "  РЕГРЕССИЯ";
+                violations++;
+            }
+            if (base == null) {
+                System.out.printf("%-70s %10s %10d мкс p99  (новый)%s%n", result.key(), "-", result.getP99Micros(),
+                        verdict);
+            } else {
+                System.out.printf("%-70s %10d %10d мкс p99%s%n", result.key(), base.getP99Micros(),
+                        result.getP99Micros(), verdict);
+            }
+        }
+        System.out.println("Нарушений SLO: " + violations);
+        return violations;
+    }
+
+    /**
+     * Поднимает сервер с каталогом catalogSize и держит заданную частоту warmup + seconds секунд.
+     *
+     * @return строка на каждую операцию смеси и итоговая строка "all"; прогрев в результаты не входит
+     */
+    public List<LoadResult> run(int rate) throws Exception {
+        if (rate <= 0) {
+            throw new IllegalArgumentException("Частота должна быть больше 0");
+        }
+        MoviesStore store = new ConcurrentMoviesStore();
+        for (int i = 0; i < catalogSize; i++) {
+            store.addMovie(new Movie("Фильм " + i, 1900 + i % 120));
+        }
+        MoviesServer server = new MoviesServer(store, port, ServerConfig.defaults()
+                .setEngine(engine)
+                .setStopDelaySeconds(0));
+        server.start();
+        try {
+            return drive(rate);
+        } finally {
+            server.stop();
+        }
+    }
+
+    private List<LoadResult> drive(int rate) throws InterruptedException {
+        Recorder recorder = new Recorder();
+        BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+        List<Worker> workers = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            Worker worker = new Worker(queue, recorder);
+            workers.add(worker);
+            worker.start();
+        }
+
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(10);
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(seconds);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (long i = 0; ; i++) {
+            // от номера запроса, а не от предыдущего момента: ошибка округления не копится
+            long intended = start + i * 1_000_000_000L / rate;
+            if (intended >= end) {
+                break;
+            }
+            waitUntil(intended);
+            queue.add(new Request(mix.pick(random.nextInt(Integer.MAX_VALUE)), intended, intended >= measureFrom));
+        }
+        for (int i = 0; i < workers.size(); i++) {
+            queue.add(Request.STOP);
+        }
+        for (Worker worker : workers) {
+            worker.join();
+        }
+
+        // если сервер не успевал, хвост окна дорабатывал после его конца: фактическая частота ниже заданной
+        double elapsed = Math.max(end, recorder.lastCompletion.get()) - measureFrom;
+        List<LoadResult> results = new ArrayList<>();
+        for (LoadMix.Operation operation : mix.getOperations()) {
+            results.add(recorder.result(operation.getName(), recorder.histograms.get(operation),
+                    recorder.errors.get(operation).sum(), rate, elapsed));
+        }
+        results.add(recorder.result("all", recorder.all, recorder.allErrors.sum(), rate, elapsed));
+        return results;
+    }
+
+    private static void waitUntil(long deadline) {
+        while (true) {
+            long left = deadline - System.nanoTime();
+            if (left <= 0) {
+                return;
+            }
+            if (left > SPIN_NANOS) {
+                LockSupport.parkNanos(left - SPIN_NANOS);
+            } else {
+                Thread.yield();
+            }
+        }
+    }
+
+    private record Request(LoadMix.Operation operation, long intendedNanos, boolean measured) {
+        static final Request STOP = new Request(null, 0, false);
+    }
+
+    private final class Recorder {
+        private final Map<LoadMix.Operation, LatencyHistogram> histograms = new EnumMap<>(LoadMix.Operation.class);
+        private final Map<LoadMix.Operation, LongAdder> errors = new EnumMap<>(LoadMix.Operation.class);
+        private final LatencyHistogram all = new LatencyHistogram();
+        private final LongAdder allErrors = new LongAdder();
+        private final AtomicLong lastCompletion = new AtomicLong();
+        // id, созданные POST: их удаляют DELETE, чтобы каталог не рос и не пустел
+        private final ConcurrentLinkedQueue<Integer> created = new ConcurrentLinkedQueue<>();
+        private final AtomicLong titles = new AtomicLong();
+
+        Recorder() {
+            for (LoadMix.Operation operation : LoadMix.Operation.values()) {
+                histograms.put(operation, new LatencyHistogram());
+                errors.put(operation, new LongAdder());
+            }
+        }
+
+        void record(Request request, boolean failed) {
+            if (!request.measured()) {
+                return;
+            }
+            long now = System.nanoTime();
+            lastCompletion.accumulateAndGet(now, Math::max);
+            if (failed) {
+                errors.get(request.operation()).increment();
+                allErrors.increment();
+                return;
+            }
+            histograms.get(request.operation()).recordNanos(now - request.intendedNanos());
+            all.recordNanos(now - request.intendedNanos());
+        }
+
+        LoadResult result(String operation, LatencyHistogram histogram, long errors, int rate, double elapsedNanos) {
+            long requests = histogram.getCount() + errors;
+            return new LoadResult(operation, mix.toString(), engine.name().toLowerCase(), catalogSize, rate,
+                    requests, errors, requests / (elapsedNanos / 1e9), histogram.quantilesMicros(QUANTILES));
+        }
+    }
+
+    private final class Worker extends Thread {
+        private final BlockingQueue<Request> queue;
+        private final Recorder recorder;
+        // начало тела нужно только для id созданного фильма, остальное читается в scratch
+        private final byte[] body = new byte[1024];
+        private final byte[] scratch = new byte[64 * 1024];
+        private int bodyLength;
+        private Socket socket;
+        private InputStream in;
+        private OutputStream out;
+
+        Worker(BlockingQueue<Request> queue, Recorder recorder) {
+            super("load-worker");
+            this.queue = queue;
+            this.recorder = recorder;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Request request = queue.take();
+                    if (request == Request.STOP) {
+                        break;
+                    }
+                    boolean failed;
+                    try {
+                        failed = execute(request.operation()) >= 500;
+                    } catch (IOException e) {
+                        closeSocket();
+                        failed = true;
+                    }
+                    recorder.record(request, failed);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                closeSocket();
+            }
+        }
+
+        private int execute(LoadMix.Operation operation) throws IOException {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            String request = switch (operation) {
+                case LIST -> get("/movies");
+                case ID -> get("/movies/" + random.nextInt(catalogSize));
+                case YEAR -> get("/movies?year=" + (1900 + random.nextInt(120)));
+                case POST -> {
+                    byte[] json = ("{\"title\":\"Нагрузка " + recorder.titles.incrementAndGet() + "\",\"year\":2000}")
+                            .getBytes(StandardCharsets.UTF_8);
+                    yield "POST /movies HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                            + "Content-Length: " + json.length + "\r\n\r\n" + new String(json, StandardCharsets.UTF_8);
+                }
+                case DELETE -> {
+                    Integer id = recorder.created.poll();
+                    // созданных ещё нет: удаление несуществующего id, сервер ответит 404
+                    yield "DELETE /movies/" + (id != null ? id : Integer.MAX_VALUE) + " HTTP/1.1\r\nHost: localhost\r\n\r\n";
+                }
+            };
+            if (socket == null) {
+                socket = new Socket("localhost", port);
+                socket.setTcpNoDelay(true);
+                socket.setSoTimeout(SOCKET_TIMEOUT_MILLIS);
+                in = new BufferedInputStream(socket.getInputStream(), 64 * 1024);
+                out = socket.getOutputStream();
+            }
+            out.write(request.getBytes(StandardCharsets.UTF_8));
+            int status = readResponse();
+            if (operation == LoadMix.Operation.POST && status == 201) {
+                recorder.created.add(createdId());
+            }
+            return status;
+        }
+
+        private static String get(String path) {
+            return "GET " + path + " HTTP/1.1\r\nHost: localhost\r\n\r\n";
+        }
+
+        // тело ответа на создание: {"<id>":{...}}
+        private int createdId() throws IOException {
+            int id = 0;
+            int i = 2;
+            while (i < bodyLength && body[i] >= '0' && body[i] <= '9') {
+                id = id * 10 + (body[i++] - '0');
+            }
+            if (i == 2) {
+                throw new IOException("В ответе на создание нет id");
+            }
+            return id;
+        }
+
+        private int readResponse() throws IOException {
+            String statusLine = readLine();
+            if (statusLine.length() < 12) {
+                throw new IOException("Некорректная строка статуса: " + statusLine);
+            }
+            int status = Integer.parseInt(statusLine.substring(9, 12));
+            long contentLength = -1;
+            boolean chunked = false;
+            boolean close = false;
+            String line;
+            while (!(line = readLine()).isEmpty()) {
+                int colon = line.indexOf(':');
+                if (colon < 0) {
+                    continue;
+                }
+                String name = line.substring(0, colon).trim();
+                String value = line.substring(colon + 1).trim();
+                if (name.equalsIgnoreCase("Content-Length")) {
+                    contentLength = Long.parseLong(value);
+                } else if (name.equalsIgnoreCase("Transfer-Encoding")) {
+                    chunked = value.equalsIgnoreCase("chunked");
+                } else if (name.equalsIgnoreCase("Connection")) {
+                    close = value.equalsIgnoreCase("close");
+                }
+            }
+            bodyLength = 0;
+            if (status == 204 || status == 304) {
+                // без тела
+            } else if (chunked) {
+                long size;
+                while ((size = Long.parseLong(readLine().trim(), 16)) > 0) {
+                    readBody(size, false);
+                    readLine();
+                }
+                readLine();
+            } else if (contentLength >= 0) {
+                readBody(contentLength, false);
+            } else {
+                readBody(Long.MAX_VALUE, true);
+                close = true;
+            }
+            if (close) {
+                closeSocket();
+            }
+            return status;
+        }
+
+        private void readBody(long count, boolean untilClose) throws IOException {
+            while (count > 0) {
+                byte[] target = bodyLength < body.length ? body : scratch;
+                int offset = target == body ? bodyLength : 0;
+                int n = in.read(target, offset, (int) Math.min(target.length - offset, count));
+                if (n < 0) {
+                    if (untilClose) {
+                        return;
+                    }
+                    throw new EOFException("Сервер закрыл соединение посреди ответа");
+                }
+                if (target == body) {
+                    bodyLength += n;
+                }
+                count -= n;
+            }
+        }
+
+        private String readLine() throws IOException {
+            StringBuilder line = new StringBuilder();
+            int b;
+            while ((b = in.read()) != '\n') {
+                if (b < 0) {
+                    throw new EOFException("Сервер закрыл соединение");
+                }
+                if (b != '\r') {
+                    line.append((char) b);
+                }
+            }
+            return line.toString();
+        }
+
+        private void closeSocket() {
+            if (socket == null) {
+                return;
+            }
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // соединение уже разорвано
+            }
+            socket = null;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package ru.practicum.moviehub.bench.suite;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Доли операций в нагрузке, например "list:5,id:60,year:15,post:10,delete:10".
+ * Веса относительные: операция выбирается с вероятностью вес / сумма весов.
+ */
+public final class LoadMix {
+    public static final String DEFAULT = "list:5,id:60,year:15,post:10,delete:10";
+
+    public enum Operation {
+        LIST("list"),
+        ID("id"),
+        YEAR("year"),
+        POST("post"),
+        DELETE("delete");
+
+        private final String name;
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    private final String spec;
+    private final Operation[] operations;
+    // накопленные веса по порядку operations
+    private final int[] thresholds;
+
+    private LoadMix(String spec, Operation[] operations, int[] thresholds) {
+        this.spec = spec;
+        this.operations = operations;
+        this.thresholds = thresholds;
+    }
+
+    public static LoadMix parse(String spec) {
+        Map<Operation, Integer> weights = new LinkedHashMap<>();
+        for (String part : spec.split(",")) {
+            String[] pair = part.trim().split(":");
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Ожидается операция:вес, получено: " + part);
+            }
+            Operation operation = Arrays.stream(Operation.values())
+                    .filter(op -> op.name.equals(pair[0]))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Неизвестная операция: " + pair[0]));
+            int weight = Integer.parseInt(pair[1]);
+            if (weight < 0) {
+                throw new IllegalArgumentException("Вес не может быть отрицательным: " + part);
+            }
+            if (weight > 0) {
+                weights.merge(operation, weight, Integer::sum);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("В смеси нет ни одной операции: " + spec);
+        }
+        Operation[] operations = weights.keySet().toArray(new Operation[0]);
+        int[] thresholds = new int[operations.length];
+        int total = 0;
+        // по канонической записи результаты сравниваются с базовыми, поэтому пробелы и повторы убираются
+        StringBuilder canonical = new StringBuilder();
+        for (int i = 0; i < operations.length; i++) {
+            total += weights.get(operations[i]);
+            thresholds[i] = total;
+            canonical.append(i == 0 ? "" : ",").append(operations[i].name).append(':').append(weights.get(operations[i]));
+        }
+        return new LoadMix(canonical.toString(), operations, thresholds);
+    }
+
+    /**
+     * @param random равномерное неотрицательное число, например из ThreadLocalRandom
+     */
+    public Operation pick(int random) {
+        int point = random % thresholds[thresholds.length - 1];
+        for (int i = 0; i < thresholds.length; i++) {
+            if (point < thresholds[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    public Operation[] getOperations() {
+        return operations.clone();
+    }
+
+    @Override
+    public String toString() {
+        return spec;
+    }
+}
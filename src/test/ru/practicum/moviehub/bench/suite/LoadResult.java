@@ -0,0 +1,94 @@
+package ru.practicum.moviehub.bench.suite;
+
+/**
+ * Задержки одной операции (или всех вместе, operation = "all") при заданной частоте прихода запросов.
+ * Сериализуется в JSON; файл прошлого прогона служит базой для {@link LoadGenerator}.
+ */
+public class LoadResult {
+    private final String operation;
+    private final String mix;
+    private final String engine;
+    private final int catalogSize;
+    private final int rate;
+    private final long requests;
+    private final long errors;
+    private final double achievedRate;
+    private final long p50Micros;
+    private final long p90Micros;
+    private final long p99Micros;
+    private final long p999Micros;
+    private final long maxMicros;
+
+    public LoadResult(String operation, String mix, String engine, int catalogSize, int rate, long requests,
+                      long errors, double achievedRate, long[] quantilesMicros) {
+        this.operation = operation;
+        this.mix = mix;
+        this.engine = engine;
+        this.catalogSize = catalogSize;
+        this.rate = rate;
+        this.requests = requests;
+        this.errors = errors;
+        this.achievedRate = achievedRate;
+        this.p50Micros = quantilesMicros[0];
+        this.p90Micros = quantilesMicros[1];
+        this.p99Micros = quantilesMicros[2];
+        this.p999Micros = quantilesMicros[3];
+        this.maxMicros = quantilesMicros[4];
+    }
+
+    public String key() {
+        return operation + " mix=" + mix + " engine=" + engine + " catalog=" + catalogSize + " rate=" + rate;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public String getMix() {
+        return mix;
+    }
+
+    public String getEngine() {
+        return engine;
+    }
+
+    public int getCatalogSize() {
+        return catalogSize;
+    }
+
+    public int getRate() {
+        return rate;
+    }
+
+    public long getRequests() {
+        return requests;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public double getAchievedRate() {
+        return achievedRate;
+    }
+
+    public long getP50Micros() {
+        return p50Micros;
+    }
+
+    public long getP90Micros() {
+        return p90Micros;
+    }
+
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    public long getP999Micros() {
+        return p999Micros;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+}
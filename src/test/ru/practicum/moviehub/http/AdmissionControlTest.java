@@ -0,0 +1,177 @@
+package ru.practicum.moviehub.http;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.api.ApiErrors;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.ConcurrentMoviesStore;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.practicum.moviehub.http.MoviesServer.MOVIES;
+
+public class AdmissionControlTest extends BaseApiTestMethod {
+    private static final HttpResponse.BodyHandler<String> bodyHandler = HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8);
+    private static final long READ_MILLIS = 100;
+    private static final long WRITE_MILLIS = 300;
+    private static final long QUEUE_TIMEOUT_MILLIS = 300;
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+    private final SlowStore store = new SlowStore();
+    private MoviesServer server;
+
+    @AfterEach
+    void afterEach() {
+        if (server != null) {
+            server.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("При перегрузке лишние запросы сразу получают 503, задержка принятых ограничена")
+    void overload_shedsExcessAndBoundsLatency() throws Exception {
+        int id = store.addMovie(new Movie("Волколак", 1994));
+        start(ServerConfig.defaults()
+                .setThreads(2)
+                .setReadMaxInFlight(2)
+                .setReadMaxQueued(2)
+                .setAdmissionTimeoutMillis(QUEUE_TIMEOUT_MILLIS));
+        store.slow = true;
+
+        // без ограничения последний из 80 запросов ждал бы 80 * 100 / 2 = 4 секунды
+        List<Timed> results = sendAll(80, () -> getRequest(MOVIES + "/" + id));
+        int ok = 0;
+        int rejected = 0;
+        for (Timed result : results) {
+            HttpResponse<String> response = result.response();
+            if (response.statusCode() == 200) {
+                ok++;
+                assertTrue(result.millis() < READ_MILLIS + QUEUE_TIMEOUT_MILLIS + 1000,
+                        "Принятый запрос выполнялся " + result.millis() + " мс");
+            } else {
+                rejected++;
+                assertEquals(503, response.statusCode());
+                assertEquals("1", response.headers().firstValue("Retry-After").orElse(null));
+                assertEquals(ApiErrors.OVERLOADED.getJson(), response.body());
+            }
+        }
+        assertTrue(ok >= 2, "Хотя бы запросы в пределах лимита должны быть обработаны");
+        assertTrue(rejected > 0, "При перегрузке часть запросов должна быть отклонена");
+
+        AdmissionLimit limit = server.getReadLimit();
+        assertEquals(rejected, limit.getRejected(), "Счётчик отказов должен совпадать с числом 503");
+        // разрешение возвращается уже после отправки ответа
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (limit.getInFlight() != 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, limit.getInFlight());
+        assertEquals(0, limit.getQueued());
+        String metrics = server.getMetrics().toPrometheus();
+        assertTrue(metrics.contains("moviehub_admission_rejected_total{class=\"read\"} " + rejected), metrics);
+    }
+
+    @Test
+    @DisplayName("Поток POST-запросов не мешает чтению списка")
+    void writeStorm_doesNotStarveReads() throws Exception {
+        start(ServerConfig.defaults()
+                .setThreads(2)
+                .setReadMaxInFlight(4)
+                .setReadMaxQueued(4)
+                .setWriteMaxInFlight(1)
+                .setWriteMaxQueued(1)
+                .setAdmissionTimeoutMillis(QUEUE_TIMEOUT_MILLIS));
+        store.slow = true;
+
+        List<CompletableFuture<HttpResponse<String>>> writes = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            writes.add(client.sendAsync(postRequest_movies("{\"title\":\"Фильм " + i + "\",\"year\":2000}",
+                    "application/json"), bodyHandler));
+        }
+        // ждём, пока запись займёт свой лимит
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (server.getWriteLimit().getInFlight() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        long start = System.nanoTime();
+        HttpResponse<String> read = client.send(getRequest(MOVIES), bodyHandler);
+        long readMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(200, read.statusCode());
+        assertTrue(readMillis < WRITE_MILLIS, "Чтение во время потока записей заняло " + readMillis + " мс");
+
+        int created = 0;
+        for (CompletableFuture<HttpResponse<String>> write : writes) {
+            int status = write.get(10, TimeUnit.SECONDS).statusCode();
+            assertTrue(status == 201 || status == 503, "Неожиданный код " + status);
+            created += status == 201 ? 1 : 0;
+        }
+        assertTrue(created < writes.size(), "Часть записей должна быть отклонена");
+        assertEquals(writes.size() - created, server.getWriteLimit().getRejected());
+        assertEquals(0, server.getReadLimit().getRejected());
+    }
+
+    private void start(ServerConfig config) throws IOException {
+        server = new MoviesServer(store, 8080, config.setExecutorMode(ExecutorMode.THREAD_POOL));
+        server.start();
+    }
+
+    private List<Timed> sendAll(int count, Supplier<HttpRequest> request) throws Exception {
+        List<CompletableFuture<Timed>> futures = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            long start = System.nanoTime();
+            futures.add(client.sendAsync(request.get(), bodyHandler).thenApply(response ->
+                    new Timed(response, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start))));
+        }
+        List<Timed> results = new ArrayList<>();
+        for (CompletableFuture<Timed> future : futures) {
+            results.add(future.get(20, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+
+    private record Timed(HttpResponse<String> response, long millis) {
+    }
+
+    private static class SlowStore extends ConcurrentMoviesStore {
+        private volatile boolean slow;
+
+        @Override
+        public Movie getMovie(int id) {
+            pause(READ_MILLIS);
+            return super.getMovie(id);
+        }
+
+        @Override
+        public int addMovie(Movie movie) {
+            pause(WRITE_MILLIS);
+            return super.addMovie(movie);
+        }
+
+        private void pause(long millis) {
+            if (!slow) {
+                return;
+            }
+            try {
+                Thread.sleep(millis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -16,6 +16,14 @@ public abstract class BaseApiTestMethod {
                 .build();
     }
 
+    public HttpRequest postRequest(String endpoint, String body, String contentType) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(BASE + endpoint))
+                .header("Content-Type", contentType)
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
     public HttpRequest getRequest(String endpoint) {
         return HttpRequest.newBuilder()
                 .uri(URI.create(BASE + endpoint))
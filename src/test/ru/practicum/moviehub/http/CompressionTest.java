@@ -0,0 +1,136 @@
+package ru.practicum.moviehub.http;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.ConcurrentMoviesStore;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.practicum.moviehub.http.MoviesServer.MOVIES;
+
+public class CompressionTest {
+    private static final String BASE = "http://localhost:8080";
+    private static MoviesServer server;
+    private static HttpClient client;
+
+    @BeforeAll
+    static void beforeAll() throws IOException {
+        MoviesStore store = new ConcurrentMoviesStore();
+        for (int i = 0; i < 2_000; i++) {
+            store.addMovie(new Movie("Фильм номер " + i, 1900 + i % 120));
+        }
+        client = HttpClient.newHttpClient();
+        server = new MoviesServer(store, 8080);
+        server.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        server.stop();
+    }
+
+    @Test
+    @DisplayName("Выбор кодирования учитывает q, запреты и предпочитает gzip")
+    void negotiate_respectsQuality() {
+        assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate(List.of("gzip, deflate, br")));
+        assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate(List.of("deflate", "GZIP;q=1.0")));
+        assertEquals(ContentEncoding.DEFLATE, ContentEncoding.negotiate(List.of("gzip;q=0.4, deflate;q=0.5")));
+        assertEquals(ContentEncoding.DEFLATE, ContentEncoding.negotiate(List.of("gzip;q=0, *")));
+        assertEquals(ContentEncoding.GZIP, ContentEncoding.negotiate(List.of("*")));
+        assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate(List.of("br, identity")));
+        assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate(List.of("*;q=0")));
+        assertEquals(ContentEncoding.IDENTITY, ContentEncoding.negotiate(null));
+    }
+
+    @Test
+    @DisplayName("Закешированный список отдаётся сжатым и после распаковки совпадает побайтно")
+    void cachedList_compressedBodyIsIdentical() throws Exception {
+        byte[] plain = get(MOVIES, null).body();
+        for (String encoding : List.of("gzip", "deflate")) {
+            for (int attempt = 0; attempt < 2; attempt++) {
+                HttpResponse<byte[]> response = get(MOVIES, encoding);
+                assertEquals(encoding, response.headers().firstValue("Content-Encoding").orElse(null));
+                assertEquals("Accept-Encoding", response.headers().firstValue("Vary").orElse(null));
+                assertTrue(response.body().length < plain.length / 3, "Повторяющийся JSON должен хорошо сжиматься");
+                assertArrayEquals(plain, decode(encoding, response.body()));
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("У каждого кодирования списка свой ETag, а 304 несёт Vary, как и 200")
+    void cachedList_etagPerEncoding() throws Exception {
+        String plain = get(MOVIES, null).headers().firstValue("ETag").orElseThrow();
+        String gzip = get(MOVIES, "gzip").headers().firstValue("ETag").orElseThrow();
+        String deflate = get(MOVIES, "deflate").headers().firstValue("ETag").orElseThrow();
+        assertEquals(3, Set.of(plain, gzip, deflate).size(), "Сжатые варианты — разные представления");
+
+        HttpResponse<byte[]> notModified = client.send(HttpRequest.newBuilder(URI.create(BASE + MOVIES))
+                .header("Accept-Encoding", "gzip")
+                .header("If-None-Match", gzip)
+                .GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(304, notModified.statusCode());
+        assertEquals(gzip, notModified.headers().firstValue("ETag").orElse(null));
+        assertEquals("Accept-Encoding", notModified.headers().firstValue("Vary").orElse(null));
+
+        HttpResponse<byte[]> otherVariant = client.send(HttpRequest.newBuilder(URI.create(BASE + MOVIES))
+                .header("Accept-Encoding", "gzip")
+                .header("If-None-Match", plain)
+                .GET().build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(200, otherVariant.statusCode(), "Тег несжатого тела не подтверждает сжатое");
+    }
+
+    @Test
+    @DisplayName("Потоковый ответ сжимается на лету, короткий ответ уходит без сжатия")
+    void streamedAndSmallResponses() throws Exception {
+        String range = MOVIES + "?yearFrom=1900&yearTo=1950";
+        byte[] plain = get(range, null).body();
+        HttpResponse<byte[]> gzip = get(range, "gzip");
+        assertEquals("gzip", gzip.headers().firstValue("Content-Encoding").orElse(null));
+        assertArrayEquals(plain, decode("gzip", gzip.body()));
+
+        // ~17 фильмов одного года — поток не дорастает до порога и уходит как есть
+        HttpResponse<byte[]> small = get(MOVIES + "?year=1900", "gzip");
+        assertTrue(small.headers().firstValue("Content-Encoding").isEmpty(), "Тело меньше порога не сжимается");
+        assertArrayEquals(get(MOVIES + "?year=1900", null).body(), small.body());
+
+        HttpResponse<byte[]> single = get(MOVIES + "/1", "gzip");
+        assertTrue(single.headers().firstValue("Content-Encoding").isEmpty(), "Тело меньше порога не сжимается");
+        assertTrue(new String(single.body()).contains("\"year\""));
+    }
+
+    private static HttpResponse<byte[]> get(String endpoint, String acceptEncoding) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(BASE + endpoint)).GET();
+        if (acceptEncoding != null) {
+            request.header("Accept-Encoding", acceptEncoding);
+        }
+        HttpResponse<byte[]> response = client.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(200, response.statusCode());
+        return response;
+    }
+
+    private static byte[] decode(String encoding, byte[] body) throws IOException {
+        try (InputStream in = encoding.equals("gzip")
+                ? new GZIPInputStream(new ByteArrayInputStream(body))
+                : new InflaterInputStream(new ByteArrayInputStream(body))) {
+            return in.readAllBytes();
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package ru.practicum.moviehub.http;
+
+import com.google.gson.reflect.TypeToken;
+import ru.practicum.moviehub.model.Movie;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+
+public class CreatedMovieTypeToken extends TypeToken<Map<String, Movie>> {
+    public static final Type TYPE = new CreatedMovieTypeToken().getType();
+}
@@ -0,0 +1,157 @@
+package ru.practicum.moviehub.http;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.ConcurrentMoviesStore;
+import ru.practicum.moviehub.store.MoviesStore;
+import ru.practicum.moviehub.store.persistence.PersistenceConfig;
+import ru.practicum.moviehub.store.persistence.PersistentMoviesStore;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ExportTest {
+    private static final String CT_NDJSON = "application/x-ndjson; charset=UTF-8";
+    private final HttpClient client = HttpClient.newHttpClient();
+    private Path dataDir;
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        dataDir = Files.createTempDirectory("movies-export-test");
+    }
+
+    @AfterEach
+    void afterEach() throws IOException {
+        try (Stream<Path> files = Files.walk(dataDir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Выгрузка из файла и из снимка на обоих движках загружается обратно через /movies/batch")
+    void export_roundTripsThroughBatchImport() throws Exception {
+        try (PersistentMoviesStore store = PersistentMoviesStore.open(new PersistenceConfig(dataDir))) {
+            store.addMovie(new Movie("\"Кавычки\" и \\ слэш", 2001));
+            store.addMovie(new Movie("Перевод\nстроки\tи таб", 2010));
+            store.addMovie(new Movie("<b>Tom & Jerry</b> = 'cartoon'", 1940));
+            // больше буфера сокета, чтобы передача файла упиралась в медленного читателя
+            for (int i = 0; i < 50_000; i++) {
+                store.addMovie(new Movie("Фильм " + i, 1900 + i % 120));
+            }
+            store.deleteMovie(1);
+            for (ServerEngine engine : ServerEngine.values()) {
+                for (Path exportDir : new Path[]{dataDir, null}) {
+                    String body = export(store, ServerConfig.defaults().setEngine(engine).setExportDir(exportDir));
+
+                    MoviesStore imported = new ConcurrentMoviesStore();
+                    StubHttpExchange ex = new StubHttpExchange().reset("POST", "/movies/batch", body);
+                    ex.getRequestHeaders().set("Content-Type", "application/x-ndjson");
+                    new MoviesHandler(imported).handle(ex);
+
+                    String variant = engine + (exportDir == null ? ", без файла" : ", из файла");
+                    assertEquals(200, ex.getResponseCode(), variant);
+                    assertEquals(describe(store), describe(imported), variant);
+                }
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Со второго запроса версии выгрузка отдаётся из файла; после изменения файл заменяется")
+    void exportFile_reusedUntilChange() throws Exception {
+        MoviesStore store = new ConcurrentMoviesStore();
+        store.addMovie(new Movie("Брат", 1997));
+        MoviesServer server = start(store, ServerConfig.defaults().setEngine(ServerEngine.NIO).setExportDir(dataDir));
+        try {
+            String first = export();
+            assertEquals(List.of(), exportFiles(), "Первый запрос версии выгружается из снимка");
+            assertEquals(first, export());
+            List<Path> firstFiles = exportFiles();
+            // подмена содержимого видна, только если ответ действительно берётся из файла
+            Files.writeString(firstFiles.get(0), "{\"title\":\"Из файла\",\"year\":2000}\n");
+            String second = export();
+            store.addMovie(new Movie("Брат 2", 2000));
+            String third = export();
+            assertEquals(third, export());
+            List<Path> thirdFiles = exportFiles();
+
+            assertEquals("{\"title\":\"Брат\",\"year\":1997}\n", first);
+            assertEquals("{\"title\":\"Из файла\",\"year\":2000}\n", second);
+            assertEquals(first + "{\"title\":\"Брат 2\",\"year\":2000}\n", third);
+            assertEquals(1, firstFiles.size());
+            assertEquals(1, thirdFiles.size(), "Прежний файл удаляется");
+            assertNotEquals(firstFiles, thirdFiles);
+        } finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Пустой каталог выгружается пустым телом")
+    void export_whenEmpty_returnsEmptyBody() throws Exception {
+        assertEquals("", export(new ConcurrentMoviesStore(), ServerConfig.defaults().setExportDir(dataDir)));
+        assertEquals("", export(new ConcurrentMoviesStore(), ServerConfig.defaults()));
+    }
+
+    // второй запрос той же версии отдаётся из файла, если каталог для него задан
+    private String export(MoviesStore store, ServerConfig config) throws Exception {
+        MoviesServer server = start(store, config);
+        try {
+            String body = export();
+            assertEquals(body, export());
+            return body;
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static MoviesServer start(MoviesStore store, ServerConfig config) throws IOException {
+        MoviesServer server = new MoviesServer(store, 8080, config.setStopDelaySeconds(0));
+        server.start();
+        return server;
+    }
+
+    private String export() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:8080/movies/export")).GET().build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+        assertEquals(200, response.statusCode());
+        assertEquals(CT_NDJSON, response.headers().firstValue("Content-Type").orElse(""));
+        String body = response.body();
+        assertTrue(body.isEmpty() || body.endsWith("\n"), "Каждая строка заканчивается переводом строки");
+        return body;
+    }
+
+    private List<Path> exportFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dataDir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".ndjson")).toList();
+        }
+    }
+
+    // у Movie нет equals, поэтому сравниваются название и год по порядку id
+    private static List<String> describe(MoviesStore store) {
+        List<String> movies = new ArrayList<>();
+        for (Movie movie : store.snapshot()) {
+            movies.add(movie.getTitle() + "|" + movie.getYear());
+        }
+        return movies;
+    }
+}
@@ -0,0 +1,62 @@
+package ru.practicum.moviehub.http;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.store.ConcurrentMoviesStore;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.practicum.moviehub.http.MoviesServer.METRICS;
+import static ru.practicum.moviehub.http.MoviesServer.MOVIES;
+
+public class MetricsEndpointTest extends BaseApiTestMethod {
+    private static final HttpResponse.BodyHandler<String> bodyHandler = HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8);
+    private static MoviesServer server;
+    private static HttpClient client;
+
+    @BeforeAll
+    static void beforeAll() throws IOException {
+        client = HttpClient.newHttpClient();
+        server = new MoviesServer(new ConcurrentMoviesStore(), 8080);
+        server.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        server.stop();
+    }
+
+    @Test
+    @DisplayName("/metrics отдаёт счётчики запросов, кодов ответа и задержки в формате Prometheus")
+    void metrics_reflectRequests() throws Exception {
+        client.send(postRequest_movies("{\"title\":\"Брат\",\"year\":1997}", "application/json"), bodyHandler);
+        client.send(getRequest(MOVIES + "/0"), bodyHandler);
+        client.send(getRequest(MOVIES + "/42"), bodyHandler);
+        client.send(getRequest(MOVIES), bodyHandler);
+
+        // фильтр записывает метрику после отправки ответа, поэтому последний запрос может появиться не сразу
+        HttpResponse<String> response = client.send(getRequest(METRICS), bodyHandler);
+        for (int attempt = 0; attempt < 50 && !response.body().contains("method=\"GET\",route=\"/movies\"} 1"); attempt++) {
+            Thread.sleep(20);
+            response = client.send(getRequest(METRICS), bodyHandler);
+        }
+        assertEquals(200, response.statusCode());
+        assertTrue(response.headers().firstValue("Content-Type").orElse("").startsWith("text/plain"));
+
+        String body = response.body();
+        assertTrue(body.contains("moviehub_http_requests_total{method=\"GET\",route=\"/movies/{id}\"} 2\n"), body);
+        assertTrue(body.contains("moviehub_http_requests_total{method=\"POST\",route=\"/movies\"} 1\n"), body);
+        assertTrue(body.contains("moviehub_http_responses_total{code=\"404\"} 1\n"), body);
+        assertTrue(body.contains("moviehub_http_responses_total{code=\"201\"} 1\n"), body);
+        assertTrue(body.contains("moviehub_http_request_duration_seconds{method=\"GET\",route=\"/movies\",quantile=\"0.99\"}"), body);
+        assertTrue(body.contains("moviehub_store_movies 1\n"), body);
+        assertTrue(server.getMetrics().getJsonBytes() > 0, "Объём JSON в ответах должен учитываться");
+    }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.moviehub.http;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.ConcurrentMoviesStore;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MovieListCacheTest {
+    private final Gson gson = new Gson();
+    private MoviesStore store;
+    private MovieListCache cache;
+
+    @BeforeEach
+    void beforeEach() {
+        store = new ConcurrentMoviesStore();
+        cache = new MovieListCache(store);
+    }
+
+    @Test
+    @DisplayName("Без изменений хранилища возвращается тот же снимок")
+    void get_withoutWrites_returnsSameSnapshot() {
+        store.addMovie(new Movie("Волколак", 1994));
+
+        MovieListCache.Snapshot first = cache.get();
+        MovieListCache.Snapshot second = cache.get();
+
+        assertSame(first, second, "Снимок не должен пересобираться без изменений");
+        assertTrue(second.matches(first.getEtag()));
+    }
+
+    @Test
+    @DisplayName("Добавление и удаление инвалидируют снимок")
+    void get_afterWrites_rebuildsSnapshot() {
+        MovieListCache.Snapshot empty = cache.get();
+        assertEquals("[]", body(empty));
+
+        Movie movie = new Movie("Волколак", 1994);
+        int id = store.addMovie(movie);
+        MovieListCache.Snapshot added = cache.get();
+        assertNotEquals(empty.getEtag(), added.getEtag(), "После добавления ETag должен смениться");
+        assertEquals(gson.toJson(List.of(movie)), body(added));
+        assertFalse(added.matches(empty.getEtag()));
+
+        store.addMovie(new Movie("Волколак", 2000));
+        assertSame(added, cache.get(), "Дубликат не меняет хранилище и не должен сбрасывать кеш");
+
+        store.deleteMovie(id);
+        MovieListCache.Snapshot deleted = cache.get();
+        assertNotEquals(added.getEtag(), deleted.getEtag(), "После удаления ETag должен смениться");
+        assertEquals("[]", body(deleted));
+    }
+
+    @Test
+    @DisplayName("If-None-Match поддерживает список тегов, слабые теги и *")
+    void matches_parsesIfNoneMatch() {
+        MovieListCache.Snapshot snapshot = cache.get();
+
+        assertTrue(snapshot.matches("\"other\", " + snapshot.getEtag()));
+        assertTrue(snapshot.matches("W/" + snapshot.getEtag()));
+        assertTrue(snapshot.matches("*"));
+        assertFalse(snapshot.matches("\"other\""));
+        assertFalse(snapshot.matches(null));
+    }
+
+    private static String body(MovieListCache.Snapshot snapshot) {
+        return new String(snapshot.getBody(), StandardCharsets.UTF_8);
+    }
+}
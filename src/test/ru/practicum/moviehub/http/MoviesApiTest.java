@@ -1,20 +1,27 @@
 package ru.practicum.moviehub.http;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import org.junit.jupiter.api.*;
-import ru.practicum.moviehub.api.ErrorResponse;
+import ru.practicum.moviehub.api.MoviesPageResponse;
 import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.ConcurrentMoviesStore;
 import ru.practicum.moviehub.store.MoviesStore;
 
 import java.io.IOException;
 import java.net.URI;
+import java.net.URLEncoder;
 import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static ru.practicum.moviehub.http.MoviesServer.MOVIES;
 
@@ -26,22 +33,25 @@ public class MoviesApiTest extends BaseApiTestMethod {
     private static Movie correctMovie = new Movie("Волколак", 1994);
     private static Movie incorrectMovie = new Movie("Волколак", 2036);
     private final Gson gson = new Gson();
-    private final ErrorResponse error = new ErrorResponse();
-    private static MoviesStore store = new MoviesStore();
+    static MoviesStore store = new ConcurrentMoviesStore();
 
     @BeforeAll
     static void beforeAll() throws IOException {
+        startServer(ServerConfig.defaults());
+    }
+
+    // наследники запускают те же проверки на другом движке сервера
+    static void startServer(ServerConfig config) throws IOException {
         client = HttpClient.newBuilder()
                 .connectTimeout(Duration.ofSeconds(2))
                 .build();
-        server = new MoviesServer(store, 8080);
+        server = new MoviesServer(store, 8080, config);
         server.start();
     }
 
     @BeforeEach
     void beforeEach() {
         store.clear();
-        error.clearMap();
     }
 
     @AfterAll
@@ -66,6 +76,61 @@ public class MoviesApiTest extends BaseApiTestMethod {
         assertTrue(body.startsWith("[") && body.endsWith("]"), "Ожидается пустой JSON-массив");
     }
 
+    @Test
+    @DisplayName("Повторный запрос списка с If-None-Match возвращает 304")
+    void getMovies_withMatchingEtag_returnsNotModified() throws Exception {
+        store.addMovie(correctMovie);
+        HttpResponse<String> first = client.send(getRequest(MOVIES), bodyHandler);
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+
+        HttpRequest conditional = HttpRequest.newBuilder(URI.create("http://localhost:8080" + MOVIES))
+                .header("If-None-Match", etag)
+                .GET()
+                .build();
+        HttpResponse<String> notModified = client.send(conditional, bodyHandler);
+        assertEquals(304, notModified.statusCode(), "Список не менялся - код должен быть 304");
+        assertEquals("", notModified.body(), "У ответа 304 не должно быть тела");
+
+        store.addMovie(new Movie("Брат", 1997));
+        HttpResponse<String> modified = client.send(conditional, bodyHandler);
+        assertEquals(200, modified.statusCode(), "После изменения списка код должен быть 200");
+        assertNotEquals(etag, modified.headers().firstValue("ETag").orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Постраничный обход списка устойчив к удалениям между запросами")
+    void getMoviesPage_survivesDeletesBetweenPages() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            store.addMovie(new Movie("Фильм " + i, 1990 + i));
+        }
+        HttpResponse<String> first = client.send(getRequest(MOVIES + "?limit=2"), bodyHandler);
+        assertEquals(200, first.statusCode());
+        MoviesPageResponse firstPage = gson.fromJson(first.body(), MoviesPageResponse.class);
+        assertEquals(List.of("Фильм 0", "Фильм 1"), titles(firstPage.getMovies()));
+
+        store.deleteMovie(1);
+        store.deleteMovie(2);
+
+        HttpResponse<String> second = client.send(
+                getRequest(MOVIES + "?limit=2&cursor=" + firstPage.getNext()), bodyHandler);
+        MoviesPageResponse secondPage = gson.fromJson(second.body(), MoviesPageResponse.class);
+        assertEquals(List.of("Фильм 3", "Фильм 4"), titles(secondPage.getMovies()),
+                "Страница должна продолжаться после последнего отданного id");
+        assertNull(secondPage.getNext(), "На последней странице не должно быть курсора");
+    }
+
+    @Test
+    @DisplayName("Некорректные limit и cursor")
+    void getMoviesPage_BadRequest() throws Exception {
+        assertEquals(400, client.send(getRequest(MOVIES + "?limit=0"), bodyHandler).statusCode());
+        assertEquals(400, client.send(getRequest(MOVIES + "?limit=abc"), bodyHandler).statusCode());
+        assertEquals(400, client.send(getRequest(MOVIES + "?cursor=%21%21"), bodyHandler).statusCode());
+    }
+
+    private static List<String> titles(List<Movie> movies) {
+        return movies.stream().map(Movie::getTitle).toList();
+    }
+
     @Test
     @DisplayName("Добавить фильм в корректном формате")
     void postMovies_CorrectRequest() throws IOException, InterruptedException {
@@ -90,6 +155,44 @@ public class MoviesApiTest extends BaseApiTestMethod {
         assertEquals(422, response.statusCode(), "Ошибка валидации - код должен быть 422!");
     }
 
+    @Test
+    @DisplayName("Пакетный импорт JSON-массива")
+    void postMoviesBatch_jsonArray() throws IOException, InterruptedException {
+        store.addMovie(correctMovie);
+        String body = "[{\"title\":\"Брат\",\"year\":1997},"
+                + "{\"title\":\"\",\"year\":3000},"
+                + "{\"title\":\"Волколак\",\"year\":1994},"
+                + "{\"title\":\"Брат 2\",\"year\":2000,\"director\":\"Балабанов\"}]";
+        HttpResponse<String> response = client.send(postRequest(MOVIES + "/batch", body, "application/json"), bodyHandler);
+
+        assertEquals(200, response.statusCode(), "Пакет обработан - код должен быть 200");
+        JsonObject summary = JsonParser.parseString(response.body()).getAsJsonObject();
+        assertEquals(4, summary.get("received").getAsInt());
+        assertEquals(2, summary.get("created").getAsInt());
+        assertEquals(1, summary.get("duplicates").getAsInt());
+        assertEquals(1, summary.get("rejected").getAsInt());
+        assertEquals("[1,-1,0,2]", summary.get("ids").toString(), "id должны идти в порядке элементов");
+        assertEquals(1, summary.getAsJsonArray("errors").get(0).getAsJsonObject().get("index").getAsInt());
+        assertEquals(3, store.size());
+    }
+
+    @Test
+    @DisplayName("Пакетный импорт NDJSON и некорректного тела")
+    void postMoviesBatch_ndjsonAndMalformed() throws IOException, InterruptedException {
+        String ndjson = "{\"title\":\"Брат\",\"year\":1997}\n{\"title\":\"Брат 2\",\"year\":2000}\n";
+        HttpResponse<String> response = client.send(
+                postRequest(MOVIES + "/batch", ndjson, "application/x-ndjson"), bodyHandler);
+        assertEquals(200, response.statusCode());
+        assertEquals(2, store.size(), "Оба фильма из NDJSON должны быть добавлены");
+
+        HttpResponse<String> malformed = client.send(
+                postRequest(MOVIES + "/batch", "[{\"title\":\"Брат 3\"", "application/json"), bodyHandler);
+        assertEquals(400, malformed.statusCode(), "Обрезанное тело - код должен быть 400");
+
+        HttpResponse<String> wrongType = client.send(postRequest(MOVIES + "/batch", ndjson, "text/plain"), bodyHandler);
+        assertEquals(415, wrongType.statusCode());
+    }
+
     @Test
     @DisplayName("Отправить запрос с некорректным типом")
     void postMovies_UnsupportedMediaType() throws IOException, InterruptedException {
@@ -178,6 +281,30 @@ public class MoviesApiTest extends BaseApiTestMethod {
         assertEquals("[]", responseEmptyBody.body(), "В теле должен быть пустой массив");
     }
 
+    @Test
+    @DisplayName("Получить список фильмов за диапазон лет")
+    void getMoviesForYearRange_CorrectRequest() throws IOException, InterruptedException {
+        store.addMovie(correctMovie);
+        store.addMovie(new Movie("Брат", 1997));
+        store.addMovie(new Movie("Брат 2", 2000));
+        HttpRequest request = getRequest(MOVIES + "?yearFrom=1995&yearTo=2000");
+        HttpResponse<String> response = client.send(request, bodyHandler);
+
+        assertEquals(200, response.statusCode(), "Успешный фильтр - код должен быть 200");
+        List<Movie> movies = gson.fromJson(response.body(), new ListOfMoviesTypeToken().getType());
+        assertEquals(2, movies.size(), "В диапазон попадают два фильма");
+        assertEquals("Брат", movies.get(0).getTitle(), "Фильмы должны идти по возрастанию года");
+    }
+
+    @Test
+    @DisplayName("Некорректная граница диапазона лет")
+    void getMoviesForYearRange_BadRequest() throws IOException, InterruptedException {
+        HttpRequest request = getRequest(MOVIES + "?yearFrom=1995&yearTo=QWERTY");
+        HttpResponse<String> response = client.send(request, bodyHandler);
+
+        assertEquals(400, response.statusCode(), "Некорректный запрос - код должен быть 400");
+    }
+
     @Test
     @DisplayName("Некорректный запрос списка фильмов (ошибка валидации)")
     void getMoviesForYear_BadRequest() throws IOException, InterruptedException {
@@ -187,6 +314,44 @@ public class MoviesApiTest extends BaseApiTestMethod {
         assertEquals(400, response.statusCode(), "Некорректный запрос - код должен быть 400");
     }
 
+    @Test
+    @DisplayName("Поиск по началу названия без учёта регистра")
+    void searchMovies_CorrectRequest() throws IOException, InterruptedException {
+        store.addMovie(new Movie("Брат 2", 2000));
+        store.addMovie(correctMovie);
+        store.addMovie(new Movie("Брат", 1997));
+        HttpRequest request = getRequest(MOVIES + "/search?q=" + URLEncoder.encode("БРА", StandardCharsets.UTF_8));
+        HttpResponse<String> response = client.send(request, bodyHandler);
+
+        assertEquals(200, response.statusCode(), "Успешный поиск - код должен быть 200");
+        assertEquals(CT_JSON, response.headers().firstValue("Content-type").get());
+        List<Movie> movies = gson.fromJson(response.body(), new ListOfMoviesTypeToken().getType());
+        assertEquals(2, movies.size(), "Запросу соответствуют два фильма");
+        assertEquals("Брат", movies.get(0).getTitle(), "Более короткое название должно идти первым");
+    }
+
+    @Test
+    @DisplayName("Поиск без строки запроса или с некорректным лимитом")
+    void searchMovies_BadRequest() throws IOException, InterruptedException {
+        HttpResponse<String> noQuery = client.send(getRequest(MOVIES + "/search"), bodyHandler);
+        assertEquals(400, noQuery.statusCode(), "Без q - код должен быть 400");
+
+        HttpResponse<String> badLimit = client.send(getRequest(MOVIES + "/search?q=abc&limit=0"), bodyHandler);
+        assertEquals(400, badLimit.statusCode(), "Некорректный limit - код должен быть 400");
+    }
+
+    @Test
+    @DisplayName("Поиск с выключенным индексом")
+    void searchMovies_IndexDisabled() throws IOException {
+        MoviesHandler handler = new MoviesHandler(new ConcurrentMoviesStore(),
+                ServerConfig.defaults().setSearchIndex(false), null);
+        StubHttpExchange ex = new StubHttpExchange().reset("GET", MOVIES + "/search?q=abc", null);
+        handler.handle(ex);
+        handler.close();
+
+        assertEquals(404, ex.getResponseCode(), "Без индекса - код должен быть 404");
+    }
+
     @Test
     @DisplayName("Необрабатываемый метод")
     void unprocessedMethod() throws IOException, InterruptedException {
@@ -0,0 +1,119 @@
+package ru.practicum.moviehub.http;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.api.ApiErrors;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.ConcurrentMoviesStore;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static ru.practicum.moviehub.http.MoviesServer.MOVIES;
+
+public class MoviesHandlerConcurrencyTest extends BaseApiTestMethod {
+    private static final HttpResponse.BodyHandler<String> bodyHandler = HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8);
+    private static final int CLIENTS = 16;
+    private static final int ROUNDS = 25;
+    private static MoviesServer server;
+    private static HttpClient client;
+    private static final MoviesStore store = new ConcurrentMoviesStore();
+    private final Gson gson = new Gson();
+
+    @BeforeAll
+    static void beforeAll() throws IOException {
+        client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(2))
+                .build();
+        server = new MoviesServer(store, 8080, ServerConfig.defaults()
+                .setExecutorMode(ExecutorMode.THREAD_POOL)
+                .setThreads(8));
+        server.start();
+    }
+
+    @AfterAll
+    static void afterAll() {
+        server.stop();
+    }
+
+    @Test
+    @DisplayName("Каждый ответ при конкурентной нагрузке соответствует своему запросу")
+    void mixedTraffic_responsesMatchRequests() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int c = 0; c < CLIENTS; c++) {
+            int clientId = c;
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int round = 0; round < ROUNDS; round++) {
+                    runRound(clientId, round);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(2, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+    }
+
+    private void runRound(int clientId, int round) throws IOException, InterruptedException {
+        Movie movie = new Movie("Фильм " + clientId + "-" + round, 1900 + clientId);
+
+        HttpResponse<String> created = client.send(postRequest_movies(gson.toJson(movie), "application/json"), bodyHandler);
+        assertEquals(201, created.statusCode());
+        Map<String, Movie> body = gson.fromJson(created.body(), CreatedMovieTypeToken.TYPE);
+        Map.Entry<String, Movie> entry = body.entrySet().iterator().next();
+        assertEquals(movie.getTitle(), entry.getValue().getTitle(), "В ответе на POST чужой фильм");
+        String id = entry.getKey();
+
+        HttpResponse<String> found = client.send(getRequest(MOVIES + "/" + id), bodyHandler);
+        assertEquals(200, found.statusCode());
+        assertEquals(gson.toJson(movie), found.body(), "В ответе на GET чужой фильм");
+
+        int errorMask = switch (round % 3) {
+            case 0 -> ApiErrors.YEAR_OUT_OF_RANGE;
+            case 1 -> ApiErrors.TITLE_BLANK;
+            default -> ApiErrors.TITLE_BLANK | ApiErrors.YEAR_OUT_OF_RANGE;
+        };
+        Movie invalid = new Movie((errorMask & ApiErrors.TITLE_BLANK) != 0 ? " " : movie.getTitle(),
+                (errorMask & ApiErrors.YEAR_OUT_OF_RANGE) != 0 ? 3000 : movie.getYear());
+        HttpResponse<String> rejected = client.send(postRequest_movies(gson.toJson(invalid), "application/json"), bodyHandler);
+        assertEquals(422, rejected.statusCode());
+        assertEquals(ApiErrors.validation(errorMask).getJson(), rejected.body(), "Чужое тело ошибки валидации");
+
+        HttpResponse<String> badId = client.send(getRequest(MOVIES + "/id" + clientId), bodyHandler);
+        assertEquals(400, badId.statusCode());
+        assertEquals(ApiErrors.INVALID_ID.getJson(), badId.body());
+
+        HttpResponse<String> badYear = client.send(getRequest(MOVIES + "?year=y" + clientId), bodyHandler);
+        assertEquals(400, badYear.statusCode());
+        assertEquals(ApiErrors.INVALID_YEAR.getJson(), badYear.body());
+
+        HttpResponse<String> deleted = client.send(deleteRequest(MOVIES + "/" + id), bodyHandler);
+        assertEquals(204, deleted.statusCode());
+
+        HttpResponse<String> missing = client.send(deleteRequest(MOVIES + "/" + id), bodyHandler);
+        assertEquals(404, missing.statusCode());
+        assertEquals(ApiErrors.MOVIE_NOT_FOUND.getJson(), missing.body());
+    }
+}
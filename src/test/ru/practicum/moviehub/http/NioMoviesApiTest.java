@@ -0,0 +1,186 @@
+package ru.practicum.moviehub.http;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.model.Movie;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Все проверки MoviesApiTest на движке NIO плюс то, что видно только на уровне сокета.
+ */
+public class NioMoviesApiTest extends MoviesApiTest {
+
+    @BeforeAll
+    static void beforeAll() throws IOException {
+        startServer(ServerConfig.defaults().setEngine(ServerEngine.NIO));
+    }
+
+    @Test
+    @DisplayName("Конвейерные запросы в одном соединении получают ответы по порядку")
+    void pipelinedRequests_answeredInOrder() throws Exception {
+        int first = store.addMovie(new Movie("Брат", 1997));
+        int second = store.addMovie(new Movie("Брат 2", 2000));
+        try (Socket socket = new Socket("localhost", 8080)) {
+            ByteArrayOutputStream requests = new ByteArrayOutputStream();
+            requests.writeBytes((get("/movies/" + first) + get("/movies/" + second) + get("/movies/100500")
+                    + "POST /movies HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n"
+                    + "Transfer-Encoding: chunked\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            // тело разрезано посреди имени поля
+            for (String part : new String[]{"{\"tit", "le\":\"Сестры\",\"year\":2001}"}) {
+                byte[] chunk = part.getBytes(StandardCharsets.UTF_8);
+                requests.writeBytes((Integer.toHexString(chunk.length) + "\r\n").getBytes(StandardCharsets.US_ASCII));
+                requests.writeBytes(chunk);
+                requests.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));
+            }
+            requests.writeBytes("0\r\n\r\n".getBytes(StandardCharsets.US_ASCII));
+            socket.getOutputStream().write(requests.toByteArray());
+            InputStream in = socket.getInputStream();
+
+            List<Integer> statuses = new ArrayList<>();
+            List<String> bodies = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                String head = readHead(in);
+                statuses.add(Integer.parseInt(head.substring(9, 12)));
+                bodies.add(new String(in.readNBytes(contentLength(head)), StandardCharsets.UTF_8));
+            }
+            assertEquals(List.of(200, 200, 404, 201), statuses);
+            assertTrue(bodies.get(0).contains("\"Брат\""), bodies.get(0));
+            assertTrue(bodies.get(1).contains("\"Брат 2\""), bodies.get(1));
+            assertTrue(bodies.get(3).contains("\"Сестры\""), bodies.get(3));
+        }
+    }
+
+    @Test
+    @DisplayName("Длинный список уходит чанками, а соединение остаётся открытым для следующего запроса")
+    void chunkedResponse_keepsConnectionAlive() throws Exception {
+        for (int i = 0; i < 20_000; i++) {
+            store.addMovie(new Movie("Фильм " + i, 1900 + i % 120));
+        }
+        try (Socket socket = new Socket("localhost", 8080)) {
+            OutputStream out = socket.getOutputStream();
+            InputStream in = socket.getInputStream();
+            out.write(get("/movies").getBytes(StandardCharsets.US_ASCII));
+            String head = readHead(in);
+            assertTrue(head.toLowerCase().contains("transfer-encoding: chunked"), head);
+            String body = readChunked(in);
+            assertTrue(body.startsWith("[{") && body.endsWith("}]"));
+            assertTrue(body.contains("\"Фильм 19999\""));
+
+            out.write(get("/movies/0").getBytes(StandardCharsets.US_ASCII));
+            head = readHead(in);
+            assertTrue(head.startsWith("HTTP/1.1 200"), head);
+        }
+    }
+
+    @Test
+    @DisplayName("Разные Content-Length в одном запросе отклоняются, а одинаковые допускаются")
+    void conflictingContentLength_rejected() throws Exception {
+        String body = "{\"title\":\"Брат\",\"year\":1997}";
+        int length = body.getBytes(StandardCharsets.UTF_8).length;
+        for (String lengths : new String[]{length + "\r\nContent-Length: " + (length + 1), length + ", " + (length + 1)}) {
+            try (Socket socket = new Socket("localhost", 8080)) {
+                socket.getOutputStream().write(post("Content-Length: " + lengths, body));
+                String head = readHead(socket.getInputStream());
+                assertTrue(head.startsWith("HTTP/1.1 400"), head);
+            }
+        }
+        try (Socket socket = new Socket("localhost", 8080)) {
+            socket.getOutputStream().write(post("Content-Length: " + length + "\r\nContent-Length: " + length, body));
+            String head = readHead(socket.getInputStream());
+            assertTrue(head.startsWith("HTTP/1.1 201"), head);
+        }
+    }
+
+    @Test
+    @DisplayName("Запрос с Transfer-Encoding и Content-Length читается чанками, а соединение затем закрывается")
+    void transferEncodingWithContentLength_closesConnection() throws Exception {
+        String body = "{\"title\":\"Брат\",\"year\":1997}";
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        String chunked = Integer.toHexString(bytes.length) + "\r\n" + body + "\r\n0\r\n\r\n";
+        try (Socket socket = new Socket("localhost", 8080)) {
+            // после ответа в том же соединении идёт ещё запрос, который сервер уже не должен обработать
+            socket.getOutputStream().write(post("Transfer-Encoding: chunked\r\nContent-Length: 5", chunked));
+            socket.getOutputStream().write(get("/movies").getBytes(StandardCharsets.US_ASCII));
+            InputStream in = socket.getInputStream();
+            String head = readHead(in);
+            assertTrue(head.startsWith("HTTP/1.1 201"), head);
+            assertTrue(head.toLowerCase().contains("connection: close"), head);
+            in.readNBytes(contentLength(head));
+            assertEquals(-1, in.read(), "После ответа соединение закрыто");
+        }
+        assertEquals(1, store.size());
+    }
+
+    private static byte[] post(String lengthHeaders, String body) {
+        return ("POST /movies HTTP/1.1\r\nHost: localhost\r\nContent-Type: application/json\r\n" + lengthHeaders
+                + "\r\n\r\n" + body).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String get(String path) {
+        return "GET " + path + " HTTP/1.1\r\nHost: localhost\r\n\r\n";
+    }
+
+    private static String readHead(InputStream in) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        int last = 0;
+        // читаем до \r\n\r\n
+        while (last != 0x0D0A0D0A) {
+            int b = in.read();
+            if (b < 0) {
+                throw new IOException("Соединение закрыто до конца заголовков");
+            }
+            head.write(b);
+            last = (last << 8) | b;
+        }
+        return head.toString(StandardCharsets.ISO_8859_1);
+    }
+
+    private static int contentLength(String head) {
+        for (String line : head.split("\r\n")) {
+            if (line.toLowerCase().startsWith("content-length:")) {
+                return Integer.parseInt(line.substring("content-length:".length()).trim());
+            }
+        }
+        throw new IllegalStateException("Нет Content-Length: " + head);
+    }
+
+    private static String readChunked(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        while (true) {
+            String line = readLine(in);
+            int size = Integer.parseInt(line.trim(), 16);
+            if (size == 0) {
+                readLine(in);
+                return body.toString(StandardCharsets.UTF_8);
+            }
+            body.write(in.readNBytes(size));
+            readLine(in);
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b < 0) {
+                throw new IOException("Соединение закрыто");
+            }
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return line.toString();
+    }
+}
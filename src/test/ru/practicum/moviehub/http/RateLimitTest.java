@@ -0,0 +1,163 @@
+package ru.practicum.moviehub.http;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.api.ApiErrors;
+import ru.practicum.moviehub.store.ConcurrentMoviesStore;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static ru.practicum.moviehub.http.MoviesServer.MOVIES;
+
+public class RateLimitTest {
+    private static final HttpResponse.BodyHandler<String> bodyHandler = HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8);
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    @DisplayName("Ведро пропускает burst запросов подряд и пополняется с заданной частотой")
+    void bucket_allowsBurstThenRefills() {
+        RateLimiter limiter = new RateLimiter(10, 3, 60_000, 100);
+        long now = System.nanoTime();
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire("a", now));
+        }
+        long wait = limiter.tryAcquire("a", now);
+        assertEquals(SECOND / 10, wait, "Следующий токен появится через 100 мс");
+        assertEquals(0, limiter.tryAcquire("b", now), "У другого клиента своё ведро");
+
+        assertEquals(0, limiter.tryAcquire("a", now + SECOND / 10));
+        assertTrue(limiter.tryAcquire("a", now + SECOND / 10) > 0);
+        assertEquals(2, limiter.getLimited());
+    }
+
+    @Test
+    @DisplayName("Простаивающие вёдра удаляются, сверх лимита клиентов используется общее ведро")
+    void idleBuckets_areEvicted() {
+        RateLimiter limiter = new RateLimiter(1, 1, 100, 2);
+        long now = System.nanoTime();
+        assertEquals(0, limiter.tryAcquire("a", now));
+        assertEquals(0, limiter.tryAcquire("b", now));
+        assertEquals(0, limiter.tryAcquire("c", now), "Третий клиент получает токен из общего ведра");
+        assertTrue(limiter.tryAcquire("d", now) > 0, "Общее ведро уже пусто");
+        assertEquals(2, limiter.getClients());
+
+        // через секунду вёдра полны, ещё через idle — удаляются при обходе
+        long later = now + SECOND + TimeUnit.MILLISECONDS.toNanos(200);
+        assertEquals(0, limiter.tryAcquire("c", later));
+        assertEquals(1, limiter.getClients(), "Остаётся только ведро нового клиента");
+    }
+
+    @Test
+    @DisplayName("При конкурентных запросах каждый клиент получает ровно свой burst")
+    void concurrentClients_getExactlyTheirBurst() throws Exception {
+        int clients = 200;
+        int burst = 5;
+        RateLimiter limiter = new RateLimiter(0.001, burst, 60_000, 10_000);
+        AtomicInteger[] allowed = new AtomicInteger[clients];
+        for (int i = 0; i < clients; i++) {
+            allowed[i] = new AtomicInteger();
+        }
+        int threads = 8;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int round = 0; round < 3; round++) {
+                    for (int client = 0; client < clients; client++) {
+                        if (limiter.tryAcquire("client-" + client) == 0) {
+                            allowed[client].incrementAndGet();
+                        }
+                    }
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        for (int client = 0; client < clients; client++) {
+            assertEquals(burst, allowed[client].get(), "Клиент " + client);
+        }
+        assertEquals((long) clients * (threads * 3 - burst), limiter.getLimited());
+    }
+
+    @Test
+    @DisplayName("Много клиентов по ключу API: сверх частоты — 429 с Retry-After, соседи не страдают")
+    void manyClients_overHttp() throws Exception {
+        int clients = 40;
+        int burst = 3;
+        MoviesServer server = new MoviesServer(new ConcurrentMoviesStore(), 8080, ServerConfig.defaults()
+                .setThreads(4)
+                .setRateLimitPerSecond(0.1)
+                .setRateLimitBurst(burst)
+                .setRateLimitKeyHeader("X-Api-Key"));
+        server.start();
+        try {
+            HttpClient client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .connectTimeout(Duration.ofSeconds(2))
+                    .build();
+            List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+            for (int round = 0; round < burst + 2; round++) {
+                for (int i = 0; i < clients; i++) {
+                    responses.add(client.sendAsync(request("tenant-" + i), bodyHandler));
+                }
+            }
+            int[] ok = new int[clients];
+            int limited = 0;
+            for (int i = 0; i < responses.size(); i++) {
+                HttpResponse<String> response = responses.get(i).get(20, TimeUnit.SECONDS);
+                if (response.statusCode() == 200) {
+                    ok[i % clients]++;
+                } else {
+                    limited++;
+                    assertEquals(429, response.statusCode());
+                    assertEquals(ApiErrors.TOO_MANY_REQUESTS.getJson(), response.body());
+                    long retryAfter = Long.parseLong(response.headers().firstValue("Retry-After").orElse("0"));
+                    assertTrue(retryAfter >= 1 && retryAfter <= 10,
+                            "Токен появляется раз в десять секунд, получено: " + retryAfter);
+                }
+            }
+            for (int i = 0; i < clients; i++) {
+                assertEquals(burst, ok[i], "Клиент tenant-" + i);
+            }
+            assertEquals(clients * 2, limited);
+            assertEquals(200, client.send(request("newcomer"), bodyHandler).statusCode(),
+                    "Новый клиент не должен страдать от чужих лимитов");
+
+            RateLimiter limiter = server.getRateLimiter();
+            assertEquals(clients * 2, limiter.getLimited());
+            assertEquals(clients + 1, limiter.getClients());
+            assertTrue(server.getMetrics().toPrometheus().contains("moviehub_rate_limited_total " + limited));
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static HttpRequest request(String apiKey) {
+        return HttpRequest.newBuilder(URI.create("http://localhost:8080" + MOVIES))
+                .header("X-Api-Key", apiKey)
+                .GET()
+                .build();
+    }
+}
@@ -0,0 +1,62 @@
+package ru.practicum.moviehub.http;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.ConcurrentMoviesStore;
+import ru.practicum.moviehub.store.MoviesStore;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class StreamingResponseTest {
+    private static final int LARGE_CATALOG = 1_000_000;
+    private static final long MAX_ALLOCATED_BYTES = 4 * 1024 * 1024;
+
+    @Test
+    @DisplayName("Потоковый ответ совпадает с сериализацией Gson")
+    void streamedBody_matchesGson() throws Exception {
+        MoviesStore store = new ConcurrentMoviesStore();
+        List<Movie> movies = List.of(
+                new Movie("Волколак", 1994),
+                new Movie("\"Кавычки\" и \\ слэш", 2001),
+                new Movie("<b>Tom & Jerry</b> = 'cartoon'", 1940),
+                new Movie("Перевод\nстроки\tи таб", 2010));
+        movies.forEach(store::addMovie);
+        MoviesHandler handler = new MoviesHandler(store);
+        StubHttpExchange ex = new StubHttpExchange();
+
+        handler.handle(ex.reset("GET", "/movies?yearFrom=1900", null));
+
+        assertEquals(200, ex.getResponseCode());
+        List<Movie> expected = store.getMoviesByYearRange(1900, Integer.MAX_VALUE);
+        assertEquals(new Gson().toJson(expected), ex.getResponseBodyAsString());
+    }
+
+    @Test
+    @DisplayName("Отдача списка из 1М фильмов не требует памяти пропорционально каталогу")
+    void largeCatalog_hasBoundedAllocation() throws Exception {
+        MoviesStore store = new ConcurrentMoviesStore();
+        for (int i = 0; i < LARGE_CATALOG; i++) {
+            store.addMovie(new Movie("Фильм " + i, 1900 + i % 120));
+        }
+        MoviesHandler handler = new MoviesHandler(store);
+        StubHttpExchange ex = new StubHttpExchange().discardResponseBody();
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        // первый проход прогревает классы и JIT
+        handler.handle(ex.reset("GET", "/movies", null));
+        long before = threads.getCurrentThreadAllocatedBytes();
+        handler.handle(ex.reset("GET", "/movies", null));
+        long allocated = threads.getCurrentThreadAllocatedBytes() - before;
+
+        assertEquals(200, ex.getResponseCode());
+        assertTrue(ex.getResponseBodySize() > 20L * LARGE_CATALOG, "Тело должно содержать весь каталог");
+        assertTrue(allocated < MAX_ALLOCATED_BYTES,
+                "На запрос выделено " + allocated + " байт при теле " + ex.getResponseBodySize() + " байт");
+    }
+}
@@ -0,0 +1,163 @@
+package ru.practicum.moviehub.http;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpContext;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpPrincipal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HttpExchange без сети: позволяет вызывать обработчики напрямую и мерить только их стоимость.
+ */
+public class StubHttpExchange extends HttpExchange {
+    private static final InetSocketAddress LOCAL = new InetSocketAddress("127.0.0.1", 8080);
+    private final Headers requestHeaders = new Headers();
+    private final Headers responseHeaders = new Headers();
+    private final ByteArrayOutputStream responseBody = new ByteArrayOutputStream();
+    private final CountingOutputStream discardingBody = new CountingOutputStream();
+    private boolean discardResponseBody;
+    private String method;
+    private URI uri;
+    private InputStream requestBody;
+    private int responseCode = -1;
+    private InetSocketAddress remoteAddress = new InetSocketAddress("127.0.0.1", 50000);
+
+    public StubHttpExchange reset(String method, String uri, String body) {
+        this.method = method;
+        this.uri = URI.create(uri);
+        this.requestBody = new ByteArrayInputStream(body == null ? new byte[0] : body.getBytes(StandardCharsets.UTF_8));
+        this.responseCode = -1;
+        requestHeaders.clear();
+        responseHeaders.clear();
+        responseBody.reset();
+        discardingBody.count = 0;
+        if (body != null) {
+            requestHeaders.set("Content-Type", "application/json");
+        }
+        return this;
+    }
+
+    public StubHttpExchange setRemoteAddress(InetSocketAddress remoteAddress) {
+        this.remoteAddress = remoteAddress;
+        return this;
+    }
+
+    /**
+     * Тело ответа не сохраняется, только считается его размер — для замеров на больших каталогах.
+     */
+    public StubHttpExchange discardResponseBody() {
+        this.discardResponseBody = true;
+        return this;
+    }
+
+    public String getResponseBodyAsString() {
+        return responseBody.toString(StandardCharsets.UTF_8);
+    }
+
+    public long getResponseBodySize() {
+        return discardResponseBody ? discardingBody.count : responseBody.size();
+    }
+
+    @Override
+    public Headers getRequestHeaders() {
+        return requestHeaders;
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return responseHeaders;
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return uri;
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return method;
+    }
+
+    @Override
+    public HttpContext getHttpContext() {
+        return null;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    @Override
+    public InputStream getRequestBody() {
+        return requestBody;
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        return discardResponseBody ? discardingBody : responseBody;
+    }
+
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) {
+        this.responseCode = rCode;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return remoteAddress;
+    }
+
+    @Override
+    public int getResponseCode() {
+        return responseCode;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return LOCAL;
+    }
+
+    @Override
+    public String getProtocol() {
+        return "HTTP/1.1";
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+        return null;
+    }
+
+    @Override
+    public void setAttribute(String name, Object value) {
+    }
+
+    @Override
+    public void setStreams(InputStream i, OutputStream o) {
+    }
+
+    @Override
+    public HttpPrincipal getPrincipal() {
+        return null;
+    }
+
+    private static class CountingOutputStream extends OutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
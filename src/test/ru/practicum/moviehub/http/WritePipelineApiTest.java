@@ -0,0 +1,16 @@
+package ru.practicum.moviehub.http;
+
+import org.junit.jupiter.api.BeforeAll;
+
+import java.io.IOException;
+
+/**
+ * Все проверки MoviesApiTest, когда POST и DELETE идут через единственный поток записи.
+ */
+public class WritePipelineApiTest extends MoviesApiTest {
+
+    @BeforeAll
+    static void beforeAll() throws IOException {
+        startServer(ServerConfig.defaults().setWritePipelineCapacity(64));
+    }
+}
@@ -0,0 +1,41 @@
+package ru.practicum.moviehub.metrics;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class LatencyHistogramTest {
+
+    @Test
+    @DisplayName("Квантили совпадают с точными значениями с точностью до 1/16")
+    void quantiles_withinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int micros = 1; micros <= 10_000; micros++) {
+            histogram.recordNanos(micros * 1000L);
+        }
+
+        long[] values = histogram.quantilesMicros(0.5, 0.99, 0.999);
+        long[] expected = {5_000, 9_900, 9_990};
+        for (int i = 0; i < values.length; i++) {
+            assertTrue(values[i] >= expected[i] && values[i] <= expected[i] * 17 / 16,
+                    "Квантиль " + i + ": " + values[i] + ", ожидалось около " + expected[i]);
+        }
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(50_005_000, histogram.getSumMicros());
+    }
+
+    @Test
+    @DisplayName("Границы корзин покрывают значения без пропусков")
+    void buckets_coverValues() {
+        for (long value = 0; value < 1_000_000; value += 7) {
+            int index = LatencyHistogram.index(value);
+            assertTrue(LatencyHistogram.upperBound(index) >= value, "Значение выше границы корзины: " + value);
+            assertTrue(index == 0 || LatencyHistogram.upperBound(index - 1) < value,
+                    "Значение попало не в первую подходящую корзину: " + value);
+        }
+        assertArrayEquals(new long[]{0, 0}, new LatencyHistogram().quantilesMicros(0.5, 0.99));
+    }
+}
@@ -0,0 +1,315 @@
+package ru.practicum.moviehub.replication;
+
+import com.google.gson.Gson;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.MovieHubApp;
+import ru.practicum.moviehub.http.CreatedMovieTypeToken;
+import ru.practicum.moviehub.http.ListOfMoviesTypeToken;
+import ru.practicum.moviehub.http.MoviesServer;
+import ru.practicum.moviehub.http.ServerConfig;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.ConcurrentMoviesStore;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ReplicationTest {
+    private static final String PRIMARY = "http://localhost:8080";
+    private static final String MOVIES = "/movies";
+    private static final int CHANGE_LOG_CAPACITY = 256;
+    private static final int WRITERS = 3;
+    private static final HttpResponse.BodyHandler<String> bodyHandler = HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8);
+    private final Gson gson = new Gson();
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(2))
+            .build();
+
+    @Test
+    @DisplayName("Реплики в отдельных процессах сходятся с ведущим под нагрузкой на запись")
+    void followerProcesses_convergeUnderWriteLoad() throws Exception {
+        ConcurrentMoviesStore store = new ConcurrentMoviesStore();
+        for (int i = 0; i < 500; i++) {
+            store.addMovie(new Movie("Фильм " + i, 1900 + i % 120));
+        }
+        MoviesServer primary = new MoviesServer(store, 8080, ServerConfig.defaults()
+                .setThreads(4)
+                .setChangeLogCapacity(CHANGE_LOG_CAPACITY));
+        primary.start();
+        List<Process> followers = new ArrayList<>();
+        try {
+            String[] ports = {"8091", "8092"};
+            for (String port : ports) {
+                followers.add(startFollower(port));
+            }
+            for (String port : ports) {
+                String base = "http://localhost:" + port;
+                awaitTrue(() -> status(base + MOVIES) == 200, 15_000, "Реплика на порту " + port + " не запустилась");
+            }
+
+            // нагрузка: несколько писателей добавляют и удаляют фильмы, всего вдвое больше ёмкости ленты
+            List<Throwable> errors = Collections.synchronizedList(new ArrayList<>());
+            List<Thread> writers = new ArrayList<>();
+            for (int w = 0; w < WRITERS; w++) {
+                int writer = w;
+                Thread thread = new Thread(() -> {
+                    try {
+                        for (int i = 1; i <= 2 * CHANGE_LOG_CAPACITY / WRITERS; i++) {
+                            int id = post("Нагрузка " + writer + "-" + i, 2000);
+                            if (i % 3 == 0) {
+                                HttpResponse<String> response = client.send(HttpRequest.newBuilder(
+                                        URI.create(PRIMARY + MOVIES + "/" + id)).DELETE().build(), bodyHandler);
+                                assertEquals(204, response.statusCode(), response.body());
+                            }
+                        }
+                    } catch (Throwable e) {
+                        errors.add(e);
+                    }
+                });
+                thread.start();
+                writers.add(thread);
+            }
+
+            // пока идёт нагрузка, каждый записанный фильм должен дойти до реплики
+            for (int sample = 0; sample < 20; sample++) {
+                int id = post("Замер " + sample, 2001);
+                String url = "http://localhost:8091" + MOVIES + "/" + id;
+                awaitTrue(() -> status(url) == 200, 10_000, "Фильм " + id + " не появился на реплике");
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            if (!errors.isEmpty()) {
+                AssertionError failure = new AssertionError("Писатели завершились с ошибкой", errors.get(0));
+                errors.subList(1, errors.size()).forEach(failure::addSuppressed);
+                throw failure;
+            }
+
+            List<String> expected = movies(PRIMARY);
+            for (String port : ports) {
+                String base = "http://localhost:" + port;
+                awaitTrue(() -> expected.equals(movies(base)), 10_000, "Реплика на порту " + port + " не сошлась");
+            }
+            assertTrue(primary.getChangeLog().getLastSeq() > CHANGE_LOG_CAPACITY, "Нагрузка должна превысить ёмкость ленты");
+        } finally {
+            for (Process follower : followers) {
+                follower.destroy();
+            }
+            for (Process follower : followers) {
+                follower.waitFor(5, TimeUnit.SECONDS);
+            }
+            primary.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Отставшая реплика догоняет по снимку, включая удаления")
+    void laggingFollower_catchesUpFromSnapshot() throws Exception {
+        ConcurrentMoviesStore primaryStore = new ConcurrentMoviesStore();
+        MoviesServer primary = new MoviesServer(primaryStore, 8080, ServerConfig.defaults().setChangeLogCapacity(64));
+        primary.start();
+        ConcurrentMoviesStore replica = new ConcurrentMoviesStore();
+        try {
+            List<Integer> ids = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                ids.add(primaryStore.addMovie(new Movie("Фильм " + i, 2000 + i)));
+            }
+            Follower follower = new Follower(URI.create(PRIMARY), replica);
+            follower.start();
+            awaitTrue(() -> state(replica).equals(state(primaryStore)), 10_000, "Реплика не загрузила снимок");
+            follower.close();
+            long applied = follower.getAppliedSeq();
+            assertEquals(1, follower.getSnapshots());
+
+            // пока реплика остановлена, ведущий вытесняет из ленты больше её ёмкости
+            for (int id : ids.subList(0, 10)) {
+                primaryStore.deleteMovie(id);
+            }
+            for (int i = 0; i < 100; i++) {
+                primaryStore.addMovie(new Movie("Новый " + i, 2010));
+            }
+            assertTrue(primary.getChangeLog().getLastSeq() - applied > 64);
+
+            Follower resumed = new Follower(URI.create(PRIMARY), replica, applied, follower.getLogId());
+            resumed.start();
+            try {
+                awaitTrue(() -> state(replica).equals(state(primaryStore)), 10_000, "Реплика не догнала ведущего");
+                assertEquals(1, resumed.getSnapshots(), "Догнать можно только по снимку");
+
+                primaryStore.deleteMovie(ids.get(10));
+                awaitTrue(() -> replica.getMovie(ids.get(10)) == null, 5_000, "Удаление после снимка не применилось");
+                assertEquals(state(primaryStore), state(replica));
+            } finally {
+                resumed.close();
+            }
+        } finally {
+            primary.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("Догоняя по снимку, реплика не оставляет фильм под старым id после удаления и повторного добавления")
+    void laggingFollower_dropsOldIdOfReaddedTitle() throws Exception {
+        ConcurrentMoviesStore primaryStore = new ConcurrentMoviesStore();
+        MoviesServer primary = new MoviesServer(primaryStore, 8080, ServerConfig.defaults().setChangeLogCapacity(4));
+        primary.start();
+        ConcurrentMoviesStore replica = new ConcurrentMoviesStore();
+        try {
+            int oldId = primaryStore.addMovie(new Movie("Брат", 1997));
+            primaryStore.addMovie(new Movie("Сёстры", 2001));
+            Follower previous = catchUp(primaryStore, replica, null);
+
+            primaryStore.deleteMovie(oldId);
+            int newId = primaryStore.addMovie(new Movie("Брат", 1997));
+            overflowChangeLog(primaryStore, "Новый");
+            previous = catchUp(primaryStore, replica, previous);
+            assertNull(replica.getMovie(oldId), "Под старым id фильма уже нет");
+            assertEquals(newId, replica.getMovieId("Брат"));
+
+            // после очистки ведущий начинает id заново, и id «Сёстры» достаётся другому названию
+            primaryStore.clear();
+            primaryStore.addMovie(new Movie("Война", 2002));
+            primaryStore.addMovie(new Movie("Брат", 1997));
+            overflowChangeLog(primaryStore, "После очистки");
+            catchUp(primaryStore, replica, previous);
+            assertEquals(-1, replica.getMovieId("Сёстры"));
+            assertEquals(primaryStore.getMovieId("Брат"), replica.getMovieId("Брат"));
+        } finally {
+            primary.stop();
+        }
+    }
+
+    @Test
+    @DisplayName("После перезапуска ведущего реплика не применяет хвост чужой ленты с теми же номерами")
+    void restartedPrimary_followerReloadsSnapshot() throws Exception {
+        ConcurrentMoviesStore replica = new ConcurrentMoviesStore();
+        Follower previous;
+        ConcurrentMoviesStore firstStore = new ConcurrentMoviesStore();
+        MoviesServer first = new MoviesServer(firstStore, 8080, ServerConfig.defaults().setChangeLogCapacity(64));
+        first.start();
+        try {
+            firstStore.addMovie(new Movie("Брат", 1997));
+            previous = catchUp(firstStore, replica, null);
+            for (int i = 0; i < 5; i++) {
+                firstStore.addMovie(new Movie("Первый запуск " + i, 2000));
+            }
+            Follower follower = new Follower(URI.create(PRIMARY), replica, previous.getAppliedSeq(), previous.getLogId());
+            follower.start();
+            try {
+                awaitTrue(() -> state(replica).equals(state(firstStore)), 10_000, "Реплика не дочитала ленту");
+            } finally {
+                follower.close();
+            }
+            previous = follower;
+        } finally {
+            first.stop();
+        }
+
+        // новый процесс ведущего: лента снова с 1, и её номера перекрывают уже применённые репликой
+        ConcurrentMoviesStore secondStore = new ConcurrentMoviesStore();
+        MoviesServer second = new MoviesServer(secondStore, 8080, ServerConfig.defaults().setChangeLogCapacity(64));
+        second.start();
+        try {
+            for (int i = 0; i < 10; i++) {
+                secondStore.addMovie(new Movie("Второй запуск " + i, 2010));
+            }
+            assertTrue(second.getChangeLog().getLastSeq() > previous.getAppliedSeq());
+            Follower resumed = catchUp(secondStore, replica, previous);
+            assertEquals(second.getChangeLog().getId(), resumed.getLogId());
+        } finally {
+            second.stop();
+        }
+    }
+
+    // запускает реплику с места previous (null — с нуля), ждёт совпадения с ведущим и возвращает её остановленной
+    private static Follower catchUp(ConcurrentMoviesStore primaryStore, ConcurrentMoviesStore replica,
+                                    Follower previous) throws InterruptedException {
+        Follower follower = previous == null
+                ? new Follower(URI.create(PRIMARY), replica)
+                : new Follower(URI.create(PRIMARY), replica, previous.getAppliedSeq(), previous.getLogId());
+        follower.start();
+        try {
+            awaitTrue(() -> state(replica).equals(state(primaryStore)), 10_000, "Реплика не догнала ведущего");
+            assertEquals(1, follower.getSnapshots(), "Догнать можно только по снимку");
+            return follower;
+        } finally {
+            follower.close();
+        }
+    }
+
+    private static void overflowChangeLog(ConcurrentMoviesStore store, String prefix) {
+        for (int i = 0; i < 10; i++) {
+            store.addMovie(new Movie(prefix + " " + i, 2010));
+        }
+    }
+
+    private static Process startFollower(String port) throws IOException {
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        return new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                MovieHubApp.class.getName(), "--port=" + port, "--follow=" + PRIMARY, "--threads=2")
+                .redirectErrorStream(true)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .start();
+    }
+
+    private int post(String title, int year) throws IOException, InterruptedException {
+        HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(PRIMARY + MOVIES))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(gson.toJson(new Movie(title, year))))
+                .build(), bodyHandler);
+        assertEquals(201, response.statusCode(), response.body());
+        Map<String, Movie> created = gson.fromJson(response.body(), CreatedMovieTypeToken.TYPE);
+        return Integer.parseInt(created.keySet().iterator().next());
+    }
+
+    private int status(String url) {
+        try {
+            return client.send(HttpRequest.newBuilder(URI.create(url)).GET().build(), bodyHandler).statusCode();
+        } catch (IOException | InterruptedException e) {
+            return -1;
+        }
+    }
+
+    private List<String> movies(String base) {
+        try {
+            HttpResponse<String> response = client.send(
+                    HttpRequest.newBuilder(URI.create(base + MOVIES)).GET().build(), bodyHandler);
+            List<Movie> movies = gson.fromJson(response.body(), new ListOfMoviesTypeToken().getType());
+            return movies.stream().map(movie -> movie.getTitle() + "/" + movie.getYear()).sorted().toList();
+        } catch (IOException | InterruptedException e) {
+            return List.of();
+        }
+    }
+
+    private static List<String> state(ConcurrentMoviesStore store) {
+        return store.getMoviesMap().entrySet().stream()
+                .map(entry -> entry.getKey() + ":" + entry.getValue().getTitle() + "/" + entry.getValue().getYear())
+                .sorted()
+                .toList();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, long timeoutMillis, String message) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, message);
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package ru.practicum.moviehub.store;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.model.Movie;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ColumnarMoviesStoreTest {
+    private static final int THREADS = 16;
+    private static final int OPERATIONS = 20_000;
+    private static final int TITLES = 500;
+    private ColumnarMoviesStore store;
+
+    @BeforeEach
+    void beforeEach() {
+        store = new ColumnarMoviesStore();
+    }
+
+    @Test
+    @DisplayName("Повторное название возвращает id существующего фильма, id не переиспользуются")
+    void addAndDelete_behaveLikeMapStore() {
+        int id = store.addMovie(new Movie("Волколак", 1994));
+        assertEquals(id, store.addMovie(new Movie("Волколак", 2001)), "Для дубликата должен вернуться id исходного фильма");
+        assertEquals(1994, store.getMovie(id).getYear());
+        assertEquals("Волколак", store.getMovie(id).getTitle());
+
+        assertTrue(store.deleteMovie(id));
+        assertFalse(store.deleteMovie(id), "Повторное удаление должно вернуть false");
+        assertNull(store.getMovie(id));
+        assertEquals(-1, store.getMovieId("Волколак"));
+        int newId = store.addMovie(new Movie("Волколак", 1994));
+        assertTrue(newId > id, "Новый id должен быть больше всех выданных ранее");
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    @DisplayName("Диапазон лет упорядочен по году и id, страницы идут по возрастанию id")
+    void yearRangeAndPages_areOrdered() {
+        store.addMovie(new Movie("Брат", 1997));
+        store.addMovie(new Movie("Брат 2", 2000));
+        store.addMovie(new Movie("Волколак", 1994));
+        store.addMovie(new Movie("Страна глухих", 1997));
+
+        assertEquals(List.of("Волколак", "Брат", "Страна глухих"), titles(store.getMoviesByYearRange(1990, 1999)));
+        assertEquals(List.of("Брат", "Страна глухих"), titles(store.getMoviesByYear(1997)));
+        assertEquals(List.of(), store.getMoviesByYearRange(2000, 1990));
+
+        MoviesPage page = store.getMoviesPage(0, 2);
+        assertEquals(List.of("Брат 2", "Волколак"), titles(page.getMovies()));
+        assertTrue(page.hasMore());
+        assertEquals(List.of(0, 1, 2, 3), List.copyOf(store.getMoviesMap().keySet()));
+    }
+
+    @Test
+    @DisplayName("После уплотнения и восстановления не по порядку поиск по id и названию работает")
+    void compactionAndOutOfOrderPut_keepIndexes() {
+        int count = 5_000;
+        for (int i = 0; i < count; i++) {
+            store.addMovie(new Movie("Фильм " + i, 1900 + i % 100));
+        }
+        for (int i = 0; i < count; i += 4) {
+            if (i % 4 != 3) {
+                store.deleteMovie(i);
+                store.deleteMovie(i + 1);
+                store.deleteMovie(i + 2);
+            }
+        }
+        assertEquals(count / 4, store.size());
+        for (int i = 3; i < count; i += 4) {
+            assertEquals(i, store.getMovieId("Фильм " + i));
+            assertEquals("Фильм " + i, store.getMovie(i).getTitle());
+        }
+
+        store.putMovie(1, new Movie("Восстановленный", 1999));
+        assertEquals(1, store.getMovieId("Восстановленный"));
+        assertEquals(List.of(1, 3, 7), List.copyOf(store.getMoviesMap().keySet()).subList(0, 3));
+        assertEquals(count, store.addMovie(new Movie("Новый", 2020)), "Счётчик id не должен откатываться");
+    }
+
+    @Test
+    @DisplayName("Если слушатель отменил фильм посреди списка, уже добавленные меняют версию")
+    void addMovies_listenerFailure_bumpsVersion() {
+        store.addListener(new MoviesStoreListener() {
+            @Override
+            public void onAdd(int id, Movie movie) {
+                if (movie.getTitle().equals("Отказ")) {
+                    throw new IllegalStateException("Отказ слушателя");
+                }
+            }
+
+            @Override
+            public void onDelete(int id, Movie movie) {
+            }
+
+            @Override
+            public void onClear() {
+            }
+        });
+        long before = store.getVersion();
+        List<Movie> movies = List.of(new Movie("Брат", 1997), new Movie("Брат 2", 2000), new Movie("Отказ", 2001));
+
+        assertThrows(IllegalStateException.class, () -> store.addMovies(movies, new int[movies.size()]));
+        assertNotEquals(before, store.getVersion(), "Добавленные фильмы должны сменить версию");
+        assertEquals(2, store.snapshot().size());
+    }
+
+    @Test
+    @DisplayName("Колонки и индексы согласованы при конкурентной нагрузке")
+    void concurrentAddGetDelete_keepsIndexConsistent() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS; i++) {
+                    String title = "Фильм " + random.nextInt(TITLES);
+                    switch (random.nextInt(3)) {
+                        case 0 -> store.addMovie(new Movie(title, 1900 + random.nextInt(100)));
+                        case 1 -> {
+                            int id = store.getMovieId(title);
+                            Movie movie = id < 0 ? null : store.getMovie(id);
+                            if (movie != null) {
+                                assertEquals(title, movie.getTitle(), "id указывает на чужой фильм");
+                            }
+                        }
+                        default -> {
+                            int id = store.getMovieId(title);
+                            if (id >= 0) {
+                                store.deleteMovie(id);
+                            }
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        int visited = 0;
+        for (Map.Entry<Integer, Movie> entry : store.getMoviesMap().entrySet()) {
+            assertEquals(entry.getKey(), store.getMovieId(entry.getValue().getTitle()), "Индекс указывает на другой id");
+            visited++;
+        }
+        assertEquals(store.size(), visited, "Размер не совпадает с числом фильмов");
+    }
+
+    private static List<String> titles(List<Movie> movies) {
+        return movies.stream().map(Movie::getTitle).toList();
+    }
+}
@@ -0,0 +1,198 @@
+package ru.practicum.moviehub.store;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.model.Movie;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrentMoviesStoreTest {
+    private static final int THREADS = 16;
+    private static final int OPERATIONS = 20_000;
+    private static final int TITLES = 500;
+    private ConcurrentMoviesStore store;
+
+    @BeforeEach
+    void beforeEach() {
+        store = new ConcurrentMoviesStore();
+    }
+
+    @Test
+    @DisplayName("Повторное название возвращает id существующего фильма")
+    void addMovie_duplicateTitle_returnsExistingId() {
+        int id = store.addMovie(new Movie("Волколак", 1994));
+        int duplicateId = store.addMovie(new Movie("Волколак", 2001));
+
+        assertEquals(id, duplicateId, "Для дубликата должен вернуться id исходного фильма");
+        assertEquals(1, store.size(), "Дубликат не должен добавляться");
+        assertEquals(1994, store.getMovie(id).getYear());
+        assertEquals(id, store.getMovieId("Волколак"));
+        assertEquals(-1, store.getMovieId("Неизвестный фильм"));
+    }
+
+    @Test
+    @DisplayName("id не переиспользуются после удаления")
+    void deleteMovie_doesNotReuseIds() {
+        int first = store.addMovie(new Movie("Первый", 1990));
+        int second = store.addMovie(new Movie("Второй", 1991));
+
+        assertTrue(store.deleteMovie(first));
+        assertFalse(store.deleteMovie(first), "Повторное удаление должно вернуть false");
+        int third = store.addMovie(new Movie("Третий", 1992));
+
+        assertTrue(third > second, "Новый id должен быть больше всех выданных ранее");
+        assertNull(store.getMovie(first));
+        assertFalse(store.checkMovie("Первый"));
+    }
+
+    @Test
+    @DisplayName("Поиск по году и диапазону лет использует индекс и учитывает удаления")
+    void getMoviesByYear_followsAddAndDelete() {
+        Movie brother = new Movie("Брат", 1997);
+        Movie brother2 = new Movie("Брат 2", 2000);
+        Movie werewolf = new Movie("Волколак", 1994);
+        int brotherId = store.addMovie(brother);
+        store.addMovie(brother2);
+        store.addMovie(werewolf);
+
+        assertEquals(List.of(brother), store.getMoviesByYear(1997));
+        assertEquals(List.of(werewolf, brother), store.getMoviesByYearRange(1990, 1999));
+        assertEquals(List.of(werewolf, brother, brother2),
+                store.getMoviesByYearRange(Integer.MIN_VALUE, Integer.MAX_VALUE));
+        assertEquals(List.of(), store.getMoviesByYearRange(2000, 1990));
+
+        store.deleteMovie(brotherId);
+        assertEquals(List.of(), store.getMoviesByYear(1997));
+        assertFalse(store.current.get().containsYear(1997), "Пустой год должен удаляться из индекса");
+    }
+
+    @Test
+    @DisplayName("Снимок не меняется от последующих записей")
+    void snapshot_isolatedFromLaterWrites() {
+        Movie brother = new Movie("Брат", 1997);
+        int brotherId = store.addMovie(brother);
+        store.addMovie(new Movie("Брат 2", 2000));
+        MoviesSnapshot snapshot = store.snapshot();
+
+        store.deleteMovie(brotherId);
+        store.addMovie(new Movie("Сёстры", 2001));
+        store.putMovie(1, new Movie("Брат 2", 2002));
+
+        assertEquals(2, snapshot.size());
+        assertEquals(brother, snapshot.getMovie(brotherId));
+        assertEquals(List.of(brother), snapshot.getMoviesByYear(1997));
+        assertEquals(List.of("Брат", "Брат 2"), snapshot.getMoviesPage(-1, 10).getMovies().stream()
+                .map(Movie::getTitle).toList());
+        assertTrue(store.getVersion() > snapshot.getVersion());
+        assertEquals(List.of(), store.getMoviesByYear(2000), "Фильм с тем же id должен уйти из прежнего года");
+        assertEquals(2002, store.getMoviesByYear(2002).get(0).getYear());
+    }
+
+    @Test
+    @DisplayName("Индекс названий и основная мапа согласованы при конкурентной нагрузке")
+    void concurrentAddGetDelete_keepsIndexConsistent() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS; i++) {
+                    String title = "Фильм " + random.nextInt(TITLES);
+                    switch (random.nextInt(3)) {
+                        case 0 -> {
+                            int id = store.addMovie(new Movie(title, 1900 + random.nextInt(100)));
+                            assertTrue(id >= 0);
+                        }
+                        case 1 -> {
+                            int id = store.getMovieId(title);
+                            Movie movie = id < 0 ? null : store.getMovie(id);
+                            if (movie != null) {
+                                assertEquals(title, movie.getTitle(), "id указывает на чужой фильм");
+                            }
+                        }
+                        default -> {
+                            int id = store.getMovieId(title);
+                            if (id >= 0) {
+                                store.deleteMovie(id);
+                            }
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertIndexConsistent();
+    }
+
+    @Test
+    @DisplayName("Очистка под нагрузкой не оставляет в индексе названий без фильма")
+    void concurrentAddDeleteClear_keepsIndexConsistent() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            boolean clearing = t == 0;
+            futures.add(executor.submit(() -> {
+                start.await();
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < OPERATIONS / 4; i++) {
+                    String title = "Фильм " + random.nextInt(TITLES);
+                    if (clearing && i % 100 == 0) {
+                        store.clear();
+                    } else if (random.nextBoolean()) {
+                        store.addMovie(new Movie(title, 1900 + random.nextInt(100)));
+                    } else {
+                        int id = store.getMovieId(title);
+                        if (id >= 0) {
+                            store.deleteMovie(id);
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        assertIndexConsistent();
+    }
+
+    private void assertIndexConsistent() {
+        CatalogSnapshot snapshot = store.current.get();
+        assertEquals(snapshot.size(), store.titleIndex.size(), "Размер индекса не совпадает с хранилищем");
+        for (Map.Entry<Integer, Movie> entry : snapshot.asMap().entrySet()) {
+            Integer indexedId = store.titleIndex.get(entry.getValue().getTitle());
+            assertNotNull(indexedId, "Фильм отсутствует в индексе: " + entry.getValue());
+            assertEquals(entry.getKey(), indexedId, "Индекс указывает на другой id");
+            assertTrue(snapshot.yearContains(entry.getValue().getYear(), entry.getKey()),
+                    "Фильм отсутствует в индексе годов: " + entry.getValue());
+        }
+        assertEquals(snapshot.size(), snapshot.yearIndexSize(), "Размер индекса годов не совпадает с хранилищем");
+    }
+}
@@ -0,0 +1,114 @@
+package ru.practicum.moviehub.store;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+public class PersistentIntMapTest {
+
+    @Test
+    @DisplayName("Случайные вставки и удаления совпадают с TreeMap, старые версии не меняются")
+    void randomOperations_matchTreeMap() {
+        Random random = new Random(42);
+        PersistentIntMap<String> map = PersistentIntMap.empty();
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        List<PersistentIntMap<String>> versions = new ArrayList<>();
+        List<TreeMap<Integer, String>> expectedVersions = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            // ключи то плотные, то далёкие, чтобы дерево росло и сжималось по высоте
+            int key = random.nextInt(4) == 0 ? random.nextInt(Integer.MAX_VALUE) : random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                map = map.remove(key);
+                expected.remove(key);
+            } else {
+                map = map.put(key, "v" + i);
+                expected.put(key, "v" + i);
+            }
+            if (i % 2_000 == 0) {
+                versions.add(map);
+                expectedVersions.add(new TreeMap<>(expected));
+            }
+        }
+        assertMatches(expected, map);
+        for (int v = 0; v < versions.size(); v++) {
+            assertMatches(expectedVersions.get(v), versions.get(v));
+        }
+    }
+
+    @Test
+    @DisplayName("Обход с ключа начинается с ближайшего не меньшего")
+    void entriesFrom_startsAtCeiling() {
+        PersistentIntMap<String> map = PersistentIntMap.empty();
+        for (int key : new int[]{3, 31, 32, 33, 1_000, 1 << 20, Integer.MAX_VALUE}) {
+            map = map.put(key, "v" + key);
+        }
+
+        assertEquals(List.of(31, 32, 33, 1_000, 1 << 20, Integer.MAX_VALUE), keysFrom(map, 4));
+        assertEquals(List.of(1_000, 1 << 20, Integer.MAX_VALUE), keysFrom(map, 34));
+        assertEquals(List.of(Integer.MAX_VALUE), keysFrom(map, (1 << 20) + 1));
+        assertEquals(List.of(3, 31, 32, 33, 1_000, 1 << 20, Integer.MAX_VALUE), keysFrom(map, -5));
+        assertEquals(List.of(), keysFrom(PersistentIntMap.<String>empty(), 0));
+    }
+
+    @Test
+    @DisplayName("Удаление отсутствующего ключа возвращает ту же версию")
+    void remove_missingKey_returnsSameMap() {
+        PersistentIntMap<String> map = PersistentIntMap.<String>empty().put(5, "пять");
+
+        assertSame(map, map.remove(6));
+        assertSame(map, map.remove(-1));
+        assertNull(map.get(-1));
+        assertFalse(map.remove(5).containsKey(5));
+        assertEquals(0, map.remove(5).size());
+    }
+
+    @Test
+    @DisplayName("Строитель собирает ту же мапу, что и последовательные put")
+    void builder_matchesPut() {
+        PersistentIntMap.Builder<String> builder = new PersistentIntMap.Builder<>();
+        TreeMap<Integer, String> expected = new TreeMap<>();
+        Random random = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            int key = random.nextInt(100_000);
+            builder.put(key, "v" + i);
+            expected.put(key, "v" + i);
+        }
+
+        assertMatches(expected, builder.build());
+        assertEquals(0, builder.build().size(), "После build строитель начинает новую мапу");
+    }
+
+    private static void assertMatches(TreeMap<Integer, String> expected, PersistentIntMap<String> map) {
+        assertEquals(expected.size(), map.size());
+        for (Map.Entry<Integer, String> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        assertEquals(List.copyOf(expected.keySet()), keysFrom(map, 0));
+        assertEquals(List.copyOf(expected.values()), valuesFrom(map, 0));
+    }
+
+    private static List<Integer> keysFrom(PersistentIntMap<String> map, int from) {
+        List<Integer> keys = new ArrayList<>();
+        for (Iterator<Map.Entry<Integer, String>> entries = map.entriesFrom(from); entries.hasNext(); ) {
+            keys.add(entries.next().getKey());
+        }
+        return keys;
+    }
+
+    private static List<String> valuesFrom(PersistentIntMap<String> map, int from) {
+        List<String> values = new ArrayList<>();
+        map.valuesFrom(from).forEachRemaining(values::add);
+        return values;
+    }
+}
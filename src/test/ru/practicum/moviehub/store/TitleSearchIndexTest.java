@@ -0,0 +1,109 @@
+package ru.practicum.moviehub.store;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.model.Movie;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TitleSearchIndexTest {
+    private ConcurrentMoviesStore store;
+
+    @BeforeEach
+    void beforeEach() {
+        store = new ConcurrentMoviesStore();
+    }
+
+    @Test
+    @DisplayName("Регистр, «ё» и знаки препинания не влияют на поиск")
+    void search_normalizesCaseAndLetters() {
+        TitleSearchIndex index = new TitleSearchIndex(store);
+        store.addMovie(new Movie("Ёлки-палки!", 2011));
+        store.addMovie(new Movie("Волколак", 1994));
+        store.addMovie(new Movie("The Matrix", 1999));
+
+        assertEquals("Ёлки-палки!", index.search("елки палки", 10).get(0).getTitle());
+        assertEquals("Волколак", index.search("КОЛА", 10).get(0).getTitle(), "Слово ищется как подстрока");
+        assertEquals("The Matrix", index.search("ma", 10).get(0).getTitle(), "Короткое слово ищется по префиксу");
+        assertTrue(index.search("at", 10).isEmpty(), "Короткое слово не ищется в середине слова");
+        assertTrue(index.search("  ,, ", 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Точное совпадение, затем префикс названия, затем слово, затем подстрока")
+    void search_ordersByRelevance() {
+        store.addMovie(new Movie("Оборотень и брат", 2005));
+        store.addMovie(new Movie("Старший брат", 2001));
+        store.addMovie(new Movie("Брат 2", 2000));
+        store.addMovie(new Movie("Брат", 1997));
+        store.addMovie(new Movie("Братва", 2003));
+        TitleSearchIndex index = new TitleSearchIndex(store);
+
+        List<String> titles = index.search("брат", 10).stream().map(Movie::getTitle).toList();
+        assertEquals(List.of("Брат", "Брат 2", "Братва", "Старший брат", "Оборотень и брат"), titles);
+        assertEquals(List.of("Брат", "Брат 2"), index.search("брат", 2).stream().map(Movie::getTitle).toList());
+        assertEquals(List.of("Брат 2"), index.search("брат 2", 10).stream().map(Movie::getTitle).toList(),
+                "Все слова запроса должны быть в названии");
+    }
+
+    @Test
+    @DisplayName("Лучшее совпадение находится, даже если перед ним по id тысячи других")
+    void search_ranksAllCandidates() {
+        for (int i = 0; i < 5_000; i++) {
+            store.addMovie(new Movie("Брат и сестра " + i, 2000));
+        }
+        store.addMovie(new Movie("Брат", 1997));
+        TitleSearchIndex index = new TitleSearchIndex(store);
+
+        assertEquals(List.of("Брат", "Брат и сестра 0", "Брат и сестра 1"),
+                index.search("брат", 3).stream().map(Movie::getTitle).toList());
+    }
+
+    @Test
+    @DisplayName("Индекс следует за добавлением, удалением и очисткой хранилища")
+    void search_followsStoreChanges() {
+        TitleSearchIndex index = new TitleSearchIndex(store);
+        int id = store.addMovie(new Movie("Волколак", 1994));
+        assertEquals(1, index.search("волк", 10).size());
+
+        store.deleteMovie(id);
+        assertTrue(index.search("волк", 10).isEmpty(), "Удалённый фильм не должен находиться");
+
+        store.addMovie(new Movie("Волк с Уолл-стрит", 2013));
+        store.clear();
+        assertTrue(index.search("волк", 10).isEmpty(), "После очистки индекс пуст");
+
+        store.addMovie(new Movie("Волк", 2004));
+        index.close();
+        store.addMovie(new Movie("Волки", 2005));
+        assertEquals(1, index.search("волк", 10).size(), "После close индекс не обновляется");
+    }
+
+    @Test
+    @DisplayName("Фильм, удалённый и возвращённый под тем же id, находится и после очистки удалённых")
+    void search_afterDeleteAndPutOfSameId() {
+        TitleSearchIndex index = new TitleSearchIndex(store);
+        int id = store.addMovie(new Movie("Волколак", 1994));
+        List<Integer> others = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            others.add(store.addMovie(new Movie("Волколак " + i, 2000)));
+        }
+        // так реплика применяет снимок или ленту: удаление, затем фильм по id ведущего
+        store.deleteMovie(id);
+        store.putMovie(id, new Movie("Волколак", 1994));
+        // удалений набирается достаточно, чтобы списки вычистились
+        for (int other : others.subList(0, 150)) {
+            store.deleteMovie(other);
+        }
+
+        List<Movie> found = index.search("Волколак", 1);
+        assertEquals(1, found.size());
+        assertEquals("Волколак", found.get(0).getTitle());
+        assertEquals(51, index.search("Волколак", 100).size());
+    }
+}
@@ -0,0 +1,228 @@
+package ru.practicum.moviehub.store;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.model.Movie;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class WritePipelineTest {
+    private ConcurrentMoviesStore store;
+    private WritePipeline pipeline;
+
+    @BeforeEach
+    void beforeEach() {
+        store = new ConcurrentMoviesStore();
+    }
+
+    @AfterEach
+    void afterEach() {
+        if (pipeline != null) {
+            pipeline.close();
+        }
+    }
+
+    @Test
+    @DisplayName("Параллельные добавления получают те же id, что и в хранилище")
+    void add_concurrent_returnsStoreIds() throws Exception {
+        pipeline = new WritePipeline(store, 1024, 32);
+        int threads = 8;
+        int perThread = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<List<Integer>>> results = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            results.add(executor.submit(() -> {
+                List<Integer> ids = new ArrayList<>();
+                for (int i = 0; i < perThread; i++) {
+                    // повтор своего же названия должен вернуть уже выданный id
+                    String title = "Фильм " + thread + "-" + (i % (perThread / 2));
+                    ids.add(pipeline.add(new Movie(title, 2000)).join());
+                }
+                return ids;
+            }));
+        }
+        Set<Integer> unique = new HashSet<>();
+        for (int t = 0; t < threads; t++) {
+            List<Integer> ids = results.get(t).get(30, TimeUnit.SECONDS);
+            for (int i = 0; i < perThread; i++) {
+                int id = ids.get(i);
+                assertEquals("Фильм " + t + "-" + (i % (perThread / 2)), store.getMovie(id).getTitle());
+                if (i >= perThread / 2) {
+                    assertEquals(ids.get(i - perThread / 2), id, "Дубликат должен получить id исходного фильма");
+                }
+                unique.add(id);
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(threads * perThread / 2, unique.size());
+        assertEquals(unique.size(), store.size());
+        assertEquals(threads * perThread, pipeline.getWrites());
+        assertTrue(pipeline.getBatches() <= pipeline.getWrites());
+    }
+
+    @Test
+    @DisplayName("Изменения применяются в порядке постановки")
+    void addAndDelete_appliedInOrder() {
+        pipeline = new WritePipeline(store, 16);
+        CompletableFuture<Integer> added = pipeline.add(new Movie("Кин-дза-дза!", 1986));
+        int id = added.join();
+        CompletableFuture<Integer> deleted = pipeline.delete(id);
+        CompletableFuture<Integer> deletedAgain = pipeline.delete(id);
+        CompletableFuture<Integer> readded = pipeline.add(new Movie("Кин-дза-дза!", 1986));
+
+        assertEquals(1, deleted.join());
+        assertEquals(0, deletedAgain.join(), "Второе удаление уже не находит фильм");
+        assertTrue(readded.join() > id, "После удаления фильм получает новый id");
+        assertNull(store.getMovie(id));
+    }
+
+    @Test
+    @DisplayName("Исключение слушателя отменяет только своё изменение")
+    void listenerFailure_failsOnlyOwnWrite() {
+        store.addListener(new MoviesStoreListener() {
+            @Override
+            public void onAdd(int id, Movie movie) {
+                if (movie.getYear() == 1900) {
+                    throw new IllegalStateException("Отклонено слушателем");
+                }
+            }
+
+            @Override
+            public void onDelete(int id, Movie movie) {
+            }
+
+            @Override
+            public void onClear() {
+            }
+        });
+        CountDownLatch blocked = blockWriter();
+        CompletableFuture<Integer> before = pipeline.add(new Movie("До", 2000));
+        CompletableFuture<Integer> failed = pipeline.add(new Movie("Отклонённый", 1900));
+        CompletableFuture<Integer> after = pipeline.add(new Movie("После", 2000));
+        blocked.countDown();
+
+        CompletionException e = assertThrows(CompletionException.class, failed::join);
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        assertEquals("До", store.getMovie(before.join()).getTitle());
+        assertEquals("После", store.getMovie(after.join()).getTitle());
+        assertFalse(store.checkMovie("Отклонённый"));
+    }
+
+    @Test
+    @DisplayName("Полная очередь отклоняет изменение сразу")
+    void add_queueFull_rejected() {
+        CountDownLatch blocked = blockWriter();
+        List<CompletableFuture<Integer>> accepted = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            accepted.add(pipeline.add(new Movie("Фильм " + i, 2000)));
+        }
+
+        assertThrows(RejectedExecutionException.class, () -> pipeline.add(new Movie("Лишний", 2000)));
+        assertEquals(1, pipeline.getRejected());
+        blocked.countDown();
+        for (CompletableFuture<Integer> result : accepted) {
+            result.join();
+        }
+        assertFalse(store.checkMovie("Лишний"));
+    }
+
+    @Test
+    @DisplayName("После остановки поставленные изменения применены, новые отклоняются")
+    void close_drainsQueueAndRejectsNewWrites() {
+        pipeline = new WritePipeline(store, 128);
+        List<CompletableFuture<Integer>> results = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            results.add(pipeline.add(new Movie("Фильм " + i, 2000)));
+        }
+        pipeline.close();
+
+        for (CompletableFuture<Integer> result : results) {
+            assertTrue(result.isDone());
+        }
+        assertEquals(100, store.size());
+        assertThrows(RejectedExecutionException.class, () -> pipeline.add(new Movie("Поздний", 2000)));
+    }
+
+    @Test
+    @DisplayName("Сбой фиксации пачки завершает ошибкой все её изменения, хотя они уже применены")
+    void batchCommitFailure_failsWholeBatch() {
+        store = new ConcurrentMoviesStore() {
+            @Override
+            public void writeBatch(Runnable writes) {
+                writes.run();
+                throw new UncheckedIOException(new IOException("fsync не удался"));
+            }
+        };
+        int existing = store.addMovie(new Movie("Старый", 1990));
+        pipeline = new WritePipeline(store, 16);
+        CompletableFuture<Integer> added = pipeline.add(new Movie("Новый", 2000));
+        CompletableFuture<Integer> deleted = pipeline.delete(existing);
+
+        for (CompletableFuture<Integer> result : List.of(added, deleted)) {
+            CompletionException e = assertThrows(CompletionException.class, result::join);
+            assertTrue(e.getCause() instanceof UncheckedIOException);
+        }
+        // изменения видны, но их сохранность неизвестна: ответить успехом нельзя
+        assertTrue(store.checkMovie("Новый"));
+        assertFalse(store.checkMovie("Старый"));
+        assertEquals(0, pipeline.getWrites());
+    }
+
+    // писатель занят первой пачкой, пока не отпустить защёлку; очередь при этом пуста
+    private CountDownLatch blockWriter() {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch entered = new CountDownLatch(1);
+        store.addListener(new MoviesStoreListener() {
+            @Override
+            public void onAdd(int id, Movie movie) {
+                if (movie.getTitle().equals("Затычка")) {
+                    entered.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+
+            @Override
+            public void onDelete(int id, Movie movie) {
+            }
+
+            @Override
+            public void onClear() {
+            }
+        });
+        pipeline = new WritePipeline(store, 4);
+        pipeline.add(new Movie("Затычка", 2000));
+        try {
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new AssertionError(e);
+        }
+        return release;
+    }
+}
@@ -0,0 +1,181 @@
+package ru.practicum.moviehub.store.persistence;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.MoviesPage;
+import ru.practicum.moviehub.store.ConcurrentMoviesStore;
+import ru.practicum.moviehub.store.MoviesSnapshot;
+import ru.practicum.moviehub.store.MoviesStoreListener;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MappedMoviesStoreTest {
+    private Path file;
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        file = Files.createTempFile("movies-mapped-test", ".snapshot");
+    }
+
+    @AfterEach
+    void afterEach() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    @DisplayName("Снимок читается без загрузки в кучу: поиск по id, названию и году")
+    void snapshot_roundTrip() throws IOException {
+        Map<Integer, Movie> movies = new TreeMap<>();
+        movies.put(0, new Movie("Брат", 1997));
+        movies.put(2, new Movie("Брат 2", 2000));
+        movies.put(5, new Movie("Сёстры", 2001));
+        movies.put(7, new Movie("Кин-дза-дза!", 1986));
+        MappedSnapshot.write(file, 3, 8, movies);
+
+        MappedSnapshot snapshot = MappedSnapshot.open(file);
+        assertEquals(3, snapshot.getGeneration());
+        assertEquals(8, snapshot.getNextId());
+        assertEquals(4, snapshot.size());
+        assertEquals("Сёстры", snapshot.movie(snapshot.findRow(5)).getTitle());
+        assertEquals(-1, snapshot.findRow(3));
+        assertEquals(7, snapshot.id(snapshot.findRowByTitle("Кин-дза-дза!")));
+        assertEquals(-1, snapshot.findRowByTitle("Брат 3"));
+        assertEquals(1986, snapshot.year(snapshot.rowByYear(0)), "Порядок по году должен начинаться с самого раннего");
+    }
+
+    @Test
+    @DisplayName("Изменения поверх снимка: дубликаты, удаления, страницы и годы")
+    void store_mergesSnapshotAndOverlay() throws IOException {
+        Map<Integer, Movie> movies = new TreeMap<>();
+        movies.put(0, new Movie("Брат", 1997));
+        movies.put(1, new Movie("Брат 2", 2000));
+        movies.put(2, new Movie("Сёстры", 2001));
+        MappedSnapshot.write(file, 1, 3, movies);
+        MappedMoviesStore store = new MappedMoviesStore(MappedSnapshot.open(file));
+
+        assertEquals(1, store.addMovie(new Movie("Брат 2", 2000)), "Дубликат фильма из снимка не должен создаваться");
+        assertEquals(3, store.addMovie(new Movie("Война", 2002)));
+        assertTrue(store.deleteMovie(0));
+        assertFalse(store.deleteMovie(0));
+        assertNull(store.getMovie(0));
+        assertEquals(-1, store.getMovieId("Брат"));
+        assertEquals(4, store.addMovie(new Movie("Брат", 1997)), "Удалённое название можно добавить заново");
+
+        assertEquals(4, store.size());
+        assertEquals(List.of(1, 2, 3, 4), List.copyOf(store.getMoviesMap().keySet()));
+
+        MoviesPage first = store.getMoviesPage(-1, 2);
+        assertEquals(2, first.getMovies().size());
+        assertTrue(first.hasMore());
+        MoviesPage second = store.getMoviesPage(first.getLastId(), 2);
+        assertEquals("Война", second.getMovies().get(0).getTitle());
+        assertFalse(second.hasMore());
+
+        List<String> titles = store.getMoviesByYearRange(1990, 2001).stream().map(Movie::getTitle).toList();
+        assertEquals(List.of("Брат", "Брат 2", "Сёстры"), titles);
+    }
+
+    @Test
+    @DisplayName("Снимок хранилища не видит удалений из файла и добавлений после себя")
+    void snapshot_isolatedFromLaterWrites() throws IOException {
+        Map<Integer, Movie> movies = new TreeMap<>();
+        movies.put(0, new Movie("Брат", 1997));
+        movies.put(1, new Movie("Брат 2", 2000));
+        MappedSnapshot.write(file, 1, 2, movies);
+        MappedMoviesStore store = new MappedMoviesStore(MappedSnapshot.open(file));
+        store.addMovie(new Movie("Сёстры", 2001));
+
+        MoviesSnapshot snapshot = store.snapshot();
+        long version = store.getVersion();
+        assertTrue(store.deleteMovie(0));
+        store.addMovie(new Movie("Война", 2002));
+
+        assertEquals(version, snapshot.getVersion());
+        assertTrue(store.getVersion() > version);
+        assertEquals(List.of(0, 1, 2), List.copyOf(snapshot.asMap().keySet()));
+        assertEquals("Брат", snapshot.getMovie(0).getTitle());
+        assertEquals("Брат", snapshot.getMoviesByYear(1997).get(0).getTitle());
+        assertEquals(3, snapshot.getMoviesPage(-1, 10).getMovies().size());
+        assertEquals(List.of(1, 2, 3), List.copyOf(store.snapshot().asMap().keySet()));
+    }
+
+    @Test
+    @DisplayName("Очистка под нагрузкой: события слушателей воспроизводят итоговое состояние")
+    void concurrentAddDeleteClear_listenerEventsMatchStore() throws Exception {
+        Map<Integer, Movie> movies = new TreeMap<>();
+        for (int i = 0; i < 100; i++) {
+            movies.put(i, new Movie("Фильм " + i, 2000));
+        }
+        MappedSnapshot.write(file, 1, 100, movies);
+        MappedMoviesStore store = new MappedMoviesStore(MappedSnapshot.open(file));
+        ConcurrentMoviesStore replica = new ConcurrentMoviesStore();
+        for (Map.Entry<Integer, Movie> entry : movies.entrySet()) {
+            replica.putMovie(entry.getKey(), entry.getValue());
+        }
+        // события одного названия и очистка приходят в порядке хранилища, так что реплика сходится с ним
+        store.addListener(new MoviesStoreListener() {
+            @Override
+            public void onAdd(int id, Movie movie) {
+                replica.putMovie(id, movie);
+            }
+
+            @Override
+            public void onDelete(int id, Movie movie) {
+                replica.deleteMovie(id);
+            }
+
+            @Override
+            public void onClear() {
+                replica.clear();
+            }
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            boolean clearing = t == 0;
+            futures.add(executor.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 5_000; i++) {
+                    String title = "Фильм " + random.nextInt(200);
+                    if (clearing && i % 500 == 0) {
+                        store.clear();
+                    } else if (random.nextBoolean()) {
+                        store.addMovie(new Movie(title, 2000));
+                    } else {
+                        int id = store.getMovieId(title);
+                        if (id >= 0) {
+                            store.deleteMovie(id);
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(List.copyOf(replica.snapshot().asMap().keySet()), List.copyOf(store.snapshot().asMap().keySet()),
+                "Изменение ушло в отброшенное состояние");
+    }
+}
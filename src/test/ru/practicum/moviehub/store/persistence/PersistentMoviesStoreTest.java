@@ -0,0 +1,212 @@
+package ru.practicum.moviehub.store.persistence;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ru.practicum.moviehub.model.Movie;
+import ru.practicum.moviehub.store.MoviesStoreListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PersistentMoviesStoreTest {
+    private Path dataDir;
+
+    @BeforeEach
+    void beforeEach() throws IOException {
+        dataDir = Files.createTempDirectory("movies-wal-test");
+    }
+
+    @AfterEach
+    void afterEach() throws IOException {
+        try (Stream<Path> files = Files.walk(dataDir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("После перезапуска каталог восстанавливается из журнала, id не переиспользуются")
+    void reopen_replaysLog() throws IOException {
+        int deletedId;
+        try (PersistentMoviesStore store = open(FsyncPolicy.ALWAYS)) {
+            store.addMovie(new Movie("Волколак", 1994));
+            deletedId = store.addMovie(new Movie("Брат", 1997));
+            store.addMovie(new Movie("Брат 2", 2000));
+            store.deleteMovie(deletedId);
+        }
+
+        try (PersistentMoviesStore store = open(FsyncPolicy.ALWAYS)) {
+            assertEquals(2, store.size());
+            assertEquals(0, store.getMovieId("Волколак"));
+            assertNull(store.getMovie(deletedId));
+            assertEquals(1, store.getMoviesByYear(2000).size(), "Индекс годов должен восстановиться");
+            int id = store.addMovie(new Movie("Сёстры", 2001));
+            assertEquals(3, id, "Новый id не должен совпадать с уже выданными");
+        }
+    }
+
+    @Test
+    @DisplayName("Оборванная последняя запись журнала отбрасывается")
+    void reopen_toleratesTruncatedTail() throws IOException {
+        try (PersistentMoviesStore store = open(FsyncPolicy.NONE)) {
+            store.addMovie(new Movie("Первый", 1990));
+            store.addMovie(new Movie("Второй", 1991));
+            store.addMovie(new Movie("Третий", 1992));
+        }
+        Path wal = dataDir.resolve(PersistentMoviesStore.WAL_FILE);
+        try (FileChannel channel = FileChannel.open(wal, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        try (PersistentMoviesStore store = open(FsyncPolicy.NONE)) {
+            assertEquals(2, store.size(), "Оборванная запись не должна применяться");
+            assertTrue(store.checkMovie("Второй"));
+            store.addMovie(new Movie("Четвёртый", 1993));
+        }
+        try (PersistentMoviesStore store = open(FsyncPolicy.NONE)) {
+            assertEquals(3, store.size(), "Запись после обрезанного хвоста должна читаться");
+            assertTrue(store.checkMovie("Четвёртый"));
+        }
+    }
+
+    @Test
+    @DisplayName("Запись с неверной контрольной суммой в конце журнала отбрасывается")
+    void reopen_toleratesCorruptedTail() throws IOException {
+        try (PersistentMoviesStore store = open(FsyncPolicy.NONE)) {
+            store.addMovie(new Movie("Первый", 1990));
+            store.addMovie(new Movie("Второй", 1991));
+        }
+        Path wal = dataDir.resolve(PersistentMoviesStore.WAL_FILE);
+        byte[] bytes = Files.readAllBytes(wal);
+        bytes[bytes.length - 6] ^= 0x7F;
+        Files.write(wal, bytes);
+
+        try (PersistentMoviesStore store = open(FsyncPolicy.NONE)) {
+            assertEquals(1, store.size());
+            assertTrue(store.checkMovie("Первый"));
+        }
+    }
+
+    @Test
+    @DisplayName("Снимок и хвост журнала дают полный каталог, старый журнал повторно не применяется")
+    void compact_thenReopen_restoresSnapshotAndTail() throws IOException {
+        Path wal = dataDir.resolve(PersistentMoviesStore.WAL_FILE);
+        Path staleWal = dataDir.resolve("stale.wal");
+        try (PersistentMoviesStore store = open(FsyncPolicy.ALWAYS)) {
+            for (int i = 0; i < 100; i++) {
+                store.addMovie(new Movie("Фильм " + i, 1950 + i % 50));
+            }
+            store.deleteMovie(10);
+            Files.copy(wal, staleWal);
+            store.compact();
+            assertEquals(WriteAheadLog.HEADER_SIZE, store.getLogSize(), "После снимка журнал должен быть пуст");
+            store.addMovie(new Movie("Фильм 10", 1960));
+            store.deleteMovie(20);
+        }
+
+        try (PersistentMoviesStore store = open(FsyncPolicy.ALWAYS)) {
+            assertEquals(99, store.size());
+            assertEquals(100, store.getMovieId("Фильм 10"), "Фильм после снимка получает новый id");
+            assertNull(store.getMovie(20));
+        }
+
+        // имитируем сбой между записью снимка и очисткой журнала: рядом со снимком лежит старый журнал
+        Files.copy(staleWal, wal, StandardCopyOption.REPLACE_EXISTING);
+        try (PersistentMoviesStore store = open(FsyncPolicy.ALWAYS)) {
+            assertEquals(99, store.size(), "Журнал, уже вошедший в снимок, не должен применяться");
+            assertEquals(-1, store.getMovieId("Фильм 10"), "Состояние должно совпадать со снимком");
+            assertEquals(20, store.getMovieId("Фильм 20"));
+        }
+    }
+
+    @Test
+    @DisplayName("Очищенный журнал без переименованного снимка не применяется к старому снимку молча")
+    void reopen_whenSnapshotRenameLost_fails() throws IOException {
+        Path snapshot = dataDir.resolve(PersistentMoviesStore.SNAPSHOT_FILE);
+        Path staleSnapshot = dataDir.resolve("stale.snapshot");
+        try (PersistentMoviesStore store = open(FsyncPolicy.ALWAYS)) {
+            store.addMovie(new Movie("Брат", 1997));
+            store.compact();
+            store.addMovie(new Movie("Брат 2", 2000));
+            Files.copy(snapshot, staleSnapshot);
+            store.compact();
+            store.addMovie(new Movie("Сёстры", 2001));
+        }
+        // имитируем сбой, после которого на диске остались очищенный журнал нового поколения и прежний снимок
+        Files.copy(staleSnapshot, snapshot, StandardCopyOption.REPLACE_EXISTING);
+
+        IOException e = assertThrows(IOException.class, () -> open(FsyncPolicy.ALWAYS));
+        assertTrue(e.getMessage().contains("снимок потерян"), e.getMessage());
+    }
+
+    @Test
+    @DisplayName("С ALWAYS запись возвращается после fsync, но fsync не выполняется внутри слушателей")
+    void always_syncsAfterListenersBeforeReturn() throws IOException {
+        try (PersistentMoviesStore store = open(FsyncPolicy.ALWAYS)) {
+            List<Boolean> durableInListener = new ArrayList<>();
+            store.addListener(new MoviesStoreListener() {
+                @Override
+                public void onAdd(int id, Movie movie) {
+                    durableInListener.add(store.wal.durableSize() == store.wal.size());
+                }
+
+                @Override
+                public void onDelete(int id, Movie movie) {
+                    durableInListener.add(store.wal.durableSize() == store.wal.size());
+                }
+
+                @Override
+                public void onClear() {
+                }
+            });
+            int id = store.addMovie(new Movie("Брат", 1997));
+            assertEquals(store.wal.size(), store.wal.durableSize(), "Добавление возвращается после fsync");
+            store.deleteMovie(id);
+            assertEquals(store.wal.size(), store.wal.durableSize(), "Удаление возвращается после fsync");
+
+            // слушатели вызываются под блокировкой хранилища, fsync там задержал бы других писателей
+            assertEquals(List.of(false, false), durableInListener);
+        }
+    }
+
+    @Test
+    @DisplayName("После сбоя fsync пачки хранилище отклоняет изменения")
+    void batchSyncFailure_rejectsFurtherWrites() throws IOException {
+        PersistentMoviesStore store = open(FsyncPolicy.ALWAYS);
+        UncheckedIOException e = assertThrows(UncheckedIOException.class, () -> store.writeBatch(() -> {
+            store.addMovie(new Movie("Брат", 1997));
+            try {
+                // закрытый файл журнала не даёт сделать fsync в конце пачки
+                store.wal.channel.close();
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        }));
+        assertTrue(e.getMessage().contains("зафиксировать"), e.getMessage());
+
+        assertThrows(UncheckedIOException.class, () -> store.addMovie(new Movie("Брат 2", 2000)));
+        assertEquals(-1, store.getMovieId("Брат 2"), "Отклонённое изменение не должно применяться");
+        assertThrows(IOException.class, store::close);
+    }
+
+    private PersistentMoviesStore open(FsyncPolicy policy) throws IOException {
+        return PersistentMoviesStore.open(new PersistenceConfig(dataDir).setFsyncPolicy(policy));
+    }
+}